@@ -0,0 +1,186 @@
+package pms.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import pms.AppConfig;
+import pms.BulkImportResult;
+import pms.DatabaseConnection;
+import pms.Project;
+import pms.ProjectDAO;
+import pms.SchemaMigrator;
+
+/**
+ * Creates an in-memory H2 database in MySQL mode with the tables from {@code PMS.sql},
+ * applies the application's schema migrations, seeds it, and points
+ * {@link DatabaseConnection} at it.
+ *
+ * Seeded project {@code n} is named {@code "Project n"}. One in five projects is open,
+ * and deadlines are spread over the year either side of today, so about half of the
+ * open projects are overdue.
+ */
+final class BenchmarkDatabase {
+    /** Customers, architects and contractors seeded in each table. */
+    static final int PEOPLE = 100;
+
+    private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE .*?\\n\\)", Pattern.DOTALL);
+
+    private static Connection keepAlive;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Creates and seeds a fresh database and configures the connection pool for it.
+     *
+     * @param name the in-memory database name
+     * @param projects the number of projects to seed
+     * @param poolSize the most connections the pool may open
+     * @throws SQLException if the database cannot be created
+     * @throws IOException if {@code PMS.sql} cannot be read
+     */
+    static void start(String name, int projects, int poolSize) throws SQLException, IOException {
+        String url = "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+        // The in-memory database lives as long as one connection to it is open
+        keepAlive = DriverManager.getConnection(url, "sa", "");
+        try (Statement stmt = keepAlive.createStatement()) {
+            for (String create : createTables(schemaFile())) {
+                stmt.execute(create);
+            }
+            stmt.execute("CREATE ALIAS GET_LOCK FOR 'pms.bench.H2Functions.getLock'");
+            stmt.execute("CREATE ALIAS RELEASE_LOCK FOR 'pms.bench.H2Functions.releaseLock'");
+        }
+        seedPeople();
+
+        Properties settings = new Properties();
+        settings.setProperty("pms.db.url", url);
+        settings.setProperty("pms.db.user", "sa");
+        settings.setProperty("pms.db.password", "");
+        settings.setProperty("pms.db.fetchSize", "1000");
+        settings.setProperty("pms.pool.minIdle", "1");
+        settings.setProperty("pms.pool.maxSize", Integer.toString(poolSize));
+        DatabaseConnection.configure(new AppConfig(settings));
+        new SchemaMigrator().migrate();
+
+        BulkImportResult result = new ProjectDAO().addProjects(() -> new Iterator<Project>() {
+            private int next = 1;
+
+            @Override
+            public boolean hasNext() {
+                return next <= projects;
+            }
+
+            @Override
+            public Project next() {
+                return newProject(next++);
+            }
+        }, 1000);
+        if (result.getInserted() != projects) {
+            throw new SQLException("Seeding failed: " + result);
+        }
+    }
+
+    /**
+     * Closes the connection pool and drops the database.
+     */
+    static void stop() {
+        DatabaseConnection.shutdown();
+        try {
+            keepAlive.close();
+        } catch (SQLException e) {
+            System.err.println("Could not close the benchmark database: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Builds seed project {@code n}, which gets project number {@code n} when inserted
+     * into an empty table.
+     *
+     * @param n the seed number
+     * @return the project, not yet inserted
+     */
+    static Project newProject(int n) {
+        boolean open = n % 5 == 0;
+        LocalDate deadline = LocalDate.now().minusDays(365).plusDays((n * 7919L) % 730);
+        int person = 1 + n % PEOPLE;
+        return new Project(0, name(n), n % 2 == 0 ? "House" : "Apartment", n + " Main Road", "ERF" + n,
+                           250_000 + n % 1000, 10_000, deadline.toString(), !open,
+                           open ? null : deadline.toString(), person, person, person);
+    }
+
+    /**
+     * Gets the name of seed project {@code n}.
+     *
+     * @param n the seed number
+     * @return the project name
+     */
+    static String name(int n) {
+        return "Project " + n;
+    }
+
+    /**
+     * Finds {@code PMS.sql}, from {@code -Dpms.sql=...} or the repository layout.
+     */
+    private static Path schemaFile() throws IOException {
+        String configured = System.getProperty("pms.sql");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        for (String candidate : new String[] { "../../PMS.sql", "../PMS.sql", "PMS/PMS.sql", "PMS.sql" }) {
+            Path path = Paths.get(candidate);
+            if (Files.isRegularFile(path)) {
+                return path;
+            }
+        }
+        throw new IOException("Cannot find PMS.sql; run from the benchmarks directory or set -Dpms.sql=<path>");
+    }
+
+    /**
+     * Extracts the CREATE TABLE statements from a mysqldump file, without the MySQL
+     * table options after the column list.
+     */
+    static List<String> createTables(Path dump) throws IOException {
+        String sql = new String(Files.readAllBytes(dump), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        List<String> statements = new ArrayList<>();
+        Matcher matcher = CREATE_TABLE.matcher(sql);
+        while (matcher.find()) {
+            statements.add(matcher.group());
+        }
+        if (statements.isEmpty()) {
+            throw new IOException(dump + " has no CREATE TABLE statements");
+        }
+        return statements;
+    }
+
+    private static void seedPeople() throws SQLException {
+        for (String table : new String[] { "Customer", "Architect", "Contractor" }) {
+            try (PreparedStatement stmt = keepAlive.prepareStatement(
+                    "INSERT INTO " + table + " (firstName, lastName, Phone, Email, Address) VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= PEOPLE; i++) {
+                    stmt.setString(1, table + "First" + i);
+                    stmt.setString(2, table + "Last" + i);
+                    stmt.setString(3, "021555" + i);
+                    stmt.setString(4, table.toLowerCase() + i + "@example.com");
+                    stmt.setString(5, i + " Long Street");
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        }
+    }
+}
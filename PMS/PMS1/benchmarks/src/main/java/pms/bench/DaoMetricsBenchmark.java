@@ -0,0 +1,57 @@
+package pms.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pms.DaoMetrics;
+import pms.LatencyHistogram;
+
+/**
+ * Measures what timing a DAO call with {@link DaoMetrics} adds to it, without a
+ * database: starting, completing and closing a sample, on one thread and with four
+ * threads recording into the same operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoMetricsBenchmark {
+    private final DaoMetrics metrics = DaoMetrics.forOperation("benchmark");
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long value = 12_345;
+
+    @Benchmark
+    @Threads(1)
+    public void sample() {
+        try (DaoMetrics.Sample sample = metrics.start()) {
+            sample.complete(1);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void sampleContended() {
+        try (DaoMetrics.Sample sample = metrics.start()) {
+            sample.complete(1);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void record() {
+        value = value * 6_364_136_223_846_793_005L + 1;
+        histogram.record(value >>> 40);
+    }
+}
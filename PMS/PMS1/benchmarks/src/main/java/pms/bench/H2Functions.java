@@ -0,0 +1,32 @@
+package pms.bench;
+
+/**
+ * MySQL functions the application calls that H2 does not have, registered with
+ * {@code CREATE ALIAS} when the benchmark database is created.
+ */
+public final class H2Functions {
+
+    private H2Functions() {
+    }
+
+    /**
+     * Stands in for MySQL's {@code GET_LOCK}; the benchmark database has one user.
+     *
+     * @param name the lock name
+     * @param timeoutSeconds how long MySQL would wait
+     * @return 1, meaning the lock was obtained
+     */
+    public static int getLock(String name, int timeoutSeconds) {
+        return 1;
+    }
+
+    /**
+     * Stands in for MySQL's {@code RELEASE_LOCK}.
+     *
+     * @param name the lock name
+     * @return 1, meaning the lock was released
+     */
+    public static int releaseLock(String name) {
+        return 1;
+    }
+}
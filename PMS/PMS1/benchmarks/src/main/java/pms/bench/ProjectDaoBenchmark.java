@@ -0,0 +1,122 @@
+package pms.bench;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pms.Project;
+import pms.ProjectDAO;
+
+/**
+ * Measures each {@link ProjectDAO} operation against a seeded in-memory database, for
+ * tables of 1k to 1M projects. Every benchmark runs in its own fork with a fresh
+ * database, so the writes of one benchmark do not affect another.
+ *
+ * Deletes are measured by {@link ProjectDeleteBenchmark}, since each one needs a row
+ * that has not been deleted yet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@Threads(1)
+public class ProjectDaoBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    int projects;
+
+    ProjectDAO projectDAO;
+
+    @Setup(Level.Trial)
+    public void startDatabase() throws SQLException, IOException {
+        BenchmarkDatabase.start("dao", projects, 4);
+        projectDAO = new ProjectDAO();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() {
+        BenchmarkDatabase.stop();
+    }
+
+    /**
+     * Per-thread state: a random source and a project to update.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        SplittableRandom random = new SplittableRandom(42);
+        Project project;
+        boolean flip;
+        int projects;
+
+        @Setup(Level.Trial)
+        public void load(ProjectDaoBenchmark benchmark) throws SQLException {
+            projects = benchmark.projects;
+            project = benchmark.projectDAO.findProjectByNumber(1 + random.nextInt(projects));
+        }
+
+        int nextProjectNo() {
+            return 1 + random.nextInt(projects);
+        }
+    }
+
+    @Benchmark
+    public int addProject(Cursor cursor) throws SQLException {
+        return projectDAO.createProject(BenchmarkDatabase.newProject(cursor.nextProjectNo()));
+    }
+
+    @Benchmark
+    public Project findByNumber(Cursor cursor) throws SQLException {
+        return projectDAO.findProjectByNumber(cursor.nextProjectNo());
+    }
+
+    @Benchmark
+    public Project findByName(Cursor cursor) throws SQLException {
+        return projectDAO.findProjectByName(BenchmarkDatabase.name(cursor.nextProjectNo()));
+    }
+
+    @Benchmark
+    public Project updateProject(Cursor cursor) throws SQLException {
+        // Alternate the amount so every call writes one changed column
+        cursor.flip = !cursor.flip;
+        cursor.project.setAmountPaid(cursor.flip ? 20_000 : 10_000);
+        projectDAO.updateProject(cursor.project);
+        return cursor.project;
+    }
+
+    @Benchmark
+    public int finalizeProject(Cursor cursor) throws SQLException {
+        int projectNo = cursor.nextProjectNo();
+        projectDAO.finalizeProject(projectNo, LocalDate.now().toString());
+        return projectNo;
+    }
+
+    @Benchmark
+    public List<Project> listIncomplete() throws SQLException {
+        return projectDAO.getIncompleteProjects();
+    }
+
+    @Benchmark
+    public List<Project> listOverdue() throws SQLException {
+        return projectDAO.getOverdueProjects();
+    }
+}
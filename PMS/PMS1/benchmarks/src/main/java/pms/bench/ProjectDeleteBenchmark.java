@@ -0,0 +1,85 @@
+package pms.bench;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pms.BulkImportResult;
+import pms.Project;
+import pms.ProjectDAO;
+
+/**
+ * Measures {@link ProjectDAO#deleteProject(int)}. Before each iteration a batch of
+ * spare projects is added, outside the measurement, and the iteration deletes exactly
+ * that batch, so the table stays the seeded size. The score is the time per batch of
+ * {@value #BATCH} deletes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = ProjectDeleteBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = ProjectDeleteBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@Threads(1)
+public class ProjectDeleteBenchmark {
+    static final int BATCH = 1000;
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    int projects;
+
+    ProjectDAO projectDAO;
+    int[] spares = new int[BATCH];
+    int next;
+
+    @Setup(Level.Trial)
+    public void startDatabase() throws SQLException, IOException {
+        BenchmarkDatabase.start("delete", projects, 2);
+        projectDAO = new ProjectDAO();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() {
+        BenchmarkDatabase.stop();
+    }
+
+    @Setup(Level.Iteration)
+    public void addSpares() throws SQLException {
+        List<Project> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(BenchmarkDatabase.newProject(projects + i));
+        }
+        BulkImportResult result = projectDAO.addProjects(batch, BATCH);
+        if (result.getInserted() != BATCH) {
+            throw new SQLException("Could not add spare projects: " + result);
+        }
+        for (int i = 0; i < BATCH; i++) {
+            spares[i] = batch.get(i).getProjectNo();
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public void deleteProject() throws SQLException {
+        if (next == BATCH) {
+            throw new IllegalStateException("Only " + BATCH + " spares per iteration; run this benchmark in single-shot mode");
+        }
+        projectDAO.deleteProject(spares[next++]);
+    }
+}
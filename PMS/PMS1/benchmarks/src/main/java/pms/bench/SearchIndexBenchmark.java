@@ -0,0 +1,62 @@
+package pms.bench;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pms.ProjectSearchIndex;
+
+/**
+ * Measures {@link ProjectSearchIndex#search(String, int)} over the seeded projects, for a
+ * partial name, a misspelt one, a surname and a prefix of only two characters. The seed
+ * names all start with "Project", so these are close to the worst case for the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@Threads(1)
+public class SearchIndexBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    int projects;
+
+    @Param({ "Project 12", "Projetc 4567", "CustomerLast42", "pr" })
+    String query;
+
+    ProjectSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void loadIndex() throws SQLException, IOException {
+        BenchmarkDatabase.start("search", projects, 1);
+        index = ProjectSearchIndex.load();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() {
+        BenchmarkDatabase.stop();
+    }
+
+    @Benchmark
+    public List<ProjectSearchIndex.Match> search() {
+        return index.search(query, 10);
+    }
+}
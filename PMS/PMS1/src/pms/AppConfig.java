@@ -0,0 +1,126 @@
+package pms;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Holds the application settings that are supplied from outside the code.
+ *
+ * A setting such as {@code pms.db.url} is looked up in this order: the Java
+ * system property {@code -Dpms.db.url=...}, the environment variable
+ * {@code PMS_DB_URL}, the properties file, and finally the default passed by the caller.
+ */
+public class AppConfig {
+    /** System property naming the properties file to load. */
+    public static final String CONFIG_FILE_PROPERTY = "pms.config";
+    /** Properties file read from the working directory when no file is named. */
+    public static final String DEFAULT_CONFIG_FILE = "pms.properties";
+
+    private final Properties properties;
+
+    /**
+     * Creates a configuration backed by the given properties.
+     *
+     * @param properties the properties read from the configuration file
+     */
+    public AppConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Loads the configuration from the file named by {@code -Dpms.config},
+     * or from {@code pms.properties} in the working directory if it exists.
+     *
+     * @return the loaded configuration
+     */
+    public static AppConfig load() {
+        Properties properties = new Properties();
+        Path file = Paths.get(System.getProperty(CONFIG_FILE_PROPERTY, DEFAULT_CONFIG_FILE));
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.err.println("Could not read " + file + ": " + e.getMessage());
+            }
+        }
+        return new AppConfig(properties);
+    }
+
+    /**
+     * Gets a setting as a string.
+     *
+     * @param key the setting name, for example {@code pms.db.url}
+     * @param defaultValue the value to use when the setting is not supplied
+     * @return the setting value
+     */
+    public String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_'));
+        }
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    /**
+     * Gets a setting as an int.
+     *
+     * @param key the setting name
+     * @param defaultValue the value to use when the setting is not supplied
+     * @return the setting value
+     * @throws IllegalArgumentException if the setting is not a valid number
+     */
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Setting " + key + " must be a number: " + value, e);
+        }
+    }
+
+    /**
+     * Gets a setting as a long.
+     *
+     * @param key the setting name
+     * @param defaultValue the value to use when the setting is not supplied
+     * @return the setting value
+     * @throws IllegalArgumentException if the setting is not a valid number
+     */
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Setting " + key + " must be a number: " + value, e);
+        }
+    }
+
+    /**
+     * Gets a setting as a boolean.
+     *
+     * @param key the setting name
+     * @param defaultValue the value to use when the setting is not supplied
+     * @return the setting value
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+}
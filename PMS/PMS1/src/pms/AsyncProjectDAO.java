@@ -0,0 +1,399 @@
+package pms;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link ProjectDAO} calls in the background and returns their results as
+ * {@link CompletableFuture}s, so that independent queries can run at the same time.
+ *
+ * Each call runs on its own virtual thread. A semaphore caps how many calls use the
+ * database at once (by default the connection pool size), so a burst of calls waits
+ * here instead of in the pool's borrow timeout. Every future times out after the
+ * configured time, counted from when the call was submitted so that waiting for a
+ * permit counts too. A failed call completes its future with the
+ * {@link SQLException} as the cause of a {@link CompletionException}.
+ *
+ * Cancelling a future, or letting it time out, stops its call. A call still waiting
+ * for a permit is interrupted. A call already running is not, since interrupting a
+ * thread blocked reading a socket makes the driver close the connection; instead
+ * the statements it has open are cancelled with {@link Statement#cancel()}, which
+ * asks the server to stop the query and leaves the connection usable. This covers
+ * the statements prepared on connections from {@link DaoMetrics.Sample#connect()}.
+ *
+ * For example, a screen needing both listings waits only as long as the slower one:
+ * <pre>
+ * CompletableFuture&lt;List&lt;Project&gt;&gt; incomplete = async.getIncompleteProjects();
+ * CompletableFuture&lt;List&lt;Project&gt;&gt; overdue = async.getOverdueProjects();
+ * CompletableFuture.allOf(incomplete, overdue).join();
+ * </pre>
+ */
+public class AsyncProjectDAO implements AutoCloseable {
+    private static final ThreadLocal<Call> CURRENT = new ThreadLocal<>();
+
+    private final ProjectDAO projectDAO;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    /**
+     * Creates an asynchronous facade over a DAO.
+     *
+     * @param projectDAO the DAO the calls are made on
+     * @param maxConcurrency the most calls allowed to use the database at once
+     * @param timeoutMillis how long a call may take before its future times out (0 means no timeout)
+     */
+    public AsyncProjectDAO(ProjectDAO projectDAO, int maxConcurrency, long timeoutMillis) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.projectDAO = projectDAO;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Creates an asynchronous facade using the {@code pms.async.*} settings.
+     *
+     * @param projectDAO the DAO the calls are made on
+     * @param config the application configuration
+     * @return the asynchronous DAO
+     */
+    public static AsyncProjectDAO fromConfig(ProjectDAO projectDAO, AppConfig config) {
+        int maxConcurrency = config.getInt("pms.async.maxConcurrency", DatabaseConnection.pool().getMaxSize());
+        return new AsyncProjectDAO(projectDAO, maxConcurrency, config.getLong("pms.async.timeoutMillis", 30_000L));
+    }
+
+    /**
+     * Gets the DAO the calls are made on.
+     *
+     * @return the ProjectDAO
+     */
+    public ProjectDAO getProjectDAO() {
+        return projectDAO;
+    }
+
+    /**
+     * Adds a new project to the database.
+     *
+     * @param project the project to add; its number is set once it has been added
+     * @return a future completed once the project has been added
+     */
+    public CompletableFuture<Void> addProject(Project project) {
+        return submit(() -> {
+            projectDAO.addProject(project);
+            return null;
+        });
+    }
+
+    /**
+     * Creates a project, naming it after its customer if it has no name.
+     *
+     * @param project the project to create
+     * @return a future holding the new project's number
+     * @see ProjectDAO#createProject(Project)
+     */
+    public CompletableFuture<Integer> createProject(Project project) {
+        return submit(() -> projectDAO.createProject(project));
+    }
+
+    /**
+     * Finds a project by its number.
+     *
+     * @param projectNumber the project number
+     * @return a future holding the project, or null if there is none
+     */
+    public CompletableFuture<Project> findProjectByNumber(int projectNumber) {
+        return submit(() -> projectDAO.findProjectByNumber(projectNumber));
+    }
+
+    /**
+     * Finds a project by its name.
+     *
+     * @param projectName the project name
+     * @return a future holding the project, or null if there is none
+     */
+    public CompletableFuture<Project> findProjectByName(String projectName) {
+        return submit(() -> projectDAO.findProjectByName(projectName));
+    }
+
+    /**
+     * Updates an existing project in the database.
+     *
+     * @param project the project with updated details
+     * @return a future holding false if the project was not found
+     * @see ProjectDAO#updateProject(Project)
+     */
+    public CompletableFuture<Boolean> updateProject(Project project) {
+        return submit(() -> projectDAO.updateProject(project));
+    }
+
+    /**
+     * Updates a project only if its row is still at the version the project was read at.
+     *
+     * @param project the project with updated details, read at {@link Project#getVersion()}
+     * @return a future holding the result of the write
+     * @see ProjectDAO#updateProjectIfCurrent(Project)
+     */
+    public CompletableFuture<WriteResult> updateProjectIfCurrent(Project project) {
+        return submit(() -> projectDAO.updateProjectIfCurrent(project));
+    }
+
+    /**
+     * Finalizes a project.
+     *
+     * @param projectNumber the project number
+     * @param completionDate the completion date
+     * @return a future holding false if the project was not found
+     */
+    public CompletableFuture<Boolean> finalizeProject(int projectNumber, String completionDate) {
+        return submit(() -> projectDAO.finalizeProject(projectNumber, completionDate));
+    }
+
+    /**
+     * Finalizes a project only if its row is still at the expected version.
+     *
+     * @param projectNumber the project number
+     * @param expectedVersion the version the project was read at
+     * @param completionDate the completion date
+     * @return a future holding the result of the write
+     * @see ProjectDAO#finalizeProjectIfCurrent(int, int, String)
+     */
+    public CompletableFuture<WriteResult> finalizeProjectIfCurrent(int projectNumber, int expectedVersion, String completionDate) {
+        return submit(() -> projectDAO.finalizeProjectIfCurrent(projectNumber, expectedVersion, completionDate));
+    }
+
+    /**
+     * Deletes a project.
+     *
+     * @param projectNumber the project number
+     * @return a future holding false if the project was not found
+     */
+    public CompletableFuture<Boolean> deleteProject(int projectNumber) {
+        return submit(() -> projectDAO.deleteProject(projectNumber));
+    }
+
+    /**
+     * Deletes a project only if its row is still at the expected version.
+     *
+     * @param projectNumber the project number
+     * @param expectedVersion the version the project was read at
+     * @return a future holding the result of the write
+     * @see ProjectDAO#deleteProjectIfCurrent(int, int)
+     */
+    public CompletableFuture<WriteResult> deleteProjectIfCurrent(int projectNumber, int expectedVersion) {
+        return submit(() -> projectDAO.deleteProjectIfCurrent(projectNumber, expectedVersion));
+    }
+
+    /**
+     * Gets all projects that are not yet finalized.
+     *
+     * @return a future holding the incomplete projects
+     */
+    public CompletableFuture<List<Project>> getIncompleteProjects() {
+        return submit(projectDAO::getIncompleteProjects);
+    }
+
+    /**
+     * Gets all projects that are past their deadline and not yet finalized.
+     *
+     * @return a future holding the overdue projects
+     */
+    public CompletableFuture<List<Project>> getOverdueProjects() {
+        return submit(projectDAO::getOverdueProjects);
+    }
+
+    /**
+     * Gets one page of the projects that are not yet finalized.
+     *
+     * @param pageToken the token of the page to read, or null for the first page
+     * @param pageSize the largest number of projects on the page
+     * @return a future holding the page
+     */
+    public CompletableFuture<ProjectPage> getIncompleteProjectsPage(String pageToken, int pageSize) {
+        return submit(() -> projectDAO.getIncompleteProjectsPage(pageToken, pageSize));
+    }
+
+    /**
+     * Gets one page of the projects that are past their deadline and not yet finalized.
+     *
+     * @param pageToken the token of the page to read, or null for the first page
+     * @param pageSize the largest number of projects on the page
+     * @return a future holding the page
+     */
+    public CompletableFuture<ProjectPage> getOverdueProjectsPage(String pageToken, int pageSize) {
+        return submit(() -> projectDAO.getOverdueProjectsPage(pageToken, pageSize));
+    }
+
+    /**
+     * Runs any database call, such as a {@link ReportDAO} report, under the same
+     * concurrency limit, timeout and cancellation as the other methods.
+     *
+     * @param <T> the result type
+     * @param call the call to run
+     * @return a future holding the call's result
+     */
+    public <T> CompletableFuture<T> submit(SqlCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Call running = new Call();
+        Future<?> task = executor.submit(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                result.completeExceptionally(new CancellationException("Cancelled while waiting for the database"));
+                return;
+            }
+            try {
+                if (running.start()) {
+                    CURRENT.set(running);
+                    result.complete(call.call());
+                }
+            } catch (SQLException | RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                CURRENT.remove();
+                permits.release();
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (error != null && running.cancel()) {
+                // Still waiting for a permit, so no connection is interrupted
+                task.cancel(true);
+            }
+        });
+        return timeoutMillis > 0 ? result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS) : result;
+    }
+
+    /**
+     * Gets the number of calls that could start using the database right now.
+     *
+     * @return the free concurrency permits
+     */
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Stops accepting calls and waits for running calls to finish.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * Wraps a connection borrowed by a call running on this thread, so that the
+     * statements made on it are cancelled if the call's future is.
+     *
+     * @param conn the borrowed connection
+     * @return the wrapped connection, or the same connection if no call is running here
+     */
+    static Connection watch(Connection conn) {
+        Call call = CURRENT.get();
+        return call == null ? conn : call.watch(conn);
+    }
+
+    /**
+     * A database call that returns a result.
+     *
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        /**
+         * Makes the call.
+         *
+         * @return the result
+         * @throws SQLException if a database access error occurs
+         */
+        T call() throws SQLException;
+    }
+
+    /**
+     * The state of one submitted call and the statements it has opened.
+     */
+    private static final class Call {
+        private static final int WAITING = 0;
+        private static final int RUNNING = 1;
+        private static final int CANCELLED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private final List<Statement> statements = new ArrayList<>();
+
+        /**
+         * Marks the call as running once it has a permit.
+         *
+         * @return false if it was cancelled while waiting
+         */
+        boolean start() {
+            return state.compareAndSet(WAITING, RUNNING);
+        }
+
+        /**
+         * Cancels the call: its open statements if it is running.
+         *
+         * @return true if it was still waiting for a permit, and may be interrupted
+         */
+        boolean cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                return true;
+            }
+            if (state.compareAndSet(RUNNING, CANCELLED)) {
+                List<Statement> open;
+                synchronized (this) {
+                    open = new ArrayList<>(statements);
+                }
+                for (Statement stmt : open) {
+                    try {
+                        stmt.cancel();
+                    } catch (SQLException e) {
+                        // Already closed
+                    }
+                }
+            }
+            return false;
+        }
+
+        Connection watch(Connection conn) {
+            return (Connection) Proxy.newProxyInstance(
+                    AsyncProjectDAO.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    (proxy, method, args) -> {
+                        Object result;
+                        try {
+                            result = method.invoke(conn, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if (result instanceof Statement) {
+                            register((Statement) result);
+                        }
+                        return result;
+                    });
+        }
+
+        private void register(Statement stmt) throws SQLException {
+            synchronized (this) {
+                statements.add(stmt);
+            }
+            if (state.get() == CANCELLED) {
+                stmt.close();
+                throw new SQLException("Call was cancelled", "57014");
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package pms;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs project commands read from a script, one command per line, without prompts.
+ *
+ * <pre>
+ * add name="House Smith" type=House architectID=1 contractorID=2 customerID=3 totalFee=250000 deadline=2026-12-01
+ * update 17 amountPaid=5000 deadline=2026-11-30
+ * finalize 42 2026-10-01
+ * delete 12
+ * find 17
+ * commit
+ * </pre>
+ *
+ * Blank lines and lines starting with {@code #} are skipped. Values containing spaces
+ * are written in double quotes. Every command runs in one {@link UnitOfWork}, and the
+ * work is committed every {@code transactionSize} commands
+ * (and at {@code commit} and the end of the script), so a large script does not pay
+ * for a commit per command.
+ *
+ * One result line is printed per command, as tab-separated
+ * {@code line status command detail} or as one JSON object per line. The status is
+ * {@code ok}, {@code error}, or {@code rolledback} for a command whose transaction was
+ * rolled back after it ran. Results are printed when their transaction ends, so an
+ * {@code ok} line is always committed.
+ */
+public class BatchRunner {
+    /** The output formats. */
+    public enum Format { TSV, JSON }
+
+    private final ProjectDAO projectDAO;
+    private final int transactionSize;
+    private final Format format;
+    private final PrintStream out;
+
+    private final List<Result> pending = new ArrayList<>();
+    private int succeeded;
+    private int failed;
+
+    /**
+     * Creates a batch runner.
+     *
+     * @param projectDAO the DAO the commands are run on
+     * @param transactionSize the number of commands per transaction
+     * @param format the output format
+     * @param out where the results are printed
+     */
+    public BatchRunner(ProjectDAO projectDAO, int transactionSize, Format format, PrintStream out) {
+        if (transactionSize < 1) {
+            throw new IllegalArgumentException("Transaction size must be at least 1");
+        }
+        this.projectDAO = projectDAO;
+        this.transactionSize = transactionSize;
+        this.format = format;
+        this.out = out;
+    }
+
+    /**
+     * Creates a batch runner using the {@code pms.batch.*} settings, printing to standard output.
+     *
+     * @param projectDAO the DAO the commands are run on
+     * @param config the application configuration
+     * @return the batch runner
+     * @throws IllegalArgumentException if a setting is not valid
+     */
+    public static BatchRunner fromConfig(ProjectDAO projectDAO, AppConfig config) {
+        String name = config.getString("pms.batch.format", "tsv");
+        Format format;
+        try {
+            format = Format.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Setting pms.batch.format must be tsv or json: " + name, e);
+        }
+        return new BatchRunner(projectDAO, config.getInt("pms.batch.transactionSize", 1000), format, System.out);
+    }
+
+    /**
+     * Runs every command in a script.
+     *
+     * @param script the script to read
+     * @return true if every command succeeded
+     * @throws SQLException if the connection fails and the script cannot continue
+     * @throws IOException if the script cannot be read
+     */
+    public boolean run(BufferedReader script) throws SQLException, IOException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            String line;
+            int lineNumber = 0;
+            while ((line = script.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                if (trimmed.equals("commit")) {
+                    commit(work);
+                    continue;
+                }
+                execute(work, lineNumber, trimmed);
+                if (pending.size() >= transactionSize) {
+                    commit(work);
+                }
+            }
+            commit(work);
+        } finally {
+            if (!pending.isEmpty()) {
+                rolledBack();
+            }
+        }
+        return failed == 0;
+    }
+
+    /**
+     * Gets the number of commands that were committed.
+     *
+     * @return the success count
+     */
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * Gets the number of commands that failed or were rolled back.
+     *
+     * @return the failure count
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    private void execute(UnitOfWork work, int lineNumber, String line) throws SQLException {
+        String command = line.split("\\s+", 2)[0];
+        try {
+            pending.add(new Result(lineNumber, command, runCommand(command, tokenize(line))));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            print(new Result(lineNumber, command, "error", e.getMessage(), null));
+            failed++;
+        } catch (SQLException e) {
+            String state = e.getSQLState() == null ? "" : e.getSQLState();
+            if (state.startsWith("08")) {
+                throw e; // the connection is gone
+            }
+            if (state.startsWith("40")) {
+                // Deadlock or lock timeout: the server rolled back the whole transaction
+                work.rollback();
+                rolledBack();
+            }
+            print(new Result(lineNumber, command, "error", e.getMessage(), null));
+            failed++;
+        }
+    }
+
+    /**
+     * Runs one command and returns its detail text; a find returns the project.
+     */
+    private Object runCommand(String command, List<String> words) throws SQLException {
+        switch (command) {
+            case "add": {
+                Project project = new Project(0, "", null, null, null, 0, 0, null, false, null, 0, 0, 0);
+                applyFields(project, words, 1);
+                if (project.getArchitectID() == 0 || project.getContractorID() == 0 || project.getCustomerID() == 0) {
+                    throw new IllegalArgumentException("architectID, contractorID and customerID are required");
+                }
+                return Integer.toString(projectDAO.createProject(project));
+            }
+            case "update": {
+                int projectNumber = projectNumber(words);
+                Project project = projectDAO.findProjectByNumber(projectNumber);
+                if (project == null) {
+                    throw new IllegalArgumentException("Project " + projectNumber + " not found");
+                }
+                applyFields(project, words, 2);
+                if (!projectDAO.updateProject(project)) {
+                    throw new IllegalArgumentException("Project " + projectNumber + " not found");
+                }
+                return "updated";
+            }
+            case "finalize": {
+                int projectNumber = projectNumber(words);
+                String date = words.size() > 2 ? LocalDate.parse(words.get(2)).toString() : LocalDate.now().toString();
+                if (!projectDAO.finalizeProject(projectNumber, date)) {
+                    throw new IllegalArgumentException("Project " + projectNumber + " not found");
+                }
+                return date;
+            }
+            case "delete": {
+                int projectNumber = projectNumber(words);
+                if (!projectDAO.deleteProject(projectNumber)) {
+                    throw new IllegalArgumentException("Project " + projectNumber + " not found");
+                }
+                return "deleted";
+            }
+            case "find": {
+                if (words.size() < 2) {
+                    throw new IllegalArgumentException("Usage: find <number|name>");
+                }
+                String key = String.join(" ", words.subList(1, words.size()));
+                Project project = key.matches("\\d+") ? projectDAO.findProjectByNumber(Integer.parseInt(key))
+                                                       : projectDAO.findProjectByName(key);
+                if (project == null) {
+                    throw new IllegalArgumentException("Project " + key + " not found");
+                }
+                return project;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown command: " + command);
+        }
+    }
+
+    private static int projectNumber(List<String> words) {
+        if (words.size() < 2 || !words.get(1).matches("\\d+")) {
+            throw new IllegalArgumentException("Expected a project number after " + words.get(0));
+        }
+        return Integer.parseInt(words.get(1));
+    }
+
+    private static void applyFields(Project project, List<String> words, int from) {
+        for (String word : words.subList(from, words.size())) {
+            int eq = word.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected field=value but got: " + word);
+            }
+            String value = word.substring(eq + 1);
+            ProjectFields.set(project, word.substring(0, eq), value.equals("null") ? null : value);
+        }
+    }
+
+    private void commit(UnitOfWork work) throws SQLException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        work.commit();
+        for (Result result : pending) {
+            print(result);
+        }
+        succeeded += pending.size();
+        pending.clear();
+    }
+
+    /**
+     * Reports the pending commands as rolled back. Their changes never reached the
+     * cache or replica, since the unit of work only passes them on at commit.
+     */
+    private void rolledBack() {
+        for (Result result : pending) {
+            print(new Result(result.line, result.command, "rolledback", "transaction rolled back", null));
+        }
+        failed += pending.size();
+        pending.clear();
+    }
+
+    private void print(Result result) {
+        StringBuilder line = new StringBuilder();
+        try {
+            if (format == Format.JSON) {
+                line.append("{\"line\":").append(result.line);
+                Json.field(line, "status", result.status);
+                Json.field(line, "command", result.command);
+                if (result.project != null) {
+                    line.append(",\"project\":");
+                    Json.writeProject(line, result.project);
+                } else {
+                    Json.field(line, "detail", result.detail);
+                }
+                line.append('}');
+            } else {
+                line.append(result.line).append('\t').append(result.status).append('\t').append(result.command).append('\t');
+                if (result.project != null) {
+                    Json.writeProject(line, result.project);
+                } else {
+                    line.append(result.detail.replace('\t', ' ').replace('\n', ' '));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder does not throw
+        }
+        out.println(line);
+    }
+
+    /**
+     * Splits a command line into words. Double quotes group words containing spaces,
+     * and a backslash inside quotes escapes the next character.
+     */
+    static List<String> tokenize(String line) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean inQuotes = false;
+        boolean inWord = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '\\' && i + 1 < line.length()) {
+                    word.append(line.charAt(++i));
+                } else if (c == '"') {
+                    inQuotes = false;
+                } else {
+                    word.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+                inWord = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inWord) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                    inWord = false;
+                }
+            } else {
+                word.append(c);
+                inWord = true;
+            }
+        }
+        if (inQuotes) {
+            throw new IllegalArgumentException("Unclosed quote");
+        }
+        if (inWord) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * The outcome of one command.
+     */
+    private static final class Result {
+        final int line;
+        final String command;
+        final String status;
+        final String detail;
+        final Project project;
+
+        Result(int line, String command, Object outcome) {
+            this(line, command, "ok", outcome instanceof Project ? null : (String) outcome,
+                 outcome instanceof Project ? (Project) outcome : null);
+        }
+
+        Result(int line, String command, String status, String detail, Project project) {
+            this.line = line;
+            this.command = command;
+            this.status = status;
+            this.detail = detail;
+            this.project = project;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package pms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summarises a bulk project import: how many rows went in, which rows failed and why,
+ * and how long the import took.
+ */
+public class BulkImportResult {
+    private final List<RowError> errors = new ArrayList<>();
+    private int inserted;
+    private long elapsedNanos;
+
+    /**
+     * Records that a row was inserted.
+     */
+    void rowInserted() {
+        inserted++;
+    }
+
+    /**
+     * Records that a row could not be inserted.
+     *
+     * @param row the 1-based position of the row in the input
+     * @param project the project that failed
+     * @param message the reason it failed
+     */
+    void rowFailed(int row, Project project, String message) {
+        errors.add(new RowError(row, project.getName(), message));
+    }
+
+    /**
+     * Records how long the import took.
+     *
+     * @param elapsedNanos the elapsed time in nanoseconds
+     */
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of rows inserted.
+     *
+     * @return the inserted row count
+     */
+    public int getInserted() {
+        return inserted;
+    }
+
+    /**
+     * Gets the number of rows that failed.
+     *
+     * @return the failed row count
+     */
+    public int getFailed() {
+        return errors.size();
+    }
+
+    /**
+     * Gets the rows that failed, in input order.
+     *
+     * @return the row errors
+     */
+    public List<RowError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Gets the time the import took.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000L;
+    }
+
+    /**
+     * Gets the import throughput.
+     *
+     * @return rows processed per second
+     */
+    public double getRowsPerSecond() {
+        if (elapsedNanos == 0) {
+            return 0;
+        }
+        return (inserted + errors.size()) * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d inserted, %d failed in %d ms (%.0f rows/s)",
+                inserted, errors.size(), getElapsedMillis(), getRowsPerSecond());
+    }
+
+    /**
+     * A row that could not be imported.
+     */
+    public static class RowError {
+        private final int row;
+        private final String name;
+        private final String message;
+
+        RowError(int row, String name, String message) {
+            this.row = row;
+            this.name = name;
+            this.message = message;
+        }
+
+        /**
+         * Gets the 1-based position of the row in the input.
+         *
+         * @return the row position
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * Gets the name of the project on the failed row.
+         *
+         * @return the project name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the reason the row failed.
+         *
+         * @return the error message
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "row " + row + " (" + name + "): " + message;
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package pms;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Records every change made through {@link ProjectDAO} in an append-only file, for
+ * auditing and for feeding other programs without polling the database.
+ *
+ * Register the journal as a change listener with
+ * {@link ProjectDAO#addChangeListener(ProjectChangeListener)} and read it back with a
+ * {@link ChangeJournalReader}. Changes made in a {@link UnitOfWork} are recorded when
+ * it commits, so the journal only holds committed changes.
+ *
+ * The journal is a directory of fixed-size segment files, each memory-mapped while it
+ * is written. Segment files are named after the offset of their first byte, and a new
+ * segment is started when a record does not fit in the current one, so an offset
+ * identifies a record for as long as its segment is kept. Old segments are deleted
+ * when more than the retained number have been written, or by
+ * {@link #deleteBefore(long)} once every reader has passed them. Each segment starts
+ * with a 16-byte header:
+ *
+ * <pre>
+ * int magic, int segmentSize, long baseOffset
+ * </pre>
+ *
+ * followed by records aligned to 4 bytes:
+ *
+ * <pre>
+ * int bodyLength, int crc32c(body), body
+ * body: byte type, long timestampMillis, int projectNo, then by type
+ *   ADDED, UPDATED: int version, double totalFee, double amountPaid, byte finalised,
+ *                   int architectID, int contractorID, int customerID,
+ *                   string name, type, address, erfNo, deadline, completionDate
+ *   FINALIZED:      string completionDate
+ *   DELETED:        nothing
+ * string: unsigned short byteLength (0xFFFF for null), then UTF-8 bytes
+ * </pre>
+ *
+ * A body length of 0 means nothing has been written there yet, and -1 means the rest
+ * of the segment is unused. The length is written last, so a reader never sees a
+ * record that is only half written. Records reach the operating system as soon as they
+ * are written and survive the process stopping; {@link #flush()} also forces them to
+ * disk.
+ */
+public class ChangeJournal implements ProjectChangeListener, AutoCloseable {
+    static final int MAGIC = 0x504d534a; // "PMSJ"
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = 8;
+    static final int END_OF_SEGMENT = -1;
+    static final int NULL_STRING = 0xFFFF;
+    static final int MIN_SEGMENT_SIZE = 1 << 20;
+
+    /** Reads and writes the length words with acquire/release ordering. */
+    static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int retainedSegments;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer scratch = ByteBuffer.allocate(512);
+    private MappedByteBuffer segment;
+    private long segmentBase;
+    private long lostRecords;
+    private boolean closed;
+
+    /**
+     * Opens the journal in a directory, creating it if needed, and continues after the
+     * last complete record. Only one process at a time may write to a journal.
+     *
+     * @param directory the journal directory
+     * @param segmentSize the size of each segment file in bytes, at least 1 MiB
+     * @throws IOException if the journal cannot be opened or another process is writing to it
+     */
+    public ChangeJournal(Path directory, int segmentSize) throws IOException {
+        this(directory, segmentSize, 0);
+    }
+
+    /**
+     * Opens the journal in a directory, keeping only the newest segments. The oldest
+     * segments beyond that number are deleted when the journal is opened and each time
+     * a new segment is started.
+     *
+     * @param directory the journal directory
+     * @param segmentSize the size of each segment file in bytes, at least 1 MiB
+     * @param retainedSegments the number of segments to keep, counting the one being
+     *                         written, or 0 to keep every segment
+     * @throws IOException if the journal cannot be opened or another process is writing to it
+     */
+    public ChangeJournal(Path directory, int segmentSize, int retainedSegments) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be at least " + MIN_SEGMENT_SIZE + " bytes");
+        }
+        if (retainedSegments < 0) {
+            throw new IllegalArgumentException("Retained segments must not be negative");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize & ~3;
+        this.retainedSegments = retainedSegments;
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("journal.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired = null;
+        try {
+            acquired = lockChannel.tryLock();
+            if (acquired == null) {
+                throw new IOException("The journal in " + directory + " is being written by another process");
+            }
+            lock = acquired;
+            recover();
+            applyRetention();
+        } catch (IOException | RuntimeException e) {
+            if (acquired != null) {
+                acquired.release();
+            }
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the journal using the {@code pms.journal.*} settings.
+     *
+     * @param config the application configuration
+     * @return the journal
+     * @throws IOException if the journal cannot be opened
+     */
+    public static ChangeJournal fromConfig(AppConfig config) throws IOException {
+        return new ChangeJournal(directory(config), config.getInt("pms.journal.segmentSize", 64 << 20),
+                                 config.getInt("pms.journal.retainSegments", 0));
+    }
+
+    /**
+     * Gets the journal directory named by the {@code pms.journal.dir} setting.
+     *
+     * @param config the application configuration
+     * @return the journal directory
+     */
+    static Path directory(AppConfig config) {
+        return Paths.get(config.getString("pms.journal.dir", "journal"));
+    }
+
+    @Override
+    public void projectAdded(Project project) {
+        append(ChangeRecord.Type.ADDED, project.getProjectNo(), project, null);
+    }
+
+    @Override
+    public void projectUpdated(Project project) {
+        append(ChangeRecord.Type.UPDATED, project.getProjectNo(), project, null);
+    }
+
+    @Override
+    public void projectFinalized(int projectNo, String completionDate) {
+        append(ChangeRecord.Type.FINALIZED, projectNo, null, completionDate);
+    }
+
+    @Override
+    public void projectDeleted(int projectNo) {
+        append(ChangeRecord.Type.DELETED, projectNo, null, null);
+    }
+
+    /**
+     * Gets the offset the next record will be written at.
+     *
+     * @return the end offset of the journal
+     */
+    public synchronized long getEndOffset() {
+        return segmentBase + segment.position();
+    }
+
+    /**
+     * Gets the number of changes that could not be recorded.
+     *
+     * @return the number of lost records
+     */
+    public synchronized long getLostRecords() {
+        return lostRecords;
+    }
+
+    /**
+     * Deletes the segments whose records all lie before an offset, such as the lowest
+     * offset every reader has saved. The segment being written is never deleted, and a
+     * reader that has already opened a deleted segment can still finish reading it.
+     *
+     * @param offset the offset before which records are no longer needed
+     * @return the number of segment files deleted
+     * @throws IOException if a segment file cannot be deleted
+     */
+    public synchronized int deleteBefore(long offset) throws IOException {
+        return deleteSegmentsBefore(offset);
+    }
+
+    private int deleteSegmentsBefore(long offset) throws IOException {
+        TreeMap<Long, Path> segments = segments(directory);
+        int deleted = 0;
+        for (Map.Entry<Long, Path> entry : segments.headMap(segmentBase).entrySet()) {
+            Long end = segments.higherKey(entry.getKey());
+            if (end > offset) {
+                break;
+            }
+            Files.deleteIfExists(entry.getValue());
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Forces the records written so far to disk.
+     */
+    public synchronized void flush() {
+        if (!closed) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Forces the records to disk and lets another process write to the journal.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        segment.force();
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            System.err.println("Could not release the journal lock: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Encodes a change and appends it. A change that cannot be recorded is counted and
+     * reported rather than thrown, since the database change has already been made.
+     */
+    private synchronized void append(ChangeRecord.Type type, int projectNo, Project project, String completionDate) {
+        if (closed) {
+            lostRecords++;
+            return;
+        }
+        try {
+            ByteBuffer body = encode(type, projectNo, project, completionDate);
+            int length = body.remaining();
+            int recordSize = RECORD_HEADER_SIZE + align(length);
+            if (recordSize > segmentSize - HEADER_SIZE) {
+                throw new IOException("Record of " + length + " bytes does not fit in a segment");
+            }
+            if (segment.remaining() < recordSize) {
+                roll();
+            }
+            int pos = segment.position();
+            crc.reset();
+            crc.update(body.array(), 0, length);
+            segment.putInt(pos + 4, (int) crc.getValue());
+            segment.put(pos + RECORD_HEADER_SIZE, body.array(), 0, length);
+            INT.setRelease(segment, pos, length);
+            segment.position(pos + recordSize);
+        } catch (IOException | RuntimeException e) {
+            lostRecords++;
+            System.err.println("Could not journal " + type + " of project " + projectNo + ": " + e.getMessage());
+        }
+    }
+
+    private ByteBuffer encode(ChangeRecord.Type type, int projectNo, Project project, String completionDate) {
+        ByteBuffer buf = scratch;
+        buf.clear();
+        buf = ensure(buf, 17);
+        buf.put((byte) type.ordinal());
+        buf.putLong(System.currentTimeMillis());
+        buf.putInt(projectNo);
+        if (project != null) {
+            buf = ensure(buf, 33);
+            buf.putInt(project.getVersion());
+            buf.putDouble(project.getTotalFee());
+            buf.putDouble(project.getAmountPaid());
+            buf.put((byte) (project.isFinalised() ? 1 : 0));
+            buf.putInt(project.getArchitectID());
+            buf.putInt(project.getContractorID());
+            buf.putInt(project.getCustomerID());
+            buf = putString(buf, project.getName());
+            buf = putString(buf, project.getType());
+            buf = putString(buf, project.getAddress());
+            buf = putString(buf, project.getErfNo());
+            buf = putString(buf, project.getDeadline());
+            buf = putString(buf, project.getCompletionDate());
+        } else if (type == ChangeRecord.Type.FINALIZED) {
+            buf = putString(buf, completionDate);
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private ByteBuffer putString(ByteBuffer buf, String value) {
+        if (value == null) {
+            buf = ensure(buf, 2);
+            buf.putShort((short) NULL_STRING);
+            return buf;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            throw new IllegalArgumentException("Text of " + bytes.length + " bytes is too long to journal");
+        }
+        buf = ensure(buf, 2 + bytes.length);
+        buf.putShort((short) bytes.length);
+        buf.put(bytes);
+        return buf;
+    }
+
+    /**
+     * Grows the scratch buffer so that it has room for more bytes.
+     */
+    private ByteBuffer ensure(ByteBuffer buf, int more) {
+        if (buf.remaining() >= more) {
+            return buf;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + more));
+        buf.flip();
+        bigger.put(buf);
+        scratch = bigger;
+        return bigger;
+    }
+
+    /**
+     * Marks the rest of the current segment unused and starts the next one.
+     */
+    private void roll() throws IOException {
+        int pos = segment.position();
+        if (segment.remaining() >= 4) {
+            INT.setRelease(segment, pos, END_OF_SEGMENT);
+        }
+        segment.force();
+        segment = map(segmentBase + segmentSize);
+        applyRetention();
+    }
+
+    /**
+     * Deletes the segments older than the retained number. A failure is reported
+     * rather than thrown, since the journal can still be written.
+     */
+    private void applyRetention() {
+        if (retainedSegments == 0) {
+            return;
+        }
+        try {
+            deleteSegmentsBefore(segmentBase - (long) (retainedSegments - 1) * segmentSize);
+        } catch (IOException e) {
+            System.err.println("Could not delete old journal segments: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Maps the newest segment and finds the end of its last complete record, clearing
+     * anything after it that a crash may have left half written.
+     */
+    private void recover() throws IOException {
+        TreeMap<Long, Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            segment = map(0);
+            return;
+        }
+        long base = segments.lastKey();
+        segment = map(base);
+        int pos = HEADER_SIZE;
+        while (pos + RECORD_HEADER_SIZE <= segmentSize) {
+            int length = segment.getInt(pos);
+            if (length <= 0 || length > segmentSize - pos - RECORD_HEADER_SIZE
+                    || !checksumMatches(segment, pos, length)) {
+                break;
+            }
+            pos += RECORD_HEADER_SIZE + align(length);
+        }
+        for (int i = pos; i < segmentSize; i++) {
+            segment.put(i, (byte) 0);
+        }
+        segment.position(pos);
+    }
+
+    private MappedByteBuffer map(long base) throws IOException {
+        Path file = directory.resolve(fileName(base));
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() != 0 && channel.size() != segmentSize) {
+                throw new IOException(file + " is " + channel.size() + " bytes but segments are " + segmentSize
+                                      + " bytes; set pms.journal.segmentSize to match");
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        if (mapped.getInt(0) == 0) {
+            mapped.putLong(8, base);
+            mapped.putInt(4, segmentSize);
+            INT.setRelease(mapped, 0, MAGIC);
+        }
+        segmentBase = base;
+        mapped.position(HEADER_SIZE);
+        return mapped;
+    }
+
+    private boolean checksumMatches(ByteBuffer buf, int pos, int length) {
+        crc.reset();
+        crc.update(buf.slice(pos + RECORD_HEADER_SIZE, length));
+        return (int) crc.getValue() == buf.getInt(pos + 4);
+    }
+
+    static int align(int length) {
+        return (length + 3) & ~3;
+    }
+
+    static String fileName(long base) {
+        return String.format("%020d.journal", base);
+    }
+
+    /**
+     * Lists the segment files in a journal directory by their base offset.
+     */
+    static TreeMap<Long, Path> segments(Path directory) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.journal")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(name.substring(0, name.length() - ".journal".length())), file);
+                } catch (NumberFormatException e) {
+                    // not a segment
+                }
+            }
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,276 @@
+package pms;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the records of a {@link ChangeJournal}, from the start or from an offset
+ * returned by {@link ChangeRecord#getNextOffset()}, and can keep following the
+ * journal as it is written, from this process or another one.
+ *
+ * <pre>
+ * try (ChangeJournalReader reader = new ChangeJournalReader(Paths.get("journal"))) {
+ *     reader.seek(savedOffset);
+ *     ChangeRecord record;
+ *     while ((record = reader.poll(1, TimeUnit.SECONDS)) != null) {
+ *         record.applyTo(listener);
+ *         savedOffset = record.getNextOffset();
+ *     }
+ * }
+ * </pre>
+ *
+ * A reader is not thread-safe; use one per consumer.
+ */
+public class ChangeJournalReader implements AutoCloseable {
+    private static final ChangeRecord.Type[] TYPES = ChangeRecord.Type.values();
+    private static final long MAX_POLL_SLEEP_MILLIS = 50;
+
+    private final Path directory;
+    private final CRC32C crc = new CRC32C();
+    private MappedByteBuffer segment;
+    private int segmentSize;
+    private long segmentBase;
+    private int position;
+
+    /**
+     * Opens a reader positioned at the start of the journal.
+     *
+     * @param directory the journal directory
+     * @throws IOException if the journal cannot be read
+     */
+    public ChangeJournalReader(Path directory) throws IOException {
+        this.directory = directory;
+        moveTo(0);
+    }
+
+    /**
+     * Moves the reader to an offset. The offset must be 0, the offset of a record or
+     * the next offset after one. An offset before the oldest segment still kept moves
+     * the reader to the start of that segment.
+     *
+     * @param offset the offset to read from
+     * @throws IOException if the journal cannot be read
+     */
+    public void seek(long offset) throws IOException {
+        moveTo(offset);
+    }
+
+    private void moveTo(long offset) throws IOException {
+        TreeMap<Long, Path> segments = ChangeJournal.segments(directory);
+        Map.Entry<Long, Path> floor = segments.floorEntry(offset);
+        if (floor == null) {
+            floor = segments.firstEntry();
+        }
+        segment = null;
+        if (floor == null) {
+            segmentBase = 0;
+            position = ChangeJournal.HEADER_SIZE;
+            return;
+        }
+        segmentBase = floor.getKey();
+        position = (int) Math.max(ChangeJournal.HEADER_SIZE, Math.min(offset - segmentBase, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Gets the offset of the next record this reader will return.
+     *
+     * @return the current offset
+     */
+    public long getOffset() {
+        return segmentBase + position;
+    }
+
+    /**
+     * Reads the next record if one has been written.
+     *
+     * @return the next record, or null if the reader has reached the end of the journal
+     * @throws IOException if the journal cannot be read or a record is corrupt
+     */
+    public ChangeRecord next() throws IOException {
+        while (true) {
+            if (segment == null && !openSegment()) {
+                return null;
+            }
+            if (position + ChangeJournal.RECORD_HEADER_SIZE > segmentSize) {
+                nextSegment();
+                continue;
+            }
+            int length = (int) ChangeJournal.INT.getAcquire(segment, position);
+            if (length == 0) {
+                return null;
+            }
+            if (length == ChangeJournal.END_OF_SEGMENT) {
+                nextSegment();
+                continue;
+            }
+            if (length < 0 || length > segmentSize - position - ChangeJournal.RECORD_HEADER_SIZE) {
+                throw corrupt("bad record length " + length);
+            }
+            ByteBuffer body = segment.slice(position + ChangeJournal.RECORD_HEADER_SIZE, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != segment.getInt(position + 4)) {
+                throw corrupt("checksum mismatch");
+            }
+            long offset = getOffset();
+            position += ChangeJournal.RECORD_HEADER_SIZE + ChangeJournal.align(length);
+            return decode(offset, body);
+        }
+    }
+
+    /**
+     * Waits for the next record to be written.
+     *
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return the next record, or null if none was written in time
+     * @throws IOException if the journal cannot be read or a record is corrupt
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public ChangeRecord poll(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long sleepMillis = 1;
+        while (true) {
+            ChangeRecord record = next();
+            if (record != null) {
+                return record;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            Thread.sleep(Math.min(sleepMillis, Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining))));
+            sleepMillis = Math.min(sleepMillis * 2, MAX_POLL_SLEEP_MILLIS);
+        }
+    }
+
+    /**
+     * Passes every record from the current offset to the end of the journal to a
+     * listener, for example to bring a {@link ProjectReplica} up to date.
+     *
+     * @param listener the listener to tell
+     * @return the number of records replayed
+     * @throws IOException if the journal cannot be read or a record is corrupt
+     */
+    public long replay(ProjectChangeListener listener) throws IOException {
+        long count = 0;
+        ChangeRecord record;
+        while ((record = next()) != null) {
+            record.applyTo(listener);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        // Mapped segments are released when they are garbage collected
+        segment = null;
+    }
+
+    /**
+     * Maps the segment at the current base once its writer has initialised it.
+     */
+    private boolean openSegment() throws IOException {
+        Path file = directory.resolve(ChangeJournal.fileName(segmentBase));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < ChangeJournal.HEADER_SIZE) {
+                return false;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if ((int) ChangeJournal.INT.getAcquire(mapped, 0) != ChangeJournal.MAGIC) {
+                return false;
+            }
+            int size32 = mapped.getInt(4);
+            if (size != size32 || mapped.getLong(8) != segmentBase) {
+                throw new IOException(file + " is not a segment of this journal");
+            }
+            segment = mapped;
+            segmentSize = size32;
+            return true;
+        } catch (NoSuchFileException e) {
+            // Deleted before it was opened: carry on from the oldest segment still kept
+            Long later = ChangeJournal.segments(directory).higherKey(segmentBase);
+            if (later == null) {
+                return false;
+            }
+            segmentBase = later;
+            position = ChangeJournal.HEADER_SIZE;
+            return openSegment();
+        }
+    }
+
+    private void nextSegment() {
+        segmentBase += segmentSize;
+        position = ChangeJournal.HEADER_SIZE;
+        segment = null;
+    }
+
+    private ChangeRecord decode(long offset, ByteBuffer body) throws IOException {
+        try {
+            int typeIndex = body.get();
+            if (typeIndex < 0 || typeIndex >= TYPES.length) {
+                throw corrupt(offset, "unknown change type " + typeIndex);
+            }
+            ChangeRecord.Type type = TYPES[typeIndex];
+            long timestamp = body.getLong();
+            int projectNo = body.getInt();
+            Project project = null;
+            String completionDate = null;
+            if (type == ChangeRecord.Type.ADDED || type == ChangeRecord.Type.UPDATED) {
+                int version = body.getInt();
+                double totalFee = body.getDouble();
+                double amountPaid = body.getDouble();
+                boolean finalised = body.get() != 0;
+                int architectID = body.getInt();
+                int contractorID = body.getInt();
+                int customerID = body.getInt();
+                String name = getString(body);
+                String projectType = getString(body);
+                String address = getString(body);
+                String erfNo = getString(body);
+                String deadline = getString(body);
+                completionDate = getString(body);
+                project = new Project(projectNo, name, projectType, address, erfNo, totalFee, amountPaid, deadline,
+                                      finalised, completionDate, architectID, contractorID, customerID);
+                project.setVersion(version);
+                project.markClean();
+                completionDate = null;
+            } else if (type == ChangeRecord.Type.FINALIZED) {
+                completionDate = getString(body);
+            }
+            return new ChangeRecord(offset, getOffset(), type, timestamp, projectNo, project, completionDate);
+        } catch (RuntimeException e) {
+            throw corrupt(offset, "cannot decode record: " + e);
+        }
+    }
+
+    private static String getString(ByteBuffer body) {
+        int length = Short.toUnsignedInt(body.getShort());
+        if (length == ChangeJournal.NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private IOException corrupt(String problem) {
+        return corrupt(getOffset(), problem);
+    }
+
+    private static IOException corrupt(long offset, String problem) {
+        return new IOException("Corrupt journal record at offset " + offset + ": " + problem);
+    }
+}
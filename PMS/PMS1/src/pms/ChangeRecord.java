@@ -0,0 +1,124 @@
+package pms;
+
+import java.time.Instant;
+
+/**
+ * One change read back from a {@link ChangeJournal}.
+ */
+public class ChangeRecord {
+
+    /**
+     * The kinds of change. The ordinal is what is stored, so new kinds go at the end.
+     */
+    public enum Type { ADDED, UPDATED, FINALIZED, DELETED }
+
+    private final long offset;
+    private final long nextOffset;
+    private final Type type;
+    private final long timestamp;
+    private final int projectNo;
+    private final Project project;
+    private final String completionDate;
+
+    ChangeRecord(long offset, long nextOffset, Type type, long timestamp, int projectNo, Project project, String completionDate) {
+        this.offset = offset;
+        this.nextOffset = nextOffset;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.projectNo = projectNo;
+        this.project = project;
+        this.completionDate = completionDate;
+    }
+
+    /**
+     * Gets the journal offset of the record.
+     *
+     * @return the offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the offset to continue reading from after this record.
+     *
+     * @return the offset of the next record
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * Gets the kind of change.
+     *
+     * @return the change type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets when the change was recorded.
+     *
+     * @return the time of the change
+     */
+    public Instant getTimestamp() {
+        return Instant.ofEpochMilli(timestamp);
+    }
+
+    /**
+     * Gets the number of the changed project.
+     *
+     * @return the project number
+     */
+    public int getProjectNo() {
+        return projectNo;
+    }
+
+    /**
+     * Gets the project as it was after an add or update, without the people's names.
+     *
+     * @return the project, or null for a finalize or delete
+     */
+    public Project getProject() {
+        return project;
+    }
+
+    /**
+     * Gets the completion date set by a finalize.
+     *
+     * @return the completion date, or null for other changes
+     */
+    public String getCompletionDate() {
+        return completionDate;
+    }
+
+    /**
+     * Passes the change on to a listener, as the DAO did when it was made.
+     *
+     * @param listener the listener to tell
+     */
+    public void applyTo(ProjectChangeListener listener) {
+        switch (type) {
+            case ADDED:
+                listener.projectAdded(new Project(project));
+                break;
+            case UPDATED:
+                listener.projectUpdated(new Project(project));
+                break;
+            case FINALIZED:
+                listener.projectFinalized(projectNo, completionDate);
+                break;
+            case DELETED:
+                listener.projectDeleted(projectNo);
+                break;
+            default:
+                throw new IllegalStateException("Unknown change type: " + type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeRecord{offset=" + offset + ", type=" + type + ", projectNo=" + projectNo + ", time=" + getTimestamp() + "}";
+    }
+}
@@ -0,0 +1,451 @@
+package pms;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of open database connections.
+ *
+ * Connections handed out by {@link #borrow()} go back to the pool when they are
+ * closed, so callers keep using the usual try-with-resources pattern. The pool
+ * validates idle connections on borrow, closes connections that stay idle too
+ * long, and reports connections that are held longer than the leak threshold.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minIdle;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int validationTimeoutSeconds;
+    private final long leakThresholdMillis;
+    private final boolean leakStackTraces;
+    private final long maintenanceIntervalMillis;
+    private final int fetchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ScheduledExecutorService maintenance;
+    private int total;
+    private boolean closed;
+
+    /**
+     * Creates a pool using the {@code pms.db.*} and {@code pms.pool.*} settings and
+     * starts its maintenance task.
+     *
+     * @param config the application configuration
+     * @return the started pool
+     */
+    public static ConnectionPool fromConfig(AppConfig config) {
+        ConnectionPool pool = new ConnectionPool(config);
+        pool.maintenance.scheduleWithFixedDelay(pool::maintain, pool.maintenanceIntervalMillis,
+                                                pool.maintenanceIntervalMillis, TimeUnit.MILLISECONDS);
+        return pool;
+    }
+
+    private ConnectionPool(AppConfig config) {
+        this.url = config.getString("pms.db.url", "jdbc:mysql://localhost:3306/PMS?rewriteBatchedStatements=true");
+        this.user = config.getString("pms.db.user", "root");
+        this.password = config.getString("pms.db.password", "new_password");
+        this.minIdle = config.getInt("pms.pool.minIdle", 2);
+        this.maxSize = Math.max(1, config.getInt("pms.pool.maxSize", 10));
+        this.borrowTimeoutMillis = config.getLong("pms.pool.borrowTimeoutMillis", 30_000L);
+        this.idleTimeoutMillis = config.getLong("pms.pool.idleTimeoutMillis", 600_000L);
+        this.validationIntervalMillis = config.getLong("pms.pool.validationIntervalMillis", 500L);
+        this.validationTimeoutSeconds = config.getInt("pms.pool.validationTimeoutSeconds", 2);
+        this.leakThresholdMillis = config.getLong("pms.pool.leakThresholdMillis", 60_000L);
+        this.leakStackTraces = config.getBoolean("pms.pool.leakStackTraces", false);
+        this.fetchSize = config.getInt("pms.db.fetchSize", 500);
+        this.maintenanceIntervalMillis = Math.max(1_000L, config.getLong("pms.pool.maintenanceIntervalMillis", 30_000L));
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pms-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens connections until the pool holds its minimum number of idle connections.
+     *
+     * @throws SQLException if a connection cannot be opened
+     */
+    public void warmUp() throws SQLException {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || idle.size() >= minIdle || total >= maxSize) {
+                    return;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+            PooledConnection pooled;
+            try {
+                pooled = new PooledConnection(openPhysical());
+            } catch (SQLException e) {
+                discardSlot();
+                throw e;
+            }
+            lock.lock();
+            try {
+                idle.push(pooled);
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if the pool is not full.
+     * Closing the returned connection gives it back to the pool.
+     *
+     * @return a Connection object
+     * @throws SQLException if no connection becomes available in time or a database access error occurs
+     */
+    public Connection borrow() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        while (true) {
+            PooledConnection pooled = null;
+            boolean open = false;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    if (!idle.isEmpty()) {
+                        pooled = idle.pop();
+                        break;
+                    }
+                    if (total < maxSize) {
+                        total++;
+                        open = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SQLException("Timed out after " + borrowTimeoutMillis
+                                + " ms waiting for a database connection (pool size " + maxSize + ")");
+                    }
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (open) {
+                try {
+                    pooled = new PooledConnection(openPhysical());
+                } catch (SQLException e) {
+                    discardSlot();
+                    throw e;
+                }
+            } else if (!isUsable(pooled)) {
+                closePhysical(pooled);
+                discardSlot();
+                continue;
+            }
+            return checkOut(pooled);
+        }
+    }
+
+    /**
+     * Gets the number of connections waiting in the pool.
+     *
+     * @return the idle connection count
+     */
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of connections currently borrowed.
+     *
+     * @return the borrowed connection count
+     */
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return borrowed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the largest number of connections the pool will open.
+     *
+     * @return the maximum pool size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets the fetch size used for streaming queries. The MySQL driver fetches rows
+     * in batches of this size through a server-side cursor when the URL sets
+     * {@code useCursorFetch=true}, and otherwise reads the whole result at once.
+     * {@code Integer.MIN_VALUE} makes it stream rows one at a time, but then the
+     * connection can run no other statement until the rows have all been read, and
+     * other databases such as H2 reject it.
+     *
+     * @return the fetch size for streaming queries
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Closes every idle connection and stops the pool. Borrowed connections are
+     * closed when they are returned.
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            total -= toClose.size();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        maintenance.shutdownNow();
+        for (PooledConnection pooled : toClose) {
+            closePhysical(pooled);
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsedMillis < validationIntervalMillis) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection checkOut(PooledConnection pooled) {
+        pooled.borrowedAtMillis = System.currentTimeMillis();
+        // Capturing the stack costs microseconds, so it is only done when asked for
+        pooled.borrowSite = leakStackTraces && leakThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+        pooled.leakReported = false;
+        lock.lock();
+        try {
+            borrowed.add(pooled);
+        } finally {
+            lock.unlock();
+        }
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new Handle(pooled));
+    }
+
+    private void checkIn(PooledConnection pooled) {
+        boolean reusable = true;
+        try {
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.physical.clearWarnings();
+        } catch (SQLException e) {
+            reusable = false;
+        }
+        pooled.lastUsedMillis = System.currentTimeMillis();
+        pooled.borrowSite = null;
+
+        lock.lock();
+        try {
+            borrowed.remove(pooled);
+            if (reusable && !closed) {
+                idle.push(pooled);
+                available.signal();
+                return;
+            }
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        closePhysical(pooled);
+    }
+
+    private void discardSlot() {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closePhysical(PooledConnection pooled) {
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // The connection is being thrown away anyway
+        }
+    }
+
+    /**
+     * Evicts connections that have been idle too long, reports suspected leaks
+     * and tops the pool back up to its minimum idle size.
+     */
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        List<PooledConnection> leaked = new ArrayList<>();
+        lock.lock();
+        try {
+            // Oldest idle connections sit at the tail of the deque
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && total - evicted.size() > minIdle) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.lastUsedMillis > idleTimeoutMillis) {
+                    it.remove();
+                    evicted.add(pooled);
+                }
+            }
+            total -= evicted.size();
+            if (leakThresholdMillis > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    if (!pooled.leakReported && now - pooled.borrowedAtMillis > leakThresholdMillis) {
+                        pooled.leakReported = true;
+                        leaked.add(pooled);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pooled : evicted) {
+            closePhysical(pooled);
+        }
+        for (PooledConnection pooled : leaked) {
+            System.err.println("Possible connection leak: connection held for "
+                    + (now - pooled.borrowedAtMillis) + " ms");
+            Throwable site = pooled.borrowSite;
+            if (site != null) {
+                site.printStackTrace();
+            } else {
+                System.err.println("Set pms.pool.leakStackTraces=true to see where it was borrowed");
+            }
+        }
+        try {
+            warmUp();
+        } catch (SQLException e) {
+            System.err.println("Could not refill connection pool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A physical connection together with the bookkeeping the pool keeps for it.
+     */
+    private static final class PooledConnection {
+        final Connection physical;
+        volatile long lastUsedMillis = System.currentTimeMillis();
+        volatile long borrowedAtMillis;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+    }
+
+    /**
+     * The connection handed to callers. It forwards every call to the physical
+     * connection, except {@code close()}, which returns it to the pool.
+     */
+    private final class Handle implements InvocationHandler {
+        private PooledConnection pooled;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (pooled != null) {
+                            PooledConnection returning = pooled;
+                            pooled = null;
+                            checkIn(returning);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        return pooled == null || pooled.physical.isClosed();
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled + "]";
+                default:
+                    break;
+            }
+            PooledConnection current;
+            synchronized (this) {
+                current = pooled;
+            }
+            if (current == null) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(current.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package pms;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts the calls, errors and rows of one DAO operation and records how long its
+ * calls take: in total, waiting for a connection, and running the statements.
+ *
+ * Each DAO method times a call with a {@link Sample}:
+ *
+ * <pre>
+ * try (DaoMetrics.Sample sample = FIND_BY_NUMBER.start();
+ *      Connection conn = sample.connect();
+ *      PreparedStatement stmt = conn.prepareStatement(query)) {
+ *     ...
+ *     sample.complete(rows);
+ * }
+ * </pre>
+ *
+ * A call that ends without {@link Sample#complete(long)} is counted as an error.
+ * Counters are {@link LongAdder}s and latencies go into {@link LatencyHistogram}s, so
+ * timing a call costs a few clock reads and uncontended increments.
+ *
+ * Every operation is registered by name and can be published as an MXBean named
+ * {@code pms:type=DaoMetrics,name=<operation>}.
+ */
+public class DaoMetrics {
+    private static final Map<String, DaoMetrics> OPERATIONS = new ConcurrentHashMap<>();
+    private static final String DOMAIN = "pms";
+    private static volatile boolean registered;
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final LatencyHistogram execute = new LatencyHistogram();
+
+    private DaoMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the metrics of an operation, creating them on first use. If the MXBeans have
+     * been registered, the new operation is registered too.
+     *
+     * @param name the operation name, usually the DAO method name
+     * @return the operation's metrics
+     */
+    public static DaoMetrics forOperation(String name) {
+        DaoMetrics metrics = OPERATIONS.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        DaoMetrics created = new DaoMetrics(name);
+        metrics = OPERATIONS.putIfAbsent(name, created);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (registered) {
+            register(ManagementFactory.getPlatformMBeanServer(), created);
+        }
+        return created;
+    }
+
+    /**
+     * Gets the metrics of every operation, sorted by name.
+     *
+     * @return the operations' metrics
+     */
+    public static List<DaoMetrics> all() {
+        List<DaoMetrics> all = new ArrayList<>(OPERATIONS.values());
+        all.sort((a, b) -> a.name.compareTo(b.name));
+        return all;
+    }
+
+    /**
+     * Publishes every operation, and every operation added later, as an MXBean on the
+     * platform MBean server so that it can be read with JConsole or any JMX client.
+     */
+    public static synchronized void registerMBeans() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (DaoMetrics metrics : OPERATIONS.values()) {
+            register(server, metrics);
+        }
+    }
+
+    private static void register(MBeanServer server, DaoMetrics metrics) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=DaoMetrics,name=" + ObjectName.quote(metrics.name));
+            server.registerMBean(metrics.new View(), objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by another thread or an earlier class loader
+        } catch (JMException e) {
+            System.err.println("Could not register metrics for " + metrics.name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Clears the counts and latencies of every operation.
+     */
+    public static void resetAll() {
+        for (DaoMetrics metrics : OPERATIONS.values()) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Starts timing a call of this operation.
+     *
+     * @return the sample to complete and close when the call ends
+     */
+    public Sample start() {
+        return new Sample(this, System.nanoTime());
+    }
+
+    /**
+     * Gets the operation name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of calls made.
+     *
+     * @return the call count
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * Gets the number of calls that failed.
+     *
+     * @return the error count
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Gets the number of rows returned or changed by all calls.
+     *
+     * @return the row count
+     */
+    public long getRows() {
+        return rows.sum();
+    }
+
+    /**
+     * Gets the latencies of whole calls, including calls answered from a cache or replica.
+     *
+     * @return a snapshot of the call latencies
+     */
+    public LatencyHistogram.Snapshot getLatency() {
+        return latency.snapshot();
+    }
+
+    /**
+     * Gets the time calls waited for {@link DatabaseConnection#getConnection()}.
+     *
+     * @return a snapshot of the connection-acquire latencies
+     */
+    public LatencyHistogram.Snapshot getAcquireLatency() {
+        return acquire.snapshot();
+    }
+
+    /**
+     * Gets the time from getting a connection to the end of the call, which is spent
+     * running statements and reading their rows.
+     *
+     * @return a snapshot of the execute latencies
+     */
+    public LatencyHistogram.Snapshot getExecuteLatency() {
+        return execute.snapshot();
+    }
+
+    /**
+     * Clears the counts and latencies of this operation.
+     */
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        rows.reset();
+        latency.reset();
+        acquire.reset();
+        execute.reset();
+    }
+
+    @Override
+    public String toString() {
+        LatencyHistogram.Snapshot all = latency.snapshot();
+        LatencyHistogram.Snapshot connect = acquire.snapshot();
+        LatencyHistogram.Snapshot run = execute.snapshot();
+        TimeUnit ms = TimeUnit.MILLISECONDS;
+        return String.format("%-28s %9d %7d %10d %9.3f %9.3f %9.3f %9.3f %10.3f %10.3f",
+                name, getCalls(), getErrors(), getRows(), all.getPercentile(50, ms), all.getPercentile(99, ms),
+                all.getPercentile(99.9, ms), all.getMax(ms), connect.getPercentile(99, ms), run.getPercentile(99, ms));
+    }
+
+    /**
+     * Gets the heading line for the rows printed by {@link #toString()}.
+     *
+     * @return the column headings
+     */
+    public static String heading() {
+        return String.format("%-28s %9s %7s %10s %9s %9s %9s %9s %10s %10s",
+                "Operation", "Calls", "Errors", "Rows", "p50 ms", "p99 ms", "p99.9 ms", "Max ms", "Acq p99", "Exec p99");
+    }
+
+    /**
+     * Times one call of an operation. A sample is used by one thread and closed once.
+     */
+    public static final class Sample implements AutoCloseable {
+        private final DaoMetrics metrics;
+        private final long started;
+        private long connected;
+        private long finished;
+        private long rows;
+        private boolean hasConnection;
+        private boolean completed;
+        private SlowQueryLog.Trace trace;
+
+        Sample(DaoMetrics metrics, long started) {
+            this.metrics = metrics;
+            this.started = started;
+        }
+
+        /**
+         * Gets a connection from {@link DatabaseConnection#getConnection()}, recording
+         * how long it took. While a {@link SlowQueryLog} is started, the statements run
+         * on the connection are traced so that a slow call can be logged. On a call made
+         * through {@link AsyncProjectDAO}, they can be cancelled with the call's future.
+         *
+         * @return the connection
+         * @throws SQLException if a database access error occurs
+         */
+        public Connection connect() throws SQLException {
+            long asked = System.nanoTime();
+            Connection conn = AsyncProjectDAO.watch(DatabaseConnection.getConnection());
+            connected = System.nanoTime();
+            hasConnection = true;
+            metrics.acquire.record(connected - asked);
+            SlowQueryLog slowLog = SlowQueryLog.active();
+            if (slowLog != null) {
+                trace = slowLog.newTrace();
+                return trace.wrap(conn);
+            }
+            return conn;
+        }
+
+        /**
+         * Marks the call as successful. A call that is closed without this is
+         * counted as an error.
+         *
+         * @param rows the number of rows the call returned or changed
+         */
+        public void complete(long rows) {
+            this.rows = rows;
+            finished = System.nanoTime();
+            completed = true;
+        }
+
+        /**
+         * Records the call.
+         */
+        @Override
+        public void close() {
+            long end = completed ? finished : System.nanoTime();
+            metrics.calls.increment();
+            if (!completed) {
+                metrics.errors.increment();
+            } else if (rows != 0) {
+                metrics.rows.add(rows);
+            }
+            metrics.latency.record(end - started);
+            if (hasConnection) {
+                metrics.execute.record(end - connected);
+            }
+            if (trace != null) {
+                trace.finish(metrics.name, end - started, rows, completed);
+            }
+        }
+    }
+
+    /**
+     * The management interface of one operation's metrics. Times are in milliseconds.
+     */
+    public interface OperationMXBean {
+        /** @return the number of calls made */
+        long getCalls();
+
+        /** @return the number of calls that failed */
+        long getErrors();
+
+        /** @return the number of rows returned or changed */
+        long getRows();
+
+        /** @return the mean call latency */
+        double getMeanMillis();
+
+        /** @return the median call latency */
+        double getP50Millis();
+
+        /** @return the 90th percentile call latency */
+        double getP90Millis();
+
+        /** @return the 99th percentile call latency */
+        double getP99Millis();
+
+        /** @return the 99.9th percentile call latency */
+        double getP999Millis();
+
+        /** @return the longest call */
+        double getMaxMillis();
+
+        /** @return the median time spent getting a connection */
+        double getAcquireP50Millis();
+
+        /** @return the 99th percentile time spent getting a connection */
+        double getAcquireP99Millis();
+
+        /** @return the median time spent running statements */
+        double getExecuteP50Millis();
+
+        /** @return the 99th percentile time spent running statements */
+        double getExecuteP99Millis();
+
+        /** Clears the counts and latencies. */
+        void reset();
+    }
+
+    /**
+     * Publishes this operation's metrics through {@link OperationMXBean}.
+     */
+    private final class View implements OperationMXBean {
+        private static final TimeUnit MS = TimeUnit.MILLISECONDS;
+
+        @Override
+        public long getCalls() {
+            return DaoMetrics.this.getCalls();
+        }
+
+        @Override
+        public long getErrors() {
+            return DaoMetrics.this.getErrors();
+        }
+
+        @Override
+        public long getRows() {
+            return DaoMetrics.this.getRows();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return latency.snapshot().getMean(MS);
+        }
+
+        @Override
+        public double getP50Millis() {
+            return latency.snapshot().getPercentile(50, MS);
+        }
+
+        @Override
+        public double getP90Millis() {
+            return latency.snapshot().getPercentile(90, MS);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return latency.snapshot().getPercentile(99, MS);
+        }
+
+        @Override
+        public double getP999Millis() {
+            return latency.snapshot().getPercentile(99.9, MS);
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return latency.snapshot().getMax(MS);
+        }
+
+        @Override
+        public double getAcquireP50Millis() {
+            return acquire.snapshot().getPercentile(50, MS);
+        }
+
+        @Override
+        public double getAcquireP99Millis() {
+            return acquire.snapshot().getPercentile(99, MS);
+        }
+
+        @Override
+        public double getExecuteP50Millis() {
+            return execute.snapshot().getPercentile(50, MS);
+        }
+
+        @Override
+        public double getExecuteP99Millis() {
+            return execute.snapshot().getPercentile(99, MS);
+        }
+
+        @Override
+        public void reset() {
+            DaoMetrics.this.reset();
+        }
+    }
+}
@@ -1,24 +1,152 @@
 package pms;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * Provides a connection to the PMS database.
+ *
+ * Connections come from a shared {@link ConnectionPool}, so closing a connection
+ * returns it to the pool instead of ending the MySQL session. The connection
+ * details are read from {@link AppConfig} the first time a connection is needed.
+ *
+ * A thread can {@link #bind()} one connection so that every DAO call it makes runs on
+ * that connection, and so in one transaction, until it calls {@link #unbind()}.
  */
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/PMS";
-    private static final String USER = "root";
-    private static final String PASSWORD = "new_password";
+    private static volatile ConnectionPool pool;
+    private static final ThreadLocal<Binding> bound = new ThreadLocal<>();
 
     /**
-     * Gets a connection to the database.
-     * 
+     * Gets a connection to the database. If the current thread has bound a connection,
+     * that connection is returned and closing it does nothing.
+     *
      * @return a Connection object
      * @throws SQLException if a database access error occurs
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        Binding binding = bound.get();
+        if (binding != null) {
+            return binding.shared;
+        }
+        return pool().borrow();
+    }
+
+    /**
+     * Borrows a connection and binds it to the current thread, so that
+     * {@link #getConnection()} on this thread returns it until {@link #unbind()}.
+     *
+     * Use the returned connection to control the transaction. DAO methods that manage
+     * their own transaction, such as {@link ProjectDAO#addProjects(Iterable)}, should
+     * not be called while a connection is bound.
+     *
+     * @return the bound connection
+     * @throws SQLException if a connection is already bound or cannot be borrowed
+     */
+    public static Connection bind() throws SQLException {
+        if (bound.get() != null) {
+            throw new SQLException("A connection is already bound to this thread");
+        }
+        Connection connection = pool().borrow();
+        Connection shared = (Connection) Proxy.newProxyInstance(
+                DatabaseConnection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close")) {
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        bound.set(new Binding(connection, shared));
+        return connection;
+    }
+
+    /**
+     * Releases the connection bound to the current thread back to the pool. Work that
+     * was not committed is rolled back.
+     */
+    public static void unbind() {
+        Binding binding = bound.get();
+        if (binding == null) {
+            return;
+        }
+        bound.remove();
+        try {
+            binding.connection.close();
+        } catch (SQLException e) {
+            System.err.println("Could not release bound connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the connection pool with one built from the given configuration.
+     *
+     * @param config the application configuration
+     */
+    public static synchronized void configure(AppConfig config) {
+        if (pool != null) {
+            pool.close();
+        }
+        pool = ConnectionPool.fromConfig(config);
+    }
+
+    /**
+     * Opens the pool's minimum number of connections ahead of the first request.
+     *
+     * @throws SQLException if a connection cannot be opened
+     */
+    public static void warmUp() throws SQLException {
+        pool().warmUp();
+    }
+
+    /**
+     * Stops the slow query log, which needs a connection to explain the calls it has
+     * queued, then closes all pooled connections.
+     */
+    public static void shutdown() {
+        SlowQueryLog.stop();
+        synchronized (DatabaseConnection.class) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
+    }
+
+    /**
+     * Gets the shared connection pool, creating it on first use.
+     *
+     * @return the connection pool
+     */
+    public static ConnectionPool pool() {
+        ConnectionPool current = pool;
+        if (current != null) {
+            return current;
+        }
+        synchronized (DatabaseConnection.class) {
+            if (pool == null) {
+                pool = ConnectionPool.fromConfig(AppConfig.load());
+            }
+            return pool;
+        }
+    }
+
+    /**
+     * A connection bound to a thread and the proxy of it handed out by {@link #getConnection()}.
+     */
+    private static final class Binding {
+        final Connection connection;
+        final Connection shared;
+
+        Binding(Connection connection, Connection shared) {
+            this.connection = connection;
+            this.shared = shared;
+        }
     }
 }
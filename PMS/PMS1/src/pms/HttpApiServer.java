@@ -0,0 +1,473 @@
+package pms;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Serves the {@link ProjectDAO} operations as a JSON API over HTTP, using the HTTP
+ * server built into the JDK.
+ *
+ * Each request is handled on its own virtual thread, so a request waiting on the
+ * database does not hold up the others. The number of requests being handled at once
+ * is capped, by default at the size of the connection pool, so that a request that
+ * starts can get a connection; one that cannot start within the queue timeout is
+ * answered with 503 Service Unavailable instead of waiting without limit.
+ *
+ * Listings that are not paged are written to the client as the rows are read, in
+ * chunks, so they keep their connection for as long as a slow client takes to read
+ * them. Fewer of them may run at once, leaving connections for the other requests.
+ *
+ * <pre>
+ * GET    /projects/incomplete[?pageSize=n[&amp;pageToken=t]]
+ * GET    /projects/overdue[?pageSize=n[&amp;pageToken=t]]
+ * GET    /projects/{number}
+ * GET    /projects?name={name}
+ * POST   /projects                      create a project from a JSON object
+ * PUT    /projects/{number}             change the fields given in a JSON object
+ * POST   /projects/{number}/finalize    optional body {"completionDate": "YYYY-MM-DD"}
+ * DELETE /projects/{number}[?version=v]
+ * GET    /health
+ * </pre>
+ *
+ * A PUT or finalize body, or a DELETE query, that includes the {@code version} read
+ * with the project is only applied if nobody has changed the project since; otherwise
+ * the answer is 409 Conflict with the project as it now is.
+ */
+public class HttpApiServer {
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final ProjectDAO projectDAO;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore slots;
+    private final Semaphore listingSlots;
+    private final long queueTimeoutMillis;
+
+    /**
+     * Creates a server; call {@link #start()} to begin accepting requests.
+     *
+     * @param projectDAO the DAO the requests are served from
+     * @param host the address to listen on, such as 127.0.0.1 for this machine only or 0.0.0.0 for every interface
+     * @param port the TCP port to listen on (0 picks a free port)
+     * @param backlog the most connections the operating system queues before they are accepted
+     * @param maxConcurrentRequests the most requests handled at once
+     * @param maxStreamedListings the most unpaged listings streamed at once, out of those requests
+     * @param queueTimeoutMillis how long a request waits for a free slot before it is refused
+     * @throws IOException if the port cannot be opened
+     */
+    public HttpApiServer(ProjectDAO projectDAO, String host, int port, int backlog, int maxConcurrentRequests,
+                         int maxStreamedListings, long queueTimeoutMillis) throws IOException {
+        this.projectDAO = projectDAO;
+        this.slots = new Semaphore(maxConcurrentRequests);
+        this.listingSlots = new Semaphore(maxStreamedListings);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.server = HttpServer.create(new InetSocketAddress(host, port), backlog);
+        server.createContext("/projects", this::handle);
+        server.createContext("/health", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Creates a server using the {@code pms.http.*} settings. The request limits
+     * default to the size of the connection pool, and half of it for streamed listings.
+     *
+     * @param projectDAO the DAO the requests are served from
+     * @param config the application configuration
+     * @return the server, not yet started
+     * @throws IOException if the port cannot be opened
+     */
+    public static HttpApiServer fromConfig(ProjectDAO projectDAO, AppConfig config) throws IOException {
+        int poolSize = DatabaseConnection.pool().getMaxSize();
+        return new HttpApiServer(projectDAO,
+                config.getString("pms.http.host", "127.0.0.1"),
+                config.getInt("pms.http.port", 8080),
+                config.getInt("pms.http.backlog", 128),
+                config.getInt("pms.http.maxConcurrentRequests", poolSize),
+                config.getInt("pms.http.maxStreamedListings", Math.max(1, poolSize / 2)),
+                config.getLong("pms.http.queueTimeoutMillis", 100L));
+    }
+
+    /**
+     * Starts accepting requests in the background.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits up to the given time for the running ones to finish.
+     *
+     * @param delaySeconds the most seconds to wait
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!admit(exchange, slots)) {
+                return;
+            }
+            try {
+                route(exchange);
+            } catch (HttpError e) {
+                sendError(exchange, e.status, e.getMessage());
+            } catch (IllegalArgumentException | DateTimeException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (SQLException e) {
+                sendError(exchange, 500, "SQL Error: " + e.getMessage());
+            } catch (UncheckedSQLException e) {
+                // The listing had already started, so the status line has been sent
+                System.err.println("Listing aborted: " + e.getMessage());
+            } finally {
+                slots.release();
+            }
+        }
+    }
+
+    /**
+     * Takes a slot from the given semaphore, waiting up to the queue timeout, or
+     * answers 503 with Retry-After if none comes free.
+     *
+     * @return true if a slot was taken and must be released
+     */
+    private boolean admit(HttpExchange exchange, Semaphore semaphore) throws IOException {
+        boolean admitted;
+        try {
+            admitted = semaphore.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (!admitted) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Server busy, try again shortly");
+        }
+        return admitted;
+    }
+
+    private void route(HttpExchange exchange) throws IOException, SQLException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        if (path[0].equals("health")) {
+            sendJson(exchange, 200, "{\"status\":\"ok\"}");
+            return;
+        }
+        if (!path[0].equals("projects")) {
+            throw new HttpError(404, "Not found");
+        }
+        if (path.length == 1) {
+            if (method.equals("GET") && query.containsKey("name")) {
+                sendProject(exchange, projectDAO.findProjectByName(query.get("name")));
+            } else if (method.equals("POST")) {
+                createProject(exchange);
+            } else {
+                throw new HttpError(method.equals("GET") ? 400 : 405, "Use GET /projects?name= or POST /projects");
+            }
+            return;
+        }
+        if (path.length == 2 && (path[1].equals("incomplete") || path[1].equals("overdue"))) {
+            requireMethod(method, "GET");
+            listProjects(exchange, path[1].equals("overdue"), query);
+            return;
+        }
+        int projectNumber = parseNumber(path[1]);
+        if (path.length == 3 && path[2].equals("finalize")) {
+            requireMethod(method, "POST");
+            finalizeProject(exchange, projectNumber);
+            return;
+        }
+        if (path.length != 2) {
+            throw new HttpError(404, "Not found");
+        }
+        switch (method) {
+            case "GET":
+                sendProject(exchange, projectDAO.findProjectByNumber(projectNumber));
+                break;
+            case "PUT":
+                updateProject(exchange, projectNumber);
+                break;
+            case "DELETE":
+                if (query.containsKey("version")) {
+                    WriteResult result = projectDAO.deleteProjectIfCurrent(projectNumber, parseParameter("version", query.get("version")));
+                    if (!result.isApplied()) {
+                        sendWriteFailure(exchange, projectNumber, result);
+                        break;
+                    }
+                } else {
+                    if (!projectDAO.deleteProject(projectNumber)) {
+                        throw new HttpError(404, "Project " + projectNumber + " not found");
+                    }
+                }
+                sendJson(exchange, 200, "{\"deleted\":" + projectNumber + "}");
+                break;
+            default:
+                throw new HttpError(405, "Method not allowed");
+        }
+    }
+
+    private void listProjects(HttpExchange exchange, boolean overdue, Map<String, String> query) throws IOException, SQLException {
+        String pageSize = query.get("pageSize");
+        if (pageSize != null) {
+            int size = parseParameter("pageSize", pageSize);
+            String token = query.get("pageToken");
+            ProjectPage page = overdue ? projectDAO.getOverdueProjectsPage(token, size)
+                                       : projectDAO.getIncompleteProjectsPage(token, size);
+            StringBuilder json = new StringBuilder("{\"projects\":[");
+            for (int i = 0; i < page.getProjects().size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                Json.writeProject(json, page.getProjects().get(i));
+            }
+            json.append(']');
+            Json.field(json, "nextPageToken", page.getNextToken());
+            Json.field(json, "previousPageToken", page.getPreviousToken());
+            sendJson(exchange, 200, json.append('}').toString());
+            return;
+        }
+        if (!admit(exchange, listingSlots)) {
+            return;
+        }
+        try (Stream<Project> projects = overdue ? projectDAO.streamOverdueProjects() : projectDAO.streamIncompleteProjects()) {
+            exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+            exchange.sendResponseHeaders(200, 0);
+            Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+            out.write('[');
+            boolean first = true;
+            for (Project project : (Iterable<Project>) projects::iterator) {
+                if (!first) {
+                    out.write(',');
+                }
+                Json.writeProject(out, project);
+                first = false;
+            }
+            out.write(']');
+            out.flush();
+        } finally {
+            listingSlots.release();
+        }
+    }
+
+    private void createProject(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, Object> body = readBody(exchange);
+        Project project = new Project(0, "", null, null, null, 0, 0, null, false, null, 0, 0, 0);
+        apply(project, body);
+        for (String required : new String[] { "architectID", "contractorID", "customerID" }) {
+            if (!body.containsKey(required)) {
+                throw new HttpError(400, required + " is required");
+            }
+        }
+        projectDAO.createProject(project);
+        exchange.getResponseHeaders().set("Location", "/projects/" + project.getProjectNo());
+        sendProject(exchange, 201, project);
+    }
+
+    private void updateProject(HttpExchange exchange, int projectNumber) throws IOException, SQLException {
+        Map<String, Object> body = readBody(exchange);
+        Project project = requireProject(projectNumber);
+        apply(project, body);
+        if (!body.containsKey("version")) {
+            if (!projectDAO.updateProject(project)) {
+                throw new HttpError(404, "Project " + projectNumber + " not found");
+            }
+            sendProject(exchange, 200, project);
+            return;
+        }
+        project.setVersion(parseParameter("version", text(body.get("version"))));
+        WriteResult result = projectDAO.updateProjectIfCurrent(project);
+        if (result.isApplied() || result.getStatus() == WriteResult.Status.UNCHANGED) {
+            sendProject(exchange, 200, project);
+        } else {
+            sendWriteFailure(exchange, projectNumber, result);
+        }
+    }
+
+    private void finalizeProject(HttpExchange exchange, int projectNumber) throws IOException, SQLException {
+        Map<String, Object> body = readBody(exchange);
+        Object date = body.get("completionDate");
+        String completionDate = date == null ? LocalDate.now().toString() : LocalDate.parse(date.toString()).toString();
+        if (body.containsKey("version")) {
+            WriteResult result = projectDAO.finalizeProjectIfCurrent(projectNumber, parseParameter("version", text(body.get("version"))), completionDate);
+            if (!result.isApplied()) {
+                sendWriteFailure(exchange, projectNumber, result);
+                return;
+            }
+        } else {
+            if (!projectDAO.finalizeProject(projectNumber, completionDate)) {
+                throw new HttpError(404, "Project " + projectNumber + " not found");
+            }
+        }
+        sendJson(exchange, 200, "{\"finalized\":" + projectNumber + ",\"completionDate\":\"" + completionDate + "\"}");
+    }
+
+    /**
+     * Answers a versioned write that was not made: 404 if the project is gone, or
+     * 409 Conflict with the project as it now is.
+     */
+    private static void sendWriteFailure(HttpExchange exchange, int projectNumber, WriteResult result) throws IOException {
+        if (result.getStatus() == WriteResult.Status.NOT_FOUND) {
+            throw new HttpError(404, "Project " + projectNumber + " not found");
+        }
+        StringBuilder json = new StringBuilder("{\"error\":");
+        Json.quote(json, "Project " + projectNumber + " was changed by someone else");
+        json.append(",\"current\":");
+        Json.writeProject(json, result.getCurrent());
+        sendJson(exchange, 409, json.append('}').toString());
+    }
+
+    private static int parseParameter(String name, String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, name + " must be a whole number");
+        }
+    }
+
+    private Project requireProject(int projectNumber) throws SQLException {
+        Project project = projectDAO.findProjectByNumber(projectNumber);
+        if (project == null) {
+            throw new HttpError(404, "Project " + projectNumber + " not found");
+        }
+        return project;
+    }
+
+    /**
+     * Copies the fields present in a request body onto a project.
+     */
+    private static void apply(Project project, Map<String, Object> body) {
+        for (Map.Entry<String, Object> field : body.entrySet()) {
+            if (!field.getKey().equals("projectNo") && !field.getKey().equals("version")) {
+                ProjectFields.set(project, field.getKey(), text(field.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Converts a JSON value to the text {@link ProjectFields} parses, writing whole
+     * numbers without a decimal point so that they can be read as IDs.
+     */
+    private static String text(Object value) {
+        if (value instanceof Double) {
+            double number = (Double) value;
+            if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+                return Long.toString((long) number);
+            }
+        }
+        return value == null ? null : value.toString();
+    }
+
+    private static int parseNumber(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "Not found: " + text);
+        }
+    }
+
+    private static void requireMethod(String method, String allowed) {
+        if (!method.equals(allowed)) {
+            throw new HttpError(405, "Use " + allowed);
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new HttpError(413, "Request body too large");
+            }
+            String text = new String(bytes, StandardCharsets.UTF_8).trim();
+            return text.isEmpty() ? new HashMap<>() : Json.parseObject(text);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                          URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static void sendProject(HttpExchange exchange, Project project) throws IOException {
+        if (project == null) {
+            throw new HttpError(404, "Project not found");
+        }
+        sendProject(exchange, 200, project);
+    }
+
+    private static void sendProject(HttpExchange exchange, int status, Project project) throws IOException {
+        StringBuilder json = new StringBuilder();
+        Json.writeProject(json, project);
+        sendJson(exchange, status, json.toString());
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        Json.quote(json, message);
+        sendJson(exchange, status, json.append('}').toString());
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Ends a request with an HTTP error status.
+     */
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package pms;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes projects as JSON and reads the flat JSON objects the HTTP API accepts.
+ *
+ * Only what the API needs is supported: objects whose values are strings, numbers,
+ * booleans or null. Numbers are returned as {@link Double}.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Writes a project as a JSON object.
+     *
+     * @param out where to write
+     * @param project the project
+     * @throws IOException if writing fails
+     */
+    static void writeProject(Appendable out, Project project) throws IOException {
+        out.append("{\"projectNo\":").append(Integer.toString(project.getProjectNo()));
+        field(out, "name", project.getName());
+        field(out, "type", project.getType());
+        field(out, "address", project.getAddress());
+        field(out, "erfNo", project.getErfNo());
+        out.append(",\"totalFee\":").append(Double.toString(project.getTotalFee()));
+        out.append(",\"amountPaid\":").append(Double.toString(project.getAmountPaid()));
+        field(out, "deadline", project.getDeadline());
+        out.append(",\"finalised\":").append(Boolean.toString(project.isFinalised()));
+        field(out, "completionDate", project.getCompletionDate());
+        out.append(",\"architectID\":").append(Integer.toString(project.getArchitectID()));
+        out.append(",\"contractorID\":").append(Integer.toString(project.getContractorID()));
+        out.append(",\"customerID\":").append(Integer.toString(project.getCustomerID()));
+        out.append(",\"version\":").append(Integer.toString(project.getVersion()));
+        if (project.getCustomerLastName() != null) {
+            field(out, "customer", project.getCustomerFirstName() + " " + project.getCustomerLastName());
+        }
+        if (project.getArchitectLastName() != null) {
+            field(out, "architect", project.getArchitectFirstName() + " " + project.getArchitectLastName());
+        }
+        if (project.getContractorLastName() != null) {
+            field(out, "contractor", project.getContractorFirstName() + " " + project.getContractorLastName());
+        }
+        out.append('}');
+    }
+
+    /**
+     * Writes {@code ,"name":value} with the value quoted, or {@code null}.
+     */
+    static void field(Appendable out, String name, String value) throws IOException {
+        out.append(",\"").append(name).append("\":");
+        quote(out, value);
+    }
+
+    /**
+     * Writes a string as a quoted JSON string, or {@code null}.
+     *
+     * @param out where to write
+     * @param value the string, or null
+     * @throws IOException if writing fails
+     */
+    static void quote(Appendable out, String value) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Parses a JSON object whose values are all strings, numbers, booleans or null.
+     *
+     * @param text the JSON text
+     * @return the object's members in document order
+     * @throws IllegalArgumentException if the text is not such an object
+     */
+    static Map<String, Object> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, Object> members = new LinkedHashMap<>();
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String name = parser.string();
+                parser.expect(':');
+                members.put(name, parser.value());
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        parser.end();
+        return members;
+    }
+
+    /**
+     * A cursor over the JSON text being parsed.
+     */
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Object value() {
+            skipSpace();
+            if (pos >= text.length()) {
+                throw error("Unexpected end of JSON");
+            }
+            char c = text.charAt(pos);
+            if (c == '"') {
+                return string();
+            }
+            if (text.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (text.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            if (text.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("Only strings, numbers, booleans and null are accepted as values");
+            }
+            try {
+                return Double.valueOf(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escape = text.charAt(pos++);
+                switch (escape) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("Invalid unicode escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid unicode escape");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        sb.append(escape);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        boolean consume(char c) {
+            skipSpace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void end() {
+            skipSpace();
+            if (pos != text.length()) {
+                throw error("Unexpected text after the object");
+            }
+        }
+
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos);
+        }
+    }
+}
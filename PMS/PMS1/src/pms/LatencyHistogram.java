@@ -0,0 +1,197 @@
+package pms;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds, with buckets laid out like an
+ * HdrHistogram: each power of two is split into {@value #SUB_BUCKETS} equal buckets,
+ * so any recorded value is known to within about 3%, from a nanosecond up to about
+ * 18 minutes. Longer durations are counted in the last bucket.
+ *
+ * Recording a value is a few shifts and one atomic increment, and does not allocate.
+ * Threads record into a few separate sets of counts, chosen by thread ID and created
+ * the first time they are used, so that threads timing the same operation do not
+ * contend on one counter. A snapshot adds the sets together.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_MAGNITUDE = 40;
+    private static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BITS) * SUB_BUCKETS;
+    private static final int STRIPES = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos the duration in nanoseconds; negative values are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        stripe().incrementAndGet(bucket(value));
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Clears every recorded value. Values recorded while the reset runs may be kept
+     * or lost.
+     */
+    public void reset() {
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray counts = stripes.get(s);
+            if (counts != null) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts.set(i, 0);
+                }
+            }
+        }
+        total.reset();
+        max.reset();
+    }
+
+    /**
+     * Copies the current counts so that percentiles can be read from them.
+     *
+     * @return a snapshot of the histogram
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray counts = stripes.get(s);
+            if (counts != null) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    long n = counts.get(i);
+                    copy[i] += n;
+                    count += n;
+                }
+            }
+        }
+        return new Snapshot(copy, count, total.sum(), max.get());
+    }
+
+    /**
+     * Gets the counts the current thread records into, creating them on first use.
+     */
+    private AtomicLongArray stripe() {
+        int index = (int) Thread.currentThread().threadId() & (STRIPES - 1);
+        AtomicLongArray counts = stripes.get(index);
+        if (counts == null) {
+            stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS));
+            counts = stripes.get(index);
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the bucket of a value: values below {@value #SUB_BUCKETS} have a bucket each,
+     * and larger values are bucketed by their top {@value #SUB_BITS} bits after the
+     * leading one.
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (magnitude - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gets the smallest value that falls in a bucket.
+     */
+    static long lowestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << shift;
+    }
+
+    /**
+     * Gets the largest value that falls in a bucket.
+     */
+    static long highestValue(int bucket) {
+        return bucket + 1 < BUCKETS ? lowestValue(bucket + 1) - 1 : MAX_VALUE;
+    }
+
+    /**
+     * The counts of a histogram at one moment.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long total, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        /**
+         * Gets the number of values recorded.
+         *
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the mean of the recorded values.
+         *
+         * @param unit the unit to return the mean in
+         * @return the mean, or 0 if nothing was recorded
+         */
+        public double getMean(TimeUnit unit) {
+            return count == 0 ? 0 : (double) total / count / unit.toNanos(1);
+        }
+
+        /**
+         * Gets the largest recorded value.
+         *
+         * @param unit the unit to return the value in
+         * @return the maximum, or 0 if nothing was recorded
+         */
+        public double getMax(TimeUnit unit) {
+            return (double) max / unit.toNanos(1);
+        }
+
+        /**
+         * Gets the value that the given percentage of recorded values are at or below.
+         * The value returned is the top of the bucket it falls in, but never more than
+         * the largest value recorded.
+         *
+         * @param percentile the percentile, from 0 to 100
+         * @param unit the unit to return the value in
+         * @return the value at the percentile, or 0 if nothing was recorded
+         */
+        public double getPercentile(double percentile, TimeUnit unit) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return (double) Math.min(highestValue(i), max) / unit.toNanos(1);
+                }
+            }
+            return getMax(unit);
+        }
+    }
+}
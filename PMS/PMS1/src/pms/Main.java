@@ -1,16 +1,131 @@
 package pms;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The main class for the Poise Project Management System application.
  */
 public class Main {
+    private static AppConfig config;
 
     public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
+        config = AppConfig.load();
+        if (args.length > 0 && ("--journal".equals(args[0]) || "--follow-journal".equals(args[0]))) {
+            int status = printJournal(args);
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
+        if (args.length > 0 && "--slow-queries".equals(args[0])) {
+            int status = printSlowQueries(args);
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
+        if (args.length > 0 && "--offline".equals(args[0])) {
+            if (args.length > 2) {
+                System.out.println("Usage: java pms.Main --offline [snapshot file]");
+                System.exit(2);
+            }
+            Path file = args.length == 2 ? Paths.get(args[1]) : OfflineSnapshot.file(config);
+            if (!runOffline(new Scanner(System.in), file)) {
+                System.exit(1);
+            }
+            return;
+        }
+        DatabaseConnection.configure(config);
+        if (config.getBoolean("pms.metrics.jmx", true)) {
+            DaoMetrics.registerMBeans();
+        }
+        if (config.getBoolean("pms.slowlog.enabled", false)) {
+            SlowQueryLog.start(SlowQueryLog.fromConfig(config));
+        }
         ProjectDAO projectDAO = new ProjectDAO();
+        if (config.getBoolean("pms.cache.enabled", false)) {
+            projectDAO.setCache(ProjectCache.fromConfig(config));
+        }
+        if (config.getBoolean("pms.schema.migrate", true)) {
+            migrateSchema();
+        }
+        if (config.getBoolean("pms.replica.enabled", false)) {
+            try {
+                projectDAO.setReplica(ProjectReplica.load());
+            } catch (SQLException e) {
+                System.out.println("Could not load the project replica: " + e.getMessage());
+            }
+        }
+        if (config.getBoolean("pms.overdue.scheduler", false)) {
+            try {
+                OverdueScheduler scheduler = OverdueScheduler.load();
+                scheduler.addListener(project -> System.out.println(
+                        "\nProject " + project.getProjectNo() + " (" + project.getName() + ") is now overdue; its deadline was "
+                        + project.getDeadline() + "."));
+                projectDAO.setOverdueScheduler(scheduler);
+            } catch (SQLException e) {
+                System.out.println("Could not load the overdue scheduler: " + e.getMessage());
+            }
+        }
+        if (config.getBoolean("pms.journal.enabled", false)) {
+            try {
+                ChangeJournal journal = ChangeJournal.fromConfig(config);
+                projectDAO.addChangeListener(journal);
+                Runtime.getRuntime().addShutdownHook(new Thread(journal::close));
+            } catch (IOException e) {
+                System.out.println("Could not open the change journal: " + e.getMessage());
+            }
+        }
+        if (args.length > 0) {
+            int status = runCommandLine(args, projectDAO);
+            DatabaseConnection.shutdown();
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
+
+        Scanner scanner = new Scanner(System.in);
+
+        try {
+            DatabaseConnection.warmUp();
+        } catch (SQLException e) {
+            System.out.println("Could not connect to the database: " + e.getMessage());
+            Path snapshot = OfflineSnapshot.file(config);
+            if (Files.exists(snapshot)) {
+                System.out.print("Browse the offline snapshot " + snapshot + " instead? (y/n): ");
+                if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                    runOffline(scanner, snapshot);
+                    scanner.close();
+                    DatabaseConnection.shutdown();
+                    return;
+                }
+            }
+        }
+
+        // Only the menu searches, so the command-line modes don't pay to build the index
+        if (config.getBoolean("pms.search.enabled", true)) {
+            try {
+                projectDAO.setSearchIndex(ProjectSearchIndex.load());
+            } catch (SQLException e) {
+                System.out.println("Could not load the search index: " + e.getMessage());
+            }
+        }
 
         while (true) {
             System.out.println("Project Management System");
@@ -21,7 +136,12 @@ public class Main {
             System.out.println("5. List overdue projects");
             System.out.println("6. Find project by number or name");
             System.out.println("7. Delete project");
-            System.out.println("8. Exit");
+            System.out.println("8. Import projects from CSV");
+            System.out.println("9. Portfolio summary");
+            System.out.println("10. Reports");
+            System.out.println("11. Statistics");
+            System.out.println("12. Dashboard");
+            System.out.println("13. Exit");
             System.out.print("Enter your choice: ");
             int choice = scanner.nextInt();
             scanner.nextLine(); // consume newline
@@ -50,14 +170,14 @@ public class Main {
                     break;
                 case 4:
                     try {
-                        listIncompleteProjects(projectDAO);
+                        listIncompleteProjects(scanner, projectDAO);
                     } catch (SQLException e) {
                         System.out.println("SQL Error: " + e.getMessage());
                     }
                     break;
                 case 5:
                     try {
-                        listOverdueProjects(projectDAO);
+                        listOverdueProjects(scanner, projectDAO);
                     } catch (SQLException e) {
                         System.out.println("SQL Error: " + e.getMessage());
                     }
@@ -77,8 +197,46 @@ public class Main {
                     }
                     break;
                 case 8:
+                    System.out.print("Enter CSV file path: ");
+                    try {
+                        importProjects(Paths.get(scanner.nextLine().trim()), projectDAO);
+                    } catch (SQLException e) {
+                        System.out.println("SQL Error: " + e.getMessage());
+                    } catch (IOException e) {
+                        System.out.println("File Error: " + e.getMessage());
+                    }
+                    break;
+                case 9:
+                    try {
+                        showPortfolioSummary();
+                    } catch (SQLException e) {
+                        System.out.println("SQL Error: " + e.getMessage());
+                    }
+                    break;
+                case 10:
+                    try (AsyncProjectDAO async = AsyncProjectDAO.fromConfig(projectDAO, config)) {
+                        showReports(scanner, new ReportDAO(), async);
+                    } catch (SQLException e) {
+                        System.out.println("SQL Error: " + e.getMessage());
+                    }
+                    break;
+                case 11:
+                    showStatistics(scanner, projectDAO);
+                    break;
+                case 12:
+                    try (AsyncProjectDAO async = AsyncProjectDAO.fromConfig(projectDAO, config)) {
+                        showDashboard(scanner, async);
+                    } catch (SQLException e) {
+                        System.out.println("SQL Error: " + e.getMessage());
+                    }
+                    break;
+                case 13:
                     System.out.println("Exiting...");
+                    if (projectDAO.getCache() != null) {
+                        System.out.println(projectDAO.getCache());
+                    }
                     scanner.close();
+                    DatabaseConnection.shutdown();
                     return;
                 default:
                     System.out.println("Invalid choice. Please try again.");
@@ -86,6 +244,337 @@ public class Main {
         }
     }
 
+    /**
+     * Runs a single operation given on the command line instead of showing the menu.
+     * 
+     * @param args the command-line arguments, for example {@code --import projects.csv}
+     * @param projectDAO the ProjectDAO object for database operations
+     * @return the process exit status
+     */
+    private static int runCommandLine(String[] args, ProjectDAO projectDAO) {
+        try {
+            if ("--import".equals(args[0]) && args.length == 2) {
+                importProjects(Paths.get(args[1]), projectDAO);
+            } else if ("--check-plans".equals(args[0]) && args.length == 1) {
+                return checkQueryPlans();
+            } else if ("--serve".equals(args[0]) && args.length == 1) {
+                serve(projectDAO);
+            } else if ("--batch".equals(args[0]) && args.length <= 2) {
+                return runBatch(args.length == 2 ? Paths.get(args[1]) : null, projectDAO);
+            } else if ("--export".equals(args[0]) && args.length == 2) {
+                exportProjects(Paths.get(args[1]));
+            } else if ("--snapshot".equals(args[0]) && args.length <= 2) {
+                takeSnapshot(args.length == 2 ? Paths.get(args[1]) : OfflineSnapshot.file(config));
+            } else {
+                System.out.println("Usage: java pms.Main [--import <file.csv> | --check-plans | --serve | --batch [file]"
+                                   + " | --export <file.csv|file.jsonl[.gz]>"
+                                   + " | --snapshot [file] | --offline [file] | --journal [offset] | --follow-journal [offset]"
+                                   + " | --slow-queries [count]]");
+                return 2;
+            }
+        } catch (SQLException e) {
+            System.out.println("SQL Error: " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            System.out.println("File Error: " + e.getMessage());
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Prints the change journal from an offset, one tab-separated line per change, and
+     * with {@code --follow-journal} keeps printing changes as they are made.
+     * 
+     * @param args the command-line arguments, {@code --journal [offset]} or {@code --follow-journal [offset]}
+     * @return the process exit status
+     */
+    private static int printJournal(String[] args) {
+        if (args.length > 2 || (args.length == 2 && !args[1].matches("\\d+"))) {
+            System.out.println("Usage: java pms.Main --journal [offset] | --follow-journal [offset]");
+            return 2;
+        }
+        boolean follow = "--follow-journal".equals(args[0]);
+        try (ChangeJournalReader reader = new ChangeJournalReader(ChangeJournal.directory(config))) {
+            if (args.length == 2) {
+                reader.seek(Long.parseLong(args[1]));
+            }
+            while (true) {
+                ChangeRecord record = follow ? reader.poll(1, TimeUnit.SECONDS) : reader.next();
+                if (record != null) {
+                    StringBuilder line = new StringBuilder();
+                    line.append(record.getOffset()).append('\t').append(record.getTimestamp())
+                        .append('\t').append(record.getType()).append('\t').append(record.getProjectNo()).append('\t');
+                    if (record.getProject() != null) {
+                        Json.writeProject(line, record.getProject());
+                    } else if (record.getCompletionDate() != null) {
+                        line.append(record.getCompletionDate());
+                    }
+                    System.out.println(line);
+                } else if (!follow) {
+                    System.err.println("Next offset: " + reader.getOffset());
+                    return 0;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("File Error: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    /**
+     * Prints the call counts and latencies of every DAO operation that has been used,
+     * the state of the connection pool and the cache, and offers to reset the counts.
+     * 
+     * @param scanner the Scanner object for user input
+     * @param projectDAO the ProjectDAO object whose cache to report on
+     */
+    private static void showStatistics(Scanner scanner, ProjectDAO projectDAO) {
+        System.out.println(DaoMetrics.heading());
+        for (DaoMetrics metrics : DaoMetrics.all()) {
+            if (metrics.getCalls() > 0) {
+                System.out.println(metrics);
+            }
+        }
+        ConnectionPool pool = DatabaseConnection.pool();
+        System.out.println("Connections: " + pool.getActiveCount() + " in use, " + pool.getIdleCount() + " idle, "
+                           + pool.getMaxSize() + " max");
+        if (projectDAO.getCache() != null) {
+            System.out.println(projectDAO.getCache());
+        }
+        OverdueScheduler scheduler = projectDAO.getOverdueScheduler();
+        if (scheduler != null) {
+            System.out.println("Overdue scheduler: " + scheduler.getOverdueCount() + " overdue, "
+                               + scheduler.getPendingCount() + " still to come due");
+        }
+        System.out.print("Reset the statistics? (y/n): ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+            DaoMetrics.resetAll();
+        }
+    }
+
+    /**
+     * Prints the query shapes that took the most time in total in the slow query log,
+     * with their slowest run and its plan.
+     * 
+     * @param args the command-line arguments, {@code --slow-queries [count]}
+     * @return the process exit status
+     */
+    private static int printSlowQueries(String[] args) {
+        if (args.length > 2 || (args.length == 2 && !args[1].matches("\\d{1,9}"))) {
+            System.out.println("Usage: java pms.Main --slow-queries [count]");
+            return 2;
+        }
+        int limit = args.length == 2 ? Integer.parseInt(args[1]) : 10;
+        Path file = SlowQueryLog.file(config);
+        try {
+            List<SlowQueryLog.QueryShape> shapes = SlowQueryLog.topShapes(file, config.getInt("pms.slowlog.maxFiles", 5), limit);
+            if (shapes.isEmpty()) {
+                System.out.println("No slow queries logged in " + file);
+                return 0;
+            }
+            int rank = 1;
+            for (SlowQueryLog.QueryShape shape : shapes) {
+                System.out.printf("%d. %s: %d runs, total %.1f ms, mean %.1f ms, max %.1f ms%n", rank++, shape.getOperation(),
+                                  shape.getCount(), shape.getTotalMillis(), shape.getMeanMillis(), shape.getMaxMillis());
+                System.out.println("   " + shape.getSql());
+                if (shape.getSlowestPlan() != null) {
+                    System.out.println("   Plan: " + shape.getSlowestPlan());
+                }
+            }
+            return 0;
+        } catch (IOException e) {
+            System.out.println("File Error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Applies any schema migrations the database has not had yet.
+     */
+    private static void migrateSchema() {
+        try {
+            for (SchemaMigrator.Migration migration : new SchemaMigrator().migrate()) {
+                System.out.println("Applied schema migration " + migration);
+            }
+        } catch (SQLException e) {
+            System.out.println("Schema migration failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Explains every DAO query and reports any that scan a whole table.
+     * 
+     * @return 0 if every query uses an index, 1 otherwise
+     * @throws SQLException if a database access error occurs
+     */
+    private static int checkQueryPlans() throws SQLException {
+        List<String> failures = new QueryPlanCheck().run();
+        for (String failure : failures) {
+            System.out.println("Full scan: " + failure);
+        }
+        System.out.println(failures.isEmpty() ? "All queries use an index." : failures.size() + " queries scan a whole table.");
+        return failures.isEmpty() ? 0 : 1;
+    }
+
+    /**
+     * Runs the commands in a batch script and prints one result line per command.
+     * 
+     * @param script the script file, or null to read the commands from standard input
+     * @param projectDAO the ProjectDAO object for database operations
+     * @return 0 if every command succeeded, 2 if the batch settings are not valid, otherwise 1
+     * @throws SQLException if the database connection fails
+     * @throws IOException if the script cannot be read
+     */
+    private static int runBatch(Path script, ProjectDAO projectDAO) throws SQLException, IOException {
+        BatchRunner runner;
+        try {
+            runner = BatchRunner.fromConfig(projectDAO, config);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Configuration Error: " + e.getMessage());
+            return 2;
+        }
+        try (BufferedReader reader = script == null
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(script, StandardCharsets.UTF_8)) {
+            boolean ok = runner.run(reader);
+            System.err.println(runner.getSucceeded() + " commands committed, " + runner.getFailed() + " failed");
+            return ok ? 0 : 1;
+        }
+    }
+
+    /**
+     * Exports every project to a CSV or JSON Lines file, chosen by the file name.
+     * 
+     * @param file the file to write
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if the file cannot be written
+     */
+    private static void exportProjects(Path file) throws SQLException, IOException {
+        ProjectExporter exporter;
+        try {
+            exporter = ProjectExporter.forFile(file);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        long start = System.nanoTime();
+        long rows = exporter.export(file);
+        System.out.printf("Exported %d projects to %s in %d ms%n", rows, file, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes the projects and people to an offline snapshot file.
+     * 
+     * @param file the snapshot file
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if the file cannot be written
+     */
+    private static void takeSnapshot(Path file) throws SQLException, IOException {
+        long start = System.nanoTime();
+        int projects = OfflineSnapshot.write(file);
+        System.out.printf("Wrote %d projects to %s (%,d bytes) in %d ms%n", projects, file, Files.size(file),
+                          (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Shows a read-only menu answered from an offline snapshot instead of the database.
+     * 
+     * @param scanner the Scanner object for user input
+     * @param file the snapshot file
+     * @return false if the snapshot could not be opened
+     */
+    private static boolean runOffline(Scanner scanner, Path file) {
+        OfflineSnapshot snapshot;
+        try {
+            snapshot = OfflineSnapshot.open(file);
+        } catch (IOException e) {
+            System.out.println("File Error: " + e.getMessage());
+            return false;
+        }
+        System.out.println("Offline mode: " + snapshot.size() + " projects as of " + snapshot.getCreated()
+                           + ". Changes cannot be made.");
+        while (true) {
+            System.out.println("Project Management System (offline)");
+            System.out.println("1. Find project by number or name");
+            System.out.println("2. List incomplete projects");
+            System.out.println("3. List overdue projects");
+            System.out.println("4. Exit");
+            System.out.print("Enter your choice: ");
+            String choice = scanner.nextLine().trim();
+
+            switch (choice) {
+                case "1": {
+                    System.out.print("Enter project number or name: ");
+                    String input = scanner.nextLine();
+                    Project project = input.trim().matches("\\d{1,9}") ? snapshot.findByNumber(Integer.parseInt(input.trim()))
+                                                                   : snapshot.findByName(input);
+                    System.out.println(project != null ? project : "Project not found!");
+                    break;
+                }
+                case "2":
+                    snapshot.forEachIncompleteProject(System.out::println);
+                    break;
+                case "3":
+                    snapshot.forEachOverdueProject(LocalDate.now(), System.out::println);
+                    break;
+                case "4":
+                    System.out.println("Exiting...");
+                    return true;
+                default:
+                    System.out.println("Invalid choice. Please try again.");
+            }
+        }
+    }
+
+    /**
+     * Runs the HTTP API until the process is stopped.
+     * 
+     * @param projectDAO the ProjectDAO object the API is served from
+     * @throws SQLException if the database cannot be reached
+     * @throws IOException if the HTTP port cannot be opened
+     */
+    private static void serve(ProjectDAO projectDAO) throws SQLException, IOException {
+        DatabaseConnection.warmUp();
+        HttpApiServer server = HttpApiServer.fromConfig(projectDAO, config);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(2);
+            DatabaseConnection.shutdown();
+        }));
+        server.start();
+        System.out.println("Serving the project API on port " + server.getPort() + " (Ctrl+C to stop)");
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Imports projects from a CSV file and reports the rows that failed.
+     * 
+     * @param file the CSV file to import
+     * @param projectDAO the ProjectDAO object for database operations
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if the file cannot be read
+     */
+    private static void importProjects(Path file, ProjectDAO projectDAO) throws SQLException, IOException {
+        System.out.println("Importing projects from " + file + "...");
+        int batchSize = config.getInt("pms.import.batchSize", ProjectDAO.DEFAULT_BATCH_SIZE);
+        try (ProjectCsvReader reader = new ProjectCsvReader(file)) {
+            BulkImportResult result = projectDAO.addProjects(reader, batchSize);
+            for (String error : reader.getErrors()) {
+                System.out.println("Skipped " + error);
+            }
+            for (BulkImportResult.RowError error : result.getErrors()) {
+                System.out.println("Failed " + error);
+            }
+            System.out.println("Import finished: " + result);
+        }
+    }
+
     /**
      * Adds a new project to the database.
      * 
@@ -131,14 +620,10 @@ public class Main {
         int customerID = scanner.nextInt();
         scanner.nextLine(); // consume newline
 
-        // Generate project name if not provided
-        if (projectName.isEmpty()) {
-            projectName = buildingType + " " + projectDAO.getCustomerSurnameByID(customerID);
-        }
-
+        // A blank name is generated from the building type and the customer's surname
         Project project = new Project(0, projectName, buildingType, address, erfNumber, totalFee, totalPaid, deadline, false, null, architectID, contractorID, customerID);
-        projectDAO.addProject(project);
-        System.out.println("Project added successfully!");
+        int projectNumber = projectDAO.createProject(project);
+        System.out.println("Project " + projectNumber + " (" + project.getName() + ") added successfully!");
     }
 
     /**
@@ -201,8 +686,29 @@ public class Main {
                 project.setDeadline(deadline);
             }
 
-            projectDAO.updateProject(project);
-            System.out.println("Project updated successfully!");
+            WriteResult result = projectDAO.updateProjectIfCurrent(project);
+            while (result.getStatus() == WriteResult.Status.CONFLICT) {
+                System.out.println("Someone else changed this project while you were editing it: " + result.getCurrent());
+                System.out.print("Apply your changes on top of theirs? (y/n): ");
+                if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                    break;
+                }
+                // Write over the row just shown, not the one the edits started from
+                result = projectDAO.updateProjectIfCurrent(ProjectFields.merge(project, result.getCurrent()));
+            }
+            switch (result.getStatus()) {
+                case APPLIED:
+                    System.out.println("Project updated successfully!");
+                    break;
+                case UNCHANGED:
+                    System.out.println("No changes to save.");
+                    break;
+                case NOT_FOUND:
+                    System.out.println("Project was deleted by someone else.");
+                    break;
+                default:
+                    System.out.println("Project was not updated.");
+            }
         } else {
             System.out.println("Project not found!");
         }
@@ -225,36 +731,292 @@ public class Main {
         System.out.print("Enter completion date (YYYY-MM-DD): ");
         String completionDate = scanner.nextLine();
 
-        projectDAO.finalizeProject(projectNumber, completionDate);
-        System.out.println("Project finalized successfully!");
+        if (projectDAO.finalizeProject(projectNumber, completionDate)) {
+            System.out.println("Project finalized successfully!");
+        } else {
+            System.out.println("Project not found!");
+        }
     }
 
     /**
-     * Lists all incomplete projects.
+     * Lists all incomplete projects, one page at a time.
      * 
+     * @param scanner the Scanner object for user input
      * @param projectDAO the ProjectDAO object for database operations
      * @throws SQLException if a database access error occurs
      */
-    private static void listIncompleteProjects(ProjectDAO projectDAO) throws SQLException {
+    private static void listIncompleteProjects(Scanner scanner, ProjectDAO projectDAO) throws SQLException {
         System.out.println("Listing incomplete projects...");
-        for (Project project : projectDAO.getIncompleteProjects()) {
-            System.out.println(project);
+        int pageSize = config.getInt("pms.page.size", 20);
+        if (pageSize > 0) {
+            browsePages(scanner, token -> projectDAO.getIncompleteProjectsPage(token, pageSize));
+        } else {
+            projectDAO.forEachIncompleteProject(System.out::println);
         }
     }
 
     /**
-     * Lists all overdue projects.
+     * Lists all overdue projects, one page at a time.
      * 
+     * @param scanner the Scanner object for user input
      * @param projectDAO the ProjectDAO object for database operations
      * @throws SQLException if a database access error occurs
      */
-    private static void listOverdueProjects(ProjectDAO projectDAO) throws SQLException {
+    private static void listOverdueProjects(Scanner scanner, ProjectDAO projectDAO) throws SQLException {
         System.out.println("Listing overdue projects...");
-        for (Project project : projectDAO.getOverdueProjects()) {
-            System.out.println(project);
+        int pageSize = config.getInt("pms.page.size", 20);
+        if (pageSize > 0) {
+            browsePages(scanner, token -> projectDAO.getOverdueProjectsPage(token, pageSize));
+        } else {
+            projectDAO.forEachOverdueProject(System.out::println);
+        }
+    }
+
+    /**
+     * Shows one page of projects at a time and lets the user move to the next or previous page.
+     * 
+     * @param scanner the Scanner object for user input
+     * @param loader loads the page for a page token
+     * @throws SQLException if a database access error occurs
+     */
+    private static void browsePages(Scanner scanner, PageLoader loader) throws SQLException {
+        ProjectPage page = loader.load(null);
+        while (true) {
+            for (Project project : page.getProjects()) {
+                System.out.println(project);
+            }
+            if (!page.hasNext() && !page.hasPrevious()) {
+                return;
+            }
+            System.out.print((page.hasNext() ? "[n]ext page, " : "") + (page.hasPrevious() ? "[p]revious page, " : "") + "[q]uit: ");
+            String input = scanner.nextLine().trim().toLowerCase();
+            if (input.equals("n") && page.hasNext()) {
+                page = loader.load(page.getNextToken());
+            } else if (input.equals("p") && page.hasPrevious()) {
+                page = loader.load(page.getPreviousToken());
+            } else if (input.equals("q")) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Loads a page of projects for {@link #browsePages(Scanner, PageLoader)}.
+     */
+    private interface PageLoader {
+        ProjectPage load(String pageToken) throws SQLException;
+    }
+
+    /**
+     * Prints fee totals, the customers with the largest unpaid balances and the
+     * ageing of overdue balances, computed from a columnar snapshot of all projects.
+     * 
+     * @throws SQLException if a database access error occurs
+     */
+    private static void showPortfolioSummary() throws SQLException {
+        PortfolioSnapshot snapshot = PortfolioSnapshot.load();
+        System.out.println("Portfolio summary for " + snapshot.size() + " projects");
+        System.out.println("Total fees:        " + formatCents(snapshot.totalFeeCents()));
+        System.out.println("Total paid:        " + formatCents(snapshot.totalPaidCents()));
+        System.out.println("Total outstanding: " + formatCents(snapshot.totalOutstandingCents()));
+        System.out.println("Open outstanding:  " + formatCents(snapshot.openOutstandingCents()));
+
+        int[] customers = new int[5];
+        long[] customerBalances = new long[customers.length];
+        int found = snapshot.largestCustomerBalances(customers, customerBalances);
+        System.out.println("Largest balances by customer:");
+        for (int i = 0; i < found; i++) {
+            System.out.println("  Customer " + customers[i] + ": " + formatCents(customerBalances[i]));
+        }
+
+        int[] bounds = {30, 60, 90};
+        String[] labels = {"1-30 days", "31-60 days", "61-90 days", "over 90 days"};
+        int[] counts = new int[bounds.length + 1];
+        long[] balances = new long[bounds.length + 1];
+        snapshot.ageingBuckets((int) LocalDate.now().toEpochDay(), bounds, counts, balances);
+        System.out.println("Overdue projects by days late:");
+        for (int i = 0; i < labels.length; i++) {
+            System.out.println("  " + labels[i] + ": " + counts[i] + " projects, " + formatCents(balances[i]) + " outstanding");
         }
     }
 
+    /**
+     * Shows the reports menu and prints the chosen report until the user goes back.
+     * 
+     * @param scanner the Scanner object for user input
+     * @param reportDAO the ReportDAO object for reading reports
+     * @param async runs the reports at the same time when all of them are shown
+     * @throws SQLException if a database access error occurs
+     */
+    private static void showReports(Scanner scanner, ReportDAO reportDAO, AsyncProjectDAO async) throws SQLException {
+        while (true) {
+            System.out.println("Reports");
+            System.out.println("1. Outstanding balance per customer");
+            System.out.println("2. Overdue projects per architect");
+            System.out.println("3. Overdue projects per contractor");
+            System.out.println("4. Projects per type");
+            System.out.println("5. All reports");
+            System.out.println("6. Back");
+            System.out.print("Enter your choice: ");
+            int choice = scanner.nextInt();
+            scanner.nextLine(); // consume newline
+
+            switch (choice) {
+                case 1:
+                    printReport("Customer", "Outstanding", reportDAO.getOutstandingByCustomer());
+                    break;
+                case 2:
+                    printReport("Architect", "Outstanding", reportDAO.getOverdueByArchitect());
+                    break;
+                case 3:
+                    printReport("Contractor", "Outstanding", reportDAO.getOverdueByContractor());
+                    break;
+                case 4:
+                    printReport("Type", "Total fees", reportDAO.getProjectsByType());
+                    break;
+                case 5:
+                    List<List<ReportRow>> reports = loadAllReports(reportDAO, async);
+                    printReport("Customer", "Outstanding", reports.get(0));
+                    System.out.println();
+                    printReport("Architect", "Outstanding", reports.get(1));
+                    System.out.println();
+                    printReport("Contractor", "Outstanding", reports.get(2));
+                    System.out.println();
+                    printReport("Type", "Total fees", reports.get(3));
+                    break;
+                case 6:
+                    return;
+                default:
+                    System.out.println("Invalid choice. Please try again.");
+            }
+        }
+    }
+
+    /**
+     * Reads all four reports at the same time, so that showing them takes as long as
+     * the slowest one rather than the sum of all four.
+     * 
+     * @param reportDAO the ReportDAO object for reading reports
+     * @param async runs the report queries in the background
+     * @return the outstanding balance per customer, overdue projects per architect and
+     *         per contractor, and projects per type, in that order
+     * @throws SQLException if a database access error occurs
+     */
+    static List<List<ReportRow>> loadAllReports(ReportDAO reportDAO, AsyncProjectDAO async) throws SQLException {
+        List<CompletableFuture<List<ReportRow>>> futures = List.of(
+                async.submit(reportDAO::getOutstandingByCustomer),
+                async.submit(reportDAO::getOverdueByArchitect),
+                async.submit(reportDAO::getOverdueByContractor),
+                async.submit(reportDAO::getProjectsByType));
+        awaitAll(futures);
+        List<List<ReportRow>> reports = new ArrayList<>();
+        for (CompletableFuture<List<ReportRow>> future : futures) {
+            reports.add(future.join());
+        }
+        return reports;
+    }
+
+    /**
+     * Shows how many projects are incomplete and overdue, lists the overdue ones, and
+     * shows the projects asked for by number. The listings and every lookup are read
+     * at the same time.
+     * 
+     * @param scanner the Scanner object for user input
+     * @param async runs the queries in the background
+     * @throws SQLException if a database access error occurs
+     */
+    private static void showDashboard(Scanner scanner, AsyncProjectDAO async) throws SQLException {
+        System.out.print("Enter project numbers to look up, separated by commas (or press Enter for none): ");
+        List<Integer> projectNumbers = new ArrayList<>();
+        for (String part : scanner.nextLine().split(",")) {
+            if (part.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                projectNumbers.add(Integer.parseInt(part.trim()));
+            } catch (NumberFormatException e) {
+                System.out.println("Skipping " + part.trim() + ": not a project number.");
+            }
+        }
+
+        CompletableFuture<List<Project>> incomplete = async.getIncompleteProjects();
+        CompletableFuture<List<Project>> overdue = async.getOverdueProjects();
+        List<CompletableFuture<Project>> lookups = new ArrayList<>();
+        for (int projectNumber : projectNumbers) {
+            lookups.add(async.findProjectByNumber(projectNumber));
+        }
+        List<CompletableFuture<?>> all = new ArrayList<>(lookups);
+        all.add(incomplete);
+        all.add(overdue);
+        awaitAll(all);
+
+        System.out.println("Incomplete projects: " + incomplete.join().size());
+        System.out.println("Overdue projects: " + overdue.join().size());
+        for (Project project : overdue.join()) {
+            System.out.println("  " + project.getProjectNo() + ". " + project.getName() + " (due " + project.getDeadline() + ")");
+        }
+        for (int i = 0; i < lookups.size(); i++) {
+            Project project = lookups.get(i).join();
+            if (project != null) {
+                System.out.println(project);
+            } else {
+                System.out.println("Project " + projectNumbers.get(i) + " not found!");
+            }
+        }
+    }
+
+    /**
+     * Waits for background calls in order, and on the first failure cancels the rest
+     * and rethrows its SQLException.
+     * 
+     * @param futures the calls to wait for
+     * @throws SQLException if a call failed
+     */
+    private static void awaitAll(List<? extends CompletableFuture<?>> futures) throws SQLException {
+        try {
+            for (CompletableFuture<?> future : futures) {
+                future.join();
+            }
+        } catch (CompletionException | CancellationException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException("Could not read from the database: " + cause, cause);
+        }
+    }
+
+    /**
+     * Prints the rows of a report under a heading line.
+     * 
+     * @param groupHeading the heading of the group column
+     * @param amountHeading the heading of the amount column
+     * @param rows the report rows
+     */
+    private static void printReport(String groupHeading, String amountHeading, List<ReportRow> rows) {
+        if (rows.isEmpty()) {
+            System.out.println("Nothing to report.");
+            return;
+        }
+        System.out.println(String.format("%-30s %5s  %15s", groupHeading, "Count", amountHeading));
+        for (ReportRow row : rows) {
+            System.out.println(row);
+        }
+    }
+
+    /**
+     * Formats an amount held in cents, for example 123456 as "1,234.56".
+     * 
+     * @param cents the amount in cents
+     * @return the formatted amount
+     */
+    private static String formatCents(long cents) {
+        String sign = cents < 0 ? "-" : "";
+        long abs = Math.abs(cents);
+        return String.format("%s%,d.%02d", sign, abs / 100, abs % 100);
+    }
+
     /**
      * Finds a project by its number or name.
      * 
@@ -277,15 +1039,65 @@ public class Main {
                 System.out.println("Project not found!");
             }
         } catch (NumberFormatException e) {
-            Project project = projectDAO.findProjectByName(input);
-            if (project != null) {
-                System.out.println(project);
-            } else {
+            searchProjects(scanner, projectDAO, input);
+        }
+    }
+
+    /**
+     * Searches for projects by name, customer surname or address, listing the best
+     * matches so that one can be picked or the search changed.
+     * 
+     * @param scanner the Scanner object for user input
+     * @param projectDAO the ProjectDAO object for database operations
+     * @param text the text to search for first
+     * @throws SQLException if a database access error occurs
+     */
+    private static void searchProjects(Scanner scanner, ProjectDAO projectDAO, String text) throws SQLException {
+        int limit = config.getInt("pms.search.limit", 10);
+        while (!text.trim().isEmpty()) {
+            List<ProjectSearchIndex.Match> matches = projectDAO.searchProjects(text, limit);
+            if (matches.isEmpty()) {
                 System.out.println("Project not found!");
+            } else if (matches.size() == 1) {
+                showProject(projectDAO, matches.get(0).getProjectNo());
+                return;
+            } else {
+                for (int i = 0; i < matches.size(); i++) {
+                    System.out.println((i + 1) + ". " + matches.get(i));
+                }
+            }
+            System.out.print(matches.isEmpty() ? "Search again, or press Enter to go back: "
+                                               : "Pick a project, search again, or press Enter to go back: ");
+            String input = scanner.nextLine().trim();
+            try {
+                int choice = Integer.parseInt(input);
+                if (choice >= 1 && choice <= matches.size()) {
+                    showProject(projectDAO, matches.get(choice - 1).getProjectNo());
+                    return;
+                }
+                System.out.println("Pick a number from 1 to " + matches.size() + ".");
+            } catch (NumberFormatException e) {
+                text = input;
             }
         }
     }
 
+    /**
+     * Prints a project found by a search.
+     * 
+     * @param projectDAO the ProjectDAO object for database operations
+     * @param projectNumber the project number
+     * @throws SQLException if a database access error occurs
+     */
+    private static void showProject(ProjectDAO projectDAO, int projectNumber) throws SQLException {
+        Project project = projectDAO.findProjectByNumber(projectNumber);
+        if (project != null) {
+            System.out.println(project);
+        } else {
+            System.out.println("Project not found!");
+        }
+    }
+
     /**
      * Deletes a project from the database.
      * 
@@ -300,7 +1112,10 @@ public class Main {
         int projectNumber = scanner.nextInt();
         scanner.nextLine(); // consume newline
 
-        projectDAO.deleteProject(projectNumber);
-        System.out.println("Project deleted successfully!");
+        if (projectDAO.deleteProject(projectNumber)) {
+            System.out.println("Project deleted successfully!");
+        } else {
+            System.out.println("Project not found!");
+        }
     }
 }
\ No newline at end of file
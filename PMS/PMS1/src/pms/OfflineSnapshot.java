@@ -0,0 +1,559 @@
+package pms;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A read-only copy of the Project, Customer, Architect and Contractor tables in one
+ * binary file, for looking projects up while the database cannot be reached.
+ *
+ * {@link #write(Path)} reads the four tables in one transaction and writes the file.
+ * {@link #open(Path)} memory-maps it; nothing is loaded up front, and each lookup
+ * reads only the records it needs from the mapping and builds the Project objects it
+ * returns, so the tables take no heap however large they are.
+ *
+ * The file is big-endian and laid out as:
+ *
+ * <pre>
+ * header (96 bytes): int magic, int formatVersion, long createdMillis,
+ *     int projectCount, int nameIndexCount, int overdueIndexCount,
+ *     int customerCount, int architectCount, int contractorCount,
+ *     long projectsOffset, nameIndexOffset, overdueIndexOffset,
+ *     customersOffset, architectsOffset, contractorsOffset, stringsOffset
+ * projects (80 bytes each, by project number): int projectNo, double totalFee,
+ *     double amountPaid, int deadlineDay, int completionDay, byte finalised, 3 unused,
+ *     int architectID, int contractorID, int customerID, int version,
+ *     string name, type, address, erfNo
+ * name index (12 bytes each, by name bytes then row): string name, int row
+ * overdue index (8 bytes each, by deadline then project number): int deadlineDay, int row
+ *     of every open project with a deadline
+ * people (44 bytes each, by ID), one section per table: int id,
+ *     string firstName, lastName, phone, email, address
+ * strings: UTF-8 text
+ * </pre>
+ *
+ * A string is an {@code int} offset into the strings section and an {@code int} byte
+ * length, -1 for null. Dates are days since 1970-01-01, {@link Integer#MIN_VALUE} for
+ * null, and finalised is 1, 0, or 2 for null.
+ */
+public class OfflineSnapshot {
+    static final int MAGIC = 0x504d534f; // "PMSO"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 96;
+    static final int PROJECT_SIZE = 80;
+    static final int NAME_ENTRY_SIZE = 12;
+    static final int OVERDUE_ENTRY_SIZE = 8;
+    static final int PERSON_SIZE = 44;
+    static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NULL_LENGTH = -1;
+
+    // Field offsets within a project record
+    private static final int P_TOTAL_FEE = 4;
+    private static final int P_AMOUNT_PAID = 12;
+    private static final int P_DEADLINE = 20;
+    private static final int P_COMPLETION = 24;
+    private static final int P_FINALISED = 28;
+    private static final int P_ARCHITECT = 32;
+    private static final int P_CONTRACTOR = 36;
+    private static final int P_CUSTOMER = 40;
+    private static final int P_VERSION = 44;
+    private static final int P_NAME = 48;
+    private static final int P_TYPE = 56;
+    private static final int P_ADDRESS = 64;
+    private static final int P_ERF_NO = 72;
+    // Field offsets within a person record
+    private static final int PERSON_FIRST_NAME = 4;
+    private static final int PERSON_LAST_NAME = 12;
+
+    private static final String PROJECT_QUERY = Projection.LEAN.query("ORDER BY p.ProjectNo");
+    private static final String[] PERSON_QUERIES = {
+        "SELECT CustomerID, firstName, lastName, Phone, Email, Address FROM Customer ORDER BY CustomerID",
+        "SELECT ArchitectID, firstName, lastName, Phone, Email, Address FROM Architect ORDER BY ArchitectID",
+        "SELECT ContractorID, firstName, lastName, Phone, Email, Address FROM Contractor ORDER BY ContractorID"
+    };
+
+    private final ByteBuffer buf;
+    private final long created;
+    private final int projectCount;
+    private final int nameCount;
+    private final int overdueCount;
+    private final int customerCount;
+    private final int architectCount;
+    private final int contractorCount;
+    private final int projects;
+    private final int names;
+    private final int overdue;
+    private final int customers;
+    private final int architects;
+    private final int contractors;
+    private final int strings;
+
+    private OfflineSnapshot(ByteBuffer buf) throws IOException {
+        if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a project snapshot file");
+        }
+        if (buf.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Snapshot format " + buf.getInt(4) + " is not supported; take a new snapshot");
+        }
+        this.buf = buf;
+        created = buf.getLong(8);
+        projectCount = buf.getInt(16);
+        nameCount = buf.getInt(20);
+        overdueCount = buf.getInt(24);
+        customerCount = buf.getInt(28);
+        architectCount = buf.getInt(32);
+        contractorCount = buf.getInt(36);
+        projects = section(40);
+        names = section(48);
+        overdue = section(56);
+        customers = section(64);
+        architects = section(72);
+        contractors = section(80);
+        strings = section(88);
+    }
+
+    private int section(int headerOffset) throws IOException {
+        long offset = buf.getLong(headerOffset);
+        if (offset < HEADER_SIZE || offset > buf.capacity()) {
+            throw new IOException("Snapshot file is damaged");
+        }
+        return (int) offset;
+    }
+
+    /**
+     * Memory-maps a snapshot file for reading.
+     *
+     * @param file the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static OfflineSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot file is too large");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new OfflineSnapshot(mapped);
+        }
+    }
+
+    /**
+     * Gets the snapshot file named by the {@code pms.snapshot.file} setting.
+     *
+     * @param config the application configuration
+     * @return the snapshot file
+     */
+    static Path file(AppConfig config) {
+        return Paths.get(config.getString("pms.snapshot.file", "pms.snapshot"));
+    }
+
+    /**
+     * Gets when the snapshot was taken.
+     *
+     * @return the time of the snapshot
+     */
+    public Instant getCreated() {
+        return Instant.ofEpochMilli(created);
+    }
+
+    /**
+     * Gets the number of projects in the snapshot.
+     *
+     * @return the project count
+     */
+    public int size() {
+        return projectCount;
+    }
+
+    /**
+     * Finds a project by its number.
+     *
+     * @param projectNo the project number
+     * @return the project, or null if there is none
+     */
+    public Project findByNumber(int projectNo) {
+        int row = search(projects, projectCount, PROJECT_SIZE, projectNo);
+        return row < 0 ? null : project(row);
+    }
+
+    /**
+     * Finds a project by its exact name. When several projects share a name, the one
+     * with the lowest number is returned.
+     *
+     * @param name the project name
+     * @return the project, or null if there is none
+     */
+    public Project findByName(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = nameCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareName(names + mid * NAME_ENTRY_SIZE, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low < nameCount && compareName(names + low * NAME_ENTRY_SIZE, key) == 0) {
+            return project(buf.getInt(names + low * NAME_ENTRY_SIZE + 8));
+        }
+        return null;
+    }
+
+    /**
+     * Hands each project that is not finalized to the action, in project number order.
+     *
+     * @param action what to do with each project
+     */
+    public void forEachIncompleteProject(Consumer<? super Project> action) {
+        for (int row = 0; row < projectCount; row++) {
+            if (buf.get(projects + row * PROJECT_SIZE + P_FINALISED) == 0) {
+                action.accept(project(row));
+            }
+        }
+    }
+
+    /**
+     * Hands each open project whose deadline is before the given day to the action,
+     * in deadline order.
+     *
+     * @param today the first day that is not overdue
+     * @param action what to do with each project
+     */
+    public void forEachOverdueProject(LocalDate today, Consumer<? super Project> action) {
+        int todayDay = (int) today.toEpochDay();
+        for (int i = 0; i < overdueCount; i++) {
+            int entry = overdue + i * OVERDUE_ENTRY_SIZE;
+            if (buf.getInt(entry) >= todayDay) {
+                break;
+            }
+            action.accept(project(buf.getInt(entry + 4)));
+        }
+    }
+
+    /**
+     * Builds the project in a row, with the names of its customer, architect and contractor.
+     */
+    private Project project(int row) {
+        int at = projects + row * PROJECT_SIZE;
+        Project project = new Project(
+            buf.getInt(at),
+            string(at + P_NAME),
+            string(at + P_TYPE),
+            string(at + P_ADDRESS),
+            string(at + P_ERF_NO),
+            buf.getDouble(at + P_TOTAL_FEE),
+            buf.getDouble(at + P_AMOUNT_PAID),
+            date(buf.getInt(at + P_DEADLINE)),
+            buf.get(at + P_FINALISED) == 1,
+            date(buf.getInt(at + P_COMPLETION)),
+            buf.getInt(at + P_ARCHITECT),
+            buf.getInt(at + P_CONTRACTOR),
+            buf.getInt(at + P_CUSTOMER));
+        project.setVersion(buf.getInt(at + P_VERSION));
+        int customer = person(customers, customerCount, project.getCustomerID());
+        if (customer >= 0) {
+            project.setCustomerFirstName(string(customer + PERSON_FIRST_NAME));
+            project.setCustomerLastName(string(customer + PERSON_LAST_NAME));
+        }
+        int architect = person(architects, architectCount, project.getArchitectID());
+        if (architect >= 0) {
+            project.setArchitectFirstName(string(architect + PERSON_FIRST_NAME));
+            project.setArchitectLastName(string(architect + PERSON_LAST_NAME));
+        }
+        int contractor = person(contractors, contractorCount, project.getContractorID());
+        if (contractor >= 0) {
+            project.setContractorFirstName(string(contractor + PERSON_FIRST_NAME));
+            project.setContractorLastName(string(contractor + PERSON_LAST_NAME));
+        }
+        project.markClean();
+        return project;
+    }
+
+    /**
+     * Finds a person record by ID.
+     *
+     * @return the position of the record in the file, or -1 if there is none
+     */
+    private int person(int section, int count, int id) {
+        int row = search(section, count, PERSON_SIZE, id);
+        return row < 0 ? -1 : section + row * PERSON_SIZE;
+    }
+
+    /**
+     * Binary searches a section of records sorted by the int key at their start.
+     *
+     * @return the row of the matching record, or -1 if there is none
+     */
+    private int search(int section, int count, int recordSize, int key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = buf.getInt(section + mid * recordSize);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the name a name index entry points to with a key, byte by byte.
+     */
+    private int compareName(int entry, byte[] key) {
+        int offset = strings + buf.getInt(entry);
+        int length = buf.getInt(entry + 4);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int diff = Byte.toUnsignedInt(buf.get(offset + i)) - Byte.toUnsignedInt(key[i]);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length;
+    }
+
+    private String string(int ref) {
+        int length = buf.getInt(ref + 4);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(strings + buf.getInt(ref), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String date(int day) {
+        return day == NO_DATE ? null : LocalDate.ofEpochDay(day).toString();
+    }
+
+    /**
+     * Reads the four tables in one transaction and writes them to a snapshot file. The
+     * file is written next to the target and moved into place once it is complete.
+     *
+     * @param file the snapshot file to write
+     * @return the number of projects written
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if the file cannot be written
+     */
+    public static int write(Path file) throws SQLException, IOException {
+        Writer writer = new Writer();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            try {
+                for (int table = 0; table < PERSON_QUERIES.length; table++) {
+                    writer.readPeople(conn, PERSON_QUERIES[table], table);
+                }
+                writer.readProjects(conn);
+                conn.commit();
+            } finally {
+                conn.setReadOnly(false);
+            }
+        }
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        boolean done = false;
+        try {
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (ByteBuffer part : writer.finish()) {
+                    while (part.hasRemaining()) {
+                        channel.write(part);
+                    }
+                }
+                channel.force(true);
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            done = true;
+        } finally {
+            if (!done) {
+                Files.deleteIfExists(partial);
+            }
+        }
+        return writer.projectCount;
+    }
+
+    /**
+     * Builds the sections of a snapshot file while the tables are read.
+     */
+    private static final class Writer {
+        private final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream projects = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream[] people = {
+            new ByteArrayOutputStream(), new ByteArrayOutputStream(), new ByteArrayOutputStream()
+        };
+        private final int[] personCounts = new int[3];
+        private final ByteBuffer record = ByteBuffer.allocate(PROJECT_SIZE);
+        private final List<byte[]> names = new ArrayList<>();
+        private int[] nameRefs = new int[64];
+        private int[] nameRows = new int[64];
+        private long[] overdueKeys = new long[64];
+        private int overdueCount;
+        private int projectCount;
+
+        void readPeople(Connection conn, String query, int table) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(DatabaseConnection.pool().getFetchSize());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        record.clear();
+                        record.putInt(rs.getInt(1));
+                        for (int column = 2; column <= 6; column++) {
+                            putString(rs.getString(column));
+                        }
+                        people[table].write(record.array(), 0, PERSON_SIZE);
+                        personCounts[table]++;
+                    }
+                }
+            }
+        }
+
+        void readProjects(Connection conn) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement(PROJECT_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(DatabaseConnection.pool().getFetchSize());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    ProjectRowMapper mapper = new ProjectRowMapper(rs);
+                    while (rs.next()) {
+                        add(mapper.map(rs), rs.getObject("Finalised") == null);
+                    }
+                }
+            }
+        }
+
+        private void add(Project project, boolean finalisedIsNull) {
+            int row = projectCount++;
+            int deadlineDay = day(project.getDeadline());
+            byte finalised = finalisedIsNull ? 2 : project.isFinalised() ? (byte) 1 : 0;
+            record.clear();
+            record.putInt(project.getProjectNo());
+            record.putDouble(project.getTotalFee());
+            record.putDouble(project.getAmountPaid());
+            record.putInt(deadlineDay);
+            record.putInt(day(project.getCompletionDate()));
+            record.put(finalised).put((byte) 0).put((byte) 0).put((byte) 0);
+            record.putInt(project.getArchitectID());
+            record.putInt(project.getContractorID());
+            record.putInt(project.getCustomerID());
+            record.putInt(project.getVersion());
+            int nameRef = strings.size();
+            byte[] name = project.getName() == null ? null : project.getName().getBytes(StandardCharsets.UTF_8);
+            putString(project.getName());
+            putString(project.getType());
+            putString(project.getAddress());
+            putString(project.getErfNo());
+            projects.write(record.array(), 0, PROJECT_SIZE);
+
+            if (name != null) {
+                if (names.size() == nameRefs.length) {
+                    nameRefs = Arrays.copyOf(nameRefs, nameRefs.length * 2);
+                    nameRows = Arrays.copyOf(nameRows, nameRows.length * 2);
+                }
+                nameRefs[names.size()] = nameRef;
+                nameRows[names.size()] = row;
+                names.add(name);
+            }
+            if (finalised == 0 && deadlineDay != NO_DATE) {
+                if (overdueCount == overdueKeys.length) {
+                    overdueKeys = Arrays.copyOf(overdueKeys, overdueKeys.length * 2);
+                }
+                // Rows are added in project number order, so sorting by (deadline, row)
+                // gives deadline then project number order
+                overdueKeys[overdueCount++] = ((long) deadlineDay << 32) | row;
+            }
+        }
+
+        private void putString(String value) {
+            if (value == null) {
+                record.putInt(0).putInt(NULL_LENGTH);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            record.putInt(strings.size()).putInt(bytes.length);
+            strings.write(bytes, 0, bytes.length);
+        }
+
+        /**
+         * Sorts the indexes and returns the header and sections in file order.
+         */
+        List<ByteBuffer> finish() {
+            Integer[] nameOrder = new Integer[names.size()];
+            for (int i = 0; i < nameOrder.length; i++) {
+                nameOrder[i] = i;
+            }
+            // Entries were added in row order and the sort is stable, so equal names stay in row order
+            Arrays.sort(nameOrder, (a, b) -> Arrays.compareUnsigned(names.get(a), names.get(b)));
+            ByteBuffer nameIndex = ByteBuffer.allocate(nameOrder.length * NAME_ENTRY_SIZE);
+            for (int i : nameOrder) {
+                nameIndex.putInt(nameRefs[i]).putInt(names.get(i).length).putInt(nameRows[i]);
+            }
+            nameIndex.flip();
+
+            long[] keys = Arrays.copyOf(overdueKeys, overdueCount);
+            Arrays.sort(keys);
+            ByteBuffer overdueIndex = ByteBuffer.allocate(overdueCount * OVERDUE_ENTRY_SIZE);
+            for (long key : keys) {
+                overdueIndex.putInt((int) (key >> 32)).putInt((int) key);
+            }
+            overdueIndex.flip();
+
+            List<ByteBuffer> sections = new ArrayList<>();
+            sections.add(null); // header, filled in below
+            sections.add(ByteBuffer.wrap(projects.toByteArray()));
+            sections.add(nameIndex);
+            sections.add(overdueIndex);
+            for (ByteArrayOutputStream table : people) {
+                sections.add(ByteBuffer.wrap(table.toByteArray()));
+            }
+            sections.add(ByteBuffer.wrap(strings.toByteArray()));
+
+            long[] offsets = new long[sections.size()];
+            long offset = HEADER_SIZE;
+            for (int i = 1; i < sections.size(); i++) {
+                offsets[i] = offset;
+                offset += sections.get(i).remaining();
+            }
+            if (offset > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Snapshot would be larger than 2 GB");
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(System.currentTimeMillis());
+            header.putInt(projectCount).putInt(names.size()).putInt(overdueCount);
+            header.putInt(personCounts[0]).putInt(personCounts[1]).putInt(personCounts[2]);
+            for (int i = 1; i < offsets.length; i++) {
+                header.putLong(offsets[i]);
+            }
+            header.flip();
+            sections.set(0, header);
+            return sections;
+        }
+
+        private static int day(String date) {
+            return date == null ? NO_DATE : (int) LocalDate.parse(date).toEpochDay();
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package pms;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the open projects in memory, split into those whose deadline is still to come
+ * and those that are overdue, and moves each project across on the day after its
+ * deadline, telling its {@link Listener}s when it does.
+ *
+ * The projects still to come are held in a priority queue ordered by deadline. A
+ * background thread sleeps until the start of the day after the earliest deadline,
+ * moves every project whose deadline has passed into the overdue set, and sleeps
+ * again. The overdue set is kept in deadline order, so listing or paging the overdue
+ * projects reads it directly instead of querying the database.
+ *
+ * Like {@link ProjectReplica}, the scheduler is loaded once and then kept current by
+ * the writes made through the DAO; changes made to the database by other programs are
+ * not seen until it is loaded again. Days start at midnight in the zone of the clock,
+ * which should match the database server's, since SQL compares deadlines with
+ * {@code CURDATE()}.
+ */
+public class OverdueScheduler implements ProjectChangeListener, AutoCloseable {
+
+    /**
+     * Told when a project becomes overdue.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the scheduler's thread when a project's deadline has passed while
+         * it is still open.
+         *
+         * @param project a copy of the project that became overdue
+         */
+        void projectOverdue(Project project);
+    }
+
+    /** Longest sleep between checks, so that a changed system clock is noticed within the hour. */
+    private static final long MAX_SLEEP_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Clock clock;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PriorityQueue<Pending> queue = new PriorityQueue<>();
+    private final Map<Integer, Pending> pending = new HashMap<>();
+    private final NavigableMap<DeadlineKey, Project> overdue = new TreeMap<>();
+    private final Map<Integer, Project> overdueByNumber = new HashMap<>();
+    private final Map<Integer, String[]> customers = new HashMap<>();
+    private final Map<Integer, String[]> architects = new HashMap<>();
+    private final Map<Integer, String[]> contractors = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> wakeUp;
+    private long wakeUpAt = Long.MAX_VALUE;
+
+    OverdueScheduler(Clock clock) {
+        this.clock = clock;
+        this.executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "pms-overdue-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the open projects, with the names of their people, from the database and
+     * starts watching their deadlines. Projects that are already overdue are not
+     * reported to listeners.
+     *
+     * @return the started scheduler
+     * @throws SQLException if a database access error occurs
+     */
+    public static OverdueScheduler load() throws SQLException {
+        return load(Clock.systemDefaultZone());
+    }
+
+    static OverdueScheduler load(Clock clock) throws SQLException {
+        OverdueScheduler scheduler = new OverdueScheduler(clock);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            ProjectReplica.loadPeople(conn, "SELECT CustomerID, firstName, lastName FROM Customer", scheduler.customers);
+            ProjectReplica.loadPeople(conn, "SELECT ArchitectID, firstName, lastName FROM Architect", scheduler.architects);
+            ProjectReplica.loadPeople(conn, "SELECT ContractorID, firstName, lastName FROM Contractor", scheduler.contractors);
+            String query = Projection.FULL.query(ProjectDAO.INCOMPLETE);
+            try (PreparedStatement stmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(DatabaseConnection.pool().getFetchSize());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    ProjectRowMapper mapper = new ProjectRowMapper(rs);
+                    while (rs.next()) {
+                        scheduler.insert(mapper.map(rs));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            scheduler.close();
+            throw e;
+        }
+        scheduler.advance(false);
+        return scheduler;
+    }
+
+    /**
+     * Registers a listener to be told when a project becomes overdue.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(Listener)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the overdue projects, in deadline order.
+     *
+     * @return copies of the overdue projects
+     */
+    public List<Project> getOverdueProjects() {
+        lock.readLock().lock();
+        try {
+            return copyAll(overdue.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of overdue projects.
+     *
+     * @return the overdue project count
+     */
+    public int getOverdueCount() {
+        lock.readLock().lock();
+        try {
+            return overdue.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of open projects whose deadline has not passed yet.
+     *
+     * @return the count of projects still to come due
+     */
+    public int getPendingCount() {
+        lock.readLock().lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads rows for a keyset page of the overdue projects, in the same order the
+     * overdue page query would return them.
+     *
+     * @param token the page token to seek from, or null for the first page
+     * @param limit the largest number of rows to return
+     * @return copies of the projects, ascending when reading forwards and descending when reading backwards
+     * @throws IllegalArgumentException if the token's deadline is not a date
+     */
+    List<Project> page(ProjectPage.Token token, int limit) {
+        lock.readLock().lock();
+        try {
+            Collection<Project> rows;
+            if (token == null) {
+                rows = overdue.values();
+            } else {
+                DeadlineKey key = new DeadlineKey(parse(token.deadline), token.projectNo);
+                rows = token.forward ? overdue.tailMap(key, false).values()
+                                     : overdue.headMap(key, false).descendingMap().values();
+            }
+            List<Project> page = new ArrayList<>();
+            for (Project project : rows) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.add(new Project(project));
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectAdded(Project project) {
+        if (project.getProjectNo() <= 0 || project.isFinalised()) {
+            return;
+        }
+        changed(withNames(new Project(project)));
+    }
+
+    @Override
+    public void projectUpdated(Project project) {
+        int projectNo = project.getProjectNo();
+        Project copy = withNames(new Project(project));
+        lock.writeLock().lock();
+        try {
+            boolean wasOverdue = overdueByNumber.containsKey(projectNo);
+            remove(projectNo);
+            if (project.isFinalised()) {
+                return;
+            }
+            LocalDate deadline = deadlineOf(copy);
+            if (wasOverdue && deadline != null && deadline.isBefore(LocalDate.now(clock))) {
+                // Still overdue; the listeners were told when it first became overdue
+                overdue.put(new DeadlineKey(deadline, projectNo), copy);
+                overdueByNumber.put(projectNo, copy);
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // A project not held before may have been reopened, or missed while loading
+        changed(copy);
+    }
+
+    @Override
+    public void projectFinalized(int projectNo, String completionDate) {
+        lock.writeLock().lock();
+        try {
+            remove(projectNo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectDeleted(int projectNo) {
+        lock.writeLock().lock();
+        try {
+            remove(projectNo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops the scheduler's thread. The overdue projects can still be read, but no
+     * more projects become overdue.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues an open project that was added or changed, and wakes the scheduler's
+     * thread if the project is due before it would next wake, so that a project whose
+     * deadline has already passed is reported at once.
+     */
+    private void changed(Project project) {
+        long dueAt;
+        lock.writeLock().lock();
+        try {
+            Pending entry = insert(project);
+            if (entry == null) {
+                return;
+            }
+            dueAt = dueAt(entry.deadline);
+            if (dueAt >= wakeUpAt) {
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            executor.execute(() -> advance(true));
+        } catch (RejectedExecutionException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Moves every project whose deadline has passed into the overdue set, tells the
+     * listeners if asked to, and schedules the next wake-up.
+     */
+    private void advance(boolean notify) {
+        List<Project> due = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            LocalDate today = LocalDate.now(clock);
+            while (!queue.isEmpty() && queue.peek().deadline.isBefore(today)) {
+                Pending entry = queue.poll();
+                if (pending.get(entry.projectNo) != entry) {
+                    continue;
+                }
+                pending.remove(entry.projectNo);
+                overdue.put(new DeadlineKey(entry.deadline, entry.projectNo), entry.project);
+                overdueByNumber.put(entry.projectNo, entry.project);
+                if (notify) {
+                    due.add(new Project(entry.project));
+                }
+            }
+            compact();
+            schedule();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (Project project : due) {
+            for (Listener listener : listeners) {
+                try {
+                    listener.projectOverdue(project);
+                } catch (RuntimeException e) {
+                    System.err.println("Overdue listener failed for project " + project.getProjectNo() + ": " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedules the next wake-up for the start of the day after the earliest pending
+     * deadline. The caller holds the write lock.
+     */
+    private void schedule() {
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+            wakeUp = null;
+        }
+        wakeUpAt = Long.MAX_VALUE;
+        Pending next = queue.peek();
+        if (next == null || executor.isShutdown()) {
+            return;
+        }
+        wakeUpAt = dueAt(next.deadline);
+        long delay = Math.min(Math.max(0, wakeUpAt - clock.millis()), MAX_SLEEP_MILLIS);
+        try {
+            wakeUp = executor.schedule(() -> advance(true), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            wakeUpAt = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Gets the time at which a project with the given deadline becomes overdue: the
+     * start of the following day.
+     */
+    private long dueAt(LocalDate deadline) {
+        return deadline.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Adds an open project to the queue, or straight to the overdue set when loading.
+     * Projects without a valid deadline are never overdue. The caller holds the write
+     * lock or owns the scheduler.
+     *
+     * @return the queued entry, or null if the project was not queued
+     */
+    private Pending insert(Project project) {
+        int projectNo = project.getProjectNo();
+        remove(projectNo);
+        LocalDate deadline = deadlineOf(project);
+        if (deadline == null) {
+            return null;
+        }
+        Pending entry = new Pending(deadline, projectNo, project);
+        pending.put(projectNo, entry);
+        queue.add(entry);
+        return entry;
+    }
+
+    /**
+     * Removes a project from the queue and the overdue set. Its queue entry is left to
+     * be skipped when it reaches the head. The caller holds the write lock.
+     *
+     * @return the removed project, or null if it was not held
+     */
+    private Project remove(int projectNo) {
+        Pending entry = pending.remove(projectNo);
+        if (entry != null) {
+            return entry.project;
+        }
+        Project project = overdueByNumber.remove(projectNo);
+        if (project != null) {
+            overdue.remove(new DeadlineKey(LocalDate.parse(project.getDeadline()), projectNo));
+        }
+        return project;
+    }
+
+    /**
+     * Rebuilds the queue without its skipped entries once they outnumber the live
+     * ones. The caller holds the write lock.
+     */
+    private void compact() {
+        if (queue.size() > 2 * pending.size() + 64) {
+            queue.clear();
+            queue.addAll(pending.values());
+        }
+    }
+
+    /**
+     * Fills in the names of a project's people from the person tables read at load time.
+     */
+    private Project withNames(Project project) {
+        String[] customer = customers.get(project.getCustomerID());
+        String[] architect = architects.get(project.getArchitectID());
+        String[] contractor = contractors.get(project.getContractorID());
+        if (customer != null) {
+            project.setCustomerFirstName(customer[0]);
+            project.setCustomerLastName(customer[1]);
+        }
+        if (architect != null) {
+            project.setArchitectFirstName(architect[0]);
+            project.setArchitectLastName(architect[1]);
+        }
+        if (contractor != null) {
+            project.setContractorFirstName(contractor[0]);
+            project.setContractorLastName(contractor[1]);
+        }
+        return project;
+    }
+
+    /**
+     * Gets a project's deadline, or null if it has none or it is not a date.
+     */
+    private static LocalDate deadlineOf(Project project) {
+        try {
+            return project.getDeadline() == null ? null : LocalDate.parse(project.getDeadline());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static LocalDate parse(String deadline) {
+        try {
+            return LocalDate.parse(deadline);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+
+    private static List<Project> copyAll(Collection<Project> projects) {
+        List<Project> copies = new ArrayList<>(projects.size());
+        for (Project project : projects) {
+            copies.add(new Project(project));
+        }
+        return copies;
+    }
+
+    /**
+     * An open project waiting for its deadline to pass, ordered by deadline and then
+     * project number.
+     */
+    private static final class Pending implements Comparable<Pending> {
+        final LocalDate deadline;
+        final int projectNo;
+        final Project project;
+
+        Pending(LocalDate deadline, int projectNo, Project project) {
+            this.deadline = deadline;
+            this.projectNo = projectNo;
+            this.project = project;
+        }
+
+        @Override
+        public int compareTo(Pending other) {
+            int byDeadline = deadline.compareTo(other.deadline);
+            return byDeadline != 0 ? byDeadline : Integer.compare(projectNo, other.projectNo);
+        }
+    }
+
+    /**
+     * Sort key of the overdue set: the deadline, then the project number.
+     */
+    private static final class DeadlineKey implements Comparable<DeadlineKey> {
+        final LocalDate deadline;
+        final int projectNo;
+
+        DeadlineKey(LocalDate deadline, int projectNo) {
+            this.deadline = deadline;
+            this.projectNo = projectNo;
+        }
+
+        @Override
+        public int compareTo(DeadlineKey other) {
+            int byDeadline = deadline.compareTo(other.deadline);
+            return byDeadline != 0 ? byDeadline : Integer.compare(projectNo, other.projectNo);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package pms;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * A column-oriented, read-only copy of the money and date columns of every project,
+ * for portfolio totals such as outstanding balances and overdue ageing.
+ *
+ * Each column is a primitive array indexed by row: fees are exact {@code long} cents,
+ * dates are {@code int} days since 1970-01-01 and IDs are {@code int}. The aggregate
+ * methods are plain loops over these arrays, so they allocate nothing and the JIT can
+ * vectorise them. A snapshot does not change after it is loaded.
+ */
+public class PortfolioSnapshot {
+    /** Stored in a date column when the date is NULL. */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final String QUERY = "SELECT ProjectNo, TotalFee, AmountPaid, Deadline, Finalised, CompletionDate, " +
+                                        "ArchitectID, ContractorID, CustomerID FROM Project";
+
+    private final int size;
+    private final int[] projectNo;
+    private final long[] feeCents;
+    private final long[] paidCents;
+    private final int[] deadlineDay;
+    private final int[] completionDay;
+    /**
+     * 1 for a project whose Finalised flag is false, 0 otherwise; kept numeric so sums
+     * need no branch. A NULL flag is 0, as {@code Finalised = false} is not true for it in SQL.
+     */
+    private final byte[] open;
+    private final int[] architectID;
+    private final int[] contractorID;
+    /** The customer ID on each row, or 0 where it is NULL. */
+    private final int[] customerID;
+    /** The row indexes ordered by customer ID, so each customer's rows are adjacent. */
+    private final int[] rowsByCustomer;
+
+    private PortfolioSnapshot(Builder builder) {
+        this.size = builder.size;
+        this.projectNo = Arrays.copyOf(builder.projectNo, size);
+        this.feeCents = Arrays.copyOf(builder.feeCents, size);
+        this.paidCents = Arrays.copyOf(builder.paidCents, size);
+        this.deadlineDay = Arrays.copyOf(builder.deadlineDay, size);
+        this.completionDay = Arrays.copyOf(builder.completionDay, size);
+        this.open = Arrays.copyOf(builder.open, size);
+        this.architectID = Arrays.copyOf(builder.architectID, size);
+        this.contractorID = Arrays.copyOf(builder.contractorID, size);
+        this.customerID = Arrays.copyOf(builder.customerID, size);
+        // Sort customer and row packed into one long, so no boxed comparator is needed
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) customerID[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+        this.rowsByCustomer = new int[size];
+        for (int i = 0; i < size; i++) {
+            rowsByCustomer[i] = (int) keys[i];
+        }
+    }
+
+    /**
+     * Loads a snapshot with one scan of the Project table.
+     *
+     * @return the loaded snapshot
+     * @throws SQLException if a database access error occurs
+     */
+    public static PortfolioSnapshot load() throws SQLException {
+        Builder builder = new Builder();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(DatabaseConnection.pool().getFetchSize());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int number = rs.getInt(1);
+                    long fee = toCents(rs.getBigDecimal(2));
+                    long paid = toCents(rs.getBigDecimal(3));
+                    int deadline = toEpochDay(rs.getDate(4));
+                    boolean open = !rs.getBoolean(5) && !rs.wasNull();
+                    builder.add(
+                        number,
+                        fee,
+                        paid,
+                        deadline,
+                        open,
+                        toEpochDay(rs.getDate(6)),
+                        rs.getInt(7),
+                        rs.getInt(8),
+                        rs.getInt(9));
+                }
+            }
+        }
+        return new PortfolioSnapshot(builder);
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0L : amount.movePointRight(2).longValueExact();
+    }
+
+    private static int toEpochDay(Date date) {
+        return date == null ? NO_DATE : (int) date.toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Gets the number of projects in the snapshot.
+     *
+     * @return the project count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds up the total fees of every project.
+     *
+     * @return the total fees in cents
+     */
+    public long totalFeeCents() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += feeCents[i];
+        }
+        return total;
+    }
+
+    /**
+     * Adds up the amounts paid on every project.
+     *
+     * @return the total paid in cents
+     */
+    public long totalPaidCents() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += paidCents[i];
+        }
+        return total;
+    }
+
+    /**
+     * Adds up the unpaid balance (total fee less amount paid) of every project.
+     *
+     * @return the total outstanding in cents
+     */
+    public long totalOutstandingCents() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += feeCents[i] - paidCents[i];
+        }
+        return total;
+    }
+
+    /**
+     * Adds up the unpaid balance of the projects that are not finalised.
+     *
+     * @return the outstanding balance on open projects in cents
+     */
+    public long openOutstandingCents() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += (feeCents[i] - paidCents[i]) * open[i];
+        }
+        return total;
+    }
+
+    /**
+     * Finds the customers with the largest unpaid balances, largest first.
+     *
+     * Each customer's balance is added up over its adjacent rows in customer order and
+     * offered to a sorted list as long as the output arrays, so the work and memory do
+     * not depend on how large the customer IDs are. Only positive balances are
+     * returned; projects without a customer are skipped, and equal balances keep the
+     * lower customer ID first.
+     *
+     * @param customerIDs receives the customer IDs; its length is how many to find
+     * @param outstandingCents receives each customer's unpaid balance in cents
+     * @return the number of customers found, at most {@code customerIDs.length}
+     */
+    public int largestCustomerBalances(int[] customerIDs, long[] outstandingCents) {
+        int limit = customerIDs.length;
+        if (outstandingCents.length < limit) {
+            throw new IllegalArgumentException("Output arrays need " + limit + " slots");
+        }
+        int found = 0;
+        int i = 0;
+        while (i < size) {
+            int customer = customerID[rowsByCustomer[i]];
+            long balance = 0;
+            for (; i < size && customerID[rowsByCustomer[i]] == customer; i++) {
+                int row = rowsByCustomer[i];
+                balance += feeCents[row] - paidCents[row];
+            }
+            if (customer == 0 || balance <= 0 || (found == limit && balance <= outstandingCents[limit - 1])) {
+                continue;
+            }
+            int slot = found < limit ? found++ : limit - 1;
+            while (slot > 0 && outstandingCents[slot - 1] < balance) {
+                customerIDs[slot] = customerIDs[slot - 1];
+                outstandingCents[slot] = outstandingCents[slot - 1];
+                slot--;
+            }
+            customerIDs[slot] = customer;
+            outstandingCents[slot] = balance;
+        }
+        return found;
+    }
+
+    /**
+     * Counts the open projects whose deadline is before the given day.
+     *
+     * @param asOfDay the day to measure from, in days since 1970-01-01
+     * @return the number of overdue projects
+     */
+    public int countOverdue(int asOfDay) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (open[i] != 0 && deadlineDay[i] != NO_DATE && deadlineDay[i] < asOfDay) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Groups the overdue open projects by how many days late they are.
+     *
+     * A project that is {@code d} days late goes in the first bucket {@code b} with
+     * {@code d <= upperBoundsDays[b]}, or in the extra last bucket if it is later than
+     * every bound. The output arrays therefore need {@code upperBoundsDays.length + 1}
+     * slots; they are added to, not cleared.
+     *
+     * @param asOfDay the day to measure from, in days since 1970-01-01
+     * @param upperBoundsDays the inclusive upper bound of each bucket, in ascending order
+     * @param counts receives the number of projects per bucket
+     * @param outstandingCents receives the unpaid balance per bucket
+     */
+    public void ageingBuckets(int asOfDay, int[] upperBoundsDays, int[] counts, long[] outstandingCents) {
+        int buckets = upperBoundsDays.length + 1;
+        if (counts.length < buckets || outstandingCents.length < buckets) {
+            throw new IllegalArgumentException("Output arrays need " + buckets + " slots");
+        }
+        for (int i = 0; i < size; i++) {
+            if (open[i] == 0 || deadlineDay[i] == NO_DATE || deadlineDay[i] >= asOfDay) {
+                continue;
+            }
+            int daysLate = asOfDay - deadlineDay[i];
+            int bucket = 0;
+            while (bucket < upperBoundsDays.length && daysLate > upperBoundsDays[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+            outstandingCents[bucket] += feeCents[i] - paidCents[i];
+        }
+    }
+
+    /**
+     * Gets the project number on a row of the snapshot.
+     *
+     * @param row the row index
+     * @return the project number
+     */
+    public int getProjectNo(int row) {
+        return projectNo[row];
+    }
+
+    /**
+     * Gets the completion day on a row of the snapshot.
+     *
+     * @param row the row index
+     * @return the completion day in days since 1970-01-01, or {@link #NO_DATE}
+     */
+    public int getCompletionDay(int row) {
+        return completionDay[row];
+    }
+
+    /**
+     * Gets the architect ID on a row of the snapshot.
+     *
+     * @param row the row index
+     * @return the architect ID
+     */
+    public int getArchitectID(int row) {
+        return architectID[row];
+    }
+
+    /**
+     * Gets the contractor ID on a row of the snapshot.
+     *
+     * @param row the row index
+     * @return the contractor ID
+     */
+    public int getContractorID(int row) {
+        return contractorID[row];
+    }
+
+    /**
+     * Collects rows into growing column arrays while the snapshot is loaded.
+     */
+    private static final class Builder {
+        int size;
+        int[] projectNo = new int[1024];
+        long[] feeCents = new long[1024];
+        long[] paidCents = new long[1024];
+        int[] deadlineDay = new int[1024];
+        int[] completionDay = new int[1024];
+        byte[] open = new byte[1024];
+        int[] architectID = new int[1024];
+        int[] contractorID = new int[1024];
+        int[] customerID = new int[1024];
+
+        void add(int number, long fee, long paid, int deadline, boolean isOpen, int completion, int architect, int contractor, int customer) {
+            if (size == projectNo.length) {
+                int capacity = size * 2;
+                projectNo = Arrays.copyOf(projectNo, capacity);
+                feeCents = Arrays.copyOf(feeCents, capacity);
+                paidCents = Arrays.copyOf(paidCents, capacity);
+                deadlineDay = Arrays.copyOf(deadlineDay, capacity);
+                completionDay = Arrays.copyOf(completionDay, capacity);
+                open = Arrays.copyOf(open, capacity);
+                architectID = Arrays.copyOf(architectID, capacity);
+                contractorID = Arrays.copyOf(contractorID, capacity);
+                customerID = Arrays.copyOf(customerID, capacity);
+            }
+            projectNo[size] = number;
+            feeCents[size] = fee;
+            paidCents[size] = paid;
+            deadlineDay[size] = deadline;
+            completionDay[size] = completion;
+            open[size] = (byte) (isOpen ? 1 : 0);
+            architectID[size] = architect;
+            contractorID[size] = contractor;
+            customerID[size] = customer;
+            size++;
+        }
+    }
+}
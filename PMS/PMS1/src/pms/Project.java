@@ -1,9 +1,53 @@
 package pms;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
 /**
  * Represents a project in the Poise Project Management System.
+ *
+ * A project remembers which of its stored fields have been changed by a setter since it
+ * was read from or written to the database, so that {@link ProjectDAO#updateProject(Project)}
+ * only writes those columns. A project built with the constructor counts every field
+ * as changed.
  */
 public class Project {
+
+    /**
+     * The stored fields of a project, in Project table column order.
+     */
+    public enum Field {
+        NAME("Name"),
+        TYPE("Type"),
+        ADDRESS("Address"),
+        ERF_NO("ERFNo"),
+        TOTAL_FEE("TotalFee"),
+        AMOUNT_PAID("AmountPaid"),
+        DEADLINE("Deadline"),
+        FINALISED("Finalised"),
+        COMPLETION_DATE("CompletionDate"),
+        ARCHITECT_ID("ArchitectID"),
+        CONTRACTOR_ID("ContractorID"),
+        CUSTOMER_ID("CustomerID");
+
+        private final String column;
+
+        Field(String column) {
+            this.column = column;
+        }
+
+        /**
+         * Gets the Project table column the field is stored in.
+         * 
+         * @return the column name
+         */
+        public String getColumn() {
+            return column;
+        }
+    }
+
     private int projectNo;
     private String name;
     private String type;
@@ -17,6 +61,14 @@ public class Project {
     private int architectID;
     private int contractorID;
     private int customerID;
+    private String customerFirstName;
+    private String customerLastName;
+    private String architectFirstName;
+    private String architectLastName;
+    private String contractorFirstName;
+    private String contractorLastName;
+    private int version;
+    private final EnumSet<Field> dirty = EnumSet.allOf(Field.class);
 
     /**
      * Constructor to match the parameters used when creating a new Project instance.
@@ -51,6 +103,67 @@ public class Project {
         this.customerID = customerID;
     }
 
+    /**
+     * Creates a copy of another project, including which fields have changed.
+     * 
+     * @param other the project to copy
+     */
+    public Project(Project other) {
+        this(other.projectNo, other.name, other.type, other.address, other.erfNo, other.totalFee, other.amountPaid, other.deadline, other.finalised, other.completionDate, other.architectID, other.contractorID, other.customerID);
+        this.customerFirstName = other.customerFirstName;
+        this.customerLastName = other.customerLastName;
+        this.architectFirstName = other.architectFirstName;
+        this.architectLastName = other.architectLastName;
+        this.contractorFirstName = other.contractorFirstName;
+        this.contractorLastName = other.contractorLastName;
+        this.version = other.version;
+        this.dirty.retainAll(other.dirty);
+    }
+
+    /**
+     * Gets the row version the project was read at. The database increments it on
+     * every change to the row.
+     * 
+     * @return the row version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the row version.
+     * 
+     * @param version the row version to set
+     */
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Gets the stored fields changed since the project was last read or written.
+     * 
+     * @return the changed fields, in column order
+     */
+    public Set<Field> getDirtyFields() {
+        return Collections.unmodifiableSet(EnumSet.copyOf(dirty));
+    }
+
+    /**
+     * Tells whether any stored field has changed since the project was last read or written.
+     * 
+     * @return true if there are changes to write
+     */
+    public boolean isDirty() {
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * Records that the project now matches the database.
+     */
+    public void markClean() {
+        dirty.clear();
+    }
+
     // Getters and setters with Javadoc comments
 
     /**
@@ -86,6 +199,9 @@ public class Project {
      * @param name the project name to set
      */
     public void setName(String name) {
+        if (!Objects.equals(this.name, name)) {
+            dirty.add(Field.NAME);
+        }
         this.name = name;
     }
 
@@ -104,6 +220,9 @@ public class Project {
      * @param type the project type to set
      */
     public void setType(String type) {
+        if (!Objects.equals(this.type, type)) {
+            dirty.add(Field.TYPE);
+        }
         this.type = type;
     }
 
@@ -122,6 +241,9 @@ public class Project {
      * @param address the project address to set
      */
     public void setAddress(String address) {
+        if (!Objects.equals(this.address, address)) {
+            dirty.add(Field.ADDRESS);
+        }
         this.address = address;
     }
 
@@ -140,6 +262,9 @@ public class Project {
      * @param erfNo the project ERF number to set
      */
     public void setErfNo(String erfNo) {
+        if (!Objects.equals(this.erfNo, erfNo)) {
+            dirty.add(Field.ERF_NO);
+        }
         this.erfNo = erfNo;
     }
 
@@ -158,6 +283,9 @@ public class Project {
      * @param totalFee the total fee to set
      */
     public void setTotalFee(double totalFee) {
+        if (Double.compare(this.totalFee, totalFee) != 0) {
+            dirty.add(Field.TOTAL_FEE);
+        }
         this.totalFee = totalFee;
     }
 
@@ -176,6 +304,9 @@ public class Project {
      * @param amountPaid the amount paid to set
      */
     public void setAmountPaid(double amountPaid) {
+        if (Double.compare(this.amountPaid, amountPaid) != 0) {
+            dirty.add(Field.AMOUNT_PAID);
+        }
         this.amountPaid = amountPaid;
     }
 
@@ -194,6 +325,9 @@ public class Project {
      * @param deadline the project deadline to set
      */
     public void setDeadline(String deadline) {
+        if (!Objects.equals(this.deadline, deadline)) {
+            dirty.add(Field.DEADLINE);
+        }
         this.deadline = deadline;
     }
 
@@ -212,6 +346,9 @@ public class Project {
      * @param finalised the finalisation status to set
      */
     public void setFinalised(boolean finalised) {
+        if (this.finalised != finalised) {
+            dirty.add(Field.FINALISED);
+        }
         this.finalised = finalised;
     }
 
@@ -230,6 +367,9 @@ public class Project {
      * @param completionDate the completion date to set
      */
     public void setCompletionDate(String completionDate) {
+        if (!Objects.equals(this.completionDate, completionDate)) {
+            dirty.add(Field.COMPLETION_DATE);
+        }
         this.completionDate = completionDate;
     }
 
@@ -248,6 +388,9 @@ public class Project {
      * @param architectID the architect ID to set
      */
     public void setArchitectID(int architectID) {
+        if (this.architectID != architectID) {
+            dirty.add(Field.ARCHITECT_ID);
+        }
         this.architectID = architectID;
     }
 
@@ -266,6 +409,9 @@ public class Project {
      * @param contractorID the contractor ID to set
      */
     public void setContractorID(int contractorID) {
+        if (this.contractorID != contractorID) {
+            dirty.add(Field.CONTRACTOR_ID);
+        }
         this.contractorID = contractorID;
     }
 
@@ -284,9 +430,120 @@ public class Project {
      * @param customerID the customer ID to set
      */
     public void setCustomerID(int customerID) {
+        if (this.customerID != customerID) {
+            dirty.add(Field.CUSTOMER_ID);
+        }
         this.customerID = customerID;
     }
 
+    /**
+     * Gets the customer's first name. It is only loaded by queries that join the Customer table.
+     * 
+     * @return the customer's first name, or null if it was not loaded
+     */
+    public String getCustomerFirstName() {
+        return customerFirstName;
+    }
+
+    /**
+     * Sets the customer's first name.
+     * 
+     * @param customerFirstName the customer's first name to set
+     */
+    public void setCustomerFirstName(String customerFirstName) {
+        this.customerFirstName = customerFirstName;
+    }
+
+    /**
+     * Gets the customer's last name. It is only loaded by queries that join the Customer table.
+     * 
+     * @return the customer's last name, or null if it was not loaded
+     */
+    public String getCustomerLastName() {
+        return customerLastName;
+    }
+
+    /**
+     * Sets the customer's last name.
+     * 
+     * @param customerLastName the customer's last name to set
+     */
+    public void setCustomerLastName(String customerLastName) {
+        this.customerLastName = customerLastName;
+    }
+
+    /**
+     * Gets the architect's first name. It is only loaded by queries that join the Architect table.
+     * 
+     * @return the architect's first name, or null if it was not loaded
+     */
+    public String getArchitectFirstName() {
+        return architectFirstName;
+    }
+
+    /**
+     * Sets the architect's first name.
+     * 
+     * @param architectFirstName the architect's first name to set
+     */
+    public void setArchitectFirstName(String architectFirstName) {
+        this.architectFirstName = architectFirstName;
+    }
+
+    /**
+     * Gets the architect's last name. It is only loaded by queries that join the Architect table.
+     * 
+     * @return the architect's last name, or null if it was not loaded
+     */
+    public String getArchitectLastName() {
+        return architectLastName;
+    }
+
+    /**
+     * Sets the architect's last name.
+     * 
+     * @param architectLastName the architect's last name to set
+     */
+    public void setArchitectLastName(String architectLastName) {
+        this.architectLastName = architectLastName;
+    }
+
+    /**
+     * Gets the contractor's first name. It is only loaded by queries that join the Contractor table.
+     * 
+     * @return the contractor's first name, or null if it was not loaded
+     */
+    public String getContractorFirstName() {
+        return contractorFirstName;
+    }
+
+    /**
+     * Sets the contractor's first name.
+     * 
+     * @param contractorFirstName the contractor's first name to set
+     */
+    public void setContractorFirstName(String contractorFirstName) {
+        this.contractorFirstName = contractorFirstName;
+    }
+
+    /**
+     * Gets the contractor's last name. It is only loaded by queries that join the Contractor table.
+     * 
+     * @return the contractor's last name, or null if it was not loaded
+     */
+    public String getContractorLastName() {
+        return contractorLastName;
+    }
+
+    /**
+     * Sets the contractor's last name.
+     * 
+     * @param contractorLastName the contractor's last name to set
+     */
+    public void setContractorLastName(String contractorLastName) {
+        this.contractorLastName = contractorLastName;
+    }
+
     @Override
     public String toString() {
         return "Project{" +
@@ -303,6 +560,10 @@ public class Project {
                 ", architectID=" + architectID +
                 ", contractorID=" + contractorID +
                 ", customerID=" + customerID +
+                ", version=" + version +
+                (customerLastName != null ? ", customer='" + customerFirstName + " " + customerLastName + '\'' : "") +
+                (architectLastName != null ? ", architect='" + architectFirstName + " " + architectLastName + '\'' : "") +
+                (contractorLastName != null ? ", contractor='" + contractorFirstName + " " + contractorLastName + '\'' : "") +
                 '}';
     }
 }
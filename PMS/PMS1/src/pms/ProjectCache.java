@@ -0,0 +1,276 @@
+package pms;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process, size-bounded cache of projects looked up by number or name.
+ *
+ * Entries are evicted least-recently-used first once the cache is full, and expire
+ * after a fixed time to live. A secondary index maps project names to numbers so that
+ * name lookups share the entries of number lookups. The cache listens to
+ * {@link ProjectDAO} writes and drops any entry a write could have changed.
+ *
+ * Projects are copied on the way in and out, so callers may change the objects they
+ * get back without affecting the cache.
+ */
+public class ProjectCache implements ProjectChangeListener {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<Integer, Entry> entries;
+    private final Map<String, Integer> numbersByName = new HashMap<>();
+
+    private long invalidations;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxSize the largest number of projects to keep
+     * @param ttlMillis how long an entry stays valid, in milliseconds (0 means no expiry)
+     */
+    public ProjectCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(ttlMillis) : 0;
+        this.entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > ProjectCache.this.maxSize) {
+                    numbersByName.remove(eldest.getValue().project.getName(), eldest.getKey());
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Creates a cache using the {@code pms.cache.*} settings.
+     *
+     * @param config the application configuration
+     * @return the cache
+     */
+    public static ProjectCache fromConfig(AppConfig config) {
+        return new ProjectCache(config.getInt("pms.cache.maxSize", 1000), config.getLong("pms.cache.ttlMillis", 300_000L));
+    }
+
+    /**
+     * Gets a copy of the cached project with the given number.
+     *
+     * @param projectNo the project number
+     * @return a copy of the project, or null if it is not cached
+     */
+    public synchronized Project get(int projectNo) {
+        Entry entry = entries.get(projectNo);
+        if (entry == null || isExpired(projectNo, entry)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new Project(entry.project);
+    }
+
+    /**
+     * Gets a copy of the cached project with the given name.
+     *
+     * @param name the project name
+     * @return a copy of the project, or null if it is not cached
+     */
+    public synchronized Project getByName(String name) {
+        Integer projectNo = numbersByName.get(name);
+        Entry entry = projectNo == null ? null : entries.get(projectNo);
+        if (entry == null || isExpired(projectNo, entry)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new Project(entry.project);
+    }
+
+    /**
+     * Gets a stamp to pass to {@link #put(Project, long)} after loading a project from
+     * the database. Take the stamp before running the query.
+     *
+     * @return the current invalidation stamp
+     */
+    public synchronized long loadStamp() {
+        return invalidations;
+    }
+
+    /**
+     * Stores a copy of a project loaded from the database, unless a write has
+     * invalidated the cache since the load began.
+     *
+     * @param project the project that was loaded
+     * @param stamp the value of {@link #loadStamp()} taken before the load
+     */
+    public synchronized void put(Project project, long stamp) {
+        if (stamp != invalidations) {
+            return;
+        }
+        Entry old = entries.remove(project.getProjectNo());
+        if (old != null) {
+            numbersByName.remove(old.project.getName(), project.getProjectNo());
+        }
+        entries.put(project.getProjectNo(), new Entry(new Project(project), System.nanoTime() + ttlNanos));
+        numbersByName.putIfAbsent(project.getName(), project.getProjectNo());
+    }
+
+    /**
+     * Removes the project with the given number.
+     *
+     * @param projectNo the project number
+     */
+    public synchronized void invalidate(int projectNo) {
+        invalidations++;
+        Entry entry = entries.remove(projectNo);
+        if (entry != null) {
+            numbersByName.remove(entry.project.getName(), projectNo);
+        }
+    }
+
+    /**
+     * Removes the name-index entry for the given name, so the next lookup by that name
+     * goes to the database.
+     *
+     * @param name the project name
+     */
+    public synchronized void invalidateName(String name) {
+        invalidations++;
+        numbersByName.remove(name);
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public synchronized void clear() {
+        invalidations++;
+        entries.clear();
+        numbersByName.clear();
+    }
+
+    @Override
+    public void projectAdded(Project project) {
+        // A new project can take over a name that another cached project answered to
+        invalidateName(project.getName());
+    }
+
+    @Override
+    public synchronized void projectUpdated(Project project) {
+        invalidate(project.getProjectNo());
+        invalidateName(project.getName());
+    }
+
+    @Override
+    public void projectFinalized(int projectNo, String completionDate) {
+        invalidate(projectNo);
+    }
+
+    @Override
+    public void projectDeleted(int projectNo) {
+        invalidate(projectNo);
+    }
+
+    /**
+     * Gets the number of cached projects.
+     *
+     * @return the cache size
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that had to go to the database.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of entries removed to make room for new ones.
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of entries dropped because their time to live ran out.
+     *
+     * @return the expiry count
+     */
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    /**
+     * Removes expired entries from the cache.
+     */
+    public synchronized void purgeExpired() {
+        Iterator<Map.Entry<Integer, Entry>> it = entries.entrySet().iterator();
+        long now = System.nanoTime();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Entry> next = it.next();
+            if (ttlNanos > 0 && now - next.getValue().expiresAtNanos > 0) {
+                numbersByName.remove(next.getValue().project.getName(), next.getKey());
+                expirations++;
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return String.format("ProjectCache{size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, expirations=%d}",
+                entries.size(), maxSize, hits, misses, lookups == 0 ? 0.0 : hits * 100.0 / lookups, evictions, expirations);
+    }
+
+    private boolean isExpired(int projectNo, Entry entry) {
+        if (ttlNanos == 0 || System.nanoTime() - entry.expiresAtNanos <= 0) {
+            return false;
+        }
+        entries.remove(projectNo);
+        numbersByName.remove(entry.project.getName(), projectNo);
+        expirations++;
+        return true;
+    }
+
+    /**
+     * A cached project and the time it stops being valid.
+     */
+    private static final class Entry {
+        final Project project;
+        final long expiresAtNanos;
+
+        Entry(Project project, long expiresAtNanos) {
+            this.project = project;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package pms;
+
+/**
+ * Receives a notification after each successful write made through {@link ProjectDAO}.
+ *
+ * Listeners are called on the thread that made the change, so they should return quickly.
+ */
+public interface ProjectChangeListener {
+
+    /**
+     * Called after a project has been added.
+     *
+     * @param project the project that was added
+     */
+    void projectAdded(Project project);
+
+    /**
+     * Called after a project has been updated.
+     *
+     * @param project the project with its updated details
+     */
+    void projectUpdated(Project project);
+
+    /**
+     * Called after a project has been finalized.
+     *
+     * @param projectNo the number of the finalized project
+     * @param completionDate the completion date that was set
+     */
+    void projectFinalized(int projectNo, String completionDate);
+
+    /**
+     * Called after a project has been deleted.
+     *
+     * @param projectNo the number of the deleted project
+     */
+    void projectDeleted(int projectNo);
+}
@@ -0,0 +1,221 @@
+package pms;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads projects from a CSV file one line at a time, so large files can be
+ * imported without holding them in memory.
+ *
+ * The first line must be a header naming the columns. Name, Type, Address, ERFNo,
+ * TotalFee, AmountPaid, Deadline, ArchitectID, ContractorID and CustomerID are
+ * expected; Finalised and CompletionDate are optional. Fields may be quoted with
+ * double quotes, but a field may not span lines. Lines that cannot be parsed are
+ * skipped and reported through {@link #getErrors()}.
+ */
+public class ProjectCsvReader implements Iterable<Project>, Closeable {
+    private static final String[] REQUIRED_COLUMNS = {
+        "name", "type", "address", "erfno", "totalfee", "amountpaid",
+        "deadline", "architectid", "contractorid", "customerid"
+    };
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final List<String> errors = new ArrayList<>();
+    private int lineNumber;
+    private boolean iterated;
+
+    /**
+     * Opens a CSV file and reads its header line.
+     *
+     * @param file the CSV file to read
+     * @throws IOException if the file cannot be read or the header is missing columns
+     */
+    public ProjectCsvReader(Path file) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        String header = reader.readLine();
+        lineNumber = 1;
+        if (header == null) {
+            reader.close();
+            throw new IOException("CSV file is empty: " + file);
+        }
+        List<String> names = parseLine(header.replace("\uFEFF", ""));
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                reader.close();
+                throw new IOException("CSV header is missing column: " + column);
+            }
+        }
+    }
+
+    /**
+     * Gets the lines that were skipped because they could not be parsed.
+     *
+     * @return one message per skipped line
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns an iterator over the projects in the file. The file can only be read once.
+     *
+     * @return an iterator over the parsed projects
+     */
+    @Override
+    public Iterator<Project> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("CSV file has already been read");
+        }
+        iterated = true;
+        return new Iterator<Project>() {
+            private Project next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = readNext();
+                }
+                return next != null;
+            }
+
+            @Override
+            public Project next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Project project = next;
+                next = null;
+                return project;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Project readNext() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    return toProject(parseLine(line));
+                } catch (IllegalArgumentException e) {
+                    errors.add("line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Project toProject(List<String> fields) {
+        String name = field(fields, "name");
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Name is required");
+        }
+        String completionDate = field(fields, "completiondate");
+        return new Project(
+            0,
+            name,
+            field(fields, "type"),
+            field(fields, "address"),
+            field(fields, "erfno"),
+            parseDouble(fields, "totalfee"),
+            parseDouble(fields, "amountpaid"),
+            field(fields, "deadline"),
+            Boolean.parseBoolean(field(fields, "finalised")) || "1".equals(field(fields, "finalised")),
+            completionDate.isEmpty() ? null : completionDate,
+            parseInt(fields, "architectid"),
+            parseInt(fields, "contractorid"),
+            parseInt(fields, "customerid")
+        );
+    }
+
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return "";
+        }
+        return fields.get(index).trim();
+    }
+
+    private double parseDouble(List<String> fields, String column) {
+        String value = field(fields, column);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a number: '" + value + "'");
+        }
+    }
+
+    private int parseInt(List<String> fields, String column) {
+        String value = field(fields, column);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a whole number: '" + value + "'");
+        }
+    }
+
+    /**
+     * Splits one CSV line into fields, honouring double-quoted fields.
+     *
+     * @param line the line to split
+     * @return the fields on the line
+     */
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
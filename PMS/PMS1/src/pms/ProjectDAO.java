@@ -1,43 +1,454 @@
 package pms;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Data Access Object (DAO) for managing project data in the database.
  */
 public class ProjectDAO {
 
+    /** Number of rows sent to the database in one JDBC batch by {@link #addProjects(Iterable)}. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    static final String BY_NUMBER = "WHERE p.ProjectNo = ?";
+    static final String BY_NAME = "WHERE p.Name = ?";
+    static final String INCOMPLETE = "WHERE p.Finalised = false";
+    static final String OVERDUE = "WHERE p.Deadline < CURDATE() AND p.Finalised = false";
+
+    static final String INCOMPLETE_FIRST_PAGE = INCOMPLETE + " ORDER BY p.ProjectNo LIMIT ?";
+    static final String INCOMPLETE_PAGE_AFTER = INCOMPLETE + " AND p.ProjectNo > ? ORDER BY p.ProjectNo LIMIT ?";
+    static final String INCOMPLETE_PAGE_BEFORE = INCOMPLETE + " AND p.ProjectNo < ? ORDER BY p.ProjectNo DESC LIMIT ?";
+    static final String OVERDUE_FIRST_PAGE = OVERDUE + " ORDER BY p.Deadline, p.ProjectNo LIMIT ?";
+    static final String OVERDUE_PAGE_AFTER = OVERDUE + " AND (p.Deadline > ? OR (p.Deadline = ? AND p.ProjectNo > ?)) ORDER BY p.Deadline, p.ProjectNo LIMIT ?";
+    static final String OVERDUE_PAGE_BEFORE = OVERDUE + " AND (p.Deadline < ? OR (p.Deadline = ? AND p.ProjectNo < ?)) ORDER BY p.Deadline DESC, p.ProjectNo DESC LIMIT ?";
+
+    static final String INSERT_PROJECT = "INSERT INTO Project (Name, Type, Address, ERFNo, TotalFee, AmountPaid, Deadline, Finalised, CompletionDate, ArchitectID, ContractorID, CustomerID) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    static final String FINALIZE_PROJECT = "UPDATE Project SET Finalised = true, CompletionDate = ?, Version = Version + 1 WHERE ProjectNo = ?";
+    static final String FINALIZE_PROJECT_IF_CURRENT = FINALIZE_PROJECT + " AND Version = ?";
+    static final String DELETE_PROJECT = "DELETE FROM Project WHERE ProjectNo = ?";
+    static final String DELETE_PROJECT_IF_CURRENT = DELETE_PROJECT + " AND Version = ?";
+    static final String CREATE_PROJECT = "INSERT INTO Project (Name, Type, Address, ERFNo, TotalFee, AmountPaid, Deadline, Finalised, CompletionDate, ArchitectID, ContractorID, CustomerID) " +
+                                                 "SELECT COALESCE(NULLIF(?, ''), CONCAT(?, ' ', c.lastName)), ?, ?, ?, ?, ?, ?, ?, ?, a.ArchitectID, ct.ContractorID, c.CustomerID " +
+                                                 "FROM Customer c " +
+                                                 "JOIN Architect a ON a.ArchitectID = ? " +
+                                                 "JOIN Contractor ct ON ct.ContractorID = ? " +
+                                                 "WHERE c.CustomerID = ?";
+    static final String CREATED_NAME = "SELECT Name FROM Project WHERE ProjectNo = ?";
+
+    private static final DaoMetrics ADD_PROJECT = DaoMetrics.forOperation("addProject");
+    private static final DaoMetrics CREATE_PROJECT_METRICS = DaoMetrics.forOperation("createProject");
+    private static final DaoMetrics ADD_PROJECTS = DaoMetrics.forOperation("addProjects");
+    private static final DaoMetrics FIND_BY_NUMBER = DaoMetrics.forOperation("findProjectByNumber");
+    private static final DaoMetrics FIND_BY_NAME = DaoMetrics.forOperation("findProjectByName");
+    private static final DaoMetrics SEARCH = DaoMetrics.forOperation("searchProjects");
+    private static final DaoMetrics UPDATE = DaoMetrics.forOperation("updateProject");
+    private static final DaoMetrics UPDATE_IF_CURRENT = DaoMetrics.forOperation("updateProjectIfCurrent");
+    private static final DaoMetrics FINALIZE = DaoMetrics.forOperation("finalizeProject");
+    private static final DaoMetrics FINALIZE_IF_CURRENT = DaoMetrics.forOperation("finalizeProjectIfCurrent");
+    private static final DaoMetrics DELETE = DaoMetrics.forOperation("deleteProject");
+    private static final DaoMetrics DELETE_IF_CURRENT = DaoMetrics.forOperation("deleteProjectIfCurrent");
+    private static final DaoMetrics LIST_INCOMPLETE = DaoMetrics.forOperation("getIncompleteProjects");
+    private static final DaoMetrics LIST_OVERDUE = DaoMetrics.forOperation("getOverdueProjects");
+    private static final DaoMetrics PAGE_INCOMPLETE = DaoMetrics.forOperation("getIncompleteProjectsPage");
+    private static final DaoMetrics PAGE_OVERDUE = DaoMetrics.forOperation("getOverdueProjectsPage");
+    private static final DaoMetrics EACH_INCOMPLETE = DaoMetrics.forOperation("forEachIncompleteProject");
+    private static final DaoMetrics EACH_OVERDUE = DaoMetrics.forOperation("forEachOverdueProject");
+    private static final DaoMetrics STREAM_INCOMPLETE = DaoMetrics.forOperation("streamIncompleteProjects");
+    private static final DaoMetrics STREAM_OVERDUE = DaoMetrics.forOperation("streamOverdueProjects");
+    private static final DaoMetrics CUSTOMER_SURNAME = DaoMetrics.forOperation("getCustomerSurnameByID");
+
+    /** UPDATE statements by the bit set of the fields they write, plus a bit for a version check. */
+    private static final Map<Integer, String> UPDATE_STATEMENTS = new ConcurrentHashMap<>();
+
+    private final List<ProjectChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile ProjectCache cache;
+    private volatile ProjectReplica replica;
+    private volatile ProjectSearchIndex searchIndex;
+    private volatile OverdueScheduler overdueScheduler;
+
+    /**
+     * Registers a listener to be told about every add, update, finalize and delete.
+     * 
+     * @param listener the listener to add
+     */
+    public void addChangeListener(ProjectChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addChangeListener(ProjectChangeListener)}.
+     * 
+     * @param listener the listener to remove
+     */
+    public void removeChangeListener(ProjectChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Puts a cache in front of {@link #findProjectByNumber(int)} and
+     * {@link #findProjectByName(String)}. The cache is kept up to date with the
+     * writes made through this DAO.
+     * 
+     * @param cache the cache to use, or null to stop caching
+     */
+    public void setCache(ProjectCache cache) {
+        ProjectCache old = this.cache;
+        if (old != null) {
+            listeners.remove(old);
+        }
+        if (cache != null) {
+            listeners.add(cache);
+        }
+        this.cache = cache;
+    }
+
+    /**
+     * Serves the find and list methods from an in-memory replica instead of the database.
+     * The replica is kept up to date with the writes made through this DAO.
+     * 
+     * @param replica the loaded replica to read from, or null to read from the database again
+     */
+    public void setReplica(ProjectReplica replica) {
+        ProjectReplica old = this.replica;
+        if (old != null) {
+            listeners.remove(old);
+        }
+        if (replica != null) {
+            listeners.add(replica);
+        }
+        this.replica = replica;
+    }
+
+    /**
+     * Gets the replica serving the find and list methods.
+     * 
+     * @return the replica, or null if reads go to the database
+     */
+    public ProjectReplica getReplica() {
+        return replica;
+    }
+
+    /**
+     * Serves the overdue listings from a scheduler that moves open projects into its
+     * overdue set as their deadlines pass, instead of querying the database. The
+     * scheduler is kept up to date with the writes made through this DAO.
+     * 
+     * @param overdueScheduler the loaded scheduler to read from, or null to query the database again
+     */
+    public void setOverdueScheduler(OverdueScheduler overdueScheduler) {
+        OverdueScheduler old = this.overdueScheduler;
+        if (old != null) {
+            listeners.remove(old);
+        }
+        if (overdueScheduler != null) {
+            listeners.add(overdueScheduler);
+        }
+        this.overdueScheduler = overdueScheduler;
+    }
+
+    /**
+     * Gets the scheduler serving the overdue listings.
+     * 
+     * @return the scheduler, or null if overdue projects are queried from the database
+     */
+    public OverdueScheduler getOverdueScheduler() {
+        return overdueScheduler;
+    }
+
+    /**
+     * Serves {@link #searchProjects(String, int)} from a trigram index. The index is
+     * kept up to date with the writes made through this DAO.
+     * 
+     * @param searchIndex the loaded index to search, or null to match names exactly
+     */
+    public void setSearchIndex(ProjectSearchIndex searchIndex) {
+        ProjectSearchIndex old = this.searchIndex;
+        if (old != null) {
+            listeners.remove(old);
+        }
+        if (searchIndex != null) {
+            listeners.add(searchIndex);
+        }
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Gets the index serving {@link #searchProjects(String, int)}.
+     * 
+     * @return the index, or null if searches match names exactly
+     */
+    public ProjectSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
     /**
-     * Adds a new project to the database.
+     * Gets the cache in front of the project lookups.
+     * 
+     * @return the cache, or null if lookups are not cached
+     */
+    public ProjectCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Adds a new project to the database. The generated project number is set on the project.
      * 
      * @param project the Project object to add
      * @throws SQLException if a database access error occurs
      */
     public void addProject(Project project) throws SQLException {
-        String query = "INSERT INTO Project (Name, Type, Address, ERFNo, TotalFee, AmountPaid, Deadline, Finalised, CompletionDate, ArchitectID, ContractorID, CustomerID) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection(); 
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, project.getName());
-            stmt.setString(2, project.getType());
-            stmt.setString(3, project.getAddress());
-            stmt.setString(4, project.getErfNo());
-            stmt.setDouble(5, project.getTotalFee());
-            stmt.setDouble(6, project.getAmountPaid());
-            stmt.setString(7, project.getDeadline());
-            stmt.setBoolean(8, project.isFinalised());
-            stmt.setString(9, project.getCompletionDate());
-            stmt.setInt(10, project.getArchitectID());
-            stmt.setInt(11, project.getContractorID());
-            stmt.setInt(12, project.getCustomerID());
+        try (DaoMetrics.Sample sample = ADD_PROJECT.start();
+             Connection conn = sample.connect(); 
+             PreparedStatement stmt = conn.prepareStatement(INSERT_PROJECT, Statement.RETURN_GENERATED_KEYS)) {
+            bindInsert(stmt, project);
             stmt.executeUpdate();
+            readGeneratedKeys(stmt, Collections.singletonList(project));
+            sample.complete(1);
+        }
+        project.markClean();
+        fireAdded(project);
+    }
+
+    /**
+     * Creates a project in a single INSERT statement and returns its new project number.
+     * 
+     * The statement only inserts a row when the architect, contractor and customer all
+     * exist, and when the project has no name it is named "Type Surname" from the
+     * customer's last name. The new project number and name are set on the given project.
+     * Reading back a generated name is the only case that needs a second statement.
+     * 
+     * @param project the project to create; its project number is ignored
+     * @return the generated project number
+     * @throws SQLException if the architect, contractor or customer does not exist, or a database access error occurs
+     */
+    public int createProject(Project project) throws SQLException {
+        String name = project.getName() == null ? "" : project.getName().trim();
+        try (DaoMetrics.Sample sample = CREATE_PROJECT_METRICS.start();
+             Connection conn = sample.connect(); 
+             PreparedStatement stmt = conn.prepareStatement(CREATE_PROJECT, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, name);
+            stmt.setString(2, project.getType());
+            stmt.setString(3, project.getType());
+            stmt.setString(4, project.getAddress());
+            stmt.setString(5, project.getErfNo());
+            stmt.setDouble(6, project.getTotalFee());
+            stmt.setDouble(7, project.getAmountPaid());
+            stmt.setString(8, project.getDeadline());
+            stmt.setBoolean(9, project.isFinalised());
+            stmt.setString(10, project.getCompletionDate());
+            stmt.setInt(11, project.getArchitectID());
+            stmt.setInt(12, project.getContractorID());
+            stmt.setInt(13, project.getCustomerID());
+            if (stmt.executeUpdate() == 0) {
+                throw new SQLException(describeMissingPeople(conn, project));
+            }
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Project number was not returned");
+                }
+                project.setProjectNo(keys.getInt(1));
+            }
+            if (name.isEmpty()) {
+                try (PreparedStatement read = conn.prepareStatement(CREATED_NAME)) {
+                    read.setInt(1, project.getProjectNo());
+                    try (ResultSet rs = read.executeQuery()) {
+                        if (rs.next()) {
+                            project.setName(rs.getString(1));
+                        }
+                    }
+                }
+            } else {
+                project.setName(name);
+            }
+            sample.complete(1);
+        }
+        project.markClean();
+        fireAdded(project);
+        return project.getProjectNo();
+    }
+
+    /**
+     * Works out which of a project's architect, contractor and customer do not exist.
+     * Only called after {@link #CREATE_PROJECT} inserted nothing.
+     */
+    private String describeMissingPeople(Connection conn, Project project) throws SQLException {
+        String query = "SELECT (SELECT COUNT(*) FROM Architect WHERE ArchitectID = ?), " +
+                       "(SELECT COUNT(*) FROM Contractor WHERE ContractorID = ?), " +
+                       "(SELECT COUNT(*) FROM Customer WHERE CustomerID = ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, project.getArchitectID());
+            stmt.setInt(2, project.getContractorID());
+            stmt.setInt(3, project.getCustomerID());
+            List<String> missing = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                if (rs.getInt(1) == 0) {
+                    missing.add("Architect " + project.getArchitectID() + " not found");
+                }
+                if (rs.getInt(2) == 0) {
+                    missing.add("Contractor " + project.getContractorID() + " not found");
+                }
+                if (rs.getInt(3) == 0) {
+                    missing.add("Customer " + project.getCustomerID() + " not found");
+                }
+            }
+            return missing.isEmpty() ? "Project was not created" : String.join("; ", missing);
+        }
+    }
+
+    /**
+     * Adds many projects using JDBC batches of {@link #DEFAULT_BATCH_SIZE} rows.
+     * 
+     * @param projects the projects to add
+     * @return the number of rows inserted and the rows that failed
+     * @throws SQLException if a database access error occurs
+     * @see #addProjects(Iterable, int)
+     */
+    public BulkImportResult addProjects(Iterable<Project> projects) throws SQLException {
+        return addProjects(projects, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Adds many projects over a single connection using JDBC batches.
+     * 
+     * Each batch of rows is committed as one transaction. If a batch fails, it is
+     * rolled back and its rows are inserted one by one in a new transaction, so that
+     * the good rows are kept and each bad row is reported with its own error.
+     * Batches are only sent as multi-row inserts when the JDBC URL sets
+     * {@code rewriteBatchedStatements=true}.
+     * 
+     * @param projects the projects to add
+     * @param batchSize the number of rows sent per batch and committed per transaction
+     * @return the number of rows inserted and the rows that failed
+     * @throws SQLException if a unit of work is open on this thread, or a database access error occurs
+     */
+    public BulkImportResult addProjects(Iterable<Project> projects, int batchSize) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        if (UnitOfWork.current() != null) {
+            throw new SQLException("addProjects commits its own transactions and cannot run inside a unit of work");
+        }
+        BulkImportResult result = new BulkImportResult();
+        long start = System.nanoTime();
+        List<Project> chunk = new ArrayList<>(batchSize);
+        int firstRow = 1;
+        try (DaoMetrics.Sample sample = ADD_PROJECTS.start();
+             Connection conn = sample.connect(); 
+             PreparedStatement stmt = conn.prepareStatement(INSERT_PROJECT, Statement.RETURN_GENERATED_KEYS)) {
+            conn.setAutoCommit(false);
+            for (Project project : projects) {
+                chunk.add(project);
+                if (chunk.size() == batchSize) {
+                    insertChunk(conn, stmt, chunk, firstRow, result);
+                    firstRow += chunk.size();
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                insertChunk(conn, stmt, chunk, firstRow, result);
+            }
+            sample.complete(result.getInserted());
+        }
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Inserts one chunk of a bulk import as a single transaction.
+     */
+    private void insertChunk(Connection conn, PreparedStatement stmt, List<Project> chunk, int firstRow, BulkImportResult result) throws SQLException {
+        try {
+            for (Project project : chunk) {
+                bindInsert(stmt, project);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            readGeneratedKeys(stmt, chunk);
+            conn.commit();
+            for (Project project : chunk) {
+                project.markClean();
+                result.rowInserted();
+                fireAdded(project);
+            }
+            return;
+        } catch (BatchUpdateException e) {
+            stmt.clearBatch();
+            conn.rollback();
+        }
+
+        // Replay the failed chunk row by row so each bad row gets its own error
+        List<Project> inserted = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Project project = chunk.get(i);
+            try {
+                bindInsert(stmt, project);
+                stmt.executeUpdate();
+                readGeneratedKeys(stmt, Collections.singletonList(project));
+                inserted.add(project);
+            } catch (SQLException e) {
+                result.rowFailed(firstRow + i, project, e.getMessage());
+            }
+        }
+        conn.commit();
+        for (Project project : inserted) {
+            project.markClean();
+            result.rowInserted();
+            fireAdded(project);
+        }
+    }
+
+    /**
+     * Sets the generated project numbers on the projects just inserted, in insert order.
+     */
+    private void readGeneratedKeys(PreparedStatement stmt, List<Project> projects) throws SQLException {
+        try (ResultSet keys = stmt.getGeneratedKeys()) {
+            for (Project project : projects) {
+                if (!keys.next()) {
+                    break;
+                }
+                project.setProjectNo(keys.getInt(1));
+            }
         }
     }
 
+    /**
+     * Binds a project's columns to the parameters of {@link #INSERT_PROJECT}.
+     */
+    private void bindInsert(PreparedStatement stmt, Project project) throws SQLException {
+        stmt.setString(1, project.getName());
+        stmt.setString(2, project.getType());
+        stmt.setString(3, project.getAddress());
+        stmt.setString(4, project.getErfNo());
+        stmt.setDouble(5, project.getTotalFee());
+        stmt.setDouble(6, project.getAmountPaid());
+        stmt.setString(7, project.getDeadline());
+        stmt.setBoolean(8, project.isFinalised());
+        stmt.setString(9, project.getCompletionDate());
+        stmt.setInt(10, project.getArchitectID());
+        stmt.setInt(11, project.getContractorID());
+        stmt.setInt(12, project.getCustomerID());
+    }
+
     /**
      * Finds a project by its number.
      * 
@@ -46,36 +457,52 @@ public class ProjectDAO {
      * @throws SQLException if a database access error occurs
      */
     public Project findProjectByNumber(int projectNumber) throws SQLException {
-        String query = "SELECT p.*, c.firstName AS customerFirstName, c.lastName AS customerLastName, " +
-                       "a.firstName AS architectFirstName, a.lastName AS architectLastName, " +
-                       "ct.firstName AS contractorFirstName, ct.lastName AS contractorLastName " +
-                       "FROM Project p " +
-                       "JOIN Customer c ON p.CustomerID = c.CustomerID " +
-                       "JOIN Architect a ON p.ArchitectID = a.ArchitectID " +
-                       "JOIN Contractor ct ON p.ContractorID = ct.ContractorID " +
-                       "WHERE p.ProjectNo = ?";
-        try (Connection conn = DatabaseConnection.getConnection(); 
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setInt(1, projectNumber);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return new Project(
-                    rs.getInt("ProjectNo"), 
-                    rs.getString("Name"), 
-                    rs.getString("Type"), 
-                    rs.getString("Address"), 
-                    rs.getString("ERFNo"), 
-                    rs.getDouble("TotalFee"), 
-                    rs.getDouble("AmountPaid"), 
-                    rs.getString("Deadline"), 
-                    rs.getBoolean("Finalised"), 
-                    rs.getString("CompletionDate"), 
-                    rs.getInt("ArchitectID"), 
-                    rs.getInt("ContractorID"), 
-                    rs.getInt("CustomerID")
-                );
-            } else {
-                return null;
+        return findProjectByNumber(projectNumber, Projection.FULL);
+    }
+
+    /**
+     * Finds a project by its number, reading only the columns of the given projection.
+     * 
+     * @param projectNumber the project number
+     * @param projection whether to join the customer, architect and contractor names
+     * @return the Project object, or null if not found
+     * @throws SQLException if a database access error occurs
+     */
+    public Project findProjectByNumber(int projectNumber, Projection projection) throws SQLException {
+        try (DaoMetrics.Sample sample = FIND_BY_NUMBER.start()) {
+            ProjectReplica replica = readReplica();
+            if (replica != null) {
+                Project project = replica.findByNumber(projectNumber);
+                sample.complete(project == null ? 0 : 1);
+                return project;
+            }
+            ProjectCache cache = readCache();
+            long stamp = 0;
+            if (cache != null) {
+                Project cached = cache.get(projectNumber);
+                if (cached != null) {
+                    sample.complete(1);
+                    return cached;
+                }
+                stamp = cache.loadStamp();
+            }
+            try (Connection conn = sample.connect(); 
+                 PreparedStatement stmt = conn.prepareStatement(projection.query(BY_NUMBER))) {
+                stmt.setInt(1, projectNumber);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        Project project = new ProjectRowMapper(rs).map(rs);
+                        // Only full rows are cached, so a cache hit can answer either projection
+                        if (cache != null && projection == Projection.FULL) {
+                            cache.put(project, stamp);
+                        }
+                        sample.complete(1);
+                        return project;
+                    } else {
+                        sample.complete(0);
+                        return null;
+                    }
+                }
             }
         }
     }
@@ -83,27 +510,275 @@ public class ProjectDAO {
     /**
      * Updates an existing project in the database.
      * 
+     * Only the columns of the fields changed since the project was read are written,
+     * and nothing is sent when no field has changed. The UPDATE text is the same for
+     * every update of the same set of fields, so the driver and server can reuse the
+     * prepared statement.
+     * 
+     * The write is made whatever the row's current version is, so it can overwrite
+     * another user's change to the same fields; use {@link #updateProjectIfCurrent(Project)}
+     * to detect that. Since other fields may also have been changed by someone else, the
+     * row is read back after the write and the project takes its values and version.
+     * 
      * @param project the Project object with updated details
+     * @return false if there is no project with that number, otherwise true (also when
+     *         no field had changed)
      * @throws SQLException if a database access error occurs
      */
-    public void updateProject(Project project) throws SQLException {
-        String query = "UPDATE Project SET Name = ?, Type = ?, Address = ?, ERFNo = ?, TotalFee = ?, AmountPaid = ?, Deadline = ?, Finalised = ?, CompletionDate = ?, ArchitectID = ?, ContractorID = ?, CustomerID = ? WHERE ProjectNo = ?";
-        try (Connection conn = DatabaseConnection.getConnection(); 
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, project.getName());
-            stmt.setString(2, project.getType());
-            stmt.setString(3, project.getAddress());
-            stmt.setString(4, project.getErfNo());
-            stmt.setDouble(5, project.getTotalFee());
-            stmt.setDouble(6, project.getAmountPaid());
-            stmt.setString(7, project.getDeadline());
-            stmt.setBoolean(8, project.isFinalised());
-            stmt.setString(9, project.getCompletionDate());
-            stmt.setInt(10, project.getArchitectID());
-            stmt.setInt(11, project.getContractorID());
-            stmt.setInt(12, project.getCustomerID());
-            stmt.setInt(13, project.getProjectNo());
-            stmt.executeUpdate();
+    public boolean updateProject(Project project) throws SQLException {
+        Set<Project.Field> fields = project.getDirtyFields();
+        if (fields.isEmpty()) {
+            return true;
+        }
+        Project current;
+        try (DaoMetrics.Sample sample = UPDATE.start();
+             Connection conn = sample.connect(); 
+             PreparedStatement stmt = conn.prepareStatement(updateStatement(fields, false))) {
+            int index = 1;
+            for (Project.Field field : fields) {
+                bindField(stmt, index++, project, field);
+            }
+            stmt.setInt(index, project.getProjectNo());
+            int rows = stmt.executeUpdate();
+            // Read on the same connection, so the row includes this write
+            current = rows == 0 ? null : readRow(conn, Projection.FULL.query(BY_NUMBER), project.getProjectNo());
+            sample.complete(rows);
+        }
+        if (current == null) {
+            return false;
+        }
+        for (Project.Field field : Project.Field.values()) {
+            ProjectFields.copy(current, project, field);
+        }
+        project.setVersion(current.getVersion());
+        project.markClean();
+        fireUpdated(current);
+        return true;
+    }
+
+    /**
+     * Updates a project only if its row is still at the version the project was read at.
+     * 
+     * Like {@link #updateProject(Project)}, only the changed columns are written. If
+     * another user has changed or deleted the row since it was read, nothing is written
+     * and the result holds the row as it now is.
+     * 
+     * @param project the project with updated details, read at {@link Project#getVersion()}
+     * @return APPLIED with the project at its new version, CONFLICT with the current row,
+     *         NOT_FOUND, or UNCHANGED if no field had changed
+     * @throws SQLException if a database access error occurs
+     */
+    public WriteResult updateProjectIfCurrent(Project project) throws SQLException {
+        Set<Project.Field> fields = project.getDirtyFields();
+        if (fields.isEmpty()) {
+            return WriteResult.unchanged(project);
+        }
+        try (DaoMetrics.Sample sample = UPDATE_IF_CURRENT.start();
+             Connection conn = sample.connect(); 
+             PreparedStatement stmt = conn.prepareStatement(updateStatement(fields, true))) {
+            int index = 1;
+            for (Project.Field field : fields) {
+                bindField(stmt, index++, project, field);
+            }
+            stmt.setInt(index++, project.getProjectNo());
+            stmt.setInt(index, project.getVersion());
+            if (stmt.executeUpdate() == 0) {
+                WriteResult missed = missedWrite(conn, project.getProjectNo());
+                sample.complete(0);
+                return missed;
+            }
+            sample.complete(1);
+        }
+        project.setVersion(project.getVersion() + 1);
+        project.markClean();
+        fireUpdated(project);
+        return WriteResult.applied(project);
+    }
+
+    /**
+     * Updates a project with {@link #updateProjectIfCurrent(Project)}, and when another
+     * user changed the row first, copies this project's changed fields onto the current
+     * row and tries again.
+     * 
+     * Fields changed only by the other user keep their new values; fields this project
+     * changed take this project's values. The given project is not modified once a
+     * conflict has occurred, so read the written project from the result.
+     * 
+     * @param project the project with updated details, read at {@link Project#getVersion()}
+     * @param maxAttempts the most writes to try, at least 1
+     * @return the result of the last attempt; CONFLICT only if every attempt conflicted
+     * @throws SQLException if a database access error occurs
+     */
+    public WriteResult updateProjectWithRetry(Project project, int maxAttempts) throws SQLException {
+        Project attempt = project;
+        for (int i = 1; ; i++) {
+            WriteResult result = updateProjectIfCurrent(attempt);
+            if (result.getStatus() != WriteResult.Status.CONFLICT || i >= maxAttempts) {
+                return result;
+            }
+            attempt = ProjectFields.merge(project, result.getCurrent());
+        }
+    }
+
+    /**
+     * Works out why a versioned write changed no row, and brings the cache, replica,
+     * overdue scheduler and search index up to date with the row, since they evidently
+     * missed a change made elsewhere.
+     */
+    private WriteResult missedWrite(Connection conn, int projectNumber) throws SQLException {
+        // A locking read sees the latest committed row even inside a longer transaction.
+        // It locks only the Project row, which this thread was about to write anyway;
+        // MySQL 8 and H2 both accept FOR UPDATE OF, but H2 rejects FOR SHARE.
+        Project current = readRow(conn, Projection.FULL.query(BY_NUMBER) + " FOR UPDATE OF p", projectNumber);
+        Project missed = current;
+        deliver(() -> {
+            ProjectCache cache = this.cache;
+            if (cache != null) {
+                cache.invalidate(projectNumber);
+            }
+            ProjectReplica replica = this.replica;
+            if (replica != null) {
+                if (missed == null) {
+                    replica.projectDeleted(projectNumber);
+                } else {
+                    replica.projectAdded(new Project(missed));
+                }
+            }
+            OverdueScheduler scheduler = this.overdueScheduler;
+            if (scheduler != null) {
+                if (missed == null) {
+                    scheduler.projectDeleted(projectNumber);
+                } else {
+                    scheduler.projectUpdated(missed);
+                }
+            }
+            ProjectSearchIndex index = this.searchIndex;
+            if (index != null) {
+                if (missed == null) {
+                    index.projectDeleted(projectNumber);
+                } else {
+                    index.projectUpdated(missed);
+                }
+            }
+        });
+        return current == null ? WriteResult.notFound() : WriteResult.conflict(current);
+    }
+
+    /**
+     * Reads a project on the given connection with a query by number, or returns null
+     * if there is no such project.
+     */
+    private static Project readRow(Connection conn, String query, int projectNumber) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, projectNumber);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? new ProjectRowMapper(rs).map(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Gets the replica to read from, or null if reads must go to the database because
+     * a unit of work is open on this thread.
+     */
+    private ProjectReplica readReplica() {
+        return UnitOfWork.current() == null ? replica : null;
+    }
+
+    /**
+     * Gets the overdue scheduler to read from, or null if reads must go to the
+     * database because a unit of work is open on this thread.
+     */
+    private OverdueScheduler readOverdueScheduler() {
+        return UnitOfWork.current() == null ? overdueScheduler : null;
+    }
+
+    /**
+     * Reads the overdue projects from the scheduler, timed as the given operation.
+     *
+     * @return the overdue projects, or null if there is no scheduler to read from
+     */
+    private List<Project> scheduledOverdue(DaoMetrics metrics) {
+        OverdueScheduler scheduler = readOverdueScheduler();
+        if (scheduler == null) {
+            return null;
+        }
+        try (DaoMetrics.Sample sample = metrics.start()) {
+            List<Project> projects = scheduler.getOverdueProjects();
+            sample.complete(projects.size());
+            return projects;
+        }
+    }
+
+    /**
+     * Gets the cache to read through, or null if reads must go to the database because
+     * a unit of work is open on this thread.
+     */
+    private ProjectCache readCache() {
+        return UnitOfWork.current() == null ? cache : null;
+    }
+
+    /**
+     * Gets the UPDATE statement for a set of changed fields, building it on first use.
+     */
+    static String updateStatement(Set<Project.Field> fields, boolean checkVersion) {
+        int key = checkVersion ? 1 << Project.Field.values().length : 0;
+        for (Project.Field field : fields) {
+            key |= 1 << field.ordinal();
+        }
+        return UPDATE_STATEMENTS.computeIfAbsent(key, k -> {
+            StringBuilder sql = new StringBuilder("UPDATE Project SET ");
+            for (Project.Field field : fields) {
+                sql.append(field.getColumn()).append(" = ?, ");
+            }
+            sql.append("Version = Version + 1 WHERE ProjectNo = ?");
+            return checkVersion ? sql.append(" AND Version = ?").toString() : sql.toString();
+        });
+    }
+
+    /**
+     * Binds the value of one project field to a statement parameter.
+     */
+    private static void bindField(PreparedStatement stmt, int index, Project project, Project.Field field) throws SQLException {
+        switch (field) {
+            case NAME:
+                stmt.setString(index, project.getName());
+                break;
+            case TYPE:
+                stmt.setString(index, project.getType());
+                break;
+            case ADDRESS:
+                stmt.setString(index, project.getAddress());
+                break;
+            case ERF_NO:
+                stmt.setString(index, project.getErfNo());
+                break;
+            case TOTAL_FEE:
+                stmt.setDouble(index, project.getTotalFee());
+                break;
+            case AMOUNT_PAID:
+                stmt.setDouble(index, project.getAmountPaid());
+                break;
+            case DEADLINE:
+                stmt.setString(index, project.getDeadline());
+                break;
+            case FINALISED:
+                stmt.setBoolean(index, project.isFinalised());
+                break;
+            case COMPLETION_DATE:
+                stmt.setString(index, project.getCompletionDate());
+                break;
+            case ARCHITECT_ID:
+                stmt.setInt(index, project.getArchitectID());
+                break;
+            case CONTRACTOR_ID:
+                stmt.setInt(index, project.getContractorID());
+                break;
+            case CUSTOMER_ID:
+                stmt.setInt(index, project.getCustomerID());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + field);
         }
     }
 
@@ -112,16 +787,51 @@ public class ProjectDAO {
      * 
      * @param projectNumber the project number to finalize
      * @param completionDate the completion date to set
+     * @return false if there is no project with that number
      * @throws SQLException if a database access error occurs
      */
-    public void finalizeProject(int projectNumber, String completionDate) throws SQLException {
-        String query = "UPDATE Project SET Finalised = true, CompletionDate = ? WHERE ProjectNo = ?";
-        try (Connection conn = DatabaseConnection.getConnection(); 
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+    public boolean finalizeProject(int projectNumber, String completionDate) throws SQLException {
+        int rows;
+        try (DaoMetrics.Sample sample = FINALIZE.start();
+             Connection conn = sample.connect(); 
+             PreparedStatement stmt = conn.prepareStatement(FINALIZE_PROJECT)) {
             stmt.setString(1, completionDate);
             stmt.setInt(2, projectNumber);
-            stmt.executeUpdate();
+            rows = stmt.executeUpdate();
+            sample.complete(rows);
+        }
+        if (rows == 0) {
+            return false;
         }
+        fireFinalized(projectNumber, completionDate);
+        return true;
+    }
+
+    /**
+     * Finalizes a project only if its row is still at the expected version.
+     * 
+     * @param projectNumber the project number to finalize
+     * @param expectedVersion the version the project was read at
+     * @param completionDate the completion date to set
+     * @return APPLIED, CONFLICT with the current row, or NOT_FOUND
+     * @throws SQLException if a database access error occurs
+     */
+    public WriteResult finalizeProjectIfCurrent(int projectNumber, int expectedVersion, String completionDate) throws SQLException {
+        try (DaoMetrics.Sample sample = FINALIZE_IF_CURRENT.start();
+             Connection conn = sample.connect(); 
+             PreparedStatement stmt = conn.prepareStatement(FINALIZE_PROJECT_IF_CURRENT)) {
+            stmt.setString(1, completionDate);
+            stmt.setInt(2, projectNumber);
+            stmt.setInt(3, expectedVersion);
+            if (stmt.executeUpdate() == 0) {
+                WriteResult missed = missedWrite(conn, projectNumber);
+                sample.complete(0);
+                return missed;
+            }
+            sample.complete(1);
+        }
+        fireFinalized(projectNumber, completionDate);
+        return WriteResult.applied(null);
     }
 
     /**
@@ -131,37 +841,18 @@ public class ProjectDAO {
      * @throws SQLException if a database access error occurs
      */
     public List<Project> getIncompleteProjects() throws SQLException {
-        String query = "SELECT p.*, c.firstName AS customerFirstName, c.lastName AS customerLastName, " +
-                       "a.firstName AS architectFirstName, a.lastName AS architectLastName, " +
-                       "ct.firstName AS contractorFirstName, ct.lastName AS contractorLastName " +
-                       "FROM Project p " +
-                       "JOIN Customer c ON p.CustomerID = c.CustomerID " +
-                       "JOIN Architect a ON p.ArchitectID = a.ArchitectID " +
-                       "JOIN Contractor ct ON p.ContractorID = ct.ContractorID " +
-                       "WHERE p.Finalised = false";
-        List<Project> projects = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection(); 
-             PreparedStatement stmt = conn.prepareStatement(query);
-             ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                projects.add(new Project(
-                    rs.getInt("ProjectNo"), 
-                    rs.getString("Name"), 
-                    rs.getString("Type"), 
-                    rs.getString("Address"), 
-                    rs.getString("ERFNo"), 
-                    rs.getDouble("TotalFee"), 
-                    rs.getDouble("AmountPaid"), 
-                    rs.getString("Deadline"), 
-                    rs.getBoolean("Finalised"), 
-                    rs.getString("CompletionDate"), 
-                    rs.getInt("ArchitectID"), 
-                    rs.getInt("ContractorID"), 
-                    rs.getInt("CustomerID")
-                ));
-            }
-        }
-        return projects;
+        return getIncompleteProjects(Projection.FULL);
+    }
+
+    /**
+     * Retrieves all projects that are not yet finalized, reading only the columns of the given projection.
+     * 
+     * @param projection whether to join the customer, architect and contractor names
+     * @return a list of incomplete Project objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<Project> getIncompleteProjects(Projection projection) throws SQLException {
+        return listProjects(LIST_INCOMPLETE, projection.query(INCOMPLETE), ProjectReplica::getIncompleteProjects);
     }
 
     /**
@@ -171,37 +862,426 @@ public class ProjectDAO {
      * @throws SQLException if a database access error occurs
      */
     public List<Project> getOverdueProjects() throws SQLException {
-        String query = "SELECT p.*, c.firstName AS customerFirstName, c.lastName AS customerLastName, " +
-                       "a.firstName AS architectFirstName, a.lastName AS architectLastName, " +
-                       "ct.firstName AS contractorFirstName, ct.lastName AS contractorLastName " +
-                       "FROM Project p " +
-                       "JOIN Customer c ON p.CustomerID = c.CustomerID " +
-                       "JOIN Architect a ON p.ArchitectID = a.ArchitectID " +
-                       "JOIN Contractor ct ON p.ContractorID = ct.ContractorID " +
-                       "WHERE p.Deadline < CURDATE() AND p.Finalised = false";
-        List<Project> projects = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection(); 
-             PreparedStatement stmt = conn.prepareStatement(query);
-             ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                projects.add(new Project(
-                    rs.getInt("ProjectNo"), 
-                    rs.getString("Name"), 
-                    rs.getString("Type"), 
-                    rs.getString("Address"), 
-                    rs.getString("ERFNo"), 
-                    rs.getDouble("TotalFee"), 
-                    rs.getDouble("AmountPaid"), 
-                    rs.getString("Deadline"), 
-                    rs.getBoolean("Finalised"), 
-                    rs.getString("CompletionDate"), 
-                    rs.getInt("ArchitectID"), 
-                    rs.getInt("ContractorID"), 
-                    rs.getInt("CustomerID")
-                ));
-            }
-        }
-        return projects;
+        return getOverdueProjects(Projection.FULL);
+    }
+
+    /**
+     * Retrieves all projects that are overdue, reading only the columns of the given projection.
+     * 
+     * @param projection whether to join the customer, architect and contractor names
+     * @return a list of overdue Project objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<Project> getOverdueProjects(Projection projection) throws SQLException {
+        List<Project> scheduled = scheduledOverdue(LIST_OVERDUE);
+        if (scheduled != null) {
+            return scheduled;
+        }
+        return listProjects(LIST_OVERDUE, projection.query(OVERDUE), ProjectReplica::getOverdueProjects);
+    }
+
+    /**
+     * Passes each project that is not yet finalized to the given action as its row
+     * arrives from the database, without collecting the rows in a list.
+     * 
+     * @param action the action to run for each incomplete project
+     * @throws SQLException if a database access error occurs
+     */
+    public void forEachIncompleteProject(Consumer<? super Project> action) throws SQLException {
+        forEachIncompleteProject(Projection.FULL, action);
+    }
+
+    /**
+     * Passes each project that is not yet finalized to the given action as its row
+     * arrives, reading only the columns of the given projection.
+     * 
+     * @param projection whether to join the customer, architect and contractor names
+     * @param action the action to run for each incomplete project
+     * @throws SQLException if a database access error occurs
+     */
+    public void forEachIncompleteProject(Projection projection, Consumer<? super Project> action) throws SQLException {
+        forEachProject(EACH_INCOMPLETE, projection.query(INCOMPLETE), ProjectReplica::getIncompleteProjects, action);
+    }
+
+    /**
+     * Passes each overdue project to the given action as its row arrives from the
+     * database, without collecting the rows in a list.
+     * 
+     * @param action the action to run for each overdue project
+     * @throws SQLException if a database access error occurs
+     */
+    public void forEachOverdueProject(Consumer<? super Project> action) throws SQLException {
+        forEachOverdueProject(Projection.FULL, action);
+    }
+
+    /**
+     * Passes each overdue project to the given action as its row arrives, reading
+     * only the columns of the given projection.
+     * 
+     * @param projection whether to join the customer, architect and contractor names
+     * @param action the action to run for each overdue project
+     * @throws SQLException if a database access error occurs
+     */
+    public void forEachOverdueProject(Projection projection, Consumer<? super Project> action) throws SQLException {
+        List<Project> scheduled = scheduledOverdue(EACH_OVERDUE);
+        if (scheduled != null) {
+            scheduled.forEach(action);
+            return;
+        }
+        forEachProject(EACH_OVERDUE, projection.query(OVERDUE), ProjectReplica::getOverdueProjects, action);
+    }
+
+    /**
+     * Streams the projects that are not yet finalized. The stream holds a database
+     * connection until it is closed, so use it in a try-with-resources block.
+     * 
+     * @return a stream of incomplete Project objects
+     * @throws SQLException if a database access error occurs
+     */
+    public Stream<Project> streamIncompleteProjects() throws SQLException {
+        return streamIncompleteProjects(Projection.FULL);
+    }
+
+    /**
+     * Streams the projects that are not yet finalized, reading only the columns of
+     * the given projection. Close the stream to release its connection.
+     * 
+     * @param projection whether to join the customer, architect and contractor names
+     * @return a stream of incomplete Project objects
+     * @throws SQLException if a database access error occurs
+     */
+    public Stream<Project> streamIncompleteProjects(Projection projection) throws SQLException {
+        ProjectReplica replica = readReplica();
+        if (replica != null) {
+            try (DaoMetrics.Sample sample = STREAM_INCOMPLETE.start()) {
+                List<Project> projects = replica.getIncompleteProjects();
+                sample.complete(projects.size());
+                return projects.stream();
+            }
+        }
+        return streamProjects(STREAM_INCOMPLETE, projection.query(INCOMPLETE));
+    }
+
+    /**
+     * Streams the overdue projects. The stream holds a database connection until
+     * it is closed, so use it in a try-with-resources block.
+     * 
+     * @return a stream of overdue Project objects
+     * @throws SQLException if a database access error occurs
+     */
+    public Stream<Project> streamOverdueProjects() throws SQLException {
+        return streamOverdueProjects(Projection.FULL);
+    }
+
+    /**
+     * Streams the overdue projects, reading only the columns of the given
+     * projection. Close the stream to release its connection.
+     * 
+     * @param projection whether to join the customer, architect and contractor names
+     * @return a stream of overdue Project objects
+     * @throws SQLException if a database access error occurs
+     */
+    public Stream<Project> streamOverdueProjects(Projection projection) throws SQLException {
+        List<Project> scheduled = scheduledOverdue(STREAM_OVERDUE);
+        if (scheduled != null) {
+            return scheduled.stream();
+        }
+        ProjectReplica replica = readReplica();
+        if (replica != null) {
+            try (DaoMetrics.Sample sample = STREAM_OVERDUE.start()) {
+                List<Project> projects = replica.getOverdueProjects();
+                sample.complete(projects.size());
+                return projects.stream();
+            }
+        }
+        return streamProjects(STREAM_OVERDUE, projection.query(OVERDUE));
+    }
+
+    /**
+     * Retrieves one page of the projects that are not yet finalized, ordered by project number.
+     * 
+     * @param pageToken a token from a previous page, or null for the first page
+     * @param pageSize the largest number of projects to return
+     * @return the page of incomplete projects
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the page token is not valid
+     */
+    public ProjectPage getIncompleteProjectsPage(String pageToken, int pageSize) throws SQLException {
+        return getIncompleteProjectsPage(pageToken, pageSize, Projection.FULL);
+    }
+
+    /**
+     * Retrieves one page of the projects that are not yet finalized, reading only the
+     * columns of the given projection.
+     * 
+     * @param pageToken a token from a previous page, or null for the first page
+     * @param pageSize the largest number of projects to return
+     * @param projection whether to join the customer, architect and contractor names
+     * @return the page of incomplete projects
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the page token is not valid
+     */
+    public ProjectPage getIncompleteProjectsPage(String pageToken, int pageSize, Projection projection) throws SQLException {
+        return fetchPage(PAGE_INCOMPLETE, pageToken, pageSize, false, projection.query(INCOMPLETE_FIRST_PAGE),
+                projection.query(INCOMPLETE_PAGE_AFTER), projection.query(INCOMPLETE_PAGE_BEFORE));
+    }
+
+    /**
+     * Retrieves one page of the overdue projects, ordered by deadline and then project number.
+     * 
+     * @param pageToken a token from a previous page, or null for the first page
+     * @param pageSize the largest number of projects to return
+     * @return the page of overdue projects
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the page token is not valid
+     */
+    public ProjectPage getOverdueProjectsPage(String pageToken, int pageSize) throws SQLException {
+        return getOverdueProjectsPage(pageToken, pageSize, Projection.FULL);
+    }
+
+    /**
+     * Retrieves one page of the overdue projects, reading only the columns of the
+     * given projection.
+     * 
+     * @param pageToken a token from a previous page, or null for the first page
+     * @param pageSize the largest number of projects to return
+     * @param projection whether to join the customer, architect and contractor names
+     * @return the page of overdue projects
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the page token is not valid
+     */
+    public ProjectPage getOverdueProjectsPage(String pageToken, int pageSize, Projection projection) throws SQLException {
+        return fetchPage(PAGE_OVERDUE, pageToken, pageSize, true, projection.query(OVERDUE_FIRST_PAGE),
+                projection.query(OVERDUE_PAGE_AFTER), projection.query(OVERDUE_PAGE_BEFORE));
+    }
+
+    /**
+     * Reads one page by seeking from the key in the page token. One extra row is
+     * read to find out whether another page follows in the direction of travel.
+     */
+    private ProjectPage fetchPage(DaoMetrics metrics, String pageToken, int pageSize, boolean byDeadline, String firstQuery, String afterQuery, String beforeQuery) throws SQLException {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        ProjectPage.Token token = pageToken == null ? null : ProjectPage.Token.decode(pageToken);
+        String query = token == null ? firstQuery : token.forward ? afterQuery : beforeQuery;
+        List<Project> projects = new ArrayList<>(pageSize + 1);
+        try (DaoMetrics.Sample sample = metrics.start()) {
+            ProjectReplica replica = readReplica();
+            OverdueScheduler scheduler = readOverdueScheduler();
+            if (byDeadline && scheduler != null) {
+                projects.addAll(scheduler.page(token, pageSize + 1));
+            } else if (replica != null) {
+                projects.addAll(replica.page(byDeadline, token, pageSize + 1));
+            } else {
+                readPage(sample, query, token, pageSize, byDeadline, projects);
+            }
+            sample.complete(projects.size());
+        }
+
+        boolean more = projects.size() > pageSize;
+        if (more) {
+            projects.remove(pageSize);
+        }
+        if (token != null && !token.forward) {
+            Collections.reverse(projects);
+        }
+        if (projects.isEmpty()) {
+            // Nothing lies that way any more, but the rows on the other side of the key can still be read
+            if (token == null) {
+                return new ProjectPage(projects, null, null);
+            }
+            String turnBack = new ProjectPage.Token(!token.forward, token.deadline, token.projectNo).encode();
+            return token.forward ? new ProjectPage(projects, null, turnBack) : new ProjectPage(projects, turnBack, null);
+        }
+
+        // Reading forwards, "more" means another page follows; reading backwards, it means one precedes
+        boolean forward = token == null || token.forward;
+        boolean hasNext = forward ? more : true;
+        boolean hasPrevious = forward ? token != null : more;
+        Project first = projects.get(0);
+        Project last = projects.get(projects.size() - 1);
+        return new ProjectPage(projects,
+                hasNext ? ProjectPage.Token.of(true, last) : null,
+                hasPrevious ? ProjectPage.Token.of(false, first) : null);
+    }
+
+    /**
+     * Runs a keyset page query, reading one row more than the page size.
+     */
+    private void readPage(DaoMetrics.Sample sample, String query, ProjectPage.Token token, int pageSize, boolean byDeadline, List<Project> projects) throws SQLException {
+        try (Connection conn = sample.connect(); 
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            int index = 1;
+            if (token != null) {
+                if (byDeadline) {
+                    stmt.setString(index++, token.deadline);
+                    stmt.setString(index++, token.deadline);
+                }
+                stmt.setInt(index++, token.projectNo);
+            }
+            stmt.setInt(index, pageSize + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                ProjectRowMapper mapper = new ProjectRowMapper(rs);
+                while (rs.next()) {
+                    projects.add(mapper.map(rs));
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a project query and collects every row into a list, or reads the list from
+     * the replica when there is one.
+     */
+    private List<Project> listProjects(DaoMetrics metrics, String query, Function<ProjectReplica, List<Project>> fromReplica) throws SQLException {
+        try (DaoMetrics.Sample sample = metrics.start()) {
+            ProjectReplica replica = readReplica();
+            if (replica != null) {
+                List<Project> projects = fromReplica.apply(replica);
+                sample.complete(projects.size());
+                return projects;
+            }
+            List<Project> projects = new ArrayList<>();
+            try (Connection conn = sample.connect(); 
+                 PreparedStatement stmt = conn.prepareStatement(query);
+                 ResultSet rs = stmt.executeQuery()) {
+                ProjectRowMapper mapper = new ProjectRowMapper(rs);
+                while (rs.next()) {
+                    projects.add(mapper.map(rs));
+                }
+            }
+            sample.complete(projects.size());
+            return projects;
+        }
+    }
+
+    /**
+     * Runs a project query with a streaming result set and hands each row to the
+     * action, or hands it the replica's rows when there is a replica.
+     */
+    private void forEachProject(DaoMetrics metrics, String query, Function<ProjectReplica, List<Project>> fromReplica,
+                                Consumer<? super Project> action) throws SQLException {
+        try (DaoMetrics.Sample sample = metrics.start()) {
+            ProjectReplica replica = readReplica();
+            if (replica != null) {
+                List<Project> projects = fromReplica.apply(replica);
+                projects.forEach(action);
+                sample.complete(projects.size());
+                return;
+            }
+            long rows = 0;
+            try (Connection conn = sample.connect(); 
+                 PreparedStatement stmt = prepareStreaming(conn, query);
+                 ResultSet rs = stmt.executeQuery()) {
+                ProjectRowMapper mapper = new ProjectRowMapper(rs);
+                while (rs.next()) {
+                    action.accept(mapper.map(rs));
+                    rows++;
+                }
+            }
+            sample.complete(rows);
+        }
+    }
+
+    /**
+     * Runs a project query with a streaming result set and exposes the rows as a
+     * stream that releases the connection when it is closed.
+     */
+    private Stream<Project> streamProjects(DaoMetrics metrics, String query) throws SQLException {
+        DaoMetrics.Sample sample = metrics.start();
+        Connection conn;
+        try {
+            conn = sample.connect();
+        } catch (SQLException e) {
+            sample.close();
+            throw e;
+        }
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        ProjectRowMapper mapper;
+        try {
+            stmt = prepareStreaming(conn, query);
+            rs = stmt.executeQuery();
+            mapper = new ProjectRowMapper(rs);
+        } catch (SQLException e) {
+            try {
+                if (rs != null) {
+                    rs.close();
+                }
+            } finally {
+                try {
+                    if (stmt != null) {
+                        stmt.close();
+                    }
+                } finally {
+                    try {
+                        conn.close();
+                    } finally {
+                        sample.close();
+                    }
+                }
+            }
+            throw e;
+        }
+
+        PreparedStatement openStmt = stmt;
+        ResultSet openRs = rs;
+        // The call is timed until the stream is closed; it is an error if a row could not be read
+        long[] count = new long[1];
+        boolean[] failed = new boolean[1];
+        Spliterator<Project> rows = new Spliterators.AbstractSpliterator<Project>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Project> action) {
+                try {
+                    if (!openRs.next()) {
+                        return false;
+                    }
+                    Project project = mapper.map(openRs);
+                    count[0]++;
+                    action.accept(project);
+                    return true;
+                } catch (SQLException e) {
+                    failed[0] = true;
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            try {
+                try {
+                    openRs.close();
+                } finally {
+                    try {
+                        openStmt.close();
+                    } finally {
+                        conn.close();
+                    }
+                }
+                if (!failed[0]) {
+                    sample.complete(count[0]);
+                }
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
+            } finally {
+                sample.close();
+            }
+        });
+    }
+
+    /**
+     * Prepares a forward-only, read-only statement whose rows are fetched as they
+     * are read rather than all at once.
+     *
+     * Inside a unit of work the action or stream consumer may call the DAO again on
+     * the same connection, which MySQL refuses while rows are streamed one at a time,
+     * so a fetch size of {@code Integer.MIN_VALUE} is not used there.
+     */
+    private PreparedStatement prepareStreaming(Connection conn, String query) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        int fetchSize = DatabaseConnection.pool().getFetchSize();
+        stmt.setFetchSize(fetchSize == Integer.MIN_VALUE && UnitOfWork.current() != null ? 0 : fetchSize);
+        return stmt;
     }
 
     /**
@@ -212,53 +1292,129 @@ public class ProjectDAO {
      * @throws SQLException if a database access error occurs
      */
     public Project findProjectByName(String projectName) throws SQLException {
-        String query = "SELECT p.*, c.firstName AS customerFirstName, c.lastName AS customerLastName, " +
-                       "a.firstName AS architectFirstName, a.lastName AS architectLastName, " +
-                       "ct.firstName AS contractorFirstName, ct.lastName AS contractorLastName " +
-                       "FROM Project p " +
-                       "JOIN Customer c ON p.CustomerID = c.CustomerID " +
-                       "JOIN Architect a ON p.ArchitectID = a.ArchitectID " +
-                       "JOIN Contractor ct ON p.ContractorID = ct.ContractorID " +
-                       "WHERE p.Name = ?";
-        try (Connection conn = DatabaseConnection.getConnection(); 
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, projectName);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return new Project(
-                    rs.getInt("ProjectNo"), 
-                    rs.getString("Name"), 
-                    rs.getString("Type"), 
-                    rs.getString("Address"), 
-                    rs.getString("ERFNo"), 
-                    rs.getDouble("TotalFee"), 
-                    rs.getDouble("AmountPaid"), 
-                    rs.getString("Deadline"), 
-                    rs.getBoolean("Finalised"), 
-                    rs.getString("CompletionDate"), 
-                    rs.getInt("ArchitectID"), 
-                    rs.getInt("ContractorID"), 
-                    rs.getInt("CustomerID")
-                );
-            } else {
-                return null;
+        return findProjectByName(projectName, Projection.FULL);
+    }
+
+    /**
+     * Finds a project by its name, reading only the columns of the given projection.
+     * 
+     * @param projectName the project name
+     * @param projection whether to join the customer, architect and contractor names
+     * @return the Project object, or null if not found
+     * @throws SQLException if a database access error occurs
+     */
+    public Project findProjectByName(String projectName, Projection projection) throws SQLException {
+        try (DaoMetrics.Sample sample = FIND_BY_NAME.start()) {
+            ProjectReplica replica = readReplica();
+            if (replica != null) {
+                Project project = replica.findByName(projectName);
+                sample.complete(project == null ? 0 : 1);
+                return project;
+            }
+            ProjectCache cache = readCache();
+            long stamp = 0;
+            if (cache != null) {
+                Project cached = cache.getByName(projectName);
+                if (cached != null) {
+                    sample.complete(1);
+                    return cached;
+                }
+                stamp = cache.loadStamp();
+            }
+            try (Connection conn = sample.connect(); 
+                 PreparedStatement stmt = conn.prepareStatement(projection.query(BY_NAME))) {
+                stmt.setString(1, projectName);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        Project project = new ProjectRowMapper(rs).map(rs);
+                        if (cache != null && projection == Projection.FULL) {
+                            cache.put(project, stamp);
+                        }
+                        sample.complete(1);
+                        return project;
+                    } else {
+                        sample.complete(0);
+                        return null;
+                    }
+                }
             }
         }
     }
 
+    /**
+     * Finds the projects whose name, customer surname or address best match some text,
+     * which may be partial or misspelt, best match first. Without a search index only a
+     * project with exactly that name is found.
+     * 
+     * @param text the text to search for
+     * @param limit the most matches to return
+     * @return the matches
+     * @throws SQLException if a database access error occurs
+     */
+    public List<ProjectSearchIndex.Match> searchProjects(String text, int limit) throws SQLException {
+        ProjectSearchIndex index = searchIndex;
+        if (index == null) {
+            List<ProjectSearchIndex.Match> matches = new ArrayList<>();
+            Project project = findProjectByName(text);
+            if (project != null && limit > 0) {
+                matches.add(new ProjectSearchIndex.Match(project.getProjectNo(), project.getName(),
+                        project.getCustomerLastName(), project.getAddress(), 1, 0, 0));
+            }
+            return matches;
+        }
+        try (DaoMetrics.Sample sample = SEARCH.start()) {
+            List<ProjectSearchIndex.Match> matches = index.search(text, limit);
+            sample.complete(matches.size());
+            return matches;
+        }
+    }
+
     /**
      * Deletes a project from the database.
      * 
      * @param projectNumber the project number to delete
+     * @return false if there is no project with that number
      * @throws SQLException if a database access error occurs
      */
-    public void deleteProject(int projectNumber) throws SQLException {
-        String query = "DELETE FROM Project WHERE ProjectNo = ?";
-        try (Connection conn = DatabaseConnection.getConnection(); 
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+    public boolean deleteProject(int projectNumber) throws SQLException {
+        int rows;
+        try (DaoMetrics.Sample sample = DELETE.start();
+             Connection conn = sample.connect(); 
+             PreparedStatement stmt = conn.prepareStatement(DELETE_PROJECT)) {
             stmt.setInt(1, projectNumber);
-            stmt.executeUpdate();
+            rows = stmt.executeUpdate();
+            sample.complete(rows);
+        }
+        if (rows == 0) {
+            return false;
         }
+        fireDeleted(projectNumber);
+        return true;
+    }
+
+    /**
+     * Deletes a project only if its row is still at the expected version.
+     * 
+     * @param projectNumber the project number to delete
+     * @param expectedVersion the version the project was read at
+     * @return APPLIED, CONFLICT with the current row, or NOT_FOUND
+     * @throws SQLException if a database access error occurs
+     */
+    public WriteResult deleteProjectIfCurrent(int projectNumber, int expectedVersion) throws SQLException {
+        try (DaoMetrics.Sample sample = DELETE_IF_CURRENT.start();
+             Connection conn = sample.connect(); 
+             PreparedStatement stmt = conn.prepareStatement(DELETE_PROJECT_IF_CURRENT)) {
+            stmt.setInt(1, projectNumber);
+            stmt.setInt(2, expectedVersion);
+            if (stmt.executeUpdate() == 0) {
+                WriteResult missed = missedWrite(conn, projectNumber);
+                sample.complete(0);
+                return missed;
+            }
+            sample.complete(1);
+        }
+        fireDeleted(projectNumber);
+        return WriteResult.applied(null);
     }
 
     /**
@@ -270,15 +1426,77 @@ public class ProjectDAO {
      */
     public String getCustomerSurnameByID(int customerID) throws SQLException {
         String query = "SELECT lastName FROM Customer WHERE CustomerID = ?";
-        try (Connection conn = DatabaseConnection.getConnection(); 
+        try (DaoMetrics.Sample sample = CUSTOMER_SURNAME.start();
+             Connection conn = sample.connect(); 
              PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, customerID);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                return rs.getString("lastName");
+                String lastName = rs.getString("lastName");
+                sample.complete(1);
+                return lastName;
             } else {
                 throw new SQLException("Customer not found");
             }
         }
     }
+
+    /**
+     * Tells the listeners about a change now, or when the open unit of work commits.
+     */
+    private void deliver(Runnable event) {
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null) {
+            work.defer(event);
+        } else {
+            event.run();
+        }
+    }
+
+    /**
+     * Tells the listeners that a project was added.
+     */
+    private void fireAdded(Project project) {
+        // Inside a unit of work the caller may change the project before it commits
+        Project added = UnitOfWork.current() == null ? project : new Project(project);
+        deliver(() -> {
+            for (ProjectChangeListener listener : listeners) {
+                listener.projectAdded(added);
+            }
+        });
+    }
+
+    /**
+     * Tells the listeners that a project was updated.
+     */
+    private void fireUpdated(Project project) {
+        Project updated = UnitOfWork.current() == null ? project : new Project(project);
+        deliver(() -> {
+            for (ProjectChangeListener listener : listeners) {
+                listener.projectUpdated(updated);
+            }
+        });
+    }
+
+    /**
+     * Tells the listeners that a project was finalized.
+     */
+    private void fireFinalized(int projectNo, String completionDate) {
+        deliver(() -> {
+            for (ProjectChangeListener listener : listeners) {
+                listener.projectFinalized(projectNo, completionDate);
+            }
+        });
+    }
+
+    /**
+     * Tells the listeners that a project was deleted.
+     */
+    private void fireDeleted(int projectNo) {
+        deliver(() -> {
+            for (ProjectChangeListener listener : listeners) {
+                listener.projectDeleted(projectNo);
+            }
+        });
+    }
 }
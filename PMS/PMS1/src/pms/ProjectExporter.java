@@ -0,0 +1,389 @@
+package pms;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports every project, with the names of its customer, architect and contractor,
+ * as CSV or JSON Lines.
+ *
+ * Rows are read from a forward-only streaming result set and written straight to a
+ * buffered channel, without building Project objects, so the memory used does not
+ * depend on the number of projects. The CSV header uses the column names that
+ * {@link ProjectCsvReader} reads, so an export can be imported again as long as no
+ * text field contains a line break.
+ */
+public class ProjectExporter {
+    /** The output formats. */
+    public enum Format { CSV, JSONL }
+
+    private static final String QUERY = Projection.FULL.query("ORDER BY p.ProjectNo");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Column[] COLUMNS = Column.values();
+
+    private final Format format;
+    private final boolean gzip;
+
+    /**
+     * Creates an exporter.
+     *
+     * @param format the output format
+     * @param gzip whether to compress the output with gzip
+     */
+    public ProjectExporter(Format format, boolean gzip) {
+        this.format = format;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Creates an exporter for a file name ending in {@code .csv} or {@code .jsonl},
+     * optionally followed by {@code .gz}.
+     *
+     * @param file the file to export to
+     * @return the exporter
+     * @throws IllegalArgumentException if the file name has neither extension
+     */
+    public static ProjectExporter forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean gzip = name.endsWith(".gz");
+        if (gzip) {
+            name = name.substring(0, name.length() - 3);
+        }
+        if (name.endsWith(".csv")) {
+            return new ProjectExporter(Format.CSV, gzip);
+        }
+        if (name.endsWith(".jsonl")) {
+            return new ProjectExporter(Format.JSONL, gzip);
+        }
+        throw new IllegalArgumentException("Export file name must end in .csv, .jsonl, .csv.gz or .jsonl.gz");
+    }
+
+    /**
+     * Exports every project to a file. The rows are written to a temporary file next
+     * to it, which replaces the file only once the export is complete.
+     *
+     * @param file the file to write
+     * @return the number of projects exported
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if the file cannot be written
+     */
+    public long export(Path file) throws SQLException, IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        boolean done = false;
+        try {
+            long rows;
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                rows = export(channel);
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            done = true;
+            return rows;
+        } finally {
+            if (!done) {
+                Files.deleteIfExists(partial);
+            }
+        }
+    }
+
+    /**
+     * Exports every project to a channel. The channel is not closed.
+     *
+     * @param channel where to write
+     * @return the number of projects exported
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if writing fails
+     */
+    public long export(WritableByteChannel channel) throws SQLException, IOException {
+        GZIPOutputStream compressed = null;
+        WritableByteChannel target = channel;
+        if (gzip) {
+            compressed = new GZIPOutputStream(new UnclosingOutputStream(Channels.newOutputStream(channel)), BUFFER_SIZE);
+            target = Channels.newChannel(compressed);
+        }
+        Sink sink = new Sink(target);
+        long rows = 0;
+        try {
+            rows = writeRows(sink);
+            sink.flush();
+            if (compressed != null) {
+                compressed.finish();
+            }
+        } finally {
+            if (compressed != null) {
+                compressed.close();
+            }
+        }
+        return rows;
+    }
+
+    private long writeRows(Sink sink) throws SQLException, IOException {
+        long rows = 0;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(DatabaseConnection.pool().getFetchSize());
+            try (ResultSet rs = stmt.executeQuery()) {
+                int[] indexes = columnIndexes(rs);
+                StringBuilder line = new StringBuilder(256);
+                if (format == Format.CSV) {
+                    writeHeader(line, indexes);
+                    sink.write(line);
+                }
+                while (rs.next()) {
+                    line.setLength(0);
+                    if (format == Format.CSV) {
+                        writeCsvRow(line, rs, indexes);
+                    } else {
+                        writeJsonRow(line, rs, indexes);
+                    }
+                    sink.write(line);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Finds the position of each exported column; a column the query does not
+     * select, such as Version on an unmigrated database, gets 0 and is left out.
+     */
+    private static int[] columnIndexes(ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = meta.getColumnCount(); i >= 1; i--) {
+            columns.put(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        int[] indexes = new int[COLUMNS.length];
+        for (Column column : COLUMNS) {
+            Integer index = columns.get(column.label.toLowerCase(Locale.ROOT));
+            if (index == null && column != Column.VERSION) {
+                throw new SQLException("Project query does not select column " + column.label);
+            }
+            indexes[column.ordinal()] = index == null ? 0 : index;
+        }
+        return indexes;
+    }
+
+    private static void writeHeader(StringBuilder line, int[] indexes) {
+        boolean first = true;
+        for (Column column : COLUMNS) {
+            if (indexes[column.ordinal()] == 0) {
+                continue;
+            }
+            if (!first) {
+                line.append(',');
+            }
+            line.append(column.label);
+            first = false;
+        }
+        line.append('\n');
+    }
+
+    private static void writeCsvRow(StringBuilder line, ResultSet rs, int[] indexes) throws SQLException {
+        boolean first = true;
+        for (Column column : COLUMNS) {
+            int index = indexes[column.ordinal()];
+            if (index == 0) {
+                continue;
+            }
+            if (!first) {
+                line.append(',');
+            }
+            first = false;
+            if (column.kind == Kind.BOOLEAN) {
+                line.append(rs.getBoolean(index));
+                continue;
+            }
+            String value = rs.getString(index);
+            if (value == null) {
+                continue;
+            }
+            if (column.kind == Kind.TEXT && needsQuotes(value)) {
+                line.append('"');
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"') {
+                        line.append('"');
+                    }
+                    line.append(c);
+                }
+                line.append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        line.append('\n');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeJsonRow(StringBuilder line, ResultSet rs, int[] indexes) throws SQLException {
+        try {
+            line.append('{');
+            boolean first = true;
+            for (Column column : COLUMNS) {
+                int index = indexes[column.ordinal()];
+                if (index == 0) {
+                    continue;
+                }
+                if (!first) {
+                    line.append(',');
+                }
+                first = false;
+                line.append('"').append(column.key).append("\":");
+                if (column.kind == Kind.BOOLEAN) {
+                    line.append(rs.getBoolean(index));
+                } else if (column.kind == Kind.NUMBER) {
+                    String value = rs.getString(index);
+                    line.append(value == null ? "null" : value);
+                } else {
+                    Json.quote(line, rs.getString(index));
+                }
+            }
+            line.append("}\n");
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder does not throw
+        }
+    }
+
+    /** How a column's value is written. */
+    private enum Kind { TEXT, NUMBER, BOOLEAN }
+
+    /**
+     * The exported columns in output order, with their CSV header and JSON name.
+     */
+    private enum Column {
+        PROJECT_NO("ProjectNo", "projectNo", Kind.NUMBER),
+        NAME("Name", "name", Kind.TEXT),
+        TYPE("Type", "type", Kind.TEXT),
+        ADDRESS("Address", "address", Kind.TEXT),
+        ERF_NO("ERFNo", "erfNo", Kind.TEXT),
+        TOTAL_FEE("TotalFee", "totalFee", Kind.NUMBER),
+        AMOUNT_PAID("AmountPaid", "amountPaid", Kind.NUMBER),
+        DEADLINE("Deadline", "deadline", Kind.TEXT),
+        FINALISED("Finalised", "finalised", Kind.BOOLEAN),
+        COMPLETION_DATE("CompletionDate", "completionDate", Kind.TEXT),
+        ARCHITECT_ID("ArchitectID", "architectID", Kind.NUMBER),
+        CONTRACTOR_ID("ContractorID", "contractorID", Kind.NUMBER),
+        CUSTOMER_ID("CustomerID", "customerID", Kind.NUMBER),
+        CUSTOMER_FIRST_NAME("customerFirstName", "customerFirstName", Kind.TEXT),
+        CUSTOMER_LAST_NAME("customerLastName", "customerLastName", Kind.TEXT),
+        ARCHITECT_FIRST_NAME("architectFirstName", "architectFirstName", Kind.TEXT),
+        ARCHITECT_LAST_NAME("architectLastName", "architectLastName", Kind.TEXT),
+        CONTRACTOR_FIRST_NAME("contractorFirstName", "contractorFirstName", Kind.TEXT),
+        CONTRACTOR_LAST_NAME("contractorLastName", "contractorLastName", Kind.TEXT),
+        VERSION("Version", "version", Kind.NUMBER);
+
+        final String label;
+        final String key;
+        final Kind kind;
+
+        Column(String label, String key, Kind kind) {
+            this.label = label;
+            this.key = key;
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * Encodes text as UTF-8 into a fixed direct buffer and writes the buffer to the
+     * channel each time it fills.
+     */
+    private static final class Sink {
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Sink(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isUnderflow()) {
+                    encoder.reset();
+                    return;
+                } else {
+                    result.throwException();
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Lets the gzip stream be closed to finish it without closing the caller's channel.
+     */
+    private static final class UnclosingOutputStream extends OutputStream {
+        private final OutputStream out;
+
+        UnclosingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
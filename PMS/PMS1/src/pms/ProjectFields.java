@@ -0,0 +1,162 @@
+package pms;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Sets a {@link Project} field from its name and a text value, for callers that
+ * receive field changes as name/value pairs such as the HTTP API and batch mode,
+ * and copies fields between projects when merging concurrent edits.
+ */
+final class ProjectFields {
+
+    private ProjectFields() {
+    }
+
+    /**
+     * Sets one field of a project. Field names are matched ignoring case; dates must
+     * be YYYY-MM-DD.
+     *
+     * @param project the project to change
+     * @param field the field name, such as {@code amountPaid}
+     * @param value the new value as text, or null to clear a text or date field
+     * @throws IllegalArgumentException if the field is unknown or the value cannot be parsed
+     */
+    static void set(Project project, String field, String value) {
+        switch (field.toLowerCase(Locale.ROOT)) {
+            case "name":
+                project.setName(value);
+                break;
+            case "type":
+                project.setType(value);
+                break;
+            case "address":
+                project.setAddress(value);
+                break;
+            case "erfno":
+                project.setErfNo(value);
+                break;
+            case "totalfee":
+                project.setTotalFee(parseDouble(field, value));
+                break;
+            case "amountpaid":
+                project.setAmountPaid(parseDouble(field, value));
+                break;
+            case "deadline":
+                project.setDeadline(parseDate(value));
+                break;
+            case "finalised":
+                project.setFinalised(parseBoolean(field, value));
+                break;
+            case "completiondate":
+                project.setCompletionDate(parseDate(value));
+                break;
+            case "architectid":
+                project.setArchitectID(parseInt(field, value));
+                break;
+            case "contractorid":
+                project.setContractorID(parseInt(field, value));
+                break;
+            case "customerid":
+                project.setCustomerID(parseInt(field, value));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + field);
+        }
+    }
+
+    /**
+     * Copies one field from one project to another.
+     *
+     * @param from the project to copy from
+     * @param to the project to copy to
+     * @param field the field to copy
+     */
+    static void copy(Project from, Project to, Project.Field field) {
+        switch (field) {
+            case NAME:
+                to.setName(from.getName());
+                break;
+            case TYPE:
+                to.setType(from.getType());
+                break;
+            case ADDRESS:
+                to.setAddress(from.getAddress());
+                break;
+            case ERF_NO:
+                to.setErfNo(from.getErfNo());
+                break;
+            case TOTAL_FEE:
+                to.setTotalFee(from.getTotalFee());
+                break;
+            case AMOUNT_PAID:
+                to.setAmountPaid(from.getAmountPaid());
+                break;
+            case DEADLINE:
+                to.setDeadline(from.getDeadline());
+                break;
+            case FINALISED:
+                to.setFinalised(from.isFinalised());
+                break;
+            case COMPLETION_DATE:
+                to.setCompletionDate(from.getCompletionDate());
+                break;
+            case ARCHITECT_ID:
+                to.setArchitectID(from.getArchitectID());
+                break;
+            case CONTRACTOR_ID:
+                to.setContractorID(from.getContractorID());
+                break;
+            case CUSTOMER_ID:
+                to.setCustomerID(from.getCustomerID());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + field);
+        }
+    }
+
+    /**
+     * Applies the changed fields of one project on top of a newer copy of the same row.
+     *
+     * @param changes the project whose dirty fields are wanted
+     * @param current the row to apply them to, as last read from the database
+     * @return a copy of {@code current} at its version, with the changed fields set and dirty
+     */
+    static Project merge(Project changes, Project current) {
+        Project merged = new Project(current);
+        for (Project.Field field : changes.getDirtyFields()) {
+            copy(changes, merged, field);
+        }
+        return merged;
+    }
+
+    private static double parseDouble(String field, String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NullPointerException | NumberFormatException e) {
+            throw new IllegalArgumentException(field + " must be a number");
+        }
+    }
+
+    private static int parseInt(String field, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " must be a whole number");
+        }
+    }
+
+    private static boolean parseBoolean(String field, String value) {
+        if ("true".equalsIgnoreCase(value)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return false;
+        }
+        throw new IllegalArgumentException(field + " must be true or false");
+    }
+
+    private static String parseDate(String value) {
+        return value == null ? null : LocalDate.parse(value).toString();
+    }
+}
@@ -0,0 +1,117 @@
+package pms;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a project listing, with the tokens needed to fetch the pages
+ * either side of it.
+ *
+ * Tokens record the sort key of the row at the edge of the page, so the next
+ * query seeks straight to it through the index instead of skipping rows with OFFSET.
+ */
+public class ProjectPage {
+    private final List<Project> projects;
+    private final String nextToken;
+    private final String previousToken;
+
+    /**
+     * Creates a page of projects.
+     *
+     * @param projects the projects on this page, in listing order
+     * @param nextToken the token for the following page, or null if this is the last page
+     * @param previousToken the token for the preceding page, or null if this is the first page
+     */
+    public ProjectPage(List<Project> projects, String nextToken, String previousToken) {
+        this.projects = Collections.unmodifiableList(projects);
+        this.nextToken = nextToken;
+        this.previousToken = previousToken;
+    }
+
+    /**
+     * Gets the projects on this page.
+     *
+     * @return the projects, in listing order
+     */
+    public List<Project> getProjects() {
+        return projects;
+    }
+
+    /**
+     * Gets the token for the following page.
+     *
+     * @return the next page token, or null if this is the last page
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    /**
+     * Gets the token for the preceding page.
+     *
+     * @return the previous page token, or null if this is the first page
+     */
+    public String getPreviousToken() {
+        return previousToken;
+    }
+
+    /**
+     * Checks whether there is a page after this one.
+     *
+     * @return true if there is a next page
+     */
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    /**
+     * Checks whether there is a page before this one.
+     *
+     * @return true if there is a previous page
+     */
+    public boolean hasPrevious() {
+        return previousToken != null;
+    }
+
+    /**
+     * The decoded form of a page token: which way to read and the key to read from.
+     */
+    static final class Token {
+        final boolean forward;
+        final String deadline;
+        final int projectNo;
+
+        Token(boolean forward, String deadline, int projectNo) {
+            this.forward = forward;
+            this.deadline = deadline;
+            this.projectNo = projectNo;
+        }
+
+        /**
+         * Creates a token that reads from the sort key of the given project.
+         */
+        static String of(boolean forward, Project edge) {
+            return new Token(forward, edge.getDeadline(), edge.getProjectNo()).encode();
+        }
+
+        String encode() {
+            String raw = (forward ? "N" : "P") + "|" + projectNo + "|" + (deadline == null ? "" : deadline);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Token decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|", -1);
+                if (parts.length != 3 || !(parts[0].equals("N") || parts[0].equals("P"))) {
+                    throw new IllegalArgumentException("Invalid page token");
+                }
+                return new Token(parts[0].equals("N"), parts[2].isEmpty() ? null : parts[2], Integer.parseInt(parts[1]));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid page token: " + token, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package pms;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory copy of the Project table that can answer the {@link ProjectDAO}
+ * reads without a database round trip.
+ *
+ * The replica is loaded once and then kept current by listening to the writes made
+ * through the DAO; changes made to the database by other programs are not seen until
+ * it is loaded again. It keeps a hash index on project number and name, the open and
+ * finalised projects in separate maps, and the open projects in deadline order so
+ * that overdue projects are a range of that index.
+ *
+ * Projects are copied on the way in and out, so callers may change the objects they
+ * get back without affecting the replica.
+ */
+public class ProjectReplica implements ProjectChangeListener {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Project> byNumber = new HashMap<>();
+    private final Map<String, TreeSet<Integer>> numbersByName = new HashMap<>();
+    private final NavigableMap<Integer, Project> open = new TreeMap<>();
+    private final NavigableMap<Integer, Project> finalised = new TreeMap<>();
+    private final NavigableMap<DeadlineKey, Project> openByDeadline = new TreeMap<>();
+    private final Map<Integer, String[]> customers = new HashMap<>();
+    private final Map<Integer, String[]> architects = new HashMap<>();
+    private final Map<Integer, String[]> contractors = new HashMap<>();
+
+    /**
+     * Loads every project, with the names of its people, from the database.
+     *
+     * @return the loaded replica
+     * @throws SQLException if a database access error occurs
+     */
+    public static ProjectReplica load() throws SQLException {
+        ProjectReplica replica = new ProjectReplica();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            loadPeople(conn, "SELECT CustomerID, firstName, lastName FROM Customer", replica.customers);
+            loadPeople(conn, "SELECT ArchitectID, firstName, lastName FROM Architect", replica.architects);
+            loadPeople(conn, "SELECT ContractorID, firstName, lastName FROM Contractor", replica.contractors);
+            try (PreparedStatement stmt = conn.prepareStatement(Projection.FULL.query(""), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(DatabaseConnection.pool().getFetchSize());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    ProjectRowMapper mapper = new ProjectRowMapper(rs);
+                    while (rs.next()) {
+                        replica.insert(mapper.map(rs));
+                    }
+                }
+            }
+        }
+        return replica;
+    }
+
+    static void loadPeople(Connection conn, String query, Map<Integer, String[]> people) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                people.put(rs.getInt(1), new String[] { rs.getString(2), rs.getString(3) });
+            }
+        }
+    }
+
+    /**
+     * Finds a project by its number.
+     *
+     * @param projectNo the project number
+     * @return a copy of the project, or null if there is none
+     */
+    public Project findByNumber(int projectNo) {
+        lock.readLock().lock();
+        try {
+            return copy(byNumber.get(projectNo));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds a project by its name. When several projects share a name, the one with
+     * the lowest number is returned.
+     *
+     * @param name the project name
+     * @return a copy of the project, or null if there is none
+     */
+    public Project findByName(String name) {
+        lock.readLock().lock();
+        try {
+            TreeSet<Integer> numbers = numbersByName.get(name);
+            return numbers == null ? null : copy(byNumber.get(numbers.first()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the projects that are not yet finalized, in project number order.
+     *
+     * @return copies of the incomplete projects
+     */
+    public List<Project> getIncompleteProjects() {
+        lock.readLock().lock();
+        try {
+            return copyAll(open.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the open projects whose deadline is before today, in deadline order.
+     *
+     * @return copies of the overdue projects
+     */
+    public List<Project> getOverdueProjects() {
+        lock.readLock().lock();
+        try {
+            return copyAll(overdue().values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads rows for a keyset page, in the same order the matching SQL page query
+     * would return them.
+     *
+     * @param overdueOnly true for the overdue listing, false for the incomplete listing
+     * @param token the page token to seek from, or null for the first page
+     * @param limit the largest number of rows to return
+     * @return copies of the projects, ascending when reading forwards and descending when reading backwards
+     */
+    List<Project> page(boolean overdueOnly, ProjectPage.Token token, int limit) {
+        lock.readLock().lock();
+        try {
+            Collection<Project> rows;
+            if (overdueOnly) {
+                NavigableMap<DeadlineKey, Project> overdue = overdue();
+                if (token == null) {
+                    rows = overdue.values();
+                } else {
+                    DeadlineKey key = new DeadlineKey(token.deadline, token.projectNo);
+                    rows = token.forward ? overdue.tailMap(key, false).values()
+                                         : overdue.headMap(key, false).descendingMap().values();
+                }
+            } else if (token == null) {
+                rows = open.values();
+            } else {
+                rows = token.forward ? open.tailMap(token.projectNo, false).values()
+                                     : open.headMap(token.projectNo, false).descendingMap().values();
+            }
+            List<Project> page = new ArrayList<>();
+            for (Project project : rows) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.add(new Project(project));
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of projects in the replica.
+     *
+     * @return the project count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byNumber.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of projects that have been finalized.
+     *
+     * @return the finalised project count
+     */
+    public int finalisedCount() {
+        lock.readLock().lock();
+        try {
+            return finalised.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectAdded(Project project) {
+        if (project.getProjectNo() <= 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            insert(withNames(new Project(project)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectUpdated(Project project) {
+        lock.writeLock().lock();
+        try {
+            if (remove(project.getProjectNo()) != null) {
+                insert(withNames(new Project(project)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectFinalized(int projectNo, String completionDate) {
+        lock.writeLock().lock();
+        try {
+            Project project = remove(projectNo);
+            if (project != null) {
+                project.setFinalised(true);
+                project.setCompletionDate(completionDate);
+                project.setVersion(project.getVersion() + 1);
+                project.markClean();
+                insert(project);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectDeleted(int projectNo) {
+        lock.writeLock().lock();
+        try {
+            remove(projectNo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the range of the deadline index that is before today.
+     */
+    private NavigableMap<DeadlineKey, Project> overdue() {
+        return openByDeadline.headMap(new DeadlineKey(LocalDate.now().toString(), Integer.MIN_VALUE), false);
+    }
+
+    /**
+     * Adds a project to every index. The caller holds the write lock or owns the replica.
+     */
+    private void insert(Project project) {
+        int projectNo = project.getProjectNo();
+        remove(projectNo);
+        byNumber.put(projectNo, project);
+        numbersByName.computeIfAbsent(project.getName(), name -> new TreeSet<>()).add(projectNo);
+        if (project.isFinalised()) {
+            finalised.put(projectNo, project);
+        } else {
+            open.put(projectNo, project);
+            if (project.getDeadline() != null) {
+                openByDeadline.put(new DeadlineKey(project.getDeadline(), projectNo), project);
+            }
+        }
+    }
+
+    /**
+     * Removes a project from every index. The caller holds the write lock or owns the replica.
+     */
+    private Project remove(int projectNo) {
+        Project project = byNumber.remove(projectNo);
+        if (project == null) {
+            return null;
+        }
+        TreeSet<Integer> numbers = numbersByName.get(project.getName());
+        if (numbers != null) {
+            numbers.remove(projectNo);
+            if (numbers.isEmpty()) {
+                numbersByName.remove(project.getName());
+            }
+        }
+        open.remove(projectNo);
+        finalised.remove(projectNo);
+        if (project.getDeadline() != null) {
+            openByDeadline.remove(new DeadlineKey(project.getDeadline(), projectNo));
+        }
+        return project;
+    }
+
+    /**
+     * Fills in the names of a project's people from the person tables read at load time.
+     */
+    private Project withNames(Project project) {
+        String[] customer = customers.get(project.getCustomerID());
+        String[] architect = architects.get(project.getArchitectID());
+        String[] contractor = contractors.get(project.getContractorID());
+        if (customer != null) {
+            project.setCustomerFirstName(customer[0]);
+            project.setCustomerLastName(customer[1]);
+        }
+        if (architect != null) {
+            project.setArchitectFirstName(architect[0]);
+            project.setArchitectLastName(architect[1]);
+        }
+        if (contractor != null) {
+            project.setContractorFirstName(contractor[0]);
+            project.setContractorLastName(contractor[1]);
+        }
+        return project;
+    }
+
+    private static Project copy(Project project) {
+        return project == null ? null : new Project(project);
+    }
+
+    private static List<Project> copyAll(Collection<Project> projects) {
+        List<Project> copies = new ArrayList<>(projects.size());
+        for (Project project : projects) {
+            copies.add(new Project(project));
+        }
+        return copies;
+    }
+
+    /**
+     * Sort key of the deadline index: the deadline, then the project number.
+     * Deadlines are ISO dates, so comparing them as strings orders them by date.
+     */
+    private static final class DeadlineKey implements Comparable<DeadlineKey> {
+        final String deadline;
+        final int projectNo;
+
+        DeadlineKey(String deadline, int projectNo) {
+            this.deadline = deadline;
+            this.projectNo = projectNo;
+        }
+
+        @Override
+        public int compareTo(DeadlineKey other) {
+            int byDeadline = deadline.compareTo(other.deadline);
+            return byDeadline != 0 ? byDeadline : Integer.compare(projectNo, other.projectNo);
+        }
+    }
+}
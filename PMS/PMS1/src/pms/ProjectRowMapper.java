@@ -0,0 +1,134 @@
+package pms;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns rows of a project query into Project objects.
+ *
+ * The column positions are looked up once, when the mapper is created for a
+ * result set, and every row is then read by position. The customer, architect
+ * and contractor names, and the row version, are read when the query selects them.
+ */
+final class ProjectRowMapper {
+    private final int projectNo;
+    private final int name;
+    private final int type;
+    private final int address;
+    private final int erfNo;
+    private final int totalFee;
+    private final int amountPaid;
+    private final int deadline;
+    private final int finalised;
+    private final int completionDate;
+    private final int architectID;
+    private final int contractorID;
+    private final int customerID;
+    private final int customerFirstName;
+    private final int customerLastName;
+    private final int architectFirstName;
+    private final int architectLastName;
+    private final int contractorFirstName;
+    private final int contractorLastName;
+    private final int version;
+
+    /**
+     * Creates a mapper for the columns of the given result set.
+     *
+     * @param rs the result set the mapper will read
+     * @throws SQLException if a required project column is missing
+     */
+    ProjectRowMapper(ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = meta.getColumnCount(); i >= 1; i--) {
+            // Walk backwards so the first column with a given label wins
+            columns.put(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        projectNo = required(columns, "ProjectNo");
+        name = required(columns, "Name");
+        type = required(columns, "Type");
+        address = required(columns, "Address");
+        erfNo = required(columns, "ERFNo");
+        totalFee = required(columns, "TotalFee");
+        amountPaid = required(columns, "AmountPaid");
+        deadline = required(columns, "Deadline");
+        finalised = required(columns, "Finalised");
+        completionDate = required(columns, "CompletionDate");
+        architectID = required(columns, "ArchitectID");
+        contractorID = required(columns, "ContractorID");
+        customerID = required(columns, "CustomerID");
+        customerFirstName = optional(columns, "customerFirstName");
+        customerLastName = optional(columns, "customerLastName");
+        architectFirstName = optional(columns, "architectFirstName");
+        architectLastName = optional(columns, "architectLastName");
+        contractorFirstName = optional(columns, "contractorFirstName");
+        contractorLastName = optional(columns, "contractorLastName");
+        version = optional(columns, "Version");
+    }
+
+    /**
+     * Builds a Project from the current row.
+     *
+     * @param rs the result set positioned on a row
+     * @return the project on that row
+     * @throws SQLException if a database access error occurs
+     */
+    Project map(ResultSet rs) throws SQLException {
+        Project project = new Project(
+            rs.getInt(projectNo),
+            rs.getString(name),
+            rs.getString(type),
+            rs.getString(address),
+            rs.getString(erfNo),
+            rs.getDouble(totalFee),
+            rs.getDouble(amountPaid),
+            rs.getString(deadline),
+            rs.getBoolean(finalised),
+            rs.getString(completionDate),
+            rs.getInt(architectID),
+            rs.getInt(contractorID),
+            rs.getInt(customerID)
+        );
+        if (customerFirstName > 0) {
+            project.setCustomerFirstName(rs.getString(customerFirstName));
+        }
+        if (customerLastName > 0) {
+            project.setCustomerLastName(rs.getString(customerLastName));
+        }
+        if (architectFirstName > 0) {
+            project.setArchitectFirstName(rs.getString(architectFirstName));
+        }
+        if (architectLastName > 0) {
+            project.setArchitectLastName(rs.getString(architectLastName));
+        }
+        if (contractorFirstName > 0) {
+            project.setContractorFirstName(rs.getString(contractorFirstName));
+        }
+        if (contractorLastName > 0) {
+            project.setContractorLastName(rs.getString(contractorLastName));
+        }
+        if (version > 0) {
+            project.setVersion(rs.getInt(version));
+        }
+        project.markClean();
+        return project;
+    }
+
+    private static int required(Map<String, Integer> columns, String label) throws SQLException {
+        Integer index = columns.get(label.toLowerCase(Locale.ROOT));
+        if (index == null) {
+            throw new SQLException("Project query does not select column " + label);
+        }
+        return index;
+    }
+
+    private static int optional(Map<String, Integer> columns, String label) {
+        Integer index = columns.get(label.toLowerCase(Locale.ROOT));
+        return index == null ? 0 : index;
+    }
+}
@@ -0,0 +1,557 @@
+package pms;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory trigram index over project names, customer surnames and addresses,
+ * for finding projects from part of a name or a misspelt one.
+ *
+ * Text is split into words, lower-cased, and each word is broken into overlapping
+ * three-character grams, with a marker for the start of the word so that short
+ * prefixes match and one for the end so that whole words rank above longer ones.
+ * Every gram has a sorted array of the numbers of the projects containing it.
+ *
+ * A search looks up the grams of the query. Projects rank by how many of the query's
+ * grams they contain, then by how many of those are in the project name, then by
+ * project number, and must contain at least {@value #MIN_COVERAGE_PERCENT}% of them.
+ * Such a project must be in one of the arrays of the rarest grams, so only those
+ * arrays are walked, and the other arrays are searched for the projects found. Once
+ * enough matches are found, the weakest of them sets the share a project needs, and
+ * fewer arrays are walked; the walk stops once every match has the whole query in its
+ * name. The last word of the query is treated as a prefix still being typed.
+ *
+ * Like {@link ProjectReplica}, the index is loaded once and then kept current by the
+ * writes made through the DAO.
+ */
+public class ProjectSearchIndex implements ProjectChangeListener {
+    static final int MIN_COVERAGE_PERCENT = 40;
+
+    private static final char WORD_START = '\u0001';
+    private static final char WORD_END = '\u0002';
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<Integer, String> surnames = new HashMap<>();
+
+    /**
+     * Indexes every project in the database.
+     *
+     * @return the loaded index
+     * @throws SQLException if a database access error occurs
+     */
+    public static ProjectSearchIndex load() throws SQLException {
+        ProjectSearchIndex index = new ProjectSearchIndex();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT CustomerID, lastName FROM Customer");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    index.surnames.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+            String query = "SELECT ProjectNo, Name, Address, CustomerID FROM Project ORDER BY ProjectNo";
+            try (PreparedStatement stmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(DatabaseConnection.pool().getFetchSize());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int customerID = rs.getInt(4);
+                        index.insert(new Entry(rs.getInt(1), rs.getString(2), index.surnames.get(customerID), rs.getString(3), customerID));
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Finds the projects that best match a name, surname or address typed in full or
+     * in part, best match first.
+     *
+     * @param query the text to search for
+     * @param limit the most matches to return
+     * @return the matches; empty if the query has no letters or digits
+     */
+    public List<Match> search(String query, int limit) {
+        long[] grams = grams(query, true);
+        if (grams.length == 0 || limit < 1) {
+            return new ArrayList<>();
+        }
+        int n = grams.length;
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, (a, b) -> compare(b, a));
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[n];
+            for (int i = 0; i < n; i++) {
+                Postings list = postings.get(grams[i]);
+                lists[i] = list != null ? list : Postings.EMPTY;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            int[] positions = new int[n];
+            int needed = Math.max(1, (n * MIN_COVERAGE_PERCENT + 99) / 100);
+            // A project in none of the rarest n - needed + 1 lists cannot reach the
+            // needed number of grams, so only those lists are walked
+            int walked = n - needed + 1;
+            while (true) {
+                int projectNo = Integer.MAX_VALUE;
+                for (int i = 0; i < walked; i++) {
+                    if (positions[i] < lists[i].size) {
+                        projectNo = Math.min(projectNo, lists[i].projects[positions[i]]);
+                    }
+                }
+                if (projectNo == Integer.MAX_VALUE) {
+                    break;
+                }
+                int matched = 0;
+                for (int i = 0; i < walked; i++) {
+                    if (positions[i] < lists[i].size && lists[i].projects[positions[i]] == projectNo) {
+                        positions[i]++;
+                        matched++;
+                    }
+                }
+                if (matched + n - walked < needed) {
+                    continue;
+                }
+                Entry entry = entries.get(projectNo);
+                int nameMatched = countCommon(grams, entry.nameGrams);
+                // Looking up the project is cheaper than searching the other arrays, so
+                // first check that it could rank high enough if it were in all of them
+                if (best.size() == limit && !beats(matched + n - walked, nameMatched, best.peek())) {
+                    continue;
+                }
+                for (int i = walked; i < n && matched + n - i >= needed; i++) {
+                    if (lists[i].contains(projectNo, positions, i)) {
+                        matched++;
+                    }
+                }
+                if (matched < needed || (best.size() == limit && !beats(matched, nameMatched, best.peek()))) {
+                    continue;
+                }
+                best.add(new Match(entry.projectNo, entry.name, entry.surname, entry.address, (double) matched / n,
+                                   matched, nameMatched));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+                if (best.size() == limit) {
+                    Match weakest = best.peek();
+                    if (weakest.nameMatched == n) {
+                        // Every match has the whole query in its name, and ties go to the earlier project
+                        break;
+                    }
+                    if (weakest.matched > needed) {
+                        // Only projects matching as many grams as the weakest match can now join
+                        needed = weakest.matched;
+                        walked = n - needed + 1;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(ProjectSearchIndex::compare);
+        return matches;
+    }
+
+    /**
+     * Checks whether a project found after a match would rank above it. Projects are
+     * found in ascending number order, so a tie goes to the earlier match.
+     */
+    private static boolean beats(int matched, int nameMatched, Match match) {
+        if (matched != match.matched) {
+            return matched > match.matched;
+        }
+        return nameMatched > match.nameMatched;
+    }
+
+    /**
+     * Orders matches by the grams they match, then the grams matched in the name, then
+     * project number.
+     */
+    private static int compare(Match a, Match b) {
+        int order = Integer.compare(b.matched, a.matched);
+        if (order == 0) {
+            order = Integer.compare(b.nameMatched, a.nameMatched);
+        }
+        return order != 0 ? order : Integer.compare(a.projectNo, b.projectNo);
+    }
+
+    /**
+     * Gets the number of projects indexed.
+     *
+     * @return the number of projects
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectAdded(Project project) {
+        if (project.getProjectNo() <= 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            insert(new Entry(project.getProjectNo(), project.getName(), surname(project, null), project.getAddress(), project.getCustomerID()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectUpdated(Project project) {
+        lock.writeLock().lock();
+        try {
+            // A project not indexed before was missed, so it is indexed now
+            Entry old = entries.get(project.getProjectNo());
+            Entry entry = new Entry(project.getProjectNo(), project.getName(), surname(project, old), project.getAddress(), project.getCustomerID());
+            if (old == null || !entry.sameText(old)) {
+                insert(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void projectFinalized(int projectNo, String completionDate) {
+        // Finalised projects can still be found
+    }
+
+    @Override
+    public void projectDeleted(int projectNo) {
+        lock.writeLock().lock();
+        try {
+            remove(projectNo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the surname of a project's customer: the one loaded with the project if
+     * there is one, else the one read at load time, else the one already indexed.
+     */
+    private String surname(Project project, Entry old) {
+        if (project.getCustomerLastName() != null) {
+            return project.getCustomerLastName();
+        }
+        String surname = surnames.get(project.getCustomerID());
+        if (surname == null && old != null && old.customerID == project.getCustomerID()) {
+            surname = old.surname;
+        }
+        return surname;
+    }
+
+    /**
+     * Adds a project to the gram arrays, replacing any earlier entry. The caller holds
+     * the write lock or owns the index.
+     */
+    private void insert(Entry entry) {
+        remove(entry.projectNo);
+        entries.put(entry.projectNo, entry);
+        for (long gram : entry.grams) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(entry.projectNo);
+        }
+    }
+
+    /**
+     * Removes a project from the gram arrays. The caller holds the write lock or owns the index.
+     */
+    private void remove(int projectNo) {
+        Entry entry = entries.remove(projectNo);
+        if (entry == null) {
+            return;
+        }
+        for (long gram : entry.grams) {
+            Postings list = postings.get(gram);
+            if (list != null && list.remove(projectNo) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Breaks text into the sorted, distinct grams of its words.
+     *
+     * @param text the text to break up
+     * @param lastIsPrefix whether the last word may be incomplete, so gets no end marker
+     */
+    static long[] grams(String text, boolean lastIsPrefix) {
+        if (text == null) {
+            return new long[0];
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int lastWordEnd = lower.length();
+        while (lastWordEnd > 0 && !Character.isLetterOrDigit(lower.charAt(lastWordEnd - 1))) {
+            lastWordEnd--;
+        }
+        long[] grams = new long[lower.length() + 8];
+        int count = 0;
+        int i = 0;
+        while (i < lower.length()) {
+            while (i < lower.length() && !Character.isLetterOrDigit(lower.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < lower.length() && Character.isLetterOrDigit(lower.charAt(i))) {
+                i++;
+            }
+            if (start == i) {
+                break;
+            }
+            boolean ended = !lastIsPrefix || i < lastWordEnd;
+            // The word with its markers: ^word$, or ^word while it is still being typed
+            int length = i - start + (ended ? 2 : 1);
+            if (length < 3) {
+                continue;
+            }
+            if (count + length > grams.length) {
+                grams = Arrays.copyOf(grams, Math.max(grams.length * 2, count + length));
+            }
+            for (int g = 0; g + 3 <= length; g++) {
+                grams[count++] = pack(charAt(lower, start, i, ended, g), charAt(lower, start, i, ended, g + 1),
+                                      charAt(lower, start, i, ended, g + 2));
+            }
+        }
+        Arrays.sort(grams, 0, count);
+        int unique = 0;
+        for (int g = 0; g < count; g++) {
+            if (unique == 0 || grams[unique - 1] != grams[g]) {
+                grams[unique++] = grams[g];
+            }
+        }
+        return Arrays.copyOf(grams, unique);
+    }
+
+    /**
+     * Gets a character of a word with its start marker in front and, if it has
+     * ended, its end marker after it.
+     */
+    private static char charAt(String text, int start, int end, boolean ended, int position) {
+        if (position == 0) {
+            return WORD_START;
+        }
+        int index = start + position - 1;
+        return index < end ? text.charAt(index) : WORD_END;
+    }
+
+    private static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    /**
+     * Counts the values two sorted arrays have in common.
+     */
+    private static int countCommon(long[] a, long[] b) {
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        long[] all = new long[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                all[n++] = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                all[n++] = b[j++];
+            } else {
+                all[n++] = a[i++];
+                j++;
+            }
+        }
+        return n == all.length ? all : Arrays.copyOf(all, n);
+    }
+
+    /**
+     * A project found by {@link ProjectSearchIndex#search(String, int)}.
+     */
+    public static final class Match {
+        private final int projectNo;
+        private final String name;
+        private final String customerLastName;
+        private final String address;
+        private final double score;
+        private final int matched;
+        private final int nameMatched;
+
+        Match(int projectNo, String name, String customerLastName, String address, double score,
+              int matched, int nameMatched) {
+            this.projectNo = projectNo;
+            this.name = name;
+            this.customerLastName = customerLastName;
+            this.address = address;
+            this.score = score;
+            this.matched = matched;
+            this.nameMatched = nameMatched;
+        }
+
+        /**
+         * Gets the project number.
+         *
+         * @return the project number
+         */
+        public int getProjectNo() {
+            return projectNo;
+        }
+
+        /**
+         * Gets the project name.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the customer's surname.
+         *
+         * @return the surname, or null if it is not known
+         */
+        public String getCustomerLastName() {
+            return customerLastName;
+        }
+
+        /**
+         * Gets the project address.
+         *
+         * @return the address
+         */
+        public String getAddress() {
+            return address;
+        }
+
+        /**
+         * Gets the share of the query's grams the project contains, from
+         * {@value ProjectSearchIndex#MIN_COVERAGE_PERCENT}% to 1.
+         *
+         * @return the score
+         */
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + projectNo + " " + name + " (" + (customerLastName == null ? "" : customerLastName + ", ")
+                   + (address == null ? "" : address) + ")";
+        }
+    }
+
+    /**
+     * The indexed text of one project and its grams.
+     */
+    private static final class Entry {
+        final int projectNo;
+        final String name;
+        final String surname;
+        final String address;
+        final int customerID;
+        final long[] nameGrams;
+        final long[] grams;
+
+        Entry(int projectNo, String name, String surname, String address, int customerID) {
+            this.projectNo = projectNo;
+            this.name = name;
+            this.surname = surname;
+            this.address = address;
+            this.customerID = customerID;
+            this.nameGrams = ProjectSearchIndex.grams(name, false);
+            this.grams = union(union(nameGrams, ProjectSearchIndex.grams(surname, false)), ProjectSearchIndex.grams(address, false));
+        }
+
+        boolean sameText(Entry other) {
+            return customerID == other.customerID && Objects.equals(name, other.name)
+                   && Objects.equals(surname, other.surname) && Objects.equals(address, other.address);
+        }
+    }
+
+    /**
+     * The numbers of the projects containing one gram, in ascending order. Projects
+     * are usually added in number order, which appends to the end.
+     */
+    private static final class Postings {
+        static final Postings EMPTY = new Postings();
+
+        int[] projects = new int[4];
+        int size;
+
+        /**
+         * Checks whether a project is in the list. Projects are checked in ascending
+         * order, so the search starts where the last one for this list ended.
+         */
+        boolean contains(int projectNo, int[] positions, int list) {
+            int from = positions[list];
+            if (from >= size || projects[from] > projectNo) {
+                return false;
+            }
+            // Gallop forward from the last position, then search the range found
+            int step = 1;
+            while (from + step < size && projects[from + step] < projectNo) {
+                from += step;
+                step <<= 1;
+            }
+            int at = Arrays.binarySearch(projects, from, Math.min(size, from + step + 1), projectNo);
+            positions[list] = at >= 0 ? at + 1 : -at - 1;
+            return at >= 0;
+        }
+
+        void add(int projectNo) {
+            int at = size == 0 || projects[size - 1] < projectNo ? size : Arrays.binarySearch(projects, 0, size, projectNo);
+            if (at >= 0 && at < size) {
+                return;
+            }
+            int insertAt = at >= 0 ? at : -at - 1;
+            if (size == projects.length) {
+                projects = Arrays.copyOf(projects, size * 2);
+            }
+            System.arraycopy(projects, insertAt, projects, insertAt + 1, size - insertAt);
+            projects[insertAt] = projectNo;
+            size++;
+        }
+
+        boolean remove(int projectNo) {
+            int at = Arrays.binarySearch(projects, 0, size, projectNo);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(projects, at + 1, projects, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package pms;
+
+/**
+ * Chooses which columns a project query returns.
+ */
+public enum Projection {
+    /**
+     * Every project column plus the first and last names of the customer, architect
+     * and contractor, joined from their tables. Projects whose customer, architect or
+     * contractor row is missing are left out by the joins.
+     */
+    FULL("SELECT p.*, c.firstName AS customerFirstName, c.lastName AS customerLastName, " +
+         "a.firstName AS architectFirstName, a.lastName AS architectLastName, " +
+         "ct.firstName AS contractorFirstName, ct.lastName AS contractorLastName " +
+         "FROM Project p " +
+         "JOIN Customer c ON p.CustomerID = c.CustomerID " +
+         "JOIN Architect a ON p.ArchitectID = a.ArchitectID " +
+         "JOIN Contractor ct ON p.ContractorID = ct.ContractorID "),
+
+    /**
+     * Only the columns of the Project table, read without any joins. The person
+     * names on the returned projects are null.
+     */
+    LEAN("SELECT p.* FROM Project p ");
+
+    private final String select;
+
+    Projection(String select) {
+        this.select = select;
+    }
+
+    /**
+     * Builds a query from this projection's SELECT and FROM clauses and the given conditions.
+     *
+     * @param conditions the WHERE, ORDER BY and LIMIT clauses
+     * @return the full query
+     */
+    String query(String conditions) {
+        return select + conditions;
+    }
+}
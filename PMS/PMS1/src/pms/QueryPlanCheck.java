@@ -0,0 +1,117 @@
+package pms;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Runs EXPLAIN on each query issued by {@link ProjectDAO} and {@link ReportDAO} and
+ * reports any query that would read the whole of a table it selects from instead of
+ * using an index.
+ *
+ * Only the rows of the plan named for each query are checked. The person tables
+ * joined to Project are small, and the optimizer may scan one and look Project up by
+ * its foreign key, which is a good plan. In {@link ProjectDAO#CREATE_PROJECT} the
+ * person tables are the ones checked, since each must be found by its primary key.
+ *
+ * The reports add up every project, or every overdue one, in a derived table and join
+ * the person names onto the groups, so the derived table is always read whole. For
+ * them the person table must be joined by its primary key, and the overdue reports
+ * must find the overdue projects by index. {@link ReportDAO#OUTSTANDING_BY_CUSTOMER}
+ * reads every project by design, and {@link ReportDAO#PROJECTS_BY_TYPE} reads nothing
+ * else, so their Project rows are not checked and the second is left out.
+ *
+ * Updates are built for each set of changed fields, but they differ only in their SET
+ * list, so one changed field with and without the version check stands for them all.
+ *
+ * The optimizer may prefer a full scan on a table with only a handful of rows,
+ * so run the check against a database holding a realistic amount of data.
+ */
+public class QueryPlanCheck {
+    private static final List<CheckedQuery> QUERIES = Arrays.asList(
+        new CheckedQuery("findProjectByNumber", "p", Projection.FULL.query(ProjectDAO.BY_NUMBER), 1),
+        new CheckedQuery("findProjectByName", "p", Projection.FULL.query(ProjectDAO.BY_NAME), "House Tyson"),
+        new CheckedQuery("getIncompleteProjects", "p", Projection.FULL.query(ProjectDAO.INCOMPLETE)),
+        new CheckedQuery("getOverdueProjects", "p", Projection.FULL.query(ProjectDAO.OVERDUE)),
+        new CheckedQuery("getIncompleteProjectsPage (first)", "p", Projection.FULL.query(ProjectDAO.INCOMPLETE_FIRST_PAGE), 21),
+        new CheckedQuery("getIncompleteProjectsPage (next)", "p", Projection.FULL.query(ProjectDAO.INCOMPLETE_PAGE_AFTER), 1, 21),
+        new CheckedQuery("getIncompleteProjectsPage (previous)", "p", Projection.FULL.query(ProjectDAO.INCOMPLETE_PAGE_BEFORE), 100, 21),
+        new CheckedQuery("getOverdueProjectsPage (first)", "p", Projection.FULL.query(ProjectDAO.OVERDUE_FIRST_PAGE), 21),
+        new CheckedQuery("getOverdueProjectsPage (next)", "p", Projection.FULL.query(ProjectDAO.OVERDUE_PAGE_AFTER), "2000-01-01", "2000-01-01", 1, 21),
+        new CheckedQuery("getOverdueProjectsPage (previous)", "p", Projection.FULL.query(ProjectDAO.OVERDUE_PAGE_BEFORE), "2099-01-01", "2099-01-01", 100, 21),
+        new CheckedQuery("updateProject", "Project", ProjectDAO.updateStatement(EnumSet.of(Project.Field.AMOUNT_PAID), false), 0, 1),
+        new CheckedQuery("updateProjectIfCurrent", "Project", ProjectDAO.updateStatement(EnumSet.of(Project.Field.AMOUNT_PAID), true), 0, 1, 0),
+        new CheckedQuery("finalizeProject", "Project", ProjectDAO.FINALIZE_PROJECT, "2000-01-01", 1),
+        new CheckedQuery("finalizeProjectIfCurrent", "Project", ProjectDAO.FINALIZE_PROJECT_IF_CURRENT, "2000-01-01", 1, 0),
+        new CheckedQuery("deleteProject", "Project", ProjectDAO.DELETE_PROJECT, 1),
+        new CheckedQuery("deleteProjectIfCurrent", "Project", ProjectDAO.DELETE_PROJECT_IF_CURRENT, 1, 0),
+        new CheckedQuery("getCustomerSurnameByID", "Customer", "SELECT lastName FROM Customer WHERE CustomerID = ?", 1),
+        new CheckedQuery("createProject", "c,a,ct", ProjectDAO.CREATE_PROJECT,
+                         "", "House", "House", "1 Main Road", "ERF1", 0, 0, "2099-01-01", false, null, 1, 1, 1),
+        new CheckedQuery("createProject (generated name)", "Project", ProjectDAO.CREATED_NAME, 1),
+        new CheckedQuery("getOutstandingByCustomer", "c", ReportDAO.OUTSTANDING_BY_CUSTOMER),
+        new CheckedQuery("getOverdueByArchitect", "Project,a", ReportDAO.OVERDUE_BY_ARCHITECT),
+        new CheckedQuery("getOverdueByContractor", "Project,co", ReportDAO.OVERDUE_BY_CONTRACTOR)
+    );
+
+    /**
+     * Explains every DAO query and collects the ones that fall back to a full table scan.
+     *
+     * @return one message per full scan found; empty if every query uses an index
+     * @throws SQLException if a database access error occurs
+     */
+    public List<String> run() throws SQLException {
+        List<String> failures = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (CheckedQuery query : QUERIES) {
+                try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + query.sql)) {
+                    for (int i = 0; i < query.parameters.length; i++) {
+                        if (query.parameters[i] == null) {
+                            stmt.setNull(i + 1, Types.VARCHAR);
+                        } else {
+                            stmt.setObject(i + 1, query.parameters[i]);
+                        }
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            String table = rs.getString("table");
+                            if (table != null && query.tables.contains(table.toLowerCase(Locale.ROOT))
+                                    && "ALL".equalsIgnoreCase(rs.getString("type"))) {
+                                failures.add(query.name + ": full scan of " + table
+                                        + " (possible keys: " + rs.getString("possible_keys") + ")");
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * A DAO query, the tables or aliases whose plan rows must use an index (separated
+     * by commas), and sample parameter values to explain it with.
+     */
+    private static final class CheckedQuery {
+        final String name;
+        final Set<String> tables;
+        final String sql;
+        final Object[] parameters;
+
+        CheckedQuery(String name, String tables, String sql, Object... parameters) {
+            this.name = name;
+            this.tables = new HashSet<>(Arrays.asList(tables.toLowerCase(Locale.ROOT).split(",")));
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+}
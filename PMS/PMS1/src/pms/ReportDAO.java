@@ -0,0 +1,117 @@
+package pms;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads portfolio summaries from the database.
+ *
+ * Every report is a GROUP BY query run by the database, so only one row per group is
+ * sent back rather than the projects themselves. Projects are grouped on their own
+ * table first and the person names are joined onto the groups afterwards.
+ */
+public class ReportDAO {
+    static final String OUTSTANDING_BY_CUSTOMER =
+        "SELECT c.CustomerID, c.firstName, c.lastName, t.projects, t.amount " +
+        "FROM (SELECT CustomerID, COUNT(*) AS projects, SUM(COALESCE(TotalFee, 0) - COALESCE(AmountPaid, 0)) AS amount " +
+        "      FROM Project GROUP BY CustomerID) t " +
+        "JOIN Customer c ON c.CustomerID = t.CustomerID " +
+        "ORDER BY t.amount DESC, c.CustomerID";
+
+    static final String OVERDUE_BY_ARCHITECT =
+        "SELECT a.ArchitectID, a.firstName, a.lastName, t.projects, t.amount " +
+        "FROM (SELECT ArchitectID, COUNT(*) AS projects, SUM(COALESCE(TotalFee, 0) - COALESCE(AmountPaid, 0)) AS amount " +
+        "      FROM Project WHERE Finalised = false AND Deadline < CURDATE() GROUP BY ArchitectID) t " +
+        "JOIN Architect a ON a.ArchitectID = t.ArchitectID " +
+        "ORDER BY t.projects DESC, a.ArchitectID";
+
+    static final String OVERDUE_BY_CONTRACTOR =
+        "SELECT co.ContractorID, co.firstName, co.lastName, t.projects, t.amount " +
+        "FROM (SELECT ContractorID, COUNT(*) AS projects, SUM(COALESCE(TotalFee, 0) - COALESCE(AmountPaid, 0)) AS amount " +
+        "      FROM Project WHERE Finalised = false AND Deadline < CURDATE() GROUP BY ContractorID) t " +
+        "JOIN Contractor co ON co.ContractorID = t.ContractorID " +
+        "ORDER BY t.projects DESC, co.ContractorID";
+
+    static final String PROJECTS_BY_TYPE =
+        "SELECT COALESCE(Type, '(none)'), COUNT(*), SUM(COALESCE(TotalFee, 0)) " +
+        "FROM Project GROUP BY Type ORDER BY COUNT(*) DESC, Type";
+
+    private static final DaoMetrics OUTSTANDING_BY_CUSTOMER_METRICS = DaoMetrics.forOperation("getOutstandingByCustomer");
+    private static final DaoMetrics OVERDUE_BY_ARCHITECT_METRICS = DaoMetrics.forOperation("getOverdueByArchitect");
+    private static final DaoMetrics OVERDUE_BY_CONTRACTOR_METRICS = DaoMetrics.forOperation("getOverdueByContractor");
+    private static final DaoMetrics PROJECTS_BY_TYPE_METRICS = DaoMetrics.forOperation("getProjectsByType");
+
+    /**
+     * Gets the unpaid balance (total fee less amount paid) of each customer's projects,
+     * largest balance first.
+     *
+     * @return one row per customer with projects; the amount is the outstanding balance
+     * @throws SQLException if a database access error occurs
+     */
+    public List<ReportRow> getOutstandingByCustomer() throws SQLException {
+        return personReport(OUTSTANDING_BY_CUSTOMER_METRICS, OUTSTANDING_BY_CUSTOMER);
+    }
+
+    /**
+     * Gets the number of overdue projects of each architect, most overdue projects first.
+     *
+     * @return one row per architect with overdue projects; the amount is their outstanding balance
+     * @throws SQLException if a database access error occurs
+     */
+    public List<ReportRow> getOverdueByArchitect() throws SQLException {
+        return personReport(OVERDUE_BY_ARCHITECT_METRICS, OVERDUE_BY_ARCHITECT);
+    }
+
+    /**
+     * Gets the number of overdue projects of each contractor, most overdue projects first.
+     *
+     * @return one row per contractor with overdue projects; the amount is their outstanding balance
+     * @throws SQLException if a database access error occurs
+     */
+    public List<ReportRow> getOverdueByContractor() throws SQLException {
+        return personReport(OVERDUE_BY_CONTRACTOR_METRICS, OVERDUE_BY_CONTRACTOR);
+    }
+
+    /**
+     * Gets the number of projects of each type, most common type first.
+     *
+     * @return one row per project type; the amount is the total fees of that type
+     * @throws SQLException if a database access error occurs
+     */
+    public List<ReportRow> getProjectsByType() throws SQLException {
+        List<ReportRow> rows = new ArrayList<>();
+        try (DaoMetrics.Sample sample = PROJECTS_BY_TYPE_METRICS.start();
+             Connection conn = sample.connect();
+             PreparedStatement stmt = conn.prepareStatement(PROJECTS_BY_TYPE);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                rows.add(new ReportRow(0, rs.getString(1), rs.getInt(2), rs.getBigDecimal(3)));
+            }
+            sample.complete(rows.size());
+        }
+        return rows;
+    }
+
+    /**
+     * Runs a report whose columns are the person's ID, first name and last name, then
+     * the project count and amount of the group.
+     */
+    private List<ReportRow> personReport(DaoMetrics metrics, String query) throws SQLException {
+        List<ReportRow> rows = new ArrayList<>();
+        try (DaoMetrics.Sample sample = metrics.start();
+             Connection conn = sample.connect();
+             PreparedStatement stmt = conn.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String label = rs.getString(2) + " " + rs.getString(3);
+                rows.add(new ReportRow(rs.getInt(1), label, rs.getInt(4), rs.getBigDecimal(5)));
+            }
+            sample.complete(rows.size());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,70 @@
+package pms;
+
+import java.math.BigDecimal;
+
+/**
+ * One group of a {@link ReportDAO} report: the group's key, a display label, the
+ * number of projects in the group and a money total for the group.
+ */
+public class ReportRow {
+    private final int id;
+    private final String label;
+    private final int projectCount;
+    private final BigDecimal amount;
+
+    /**
+     * Constructs a report row.
+     *
+     * @param id the ID of the person the group belongs to, or 0 if the group is not a person
+     * @param label the display label of the group
+     * @param projectCount the number of projects in the group
+     * @param amount the money total of the group
+     */
+    public ReportRow(int id, String label, int projectCount, BigDecimal amount) {
+        this.id = id;
+        this.label = label;
+        this.projectCount = projectCount;
+        this.amount = amount == null ? BigDecimal.ZERO : amount;
+    }
+
+    /**
+     * Gets the ID of the person the group belongs to.
+     *
+     * @return the customer, architect or contractor ID, or 0 if the group is not a person
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the display label of the group.
+     *
+     * @return the label
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Gets the number of projects in the group.
+     *
+     * @return the project count
+     */
+    public int getProjectCount() {
+        return projectCount;
+    }
+
+    /**
+     * Gets the money total of the group. What it adds up depends on the report.
+     *
+     * @return the amount
+     */
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-30s %5d  %,15.2f", label, projectCount, amount);
+    }
+}
@@ -0,0 +1,181 @@
+package pms;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Brings the database schema up to date by applying numbered migrations in order.
+ *
+ * The versions already applied are recorded in the {@code schema_version} table, so
+ * each migration runs once per database. A MySQL named lock keeps two application
+ * instances from migrating the same database at the same time.
+ */
+public class SchemaMigrator {
+    private static final String LOCK_NAME = "pms_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+    /** MySQL error code for "Duplicate key name", raised when an index already exists. */
+    private static final int ER_DUP_KEYNAME = 1061;
+    /** MySQL error code for "Duplicate column name", raised when a column already exists. */
+    private static final int ER_DUP_FIELDNAME = 1060;
+
+    /** The migrations shipped with the application, in version order. */
+    static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+        new Migration(1, "Index the open-project, overdue and name lookups",
+            "CREATE INDEX idx_project_open ON Project (Finalised, ProjectNo)",
+            "CREATE INDEX idx_project_open_deadline ON Project (Finalised, Deadline, ProjectNo)",
+            "CREATE INDEX idx_project_name ON Project (Name)"),
+        new Migration(2, "Add a row version to Project for optimistic concurrency",
+            "ALTER TABLE Project ADD COLUMN Version int NOT NULL DEFAULT 0")
+    ));
+
+    /**
+     * Applies every migration that has not yet been applied to the database.
+     *
+     * @return the migrations that were applied by this call
+     * @throws SQLException if a migration fails or a database access error occurs
+     */
+    public List<Migration> migrate() throws SQLException {
+        List<Migration> applied = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            acquireLock(conn);
+            try {
+                createVersionTable(conn);
+                int current = currentVersion(conn);
+                for (Migration migration : MIGRATIONS) {
+                    if (migration.getVersion() > current) {
+                        apply(conn, migration);
+                        applied.add(migration);
+                    }
+                }
+            } finally {
+                releaseLock(conn);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Gets the highest migration version applied to the database.
+     *
+     * @return the schema version, or 0 if no migration has been applied
+     * @throws SQLException if a database access error occurs
+     */
+    public int currentVersion() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            createVersionTable(conn);
+            return currentVersion(conn);
+        }
+    }
+
+    private void createVersionTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (" +
+                               "version int NOT NULL, " +
+                               "description varchar(255) NOT NULL, " +
+                               "applied_on timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                               "PRIMARY KEY (version))");
+        }
+    }
+
+    private int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : migration.getStatements()) {
+                try {
+                    stmt.executeUpdate(sql);
+                } catch (SQLException e) {
+                    // DDL is not transactional in MySQL, so an earlier interrupted run may
+                    // have created some of the indexes or columns already
+                    if (e.getErrorCode() != ER_DUP_KEYNAME && e.getErrorCode() != ER_DUP_FIELDNAME) {
+                        throw new SQLException("Migration " + migration.getVersion() + " failed on: " + sql, e);
+                    }
+                }
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+            stmt.setInt(1, migration.getVersion());
+            stmt.setString(2, migration.getDescription());
+            stmt.executeUpdate();
+        }
+    }
+
+    private void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another instance to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        }
+    }
+
+    /**
+     * One numbered change to the schema.
+     */
+    public static final class Migration {
+        private final int version;
+        private final String description;
+        private final List<String> statements;
+
+        Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = Collections.unmodifiableList(Arrays.asList(statements));
+        }
+
+        /**
+         * Gets the migration's version number.
+         *
+         * @return the version
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * Gets what the migration does.
+         *
+         * @return the description
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Gets the SQL statements the migration runs.
+         *
+         * @return the statements, in order
+         */
+        public List<String> getStatements() {
+            return statements;
+        }
+
+        @Override
+        public String toString() {
+            return "V" + version + ": " + description;
+        }
+    }
+}
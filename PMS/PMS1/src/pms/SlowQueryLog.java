@@ -0,0 +1,806 @@
+package pms;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records DAO calls that take longer than a threshold to a rotating log file, with
+ * the SQL and parameters of each statement the call ran and the plan the database
+ * chose for it.
+ *
+ * While the log is started, {@link DaoMetrics.Sample#connect()} hands the DAO a
+ * connection that notes the SQL, bound parameters and time of every statement. When
+ * a call ends over the threshold its statements are queued, and a background thread
+ * runs EXPLAIN for them on a connection of its own and appends the entry to the log,
+ * so the slow call returns as soon as it would have without the log. If the queue is
+ * full the entry is dropped and counted.
+ *
+ * Entries are written like the MySQL slow query log, so they can be read as they
+ * are:
+ *
+ * <pre>
+ * # Time: 2024-05-01T09:30:12.345Z
+ * # Operation: getOverdueProjects  Call_ms: 812.402  Rows_sent: 15234  Rows_examined_est: 1000000  Status: ok
+ * # Statement_ms: 811.977  Rows_examined_est: 1000000  Parameters: []
+ * # Plan: table=p type=ALL rows=1000000 filtered=1.5 Extra=Using where
+ * SELECT ... WHERE p.Deadline &lt; CURDATE() AND p.Finalised = false;
+ * </pre>
+ *
+ * {@code Rows_sent} is the number of rows the call returned or changed. The database
+ * is not asked how many rows it read while the call runs, since that would cost the
+ * call extra statements, so {@code Rows_examined_est} is worked out from the plan: each
+ * table's {@code rows} estimate, times the rows its earlier tables in the same join
+ * pass on after their {@code filtered} share, times the batch size of a batch. It is
+ * left out when the plan has no {@code rows} column.
+ *
+ * When the file reaches its size limit it is renamed with a {@code .1} suffix, older
+ * files move up one number, and the oldest is deleted. {@link #topShapes(Path, int, int)}
+ * reads the files back and groups the statements by their SQL.
+ */
+public class SlowQueryLog implements AutoCloseable {
+    private static final int QUEUE_SIZE = 1024;
+    private static final int MAX_STATEMENTS = 8;
+    private static final int MAX_PARAMETER_LENGTH = 200;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private static volatile SlowQueryLog active;
+
+    private final Path file;
+    private final long thresholdNanos;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final ThreadPoolExecutor writer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong logged = new AtomicLong();
+    private BufferedWriter out;
+    private long size;
+
+    /**
+     * Creates a log. Nothing is recorded until it is {@link #start(SlowQueryLog) started}.
+     *
+     * @param file the log file
+     * @param thresholdMillis calls taking at least this long are logged
+     * @param maxBytes the size at which the file is rotated
+     * @param maxFiles the number of files kept, including the current one
+     */
+    public SlowQueryLog(Path file, long thresholdMillis, long maxBytes, int maxFiles) {
+        this.file = file;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, thresholdMillis));
+        this.maxBytes = Math.max(4096, maxBytes);
+        this.maxFiles = Math.max(1, maxFiles);
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+            Thread thread = new Thread(runnable, "pms-slow-query-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a log from the {@code pms.slowlog.*} settings.
+     *
+     * @param config the application configuration
+     * @return the log
+     */
+    public static SlowQueryLog fromConfig(AppConfig config) {
+        return new SlowQueryLog(file(config),
+                config.getLong("pms.slowlog.thresholdMillis", 500L),
+                config.getLong("pms.slowlog.maxBytes", 10L << 20),
+                config.getInt("pms.slowlog.maxFiles", 5));
+    }
+
+    /**
+     * Gets the log file named by the {@code pms.slowlog.file} setting.
+     *
+     * @param config the application configuration
+     * @return the log file
+     */
+    static Path file(AppConfig config) {
+        return Paths.get(config.getString("pms.slowlog.file", "slow-query.log"));
+    }
+
+    /**
+     * Makes a log the one that DAO calls are recorded to, closing the previous one.
+     *
+     * @param log the log to record to, or null to stop recording
+     */
+    public static synchronized void start(SlowQueryLog log) {
+        SlowQueryLog old = active;
+        active = log;
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    /**
+     * Stops recording and writes out the entries already queued.
+     */
+    public static void stop() {
+        start(null);
+    }
+
+    /**
+     * Gets the log DAO calls are recorded to.
+     *
+     * @return the log, or null if slow calls are not being logged
+     */
+    static SlowQueryLog active() {
+        return active;
+    }
+
+    /**
+     * Gets the number of entries written.
+     *
+     * @return the entry count
+     */
+    public long getLogged() {
+        return logged.get();
+    }
+
+    /**
+     * Gets the number of entries dropped because the queue was full.
+     *
+     * @return the dropped count
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops taking entries and waits for the queued ones to be written.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Slow query log: gave up waiting for " + writer.getQueue().size() + " entries");
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (dropped.get() > 0) {
+            System.err.println("Slow query log: " + dropped.get() + " entries dropped because the queue was full");
+        }
+        synchronized (this) {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close the slow query log: " + e.getMessage());
+                }
+                out = null;
+            }
+        }
+    }
+
+    /**
+     * Starts tracing the statements of one DAO call.
+     *
+     * @return the trace to wrap the call's connection with
+     */
+    Trace newTrace() {
+        return new Trace();
+    }
+
+    /**
+     * Queues an entry for the background thread, or counts it as dropped.
+     */
+    private void submit(Entry entry) {
+        try {
+            writer.execute(() -> write(entry));
+        } catch (RejectedExecutionException e) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Explains the statements of an entry and appends it to the log. Runs on the
+     * background thread only.
+     */
+    private void write(Entry entry) {
+        StringBuilder text = new StringBuilder(512);
+        text.append("# Time: ").append(entry.time).append('\n');
+        List<Plan> plans = explain(entry.statements);
+        long[] examined = new long[plans.size()];
+        long totalExamined = -1;
+        for (int i = 0; i < plans.size(); i++) {
+            int batchSize = entry.statements.get(i).batchSize;
+            examined[i] = plans.get(i).rowsExamined < 0 ? -1 : plans.get(i).rowsExamined * Math.max(1, batchSize);
+            if (examined[i] >= 0) {
+                totalExamined = Math.max(0, totalExamined) + examined[i];
+            }
+        }
+        text.append("# Operation: ").append(entry.operation)
+            .append("  Call_ms: ").append(millis(entry.elapsedNanos))
+            .append("  Rows_sent: ").append(entry.rows);
+        if (totalExamined >= 0) {
+            text.append("  Rows_examined_est: ").append(totalExamined);
+        }
+        text.append("  Status: ").append(entry.completed ? "ok" : "error").append('\n');
+        for (int i = 0; i < entry.statements.size(); i++) {
+            StatementTrace statement = entry.statements.get(i);
+            text.append("# Statement_ms: ").append(millis(statement.elapsedNanos));
+            if (statement.batchSize > 0) {
+                text.append("  Batch: ").append(statement.batchSize);
+            }
+            if (examined[i] >= 0) {
+                text.append("  Rows_examined_est: ").append(examined[i]);
+            }
+            text.append("  Parameters: ").append(formatParameters(statement.parameters)).append('\n');
+            text.append("# Plan: ").append(plans.get(i).text).append('\n');
+            text.append(oneLine(statement.sql)).append(";\n");
+        }
+        synchronized (this) {
+            try {
+                append(text.toString());
+                logged.incrementAndGet();
+            } catch (IOException e) {
+                System.err.println("Could not write the slow query log: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs EXPLAIN for each statement with the parameters it was run with.
+     */
+    private static List<Plan> explain(List<StatementTrace> statements) {
+        List<Plan> plans = new ArrayList<>(statements.size());
+        Connection conn = null;
+        try {
+            for (StatementTrace statement : statements) {
+                if (!isExplainable(statement.sql)) {
+                    plans.add(new Plan("(not explained)", -1));
+                    continue;
+                }
+                if (conn == null) {
+                    conn = DatabaseConnection.getConnection();
+                }
+                try {
+                    plans.add(explain(conn, statement));
+                } catch (SQLException e) {
+                    plans.add(new Plan("(unavailable: " + oneLine(e.getMessage()) + ")", -1));
+                }
+            }
+        } catch (SQLException e) {
+            while (plans.size() < statements.size()) {
+                plans.add(new Plan("(unavailable: " + oneLine(e.getMessage()) + ")", -1));
+            }
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Could not release connection: " + e.getMessage());
+                }
+            }
+        }
+        return plans;
+    }
+
+    private static Plan explain(Connection conn, StatementTrace statement) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + statement.sql)) {
+            for (int i = 0; i < statement.parameters.length; i++) {
+                if (statement.parameters[i] == null) {
+                    stmt.setNull(i + 1, Types.VARCHAR);
+                } else {
+                    stmt.setObject(i + 1, statement.parameters[i]);
+                }
+            }
+            StringBuilder plan = new StringBuilder();
+            RowsExamined examined = new RowsExamined();
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                while (rs.next()) {
+                    if (plan.length() > 0) {
+                        plan.append(" | ");
+                    }
+                    String id = null;
+                    String rows = null;
+                    String filtered = null;
+                    boolean first = true;
+                    for (int c = 1; c <= meta.getColumnCount(); c++) {
+                        String value = rs.getString(c);
+                        String label = meta.getColumnLabel(c);
+                        if (label.equalsIgnoreCase("id")) {
+                            id = value;
+                        } else if (label.equalsIgnoreCase("rows")) {
+                            rows = value;
+                        } else if (label.equalsIgnoreCase("filtered")) {
+                            filtered = value;
+                        }
+                        // The id and select_type of a single-table plan say nothing
+                        if (value == null || label.equalsIgnoreCase("id") || label.equalsIgnoreCase("select_type")) {
+                            continue;
+                        }
+                        if (!first) {
+                            plan.append(' ');
+                        }
+                        plan.append(label).append('=').append(oneLine(value));
+                        first = false;
+                    }
+                    examined.add(id, rows, filtered);
+                }
+            }
+            return new Plan(plan.length() == 0 ? "(empty)" : plan.toString(), examined.total());
+        }
+    }
+
+    private static boolean isExplainable(String sql) {
+        String start = sql.stripLeading();
+        int end = 0;
+        while (end < start.length() && Character.isLetter(start.charAt(end))) {
+            end++;
+        }
+        switch (start.substring(0, end).toUpperCase(Locale.ROOT)) {
+            case "SELECT":
+            case "INSERT":
+            case "UPDATE":
+            case "DELETE":
+            case "REPLACE":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Appends text to the log, rotating the files first if it would not fit.
+     */
+    private void append(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (out == null) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            size = Files.exists(file) ? Files.size(file) : 0;
+        }
+        if (size > 0 && size + bytes.length > maxBytes) {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            rotate();
+            size = 0;
+        }
+        if (out == null) {
+            out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        out.write(text);
+        out.flush();
+        size += bytes.length;
+    }
+
+    private void rotate() throws IOException {
+        Files.deleteIfExists(rotated(file, maxFiles - 1));
+        for (int i = maxFiles - 2; i >= 1; i--) {
+            Path from = rotated(file, i);
+            if (Files.exists(from)) {
+                Files.move(from, rotated(file, i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 1) {
+            Files.move(file, rotated(file, 1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+    }
+
+    private static Path rotated(Path file, int index) {
+        return index == 0 ? file : file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    /**
+     * Reads a log and its rotated files and groups the logged statements by their
+     * SQL text, slowest in total first.
+     *
+     * @param file the log file
+     * @param maxFiles the number of rotated files to look for
+     * @param limit the most shapes to return
+     * @return the slowest query shapes
+     * @throws IOException if a file cannot be read
+     */
+    public static List<QueryShape> topShapes(Path file, int maxFiles, int limit) throws IOException {
+        Map<String, QueryShape> shapes = new HashMap<>();
+        for (int i = Math.max(1, maxFiles) - 1; i >= 0; i--) {
+            Path path = rotated(file, i);
+            if (!Files.exists(path)) {
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                readShapes(reader, shapes);
+            }
+        }
+        List<QueryShape> sorted = new ArrayList<>(shapes.values());
+        sorted.sort((a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+        return sorted.subList(0, Math.min(Math.max(0, limit), sorted.size()));
+    }
+
+    private static void readShapes(BufferedReader reader, Map<String, QueryShape> shapes) throws IOException {
+        String operation = null;
+        long statementNanos = -1;
+        String plan = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("# Operation: ")) {
+                operation = field(line, "Operation");
+            } else if (line.startsWith("# Statement_ms: ")) {
+                statementNanos = parseMillis(field(line, "Statement_ms"));
+            } else if (line.startsWith("# Plan: ")) {
+                plan = line.substring("# Plan: ".length());
+            } else if (!line.startsWith("#") && !line.isEmpty() && statementNanos >= 0) {
+                String sql = line.endsWith(";") ? line.substring(0, line.length() - 1) : line;
+                QueryShape shape = shapes.computeIfAbsent(sql, QueryShape::new);
+                shape.add(operation, statementNanos, plan);
+                statementNanos = -1;
+                plan = null;
+            }
+        }
+    }
+
+    /**
+     * Gets the value after {@code name:} on a header line, up to the next double space.
+     */
+    private static String field(String line, String name) {
+        int start = line.indexOf(name + ": ");
+        if (start < 0) {
+            return null;
+        }
+        start += name.length() + 2;
+        int end = line.indexOf("  ", start);
+        return end < 0 ? line.substring(start) : line.substring(start, end);
+    }
+
+    private static long parseMillis(String text) {
+        try {
+            return Math.round(Double.parseDouble(text) * 1_000_000);
+        } catch (NumberFormatException | NullPointerException e) {
+            return -1;
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static String oneLine(String text) {
+        return text == null ? "" : text.replaceAll("\\s+", " ").trim();
+    }
+
+    private static String formatParameters(Object[] parameters) {
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            Object value = parameters[i];
+            if (value == null) {
+                text.append("NULL");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                text.append(value);
+            } else {
+                String string = oneLine(value.toString());
+                if (string.length() > MAX_PARAMETER_LENGTH) {
+                    string = string.substring(0, MAX_PARAMETER_LENGTH) + "...";
+                }
+                text.append('\'').append(string.replace("'", "''")).append('\'');
+            }
+        }
+        return text.append(']').toString();
+    }
+
+    /**
+     * One slow call waiting to be written.
+     */
+    private static final class Entry {
+        final Instant time = Instant.now();
+        final String operation;
+        final long elapsedNanos;
+        final long rows;
+        final boolean completed;
+        final List<StatementTrace> statements;
+
+        Entry(String operation, long elapsedNanos, long rows, boolean completed, List<StatementTrace> statements) {
+            this.operation = operation;
+            this.elapsedNanos = elapsedNanos;
+            this.rows = rows;
+            this.completed = completed;
+            this.statements = statements;
+        }
+    }
+
+    /**
+     * The plan of one statement as logged, and the rows it estimates reading.
+     */
+    private static final class Plan {
+        final String text;
+        /** The estimated rows read, or -1 if the plan does not say. */
+        final long rowsExamined;
+
+        Plan(String text, long rowsExamined) {
+            this.text = text;
+            this.rowsExamined = rowsExamined;
+        }
+    }
+
+    /**
+     * Adds up the rows a plan estimates reading, one plan row at a time. The tables of
+     * one select are joined in the order listed, so each table is read once for every
+     * row its earlier tables pass on; a new select id starts a new join.
+     */
+    static final class RowsExamined {
+        private String id;
+        private double passedOn = 1;
+        private double total;
+        private boolean known;
+
+        /**
+         * Adds one row of the plan.
+         *
+         * @param id the select id, or null
+         * @param rows the {@code rows} estimate, or null if the plan has none
+         * @param filtered the {@code filtered} percentage, or null
+         */
+        void add(String id, String rows, String filtered) {
+            if (id == null || !id.equals(this.id)) {
+                passedOn = 1;
+            }
+            this.id = id;
+            double read;
+            try {
+                read = rows == null ? -1 : Double.parseDouble(rows);
+            } catch (NumberFormatException e) {
+                read = -1;
+            }
+            if (read < 0) {
+                return;
+            }
+            double share = 1;
+            try {
+                share = filtered == null ? 1 : Double.parseDouble(filtered) / 100;
+            } catch (NumberFormatException e) {
+                // count every row as passed on
+            }
+            total += passedOn * read;
+            passedOn *= read * share;
+            known = true;
+        }
+
+        /**
+         * Gets the estimate.
+         *
+         * @return the estimated rows read, or -1 if no row of the plan had an estimate
+         */
+        long total() {
+            return known ? Math.round(total) : -1;
+        }
+    }
+
+    /**
+     * A statement run by a traced call, with the parameters bound when it ran.
+     */
+    private static final class StatementTrace {
+        final String sql;
+        final Object[] parameters;
+        final long elapsedNanos;
+        final int batchSize;
+
+        StatementTrace(String sql, Object[] parameters, long elapsedNanos, int batchSize) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.elapsedNanos = elapsedNanos;
+            this.batchSize = batchSize;
+        }
+    }
+
+    /**
+     * The statements run by one DAO call. A trace is used by the thread making the call.
+     */
+    final class Trace {
+        private final List<StatementTrace> statements = new ArrayList<>(2);
+        private int skipped;
+
+        /**
+         * Wraps a connection so that the statements prepared on it are traced.
+         *
+         * @param conn the connection to wrap
+         * @return the tracing connection; closing it closes the given connection
+         */
+        Connection wrap(Connection conn) {
+            return (Connection) Proxy.newProxyInstance(
+                    SlowQueryLog.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    (proxy, method, args) -> {
+                        Object result = invoke(conn, method, args);
+                        if (method.getName().equals("prepareStatement") && result instanceof PreparedStatement) {
+                            return traceStatement((PreparedStatement) result, (String) args[0]);
+                        }
+                        return result;
+                    });
+        }
+
+        /**
+         * Logs the call if it took at least the threshold.
+         *
+         * @param operation the DAO operation name
+         * @param elapsedNanos how long the call took
+         * @param rows the rows the call returned or changed, logged as {@code Rows_sent}
+         * @param completed whether the call succeeded
+         */
+        void finish(String operation, long elapsedNanos, long rows, boolean completed) {
+            if (elapsedNanos < thresholdNanos || statements.isEmpty()) {
+                return;
+            }
+            if (skipped > 0) {
+                System.err.println("Slow query log: " + skipped + " statements of " + operation + " not logged");
+            }
+            submit(new Entry(operation, elapsedNanos, rows, completed, statements));
+        }
+
+        private PreparedStatement traceStatement(PreparedStatement stmt, String sql) {
+            Object[][] parameters = { new Object[0] };
+            int[] batch = { 0 };
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    SlowQueryLog.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                            int index = (Integer) args[0];
+                            if (index > parameters[0].length) {
+                                parameters[0] = Arrays.copyOf(parameters[0], index);
+                            }
+                            parameters[0][index - 1] = name.equals("setNull") ? null : args[1];
+                        } else if (name.equals("clearParameters")) {
+                            parameters[0] = new Object[0];
+                        } else if (name.equals("addBatch") && args == null) {
+                            batch[0]++;
+                        } else if (name.startsWith("execute") && args == null) {
+                            long start = System.nanoTime();
+                            try {
+                                return invoke(stmt, method, args);
+                            } finally {
+                                record(sql, parameters[0].clone(), System.nanoTime() - start, batch[0]);
+                                batch[0] = 0;
+                            }
+                        }
+                        return invoke(stmt, method, args);
+                    });
+        }
+
+        private void record(String sql, Object[] parameters, long elapsedNanos, int batchSize) {
+            if (statements.size() < MAX_STATEMENTS) {
+                statements.add(new StatementTrace(sql, parameters, elapsedNanos, batchSize));
+            } else {
+                skipped++;
+            }
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The logged statements that share one SQL text.
+     */
+    public static final class QueryShape {
+        private final String sql;
+        private String operation;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private String slowestPlan;
+
+        QueryShape(String sql) {
+            this.sql = sql;
+        }
+
+        void add(String operation, long nanos, String plan) {
+            count++;
+            totalNanos += nanos;
+            if (nanos >= maxNanos) {
+                maxNanos = nanos;
+                slowestPlan = plan;
+                this.operation = operation;
+            }
+        }
+
+        /**
+         * Gets the SQL text, with {@code ?} for each parameter.
+         *
+         * @return the SQL
+         */
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * Gets the DAO operation of the slowest logged run.
+         *
+         * @return the operation name
+         */
+        public String getOperation() {
+            return operation;
+        }
+
+        /**
+         * Gets the number of logged runs.
+         *
+         * @return the run count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the total time of the logged runs.
+         *
+         * @return the total in milliseconds
+         */
+        public double getTotalMillis() {
+            return totalNanos / 1_000_000.0;
+        }
+
+        /**
+         * Gets the mean time of the logged runs.
+         *
+         * @return the mean in milliseconds
+         */
+        public double getMeanMillis() {
+            return count == 0 ? 0 : totalNanos / 1_000_000.0 / count;
+        }
+
+        /**
+         * Gets the time of the slowest logged run.
+         *
+         * @return the maximum in milliseconds
+         */
+        public double getMaxMillis() {
+            return maxNanos / 1_000_000.0;
+        }
+
+        /**
+         * Gets the plan recorded for the slowest logged run.
+         *
+         * @return the plan, or null if none was recorded
+         */
+        public String getSlowestPlan() {
+            return slowestPlan;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package pms;
+
+import java.sql.SQLException;
+
+/**
+ * Wraps a SQLException where a checked exception cannot be thrown, such as
+ * while a stream of projects is being read.
+ */
+public class UncheckedSQLException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates an unchecked wrapper around a SQLException.
+     *
+     * @param cause the SQLException to wrap
+     */
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
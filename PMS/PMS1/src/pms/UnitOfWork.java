@@ -0,0 +1,214 @@
+package pms;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a sequence of {@link ProjectDAO} calls on one connection and in one transaction.
+ *
+ * <pre>
+ * try (UnitOfWork work = UnitOfWork.begin()) {
+ *     projectDAO.updateProject(project);
+ *     projectDAO.finalizeProject(project.getProjectNo(), "2026-10-01");
+ *     work.commit();
+ * }
+ * </pre>
+ *
+ * While the unit of work is open, every DAO call made on the same thread uses its
+ * connection, so the calls share one transaction and are committed together. Closing
+ * the unit of work rolls back anything not committed. After {@link #commit()} or
+ * {@link #rollback()} the unit of work carries on with a new transaction on the same
+ * connection.
+ *
+ * Change listeners such as the cache and replica are told about the DAO's writes only
+ * when they are committed, and not at all if they are rolled back. Until then, DAO
+ * reads on this thread go to the database rather than the cache or replica, so that
+ * they see the unit's own changes.
+ *
+ * DAO methods that manage their own transaction, such as
+ * {@link ProjectDAO#addProjects(Iterable)}, must not be called inside a unit of work.
+ */
+public class UnitOfWork implements AutoCloseable {
+    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+    private final Connection connection;
+    private final List<Runnable> pendingEvents = new ArrayList<>();
+    /** Open savepoints in the order they were set, with the number of events pending at each. */
+    private final Map<Savepoint, Integer> savepoints = new LinkedHashMap<>();
+    private boolean closed;
+
+    private UnitOfWork(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Binds a connection to the current thread and starts a transaction on it.
+     *
+     * @return the unit of work
+     * @throws SQLException if a unit of work is already open on this thread, or a database access error occurs
+     */
+    public static UnitOfWork begin() throws SQLException {
+        if (current.get() != null) {
+            throw new SQLException("A unit of work is already open on this thread");
+        }
+        Connection connection = DatabaseConnection.bind();
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            DatabaseConnection.unbind();
+            throw e;
+        }
+        UnitOfWork work = new UnitOfWork(connection);
+        current.set(work);
+        return work;
+    }
+
+    /**
+     * Gets the unit of work open on the current thread.
+     *
+     * @return the unit of work, or null if there is none
+     */
+    public static UnitOfWork current() {
+        return current.get();
+    }
+
+    /**
+     * Gets the connection the unit of work runs on, for statements outside the DAO.
+     *
+     * @return the connection; do not close it or change its auto-commit mode
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Marks a point in the transaction that {@link #rollbackTo(Savepoint)} can return to.
+     *
+     * @param name the savepoint name
+     * @return the savepoint
+     * @throws SQLException if a database access error occurs
+     */
+    public Savepoint savepoint(String name) throws SQLException {
+        checkOpen();
+        Savepoint savepoint = connection.setSavepoint(name);
+        savepoints.put(savepoint, pendingEvents.size());
+        return savepoint;
+    }
+
+    /**
+     * Undoes the work done since a savepoint, keeping the work done before it. Later
+     * savepoints are discarded.
+     *
+     * @param savepoint the savepoint to return to
+     * @throws SQLException if the savepoint is unknown or a database access error occurs
+     */
+    public void rollbackTo(Savepoint savepoint) throws SQLException {
+        checkOpen();
+        Integer mark = savepoints.get(savepoint);
+        if (mark == null) {
+            throw new SQLException("Unknown or released savepoint");
+        }
+        connection.rollback(savepoint);
+        pendingEvents.subList(mark, pendingEvents.size()).clear();
+        boolean later = false;
+        Iterator<Savepoint> it = savepoints.keySet().iterator();
+        while (it.hasNext()) {
+            if (later) {
+                it.next();
+                it.remove();
+            } else {
+                later = it.next() == savepoint;
+            }
+        }
+    }
+
+    /**
+     * Forgets a savepoint that is no longer needed.
+     *
+     * @param savepoint the savepoint to release
+     * @throws SQLException if a database access error occurs
+     */
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        checkOpen();
+        if (savepoints.remove(savepoint) != null) {
+            connection.releaseSavepoint(savepoint);
+        }
+    }
+
+    /**
+     * Commits the work done so far and tells the change listeners about it.
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    public void commit() throws SQLException {
+        checkOpen();
+        connection.commit();
+        savepoints.clear();
+        List<Runnable> events = new ArrayList<>(pendingEvents);
+        pendingEvents.clear();
+        for (Runnable event : events) {
+            event.run();
+        }
+    }
+
+    /**
+     * Undoes the work done since the last commit.
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    public void rollback() throws SQLException {
+        checkOpen();
+        try {
+            connection.rollback();
+        } finally {
+            savepoints.clear();
+            pendingEvents.clear();
+        }
+    }
+
+    /**
+     * Gets the number of DAO writes made since the last commit or rollback.
+     *
+     * @return the number of uncommitted writes
+     */
+    public int getPendingChanges() {
+        return pendingEvents.size();
+    }
+
+    /**
+     * Rolls back anything not committed and releases the connection.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pendingEvents.clear();
+        savepoints.clear();
+        current.remove();
+        // Returning the connection to the pool rolls back the open transaction
+        DatabaseConnection.unbind();
+    }
+
+    /**
+     * Holds a change-listener notification until the transaction commits.
+     *
+     * @param event the notification to deliver on commit
+     */
+    void defer(Runnable event) {
+        pendingEvents.add(event);
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Unit of work is closed");
+        }
+    }
+}
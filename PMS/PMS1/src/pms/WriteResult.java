@@ -0,0 +1,80 @@
+package pms;
+
+/**
+ * The outcome of a versioned write made with {@link ProjectDAO#updateProjectIfCurrent(Project)},
+ * {@link ProjectDAO#finalizeProjectIfCurrent(int, int, String)} or
+ * {@link ProjectDAO#deleteProjectIfCurrent(int, int)}.
+ */
+public class WriteResult {
+
+    /**
+     * What happened to a versioned write.
+     */
+    public enum Status {
+        /** The row was at the expected version and the write was made. */
+        APPLIED,
+        /** Someone else changed the row first; nothing was written. */
+        CONFLICT,
+        /** The row no longer exists; nothing was written. */
+        NOT_FOUND,
+        /** The project had no changed fields, so nothing was sent. */
+        UNCHANGED
+    }
+
+    private final Status status;
+    private final Project current;
+
+    private WriteResult(Status status, Project current) {
+        this.status = status;
+        this.current = current;
+    }
+
+    static WriteResult applied(Project current) {
+        return new WriteResult(Status.APPLIED, current);
+    }
+
+    static WriteResult conflict(Project current) {
+        return new WriteResult(Status.CONFLICT, current);
+    }
+
+    static WriteResult notFound() {
+        return new WriteResult(Status.NOT_FOUND, null);
+    }
+
+    static WriteResult unchanged(Project current) {
+        return new WriteResult(Status.UNCHANGED, current);
+    }
+
+    /**
+     * Gets what happened to the write.
+     *
+     * @return the status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Tells whether the write was made.
+     *
+     * @return true if the status is {@link Status#APPLIED}
+     */
+    public boolean isApplied() {
+        return status == Status.APPLIED;
+    }
+
+    /**
+     * Gets the project as it now is in the database. After a conflict this is the
+     * other writer's version, read fresh from the database.
+     *
+     * @return the current project, or null if it was not found, deleted, or not read back
+     */
+    public Project getCurrent() {
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteResult{" + status + (current != null ? ", version=" + current.getVersion() : "") + "}";
+    }
+}
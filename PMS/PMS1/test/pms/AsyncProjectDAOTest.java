@@ -0,0 +1,185 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class AsyncProjectDAOTest {
+
+    /**
+     * A ReportDAO whose reports each wait until all four have started, so the reads
+     * only finish if they run at the same time.
+     */
+    private static class BarrierReportDAO extends ReportDAO {
+        private final CyclicBarrier started = new CyclicBarrier(4);
+
+        private List<ReportRow> report(String name) throws SQLException {
+            try {
+                started.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                throw new SQLException(name + " did not run alongside the other reports", e);
+            }
+            return List.of(new ReportRow(0, name, 1, BigDecimal.ONE));
+        }
+
+        @Override
+        public List<ReportRow> getOutstandingByCustomer() throws SQLException {
+            return report("customer");
+        }
+
+        @Override
+        public List<ReportRow> getOverdueByArchitect() throws SQLException {
+            return report("architect");
+        }
+
+        @Override
+        public List<ReportRow> getOverdueByContractor() throws SQLException {
+            return report("contractor");
+        }
+
+        @Override
+        public List<ReportRow> getProjectsByType() throws SQLException {
+            return report("type");
+        }
+    }
+
+    @Test
+    void allReportsRunAtTheSameTime() throws SQLException {
+        try (AsyncProjectDAO async = new AsyncProjectDAO(new ProjectDAO(), 4, 10_000)) {
+            List<List<ReportRow>> reports = Main.loadAllReports(new BarrierReportDAO(), async);
+
+            assertEquals(4, reports.size());
+            assertEquals("customer", reports.get(0).get(0).getLabel());
+            assertEquals("architect", reports.get(1).get(0).getLabel());
+            assertEquals("contractor", reports.get(2).get(0).getLabel());
+            assertEquals("type", reports.get(3).get(0).getLabel());
+        }
+    }
+
+    @Test
+    void failedReportRethrowsItsSQLException() {
+        SQLException failure = new SQLException("boom");
+        ReportDAO failing = new ReportDAO() {
+            @Override
+            public List<ReportRow> getOverdueByArchitect() throws SQLException {
+                throw failure;
+            }
+
+            @Override
+            public List<ReportRow> getOutstandingByCustomer() {
+                return List.of();
+            }
+
+            @Override
+            public List<ReportRow> getOverdueByContractor() {
+                return List.of();
+            }
+
+            @Override
+            public List<ReportRow> getProjectsByType() {
+                return List.of();
+            }
+        };
+        try (AsyncProjectDAO async = new AsyncProjectDAO(new ProjectDAO(), 4, 10_000)) {
+            assertSame(failure, assertThrows(SQLException.class, () -> Main.loadAllReports(failing, async)));
+        }
+    }
+
+    @Test
+    void listingsAndLookupsComeBackTogether() throws SQLException, IOException {
+        TestDatabase.start("async");
+        try {
+            ProjectDAO projectDAO = new ProjectDAO();
+            Project late = TestDatabase.newProject("House Tyson");
+            late.setDeadline("2020-01-01");
+            projectDAO.addProject(late);
+            projectDAO.addProject(TestDatabase.newProject("Barn Smith"));
+            try (AsyncProjectDAO async = new AsyncProjectDAO(projectDAO, 4, 10_000)) {
+                CompletableFuture<List<Project>> incomplete = async.getIncompleteProjects();
+                CompletableFuture<List<Project>> overdue = async.getOverdueProjects();
+                CompletableFuture<Project> found = async.findProjectByNumber(late.getProjectNo());
+                CompletableFuture<Project> missing = async.findProjectByNumber(999);
+
+                assertEquals(2, incomplete.join().size());
+                assertEquals("House Tyson", overdue.join().get(0).getName());
+                assertEquals("House Tyson", found.join().getName());
+                assertNull(missing.join());
+            }
+        } finally {
+            TestDatabase.stop();
+        }
+    }
+
+    @Test
+    void timeoutCancelsStatementWithoutInterrupting() throws Exception {
+        TestDatabase.start("asynccancel");
+        try (AsyncProjectDAO async = new AsyncProjectDAO(new ProjectDAO(), 1, 300)) {
+            DaoMetrics metrics = DaoMetrics.forOperation("slowTestQuery");
+            CountDownLatch started = new CountDownLatch(1);
+            AtomicReference<SQLException> failure = new AtomicReference<>();
+            AtomicBoolean interrupted = new AtomicBoolean();
+            CompletableFuture<Long> slow = async.submit(() -> {
+                try (DaoMetrics.Sample sample = metrics.start();
+                     Connection conn = sample.connect();
+                     Statement stmt = conn.createStatement()) {
+                    started.countDown();
+                    try (ResultSet rs = stmt.executeQuery("SELECT SUM(X) FROM SYSTEM_RANGE(1, 100000000000)")) {
+                        rs.next();
+                        return rs.getLong(1);
+                    }
+                } catch (SQLException e) {
+                    failure.set(e);
+                    interrupted.set(Thread.currentThread().isInterrupted());
+                    throw e;
+                }
+            });
+
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            ExecutionException timedOut = assertThrows(ExecutionException.class, () -> slow.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(TimeoutException.class, timedOut.getCause());
+
+            // The query stops soon after it is cancelled and gives back its permit
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (async.getAvailablePermits() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, async.getAvailablePermits());
+            assertNotNull(failure.get());
+            assertFalse(interrupted.get());
+            assertEquals(1, async.submit(() -> {
+                try (Connection conn = DatabaseConnection.getConnection();
+                     Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT 1")) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            }).join());
+        } finally {
+            TestDatabase.stop();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks how batch scripts are split into words, how commands are grouped into
+ * transactions, that a deadlock reports the rest of its transaction as rolled back,
+ * and both output formats.
+ */
+class BatchRunnerTest {
+    private static final String PEOPLE = " architectID=1 contractorID=1 customerID=1";
+    private static int databases;
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final ProjectDAO projectDAO = new ProjectDAO() {
+        @Override
+        public int createProject(Project project) throws SQLException {
+            if ("deadlock".equals(project.getName())) {
+                throw new SQLException("Deadlock found when trying to get lock", "40001");
+            }
+            return super.createProject(project);
+        }
+    };
+
+    @BeforeEach
+    void startDatabase() throws SQLException, IOException {
+        TestDatabase.start("batch" + databases++);
+    }
+
+    @AfterEach
+    void stopDatabase() throws SQLException {
+        TestDatabase.stop();
+    }
+
+    @Test
+    void tokenizeGroupsQuotedWords() {
+        assertEquals(List.of("add", "name=House Smith", "type=House"),
+                     BatchRunner.tokenize("  add   name=\"House Smith\"\ttype=House "));
+        assertEquals(List.of("name=say \"hi\" \\ bye"), BatchRunner.tokenize("name=\"say \\\"hi\\\" \\\\ bye\""));
+        assertEquals(List.of("find", ""), BatchRunner.tokenize("find \"\""));
+        assertEquals(List.of("a\"b c\""), BatchRunner.tokenize("a\"\\\"b c\\\"\""));
+        assertTrue(BatchRunner.tokenize("   ").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.tokenize("add name=\"House"));
+    }
+
+    @Test
+    void commandsAreCommittedInGroups() throws SQLException, IOException {
+        BatchRunner runner = new BatchRunner(projectDAO, 2, BatchRunner.Format.TSV, printStream());
+
+        boolean ok = runner.run(script(
+            "# three projects, then a commit that ends a short group",
+            "add name=\"House Smith\"" + PEOPLE,
+            "",
+            "add name=Barn" + PEOPLE,
+            "add name=Shed" + PEOPLE,
+            "commit",
+            "find Barn",
+            "bogus 1"));
+
+        assertFalse(ok);
+        assertEquals(4, runner.getSucceeded());
+        assertEquals(1, runner.getFailed());
+        List<String> lines = lines();
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(0).startsWith("2\tok\tadd\t"), lines.get(0));
+        assertTrue(lines.get(1).startsWith("4\tok\tadd\t"), lines.get(1));
+        assertTrue(lines.get(2).startsWith("5\tok\tadd\t"), lines.get(2));
+        // An error is printed at once; the find it follows waits for the end of the script
+        assertEquals("8\terror\tbogus\tUnknown command: bogus", lines.get(3));
+        assertTrue(lines.get(4).startsWith("7\tok\tfind\t{\"projectNo\":"), lines.get(4));
+        assertTrue(lines.get(4).contains("\"name\":\"Barn\""), lines.get(4));
+        assertNotNull(projectDAO.findProjectByName("House Smith"));
+    }
+
+    @Test
+    void deadlockRollsBackTheOpenTransaction() throws SQLException, IOException {
+        BatchRunner runner = new BatchRunner(projectDAO, 3, BatchRunner.Format.TSV, printStream());
+
+        runner.run(script(
+            "add name=One" + PEOPLE,
+            "add name=Two" + PEOPLE,
+            "add name=Three" + PEOPLE,
+            "add name=Four" + PEOPLE,
+            "add name=deadlock" + PEOPLE,
+            "add name=Six" + PEOPLE));
+
+        List<String> lines = lines();
+        assertEquals(6, lines.size());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(lines.get(i).startsWith((i + 1) + "\tok\tadd\t"), lines.get(i));
+        }
+        assertEquals("4\trolledback\tadd\ttransaction rolled back", lines.get(3));
+        assertEquals("5\terror\tadd\tDeadlock found when trying to get lock", lines.get(4));
+        assertTrue(lines.get(5).startsWith("6\tok\tadd\t"), lines.get(5));
+        assertEquals(4, runner.getSucceeded());
+        assertEquals(2, runner.getFailed());
+
+        assertNotNull(projectDAO.findProjectByName("Three"));
+        assertNull(projectDAO.findProjectByName("Four"));
+        assertNotNull(projectDAO.findProjectByName("Six"));
+    }
+
+    @Test
+    void jsonOutputHasOneObjectPerCommand() throws SQLException, IOException {
+        BatchRunner runner = new BatchRunner(projectDAO, 10, BatchRunner.Format.JSON, printStream());
+
+        runner.run(script(
+            "add name=\"House \\\"Tyson\\\"\"" + PEOPLE,
+            "find \"House \\\"Tyson\\\"\"",
+            "update 999 amountPaid=1"));
+
+        List<String> lines = lines();
+        assertEquals(3, lines.size());
+        assertEquals("{\"line\":3,\"status\":\"error\",\"command\":\"update\",\"detail\":\"Project 999 not found\"}",
+                     lines.get(0));
+        int projectNo = projectDAO.findProjectByName("House \"Tyson\"").getProjectNo();
+        assertEquals("{\"line\":1,\"status\":\"ok\",\"command\":\"add\",\"detail\":\"" + projectNo + "\"}", lines.get(1));
+        assertTrue(lines.get(2).startsWith("{\"line\":2,\"status\":\"ok\",\"command\":\"find\",\"project\":{\"projectNo\":"
+                                           + projectNo + ","), lines.get(2));
+        assertTrue(lines.get(2).contains("\"name\":\"House \\\"Tyson\\\"\""), lines.get(2));
+        assertTrue(lines.get(2).endsWith("}}"), lines.get(2));
+    }
+
+    private PrintStream printStream() {
+        return new PrintStream(output, true, StandardCharsets.UTF_8);
+    }
+
+    private List<String> lines() {
+        return Arrays.asList(output.toString(StandardCharsets.UTF_8).split("\\R"));
+    }
+
+    private static BufferedReader script(String... lines) {
+        return new BufferedReader(new StringReader(String.join("\n", lines)));
+    }
+}
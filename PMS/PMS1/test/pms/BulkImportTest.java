@@ -0,0 +1,148 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a bulk import commits each chunk on its own, replays a failed chunk row
+ * by row so that only the bad rows are lost, and reports each bad row.
+ */
+class BulkImportTest {
+    private static int databases;
+
+    private final ProjectDAO projectDAO = new ProjectDAO();
+    private final List<String> added = new ArrayList<>();
+
+    @BeforeEach
+    void startDatabase() throws SQLException, IOException {
+        TestDatabase.start("bulk" + databases++);
+        projectDAO.addChangeListener(new ProjectChangeListener() {
+            @Override
+            public void projectAdded(Project project) {
+                added.add(project.getName());
+            }
+
+            @Override
+            public void projectUpdated(Project project) {
+            }
+
+            @Override
+            public void projectFinalized(int projectNo, String completionDate) {
+            }
+
+            @Override
+            public void projectDeleted(int projectNo) {
+            }
+        });
+    }
+
+    @AfterEach
+    void stopDatabase() throws SQLException {
+        TestDatabase.stop();
+    }
+
+    @Test
+    void insertsEveryRowIncludingShortLastChunk() throws SQLException {
+        List<Project> projects = projects(23);
+
+        BulkImportResult result = projectDAO.addProjects(projects, 10);
+
+        assertEquals(23, result.getInserted());
+        assertEquals(0, result.getFailed());
+        assertEquals(23, projectDAO.getIncompleteProjects().size());
+        for (Project project : projects) {
+            assertTrue(project.getProjectNo() > 0);
+            assertEquals(project.getName(), projectDAO.findProjectByNumber(project.getProjectNo()).getName());
+        }
+        assertEquals(names(projects), added);
+    }
+
+    @Test
+    void failedChunkIsReplayedRowByRow() throws SQLException {
+        List<Project> projects = projects(25);
+        projects.get(12).setCustomerID(99);
+        projects.get(17).setName(null);
+
+        BulkImportResult result = projectDAO.addProjects(projects, 10);
+
+        assertEquals(23, result.getInserted());
+        assertEquals(2, result.getFailed());
+        BulkImportResult.RowError first = result.getErrors().get(0);
+        assertEquals(13, first.getRow());
+        assertEquals("Project 13", first.getName());
+        assertNotNull(first.getMessage());
+        assertEquals(18, result.getErrors().get(1).getRow());
+        assertNull(result.getErrors().get(1).getName());
+
+        assertEquals(23, projectDAO.getIncompleteProjects().size());
+        assertNull(projectDAO.findProjectByName("Project 13"));
+        assertNotNull(projectDAO.findProjectByName("Project 12"));
+        assertNotNull(projectDAO.findProjectByName("Project 14"));
+        assertEquals(23, added.size());
+    }
+
+    @Test
+    void earlierChunksStayCommittedWhenImportStops() throws SQLException {
+        List<Project> projects = projects(25);
+        Iterable<Project> failingAfter15 = () -> new Iterator<Project>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Project next() {
+                if (next == 15) {
+                    throw new IllegalStateException("Input ended early");
+                }
+                return projects.get(next++);
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> projectDAO.addProjects(failingAfter15, 10));
+
+        assertEquals(names(projects.subList(0, 10)), added);
+        assertEquals(10, projectDAO.getIncompleteProjects().size());
+        assertNull(projectDAO.findProjectByName("Project 11"));
+    }
+
+    @Test
+    void refusesToRunInsideUnitOfWork() throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            assertThrows(SQLException.class, () -> projectDAO.addProjects(projects(3), 10));
+        }
+        assertTrue(projectDAO.getIncompleteProjects().isEmpty());
+        assertTrue(added.isEmpty());
+    }
+
+    private static List<Project> projects(int count) {
+        List<Project> projects = new ArrayList<>();
+        for (int n = 1; n <= count; n++) {
+            projects.add(TestDatabase.newProject("Project " + n));
+        }
+        return projects;
+    }
+
+    private static List<String> names(List<Project> projects) {
+        List<String> names = new ArrayList<>();
+        for (Project project : projects) {
+            names.add(project.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,192 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that reopening a journal after a crash drops a record that was only partly
+ * written, that the records appended afterwards read back cleanly, and that old
+ * segments are deleted without losing the records readers still need.
+ */
+class ChangeJournalTest {
+    private static final int SEGMENT_SIZE = ChangeJournal.MIN_SEGMENT_SIZE;
+    /** Makes each record about 60 KB, so a few dozen fill several segments. */
+    private static final String LONG_NAME = "x".repeat(60_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoveryDropsRecordWithBadChecksum() throws IOException {
+        long tornAt;
+        try (ChangeJournal journal = new ChangeJournal(directory, SEGMENT_SIZE)) {
+            journal.projectAdded(project(1, "House Tyson"));
+            journal.projectFinalized(1, "2026-10-01");
+            tornAt = journal.getEndOffset();
+            journal.projectUpdated(project(2, "A much longer project name than the record written after recovery"));
+        }
+        // The length word reached the disk but part of the body did not
+        flipByte(tornAt + ChangeJournal.RECORD_HEADER_SIZE + 20);
+
+        try (ChangeJournal journal = new ChangeJournal(directory, SEGMENT_SIZE)) {
+            assertEquals(tornAt, journal.getEndOffset());
+            journal.projectDeleted(3);
+        }
+
+        List<ChangeRecord> records = readAll();
+        assertEquals(3, records.size());
+        assertEquals(ChangeRecord.Type.ADDED, records.get(0).getType());
+        assertEquals("House Tyson", records.get(0).getProject().getName());
+        assertEquals(ChangeRecord.Type.FINALIZED, records.get(1).getType());
+        assertEquals("2026-10-01", records.get(1).getCompletionDate());
+        assertEquals(ChangeRecord.Type.DELETED, records.get(2).getType());
+        assertEquals(3, records.get(2).getProjectNo());
+        assertEquals(tornAt, records.get(2).getOffset());
+    }
+
+    @Test
+    void recoveryDropsRecordWithLengthPastSegmentEnd() throws IOException {
+        long tornAt;
+        try (ChangeJournal journal = new ChangeJournal(directory, SEGMENT_SIZE)) {
+            journal.projectAdded(project(1, "House Tyson"));
+            tornAt = journal.getEndOffset();
+            journal.projectDeleted(1);
+        }
+        writeInt(tornAt, SEGMENT_SIZE);
+
+        try (ChangeJournal journal = new ChangeJournal(directory, SEGMENT_SIZE)) {
+            assertEquals(tornAt, journal.getEndOffset());
+            journal.projectAdded(project(2, "Barn Smith"));
+        }
+
+        List<ChangeRecord> records = readAll();
+        assertEquals(2, records.size());
+        assertEquals(1, records.get(0).getProjectNo());
+        assertEquals("Barn Smith", records.get(1).getProject().getName());
+    }
+
+    @Test
+    void recoveryKeepsEveryCompleteRecord() throws IOException {
+        long end;
+        try (ChangeJournal journal = new ChangeJournal(directory, SEGMENT_SIZE)) {
+            for (int n = 1; n <= 100; n++) {
+                journal.projectAdded(project(n, "Project " + n));
+            }
+            end = journal.getEndOffset();
+        }
+        try (ChangeJournal journal = new ChangeJournal(directory, SEGMENT_SIZE)) {
+            assertEquals(end, journal.getEndOffset());
+        }
+        assertEquals(100, readAll().size());
+    }
+
+    @Test
+    void retentionKeepsNewestSegments() throws IOException {
+        long end;
+        try (ChangeJournal journal = new ChangeJournal(directory, SEGMENT_SIZE, 2)) {
+            for (int n = 1; n <= 80; n++) {
+                journal.projectAdded(project(n, LONG_NAME + n));
+            }
+            end = journal.getEndOffset();
+            assertEquals(2, ChangeJournal.segments(directory).size());
+        }
+        long oldest = ChangeJournal.segments(directory).firstKey();
+        assertEquals(end / SEGMENT_SIZE - 1, oldest / SEGMENT_SIZE);
+
+        List<ChangeRecord> records = readAll();
+        assertEquals(oldest + ChangeJournal.HEADER_SIZE, records.get(0).getOffset());
+        ChangeRecord last = records.get(records.size() - 1);
+        assertEquals(80, last.getProjectNo());
+        assertEquals(end, last.getNextOffset());
+
+        // Reopening with a smaller number applies it straight away
+        try (ChangeJournal journal = new ChangeJournal(directory, SEGMENT_SIZE, 1)) {
+            assertEquals(end, journal.getEndOffset());
+            assertEquals(1, ChangeJournal.segments(directory).size());
+        }
+    }
+
+    @Test
+    void deleteBeforeKeepsSegmentsReadersNeed() throws IOException {
+        try (ChangeJournal journal = new ChangeJournal(directory, SEGMENT_SIZE)) {
+            for (int n = 1; n <= 50; n++) {
+                journal.projectAdded(project(n, LONG_NAME + n));
+            }
+            List<Long> bases = new ArrayList<>(ChangeJournal.segments(directory).keySet());
+            assertEquals(3, bases.size());
+
+            try (ChangeJournalReader reading = new ChangeJournalReader(directory);
+                 ChangeJournalReader notStarted = new ChangeJournalReader(directory)) {
+                ChangeRecord first = reading.next();
+                assertEquals(0, journal.deleteBefore(bases.get(1) - 1));
+                assertEquals(1, journal.deleteBefore(bases.get(1) + ChangeJournal.HEADER_SIZE));
+                assertEquals(bases.subList(1, 3), new ArrayList<>(ChangeJournal.segments(directory).keySet()));
+
+                // An open segment can still be read to its end after it is deleted
+                int read = 1;
+                while (reading.next() != null) {
+                    read++;
+                }
+                assertEquals(50, read);
+                assertEquals(1, first.getProjectNo());
+                // A reader that had not opened the deleted segment starts at the next one
+                assertEquals(bases.get(1) + ChangeJournal.HEADER_SIZE, notStarted.next().getOffset());
+            }
+
+            // The segment being written is never deleted
+            assertEquals(1, journal.deleteBefore(Long.MAX_VALUE));
+            assertEquals(List.of(bases.get(2)), new ArrayList<>(ChangeJournal.segments(directory).keySet()));
+            journal.projectDeleted(1);
+        }
+        List<ChangeRecord> records = readAll();
+        assertEquals(ChangeRecord.Type.DELETED, records.get(records.size() - 1).getType());
+    }
+
+    private List<ChangeRecord> readAll() throws IOException {
+        List<ChangeRecord> records = new ArrayList<>();
+        try (ChangeJournalReader reader = new ChangeJournalReader(directory)) {
+            ChangeRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+            assertNull(reader.next());
+        }
+        return records;
+    }
+
+    private void flipByte(long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, offset);
+            one.put(0, (byte) ~one.get(0));
+            one.rewind();
+            channel.write(one, offset);
+        }
+    }
+
+    private void writeInt(long offset, int value) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, value), offset);
+        }
+    }
+
+    private Path segmentFile() {
+        return directory.resolve(ChangeJournal.fileName(0));
+    }
+
+    private static Project project(int projectNo, String name) {
+        return new Project(projectNo, name, "House", projectNo + " Main Road", "ERF" + projectNo, 250_000, 10_000,
+                           "2026-12-01", false, null, 1, 2, 3);
+    }
+}
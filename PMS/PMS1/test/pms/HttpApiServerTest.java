@@ -0,0 +1,140 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the server refuses requests with 503 once every pool connection is in
+ * use, rather than letting them wait for a connection.
+ */
+class HttpApiServerTest {
+    private static final int POOL_SIZE = 4;
+    private static int databases;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final HttpClient client = HttpClient.newHttpClient();
+    private CountDownLatch entered;
+    private HttpApiServer server;
+    private int projectNo;
+
+    /**
+     * Holds a connection in every lookup and listing until the test releases them.
+     */
+    private class HoldingProjectDAO extends ProjectDAO {
+        @Override
+        public Project findProjectByNumber(int projectNumber) throws SQLException {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                hold();
+            }
+            return super.findProjectByNumber(projectNumber);
+        }
+
+        @Override
+        public Stream<Project> streamIncompleteProjects() throws SQLException {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                hold();
+            }
+            return super.streamIncompleteProjects();
+        }
+
+        private void hold() throws SQLException {
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted", e);
+            }
+        }
+    }
+
+    @BeforeEach
+    void startServer() throws SQLException, IOException {
+        TestDatabase.start("http" + databases++);
+        Project project = TestDatabase.newProject("House Tyson");
+        new ProjectDAO().addProject(project);
+        projectNo = project.getProjectNo();
+
+        Properties settings = new Properties();
+        settings.setProperty("pms.http.port", "0");
+        settings.setProperty("pms.http.queueTimeoutMillis", "200");
+        server = HttpApiServer.fromConfig(new HoldingProjectDAO(), new AppConfig(settings));
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws SQLException {
+        release.countDown();
+        server.stop(0);
+        TestDatabase.stop();
+    }
+
+    @Test
+    void requestsBeyondPoolSizeGet503() throws Exception {
+        entered = new CountDownLatch(POOL_SIZE);
+        List<CompletableFuture<HttpResponse<String>>> held = new ArrayList<>();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            held.add(sendAsync("/projects/" + projectNo));
+        }
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        long started = System.nanoTime();
+        HttpResponse<String> refused = sendAsync("/projects/" + projectNo).get(5, TimeUnit.SECONDS);
+        assertEquals(503, refused.statusCode());
+        assertEquals("1", refused.headers().firstValue("Retry-After").orElse(null));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 5_000);
+
+        release.countDown();
+        for (CompletableFuture<HttpResponse<String>> response : held) {
+            assertEquals(200, response.get(10, TimeUnit.SECONDS).statusCode());
+        }
+        assertEquals(200, sendAsync("/projects/" + projectNo).get(5, TimeUnit.SECONDS).statusCode());
+    }
+
+    @Test
+    void streamedListingsLeaveRoomForOtherRequests() throws Exception {
+        int listings = POOL_SIZE / 2;
+        entered = new CountDownLatch(listings);
+        List<CompletableFuture<HttpResponse<String>>> held = new ArrayList<>();
+        for (int i = 0; i < listings; i++) {
+            held.add(sendAsync("/projects/incomplete"));
+        }
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        assertEquals(503, sendAsync("/projects/incomplete").get(5, TimeUnit.SECONDS).statusCode());
+        // The lookup is let in, then waits on the same hold as the listings
+        CompletableFuture<HttpResponse<String>> lookup = sendAsync("/projects/" + projectNo);
+
+        release.countDown();
+        assertEquals(200, lookup.get(10, TimeUnit.SECONDS).statusCode());
+        for (CompletableFuture<HttpResponse<String>> response : held) {
+            HttpResponse<String> listing = response.get(10, TimeUnit.SECONDS);
+            assertEquals(200, listing.statusCode());
+            assertTrue(listing.body().contains("House Tyson"), listing.body());
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendAsync(String path) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path)).build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
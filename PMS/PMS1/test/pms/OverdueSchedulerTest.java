@@ -0,0 +1,125 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the scheduler tells its listeners once when a project becomes overdue,
+ * and not again when an overdue project is changed or found to have been missed.
+ */
+class OverdueSchedulerTest {
+    private static final Clock TODAY = Clock.fixed(Instant.parse("2026-10-18T10:00:00Z"), ZoneOffset.UTC);
+    private static int databases;
+
+    private final ProjectDAO projectDAO = new ProjectDAO();
+    private final List<Integer> alerts = new CopyOnWriteArrayList<>();
+    private OverdueScheduler scheduler;
+    private int late;
+    private int onTime;
+    private CountDownLatch onTimeAlerted;
+
+    @BeforeEach
+    void seed() throws SQLException, IOException {
+        TestDatabase.start("overdue" + databases++);
+        Project a = TestDatabase.newProject("House Tyson");
+        a.setDeadline("2026-09-30");
+        Project b = TestDatabase.newProject("Barn Smith");
+        projectDAO.addProject(a);
+        projectDAO.addProject(b);
+        late = a.getProjectNo();
+        onTime = b.getProjectNo();
+
+        scheduler = OverdueScheduler.load(TODAY);
+        onTimeAlerted = new CountDownLatch(1);
+        scheduler.addListener(project -> {
+            alerts.add(project.getProjectNo());
+            if (project.getProjectNo() == onTime) {
+                onTimeAlerted.countDown();
+            }
+        });
+        projectDAO.setOverdueScheduler(scheduler);
+    }
+
+    @AfterEach
+    void stopDatabase() throws SQLException {
+        scheduler.close();
+        TestDatabase.stop();
+    }
+
+    @Test
+    void updatingOverdueProjectDoesNotAlertAgain() throws SQLException, InterruptedException {
+        assertEquals(1, scheduler.getOverdueCount());
+
+        Project project = projectDAO.findProjectByNumber(late);
+        project.setName("House Tyson II");
+        project.setDeadline("2026-10-01");
+        assertTrue(projectDAO.updateProject(project));
+
+        assertEquals("House Tyson II", scheduler.getOverdueProjects().get(0).getName());
+        assertEquals("2026-10-01", scheduler.getOverdueProjects().get(0).getDeadline());
+        assertEquals(List.of(onTime), moveOnTimePastDeadline());
+    }
+
+    @Test
+    void missedWriteToOverdueProjectDoesNotAlertAgain() throws SQLException, InterruptedException {
+        Project mine = projectDAO.findProjectByNumber(late);
+        Project theirs = projectDAO.findProjectByNumber(late);
+        theirs.setName("Renamed elsewhere");
+        // Written around the DAO, so the scheduler learns of it only from the conflict
+        projectDAO.setOverdueScheduler(null);
+        projectDAO.updateProject(theirs);
+        projectDAO.setOverdueScheduler(scheduler);
+
+        mine.setAmountPaid(20_000);
+        assertEquals(WriteResult.Status.CONFLICT, projectDAO.updateProjectIfCurrent(mine).getStatus());
+
+        assertEquals("Renamed elsewhere", scheduler.getOverdueProjects().get(0).getName());
+        assertEquals(List.of(onTime), moveOnTimePastDeadline());
+    }
+
+    @Test
+    void overdueProjectGivenLaterDeadlineAlertsWhenItPassesAgain() throws SQLException, InterruptedException {
+        Project project = projectDAO.findProjectByNumber(late);
+        project.setDeadline("2030-01-01");
+        projectDAO.updateProject(project);
+        assertEquals(0, scheduler.getOverdueCount());
+        assertEquals(2, scheduler.getPendingCount());
+
+        project.setDeadline("2026-10-17");
+        projectDAO.updateProject(project);
+
+        // Both may be moved by one wake-up, in deadline order, so only the count matters
+        List<Integer> sent = new ArrayList<>(moveOnTimePastDeadline());
+        Collections.sort(sent);
+        assertEquals(List.of(late, onTime), sent);
+    }
+
+    /**
+     * Moves the on-time project's deadline into the past and waits for its alert. The
+     * scheduler's thread runs its work in order, so every earlier alert has been sent
+     * by then.
+     */
+    private List<Integer> moveOnTimePastDeadline() throws SQLException, InterruptedException {
+        Project project = projectDAO.findProjectByNumber(onTime);
+        project.setDeadline("2026-10-10");
+        projectDAO.updateProject(project);
+        assertTrue(onTimeAlerted.await(5, TimeUnit.SECONDS));
+        return alerts;
+    }
+}
@@ -0,0 +1,182 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Walks the keyset pages of the incomplete and overdue listings forwards and
+ * backwards, from the database, the replica and the overdue scheduler, and checks
+ * them against the expected order.
+ */
+class PagingTest {
+    private static final String[] DEADLINES = { "2030-01-01", "2020-03-01", "2020-01-15", "2020-01-15", "2020-03-01",
+        "2030-01-01", "2020-03-01", "2031-05-05", "2020-01-15", "2021-06-30", "2030-01-01", "2020-03-01" };
+    private static int databases;
+
+    private final ProjectDAO projectDAO = new ProjectDAO();
+    private final List<Integer> numbers = new ArrayList<>();
+    private List<Integer> incomplete;
+    private List<Integer> overdue;
+
+    @BeforeEach
+    void seed() throws SQLException, IOException {
+        TestDatabase.start("paging" + databases++);
+        for (int i = 0; i < DEADLINES.length; i++) {
+            Project project = TestDatabase.newProject("Project " + (i + 1));
+            project.setDeadline(DEADLINES[i]);
+            projectDAO.addProject(project);
+            numbers.add(project.getProjectNo());
+        }
+        // Finalised projects are in neither listing, however late they were
+        assertTrue(projectDAO.finalizeProject(numbers.get(3), "2026-10-01"));
+
+        incomplete = new ArrayList<>(numbers);
+        incomplete.remove(3);
+        // By deadline, then project number among equal deadlines
+        overdue = List.of(numbers.get(2), numbers.get(8), numbers.get(1), numbers.get(4), numbers.get(6),
+                          numbers.get(11), numbers.get(9));
+    }
+
+    @AfterEach
+    void stopDatabase() throws SQLException {
+        OverdueScheduler scheduler = projectDAO.getOverdueScheduler();
+        if (scheduler != null) {
+            scheduler.close();
+        }
+        TestDatabase.stop();
+    }
+
+    @Test
+    void incompletePagesGoForwardAndBack() throws SQLException {
+        ProjectPage first = projectDAO.getIncompleteProjectsPage(null, 4);
+        assertEquals(incomplete.subList(0, 4), numbers(first));
+        assertNull(first.getPreviousToken());
+
+        ProjectPage second = projectDAO.getIncompleteProjectsPage(first.getNextToken(), 4);
+        assertEquals(incomplete.subList(4, 8), numbers(second));
+        ProjectPage third = projectDAO.getIncompleteProjectsPage(second.getNextToken(), 4);
+        assertEquals(incomplete.subList(8, 11), numbers(third));
+        assertFalse(third.hasNext());
+
+        ProjectPage back = projectDAO.getIncompleteProjectsPage(third.getPreviousToken(), 4);
+        assertEquals(incomplete.subList(4, 8), numbers(back));
+        assertTrue(back.hasNext());
+        ProjectPage start = projectDAO.getIncompleteProjectsPage(back.getPreviousToken(), 4);
+        assertEquals(incomplete.subList(0, 4), numbers(start));
+        assertFalse(start.hasPrevious());
+        assertEquals(incomplete.subList(4, 8), numbers(projectDAO.getIncompleteProjectsPage(start.getNextToken(), 4)));
+    }
+
+    @Test
+    void overduePagesBreakDeadlineTiesByNumber() throws SQLException {
+        for (int size : new int[] { 1, 2, 3, 7, 10 }) {
+            assertWalk(overdue, false, size);
+        }
+    }
+
+    @Test
+    void emptyPageOffersWayBack() throws SQLException {
+        ProjectPage first = projectDAO.getIncompleteProjectsPage(null, 3);
+        String beforeFirst = ProjectPage.Token.of(false, first.getProjects().get(0));
+
+        ProjectPage empty = projectDAO.getIncompleteProjectsPage(beforeFirst, 3);
+        assertTrue(empty.getProjects().isEmpty());
+        assertNull(empty.getPreviousToken());
+        assertNotNull(empty.getNextToken());
+        assertEquals(incomplete.subList(1, 4), numbers(projectDAO.getIncompleteProjectsPage(empty.getNextToken(), 3)));
+
+        ProjectPage last = projectDAO.getOverdueProjectsPage(null, overdue.size());
+        String afterLast = ProjectPage.Token.of(true, last.getProjects().get(overdue.size() - 1));
+        ProjectPage end = projectDAO.getOverdueProjectsPage(afterLast, 3);
+        assertTrue(end.getProjects().isEmpty());
+        assertNull(end.getNextToken());
+        assertEquals(overdue.subList(4, 6), numbers(projectDAO.getOverdueProjectsPage(end.getPreviousToken(), 2)));
+    }
+
+    @Test
+    void badTokensAreRejected() {
+        String notNumber = Base64.getUrlEncoder().encodeToString("N|abc|".getBytes(StandardCharsets.UTF_8));
+        String badDirection = Base64.getUrlEncoder().encodeToString("X|1|".getBytes(StandardCharsets.UTF_8));
+        for (String token : new String[] { "not base64!", notNumber, badDirection, "" }) {
+            assertThrows(IllegalArgumentException.class, () -> projectDAO.getIncompleteProjectsPage(token, 3), token);
+            assertThrows(IllegalArgumentException.class, () -> projectDAO.getOverdueProjectsPage(token, 3), token);
+        }
+        assertThrows(IllegalArgumentException.class, () -> projectDAO.getIncompleteProjectsPage(null, 0));
+    }
+
+    @Test
+    void replicaPagesMatchDatabase() throws SQLException {
+        projectDAO.setReplica(ProjectReplica.load());
+        for (int size : new int[] { 1, 3, 4, 11 }) {
+            assertWalk(incomplete, true, size);
+            assertWalk(overdue, false, size);
+        }
+    }
+
+    @Test
+    void schedulerPagesMatchDatabase() throws SQLException {
+        projectDAO.setOverdueScheduler(OverdueScheduler.load());
+        for (int size : new int[] { 1, 2, 3, 7 }) {
+            assertWalk(overdue, false, size);
+        }
+        String bad = Base64.getUrlEncoder().encodeToString("N|1|tomorrow".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> projectDAO.getOverdueProjectsPage(bad, 3));
+    }
+
+    /**
+     * Reads every page forwards and then backwards from the last one, and checks that
+     * both walks see the expected projects once each, in order.
+     */
+    private void assertWalk(List<Integer> expected, boolean incompleteListing, int size) throws SQLException {
+        List<Integer> forwards = new ArrayList<>();
+        ProjectPage page = page(incompleteListing, null, size);
+        ProjectPage last = page;
+        while (true) {
+            forwards.addAll(numbers(page));
+            last = page;
+            if (!page.hasNext()) {
+                break;
+            }
+            page = page(incompleteListing, page.getNextToken(), size);
+        }
+        assertEquals(expected, forwards, "forwards, page size " + size);
+
+        List<Integer> backwards = new ArrayList<>(numbers(last));
+        page = last;
+        while (page.hasPrevious()) {
+            page = page(incompleteListing, page.getPreviousToken(), size);
+            assertEquals(size, page.getProjects().size());
+            backwards.addAll(0, numbers(page));
+        }
+        assertEquals(expected, backwards, "backwards, page size " + size);
+    }
+
+    private ProjectPage page(boolean incompleteListing, String token, int size) throws SQLException {
+        return incompleteListing ? projectDAO.getIncompleteProjectsPage(token, size)
+                                 : projectDAO.getOverdueProjectsPage(token, size);
+    }
+
+    private static List<Integer> numbers(ProjectPage page) {
+        List<Integer> numbers = new ArrayList<>();
+        for (Project project : page.getProjects()) {
+            numbers.add(project.getProjectNo());
+        }
+        return Collections.unmodifiableList(numbers);
+    }
+}
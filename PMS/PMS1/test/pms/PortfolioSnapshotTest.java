@@ -0,0 +1,92 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the snapshot counts a NULL Finalised flag as the SQL queries do, and
+ * that the largest customer balances are found for sparse customer IDs.
+ */
+class PortfolioSnapshotTest {
+    private static int databases;
+
+    @BeforeEach
+    void startDatabase() throws SQLException, IOException {
+        TestDatabase.start("portfolio" + databases++);
+    }
+
+    @AfterEach
+    void stopDatabase() throws SQLException {
+        TestDatabase.stop();
+    }
+
+    @Test
+    void nullFinalisedIsNotOpen() throws SQLException {
+        insert("('Open', 1000, 100, '2020-01-01', false, 1)",
+               "('Unknown', 500, 0, '2020-01-01', NULL, 1)",
+               "('Done', 300, 300, '2020-01-01', true, 1)");
+        PortfolioSnapshot snapshot = PortfolioSnapshot.load();
+
+        assertEquals(3, snapshot.size());
+        assertEquals(140_000, snapshot.totalOutstandingCents());
+        assertEquals(90_000, snapshot.openOutstandingCents());
+        int today = (int) LocalDate.of(2026, 10, 18).toEpochDay();
+        assertEquals(1, snapshot.countOverdue(today));
+        assertEquals(1, countWhere("Finalised = false"));
+    }
+
+    @Test
+    void largestBalancesAreFoundWithoutSizingByCustomerID() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection(); Statement stmt = conn.createStatement()) {
+            for (int id : new int[] { 7, 40, 2_000_000_000 }) {
+                stmt.execute("INSERT INTO Customer (CustomerID, firstName, lastName, Phone, Email, Address) "
+                             + "VALUES (" + id + ", 'First', 'Last', '0215550000', 'a@example.com', '1 Long Street')");
+            }
+        }
+        insert("('A', 100, 0, NULL, false, 1)",
+               "('B', 900, 0, NULL, false, 2000000000)",
+               "('C', 300, 0, NULL, false, 7)",
+               "('D', 400, 0, NULL, false, 1)",
+               "('E', 300, 0, NULL, false, 40)",
+               "('F', 50, 50, NULL, false, 7)",
+               "('G', 700, 0, NULL, false, NULL)");
+        PortfolioSnapshot snapshot = PortfolioSnapshot.load();
+
+        int[] customers = new int[3];
+        long[] balances = new long[3];
+        assertEquals(3, snapshot.largestCustomerBalances(customers, balances));
+        assertArrayEquals(new int[] { 2_000_000_000, 1, 7 }, customers);
+        assertArrayEquals(new long[] { 90_000, 50_000, 30_000 }, balances);
+
+        customers = new int[10];
+        balances = new long[10];
+        assertEquals(4, snapshot.largestCustomerBalances(customers, balances));
+        assertEquals(40, customers[3]);
+    }
+
+    private static void insert(String... rows) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO Project (Name, TotalFee, AmountPaid, Deadline, Finalised, CustomerID) VALUES "
+                         + String.join(", ", rows));
+        }
+    }
+
+    private static int countWhere(String condition) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Project WHERE " + condition)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
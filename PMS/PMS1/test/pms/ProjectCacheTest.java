@@ -0,0 +1,141 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the cache never keeps a row loaded before a write that changed it, that
+ * its name index follows renames and deletes, and that entries expire.
+ */
+class ProjectCacheTest {
+
+    @Test
+    void loadThatRacedAnInvalidationIsNotStored() {
+        ProjectCache cache = new ProjectCache(10, 0);
+        long stamp = cache.loadStamp();
+        // A write lands while the load is reading the old row
+        cache.projectUpdated(project(1, "House Tyson II"));
+        cache.put(project(1, "House Tyson"), stamp);
+
+        assertNull(cache.get(1));
+        assertNull(cache.getByName("House Tyson"));
+        assertEquals(0, cache.size());
+
+        cache.put(project(1, "House Tyson II"), cache.loadStamp());
+        assertEquals("House Tyson II", cache.get(1).getName());
+    }
+
+    @Test
+    void addedProjectRacesLoadByName() {
+        ProjectCache cache = new ProjectCache(10, 0);
+        long stamp = cache.loadStamp();
+        cache.projectAdded(project(2, "House Tyson"));
+        cache.put(project(1, "House Tyson"), stamp);
+
+        assertNull(cache.getByName("House Tyson"));
+    }
+
+    @Test
+    void renameMovesTheNameIndex() {
+        ProjectCache cache = new ProjectCache(10, 0);
+        cache.put(project(1, "House Tyson"), cache.loadStamp());
+        assertNotNull(cache.getByName("House Tyson"));
+
+        Project renamed = project(1, "Barn Smith");
+        cache.projectUpdated(renamed);
+        assertNull(cache.getByName("House Tyson"));
+        assertNull(cache.get(1));
+
+        cache.put(renamed, cache.loadStamp());
+        assertNull(cache.getByName("House Tyson"));
+        assertEquals(1, cache.getByName("Barn Smith").getProjectNo());
+
+        // Reloading a row under a new name also drops the old name
+        cache.put(project(1, "Office Park"), cache.loadStamp());
+        assertNull(cache.getByName("Barn Smith"));
+        assertEquals(1, cache.getByName("Office Park").getProjectNo());
+    }
+
+    @Test
+    void deleteAndFinalizeDropTheEntryAndItsName() {
+        ProjectCache cache = new ProjectCache(10, 0);
+        cache.put(project(1, "House Tyson"), cache.loadStamp());
+        cache.put(project(2, "Barn Smith"), cache.loadStamp());
+
+        cache.projectDeleted(1);
+        cache.projectFinalized(2, "2026-10-01");
+
+        assertNull(cache.get(1));
+        assertNull(cache.getByName("House Tyson"));
+        assertNull(cache.get(2));
+        assertNull(cache.getByName("Barn Smith"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictionDropsTheNameOfTheEvictedEntry() {
+        ProjectCache cache = new ProjectCache(2, 0);
+        cache.put(project(1, "House Tyson"), cache.loadStamp());
+        cache.put(project(2, "Barn Smith"), cache.loadStamp());
+        cache.get(1);
+        cache.put(project(3, "Office Park"), cache.loadStamp());
+
+        assertNull(cache.getByName("Barn Smith"));
+        assertNotNull(cache.getByName("House Tyson"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void entriesExpireAfterTimeToLive() throws InterruptedException {
+        ProjectCache cache = new ProjectCache(10, 50);
+        cache.put(project(1, "House Tyson"), cache.loadStamp());
+        cache.put(project(2, "Barn Smith"), cache.loadStamp());
+        assertNotNull(cache.get(1));
+
+        Thread.sleep(120);
+
+        assertNull(cache.get(1));
+        assertNull(cache.getByName("House Tyson"));
+        cache.purgeExpired();
+        assertEquals(0, cache.size());
+        assertNull(cache.getByName("Barn Smith"));
+        assertEquals(2, cache.getExpirations());
+    }
+
+    @Test
+    void daoLookupsFollowRename() throws SQLException, IOException {
+        TestDatabase.start("cache");
+        try {
+            ProjectDAO projectDAO = new ProjectDAO();
+            ProjectCache cache = new ProjectCache(10, 0);
+            projectDAO.setCache(cache);
+            Project project = TestDatabase.newProject("House Tyson");
+            projectDAO.addProject(project);
+
+            assertNotNull(projectDAO.findProjectByName("House Tyson"));
+            assertNotNull(projectDAO.findProjectByName("House Tyson"));
+            assertEquals(1, cache.getHits());
+
+            project.setName("Barn Smith");
+            projectDAO.updateProject(project);
+            assertNull(projectDAO.findProjectByName("House Tyson"));
+            assertEquals(project.getProjectNo(), projectDAO.findProjectByName("Barn Smith").getProjectNo());
+
+            projectDAO.deleteProject(project.getProjectNo());
+            assertNull(projectDAO.findProjectByName("Barn Smith"));
+            assertNull(projectDAO.findProjectByNumber(project.getProjectNo()));
+        } finally {
+            TestDatabase.stop();
+        }
+    }
+
+    private static Project project(int projectNo, String name) {
+        return new Project(projectNo, name, "House", "1 Main Road", "ERF1", 250_000, 10_000, "2030-01-01", false, null, 1, 1, 1);
+    }
+}
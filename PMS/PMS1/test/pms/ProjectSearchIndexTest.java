@@ -0,0 +1,149 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link ProjectSearchIndex#search(String, int)} against a brute-force ranking
+ * that scores every project, so that the pruning in the search never drops or
+ * misorders a match.
+ */
+class ProjectSearchIndexTest {
+    private static final String[] WORDS = { "House", "Houses", "Tyson", "Smith", "Smyth", "Garden", "Gardens",
+        "Office", "Block", "Barn", "Park", "Parkview", "Project", "Main", "Road", "Street", "Avenue", "Hill" };
+    private static final String[] SURNAMES = { "Tyson", "Smith", "Smythe", "Naidoo", "Botha", "Dlamini", "Parker" };
+    private static final int PROJECTS = 2000;
+
+    private final List<Project> projects = new ArrayList<>();
+    private ProjectSearchIndex index;
+
+    @BeforeEach
+    void seed() {
+        Random random = new Random(42);
+        index = new ProjectSearchIndex();
+        for (int n = 1; n <= PROJECTS; n++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            if (random.nextBoolean()) {
+                name += " " + random.nextInt(50);
+            }
+            String address = (1 + random.nextInt(200)) + " " + WORDS[random.nextInt(WORDS.length)] + " Road";
+            Project project = new Project(n, name, "House", address, "ERF" + n, 0, 0, "2030-01-01", false, null, 1, 1, n);
+            project.setCustomerLastName(SURNAMES[random.nextInt(SURNAMES.length)]);
+            projects.add(project);
+            index.projectAdded(project);
+        }
+    }
+
+    @Test
+    void searchMatchesBruteForceRanking() {
+        String[] queries = { "House Tyson", "Smith", "Smyth Garden", "Parkview 12", "Project 7", "Hill Road",
+            "Garden Street 3", "office block", "Houses", "Tysno", "Barn Avenue Hill Park", "12 Main Road" };
+        for (String query : queries) {
+            for (int limit : new int[] { 1, 3, 10, 100, PROJECTS }) {
+                assertSameRanking(query, limit);
+            }
+        }
+    }
+
+    @Test
+    void equalScoresAreOrderedByProjectNumber() {
+        // Many projects contain the whole word, so their scores tie and only the number orders them
+        List<ProjectSearchIndex.Match> matches = index.search("Block", 25);
+        assertSameRanking("Block", 25);
+        assertTrue(matches.size() > 1);
+        for (int i = 1; i < matches.size(); i++) {
+            ProjectSearchIndex.Match previous = matches.get(i - 1);
+            ProjectSearchIndex.Match match = matches.get(i);
+            if (previous.getScore() == match.getScore()) {
+                assertTrue(previous.getProjectNo() < match.getProjectNo(), "tie broken out of order at " + i);
+            }
+        }
+    }
+
+    @Test
+    void prefixOnlyQueryMatchesWordsBeingTyped() {
+        for (String query : new String[] { "pa", "hou", "smy", "gard" }) {
+            for (int limit : new int[] { 1, 10, PROJECTS }) {
+                assertSameRanking(query, limit);
+            }
+            List<ProjectSearchIndex.Match> matches = index.search(query, 10);
+            assertFalse(matches.isEmpty(), query);
+        }
+    }
+
+    @Test
+    void updatesAndDeletesChangeTheRanking() {
+        Project renamed = new Project(projects.get(99));
+        renamed.setName("Zebra Crossing");
+        index.projectUpdated(renamed);
+        projects.set(99, renamed);
+        index.projectDeleted(200);
+        projects.remove(199);
+
+        assertEquals(100, index.search("Zebra", 5).get(0).getProjectNo());
+        for (String query : new String[] { "Zebra", "House Tyson", "hou" }) {
+            assertSameRanking(query, 10);
+        }
+    }
+
+    private void assertSameRanking(String query, int limit) {
+        List<ProjectSearchIndex.Match> actual = index.search(query, limit);
+        List<int[]> expected = bruteForce(query, limit);
+        assertEquals(expected.size(), actual.size(), "match count for \"" + query + "\" limit " + limit);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i)[0], actual.get(i).getProjectNo(),
+                    "match " + i + " for \"" + query + "\" limit " + limit);
+        }
+    }
+
+    /**
+     * Scores every project by the query grams it contains, anywhere and in its name,
+     * and keeps those containing at least the minimum share, best first.
+     *
+     * @return {project number, grams matched, grams matched in the name} per match
+     */
+    private List<int[]> bruteForce(String query, int limit) {
+        long[] wanted = ProjectSearchIndex.grams(query, true);
+        int needed = Math.max(1, (wanted.length * ProjectSearchIndex.MIN_COVERAGE_PERCENT + 99) / 100);
+        List<int[]> scored = new ArrayList<>();
+        for (Project project : projects) {
+            long[] name = ProjectSearchIndex.grams(project.getName(), false);
+            long[] surname = ProjectSearchIndex.grams(project.getCustomerLastName(), false);
+            long[] address = ProjectSearchIndex.grams(project.getAddress(), false);
+            int matched = 0;
+            int nameMatched = 0;
+            for (long gram : wanted) {
+                boolean inName = contains(name, gram);
+                if (inName || contains(surname, gram) || contains(address, gram)) {
+                    matched++;
+                }
+                if (inName) {
+                    nameMatched++;
+                }
+            }
+            if (wanted.length > 0 && matched >= needed) {
+                scored.add(new int[] { project.getProjectNo(), matched, nameMatched });
+            }
+        }
+        scored.sort(Comparator.<int[]>comparingInt(s -> -s[1]).thenComparingInt(s -> -s[2]).thenComparingInt(s -> s[0]));
+        return scored.subList(0, Math.min(limit, scored.size()));
+    }
+
+    private static boolean contains(long[] grams, long gram) {
+        for (long g : grams) {
+            if (g == gram) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
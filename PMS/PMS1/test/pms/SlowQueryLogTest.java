@@ -0,0 +1,88 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the rows-read estimate worked out from EXPLAIN, and that a logged call
+ * records the rows it sent apart from that estimate.
+ */
+class SlowQueryLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void singleTableReadsItsRowsEstimate() {
+        SlowQueryLog.RowsExamined examined = new SlowQueryLog.RowsExamined();
+        examined.add("1", "1000000", "1.5");
+        assertEquals(1_000_000, examined.total());
+    }
+
+    @Test
+    void joinedTableIsReadForEveryRowPassedOn() {
+        SlowQueryLog.RowsExamined examined = new SlowQueryLog.RowsExamined();
+        // 1000 projects, 10% pass the filter, each looks up one architect and one customer
+        examined.add("1", "1000", "10.00");
+        examined.add("1", "1", "100.00");
+        examined.add("1", "1", null);
+        assertEquals(1000 + 100 + 100, examined.total());
+    }
+
+    @Test
+    void newSelectStartsNewJoin() {
+        SlowQueryLog.RowsExamined examined = new SlowQueryLog.RowsExamined();
+        examined.add("1", "5", "100");
+        examined.add("1", "2", "100");
+        examined.add("2", "400", "50");
+        examined.add("2", "3", null);
+        assertEquals(5 + 10 + 400 + 600, examined.total());
+    }
+
+    @Test
+    void planWithoutRowsHasNoEstimate() {
+        SlowQueryLog.RowsExamined examined = new SlowQueryLog.RowsExamined();
+        assertEquals(-1, examined.total());
+        examined.add(null, null, null);
+        examined.add("1", "NULL", null);
+        assertEquals(-1, examined.total());
+    }
+
+    @Test
+    void loggedCallRecordsRowsSent() throws SQLException, IOException {
+        TestDatabase.start("slowlog");
+        Path file = directory.resolve("slow.log");
+        try {
+            ProjectDAO projectDAO = new ProjectDAO();
+            projectDAO.addProject(TestDatabase.newProject("House Tyson"));
+            projectDAO.addProject(TestDatabase.newProject("Barn Smith"));
+
+            SlowQueryLog log = new SlowQueryLog(file, 0, 1 << 20, 1);
+            SlowQueryLog.start(log);
+            try {
+                assertEquals(2, projectDAO.getIncompleteProjects().size());
+            } finally {
+                SlowQueryLog.stop();
+            }
+            assertEquals(1, log.getLogged());
+        } finally {
+            TestDatabase.stop();
+        }
+
+        String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(text.contains("# Operation: getIncompleteProjects  Call_ms: "), text);
+        assertTrue(text.contains("  Rows_sent: 2  "), text);
+        // H2's plan has no rows column, so there is no estimate to give
+        assertFalse(text.contains("Rows_examined_est"), text);
+    }
+}
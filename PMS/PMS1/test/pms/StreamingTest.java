@@ -0,0 +1,102 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the streamed listings return every row, and that the action or stream
+ * consumer can call the DAO again inside a unit of work, where it shares the
+ * streaming connection.
+ */
+class StreamingTest {
+    private static final int PROJECTS = 250;
+    private static int databases;
+
+    private final ProjectDAO projectDAO = new ProjectDAO();
+
+    @AfterEach
+    void stopDatabase() throws SQLException {
+        TestDatabase.stop();
+    }
+
+    @Test
+    void streamsEveryRowWithDefaultFetchSize() throws SQLException, IOException {
+        seed(new Properties());
+        assertEquals(500, DatabaseConnection.pool().getFetchSize());
+
+        List<String> names = new ArrayList<>();
+        projectDAO.forEachIncompleteProject(project -> names.add(project.getName()));
+        assertEquals(PROJECTS, names.size());
+        try (Stream<Project> projects = projectDAO.streamIncompleteProjects(Projection.LEAN)) {
+            assertEquals(names, projects.map(Project::getName).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void consumerCanWriteInsideUnitOfWork() throws SQLException, IOException {
+        seed(new Properties());
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            try (Stream<Project> projects = projectDAO.streamIncompleteProjects()) {
+                projects.filter(project -> project.getProjectNo() % 2 == 0).forEach(project -> {
+                    project.setAmountPaid(project.getAmountPaid() + 1);
+                    try {
+                        assertTrue(projectDAO.updateProject(project));
+                    } catch (SQLException e) {
+                        throw new UncheckedSQLException(e);
+                    }
+                });
+            }
+            work.commit();
+        }
+        List<Project> paid = new ArrayList<>();
+        projectDAO.forEachIncompleteProject(project -> {
+            if (project.getAmountPaid() > 10_000) {
+                paid.add(project);
+            }
+        });
+        assertEquals(PROJECTS / 2, paid.size());
+    }
+
+    @Test
+    void rowByRowFetchSizeIsNotUsedInsideUnitOfWork() throws SQLException, IOException {
+        // H2 rejects a negative fetch size, so this passes only if it is not applied
+        Properties settings = new Properties();
+        settings.setProperty("pms.db.fetchSize", Integer.toString(Integer.MIN_VALUE));
+        seed(settings);
+        int[] lookups = { 0 };
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            projectDAO.forEachOverdueProject(project -> { });
+            projectDAO.forEachIncompleteProject(project -> {
+                try {
+                    if (projectDAO.findProjectByNumber(project.getProjectNo()) != null) {
+                        lookups[0]++;
+                    }
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            });
+            work.commit();
+        }
+        assertEquals(PROJECTS, lookups[0]);
+    }
+
+    private void seed(Properties settings) throws SQLException, IOException {
+        TestDatabase.start("streaming" + databases++, settings);
+        List<Project> projects = new ArrayList<>();
+        for (int n = 1; n <= PROJECTS; n++) {
+            projects.add(TestDatabase.newProject("Project " + n));
+        }
+        assertEquals(PROJECTS, projectDAO.addProjects(projects).getInserted());
+    }
+}
@@ -0,0 +1,131 @@
+package pms;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Creates an in-memory H2 database in MySQL mode with the tables from {@code PMS.sql}
+ * and the application's schema migrations, with one customer, architect and
+ * contractor, and points {@link DatabaseConnection} at it.
+ */
+public final class TestDatabase {
+    private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE .*?\\n\\)", Pattern.DOTALL);
+
+    private static Connection keepAlive;
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Creates a fresh database and configures the connection pool for it.
+     *
+     * @param name the in-memory database name
+     * @throws SQLException if the database cannot be created
+     * @throws IOException if {@code PMS.sql} cannot be read
+     */
+    static void start(String name) throws SQLException, IOException {
+        start(name, new Properties());
+    }
+
+    /**
+     * Creates a fresh database and configures the connection pool for it with extra
+     * settings, which override the test defaults.
+     *
+     * @param name the in-memory database name
+     * @param extra settings such as {@code pms.db.fetchSize}
+     * @throws SQLException if the database cannot be created
+     * @throws IOException if {@code PMS.sql} cannot be read
+     */
+    static void start(String name, Properties extra) throws SQLException, IOException {
+        String url = "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+        // The in-memory database lives as long as one connection to it is open
+        keepAlive = DriverManager.getConnection(url, "sa", "");
+        String sql = new String(Files.readAllBytes(schemaFile()), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        try (Statement stmt = keepAlive.createStatement()) {
+            Matcher matcher = CREATE_TABLE.matcher(sql);
+            while (matcher.find()) {
+                stmt.execute(matcher.group());
+            }
+            stmt.execute("CREATE ALIAS GET_LOCK FOR 'pms.TestDatabase.getLock'");
+            stmt.execute("CREATE ALIAS RELEASE_LOCK FOR 'pms.TestDatabase.releaseLock'");
+            for (String table : new String[] { "Customer", "Architect", "Contractor" }) {
+                stmt.execute("INSERT INTO " + table + " (firstName, lastName, Phone, Email, Address) "
+                             + "VALUES ('" + table + "First', '" + table + "Last', '0215550000', 'a@example.com', '1 Long Street')");
+            }
+        }
+
+        Properties settings = new Properties();
+        settings.setProperty("pms.db.url", url);
+        settings.setProperty("pms.db.user", "sa");
+        settings.setProperty("pms.db.password", "");
+        settings.setProperty("pms.pool.minIdle", "0");
+        settings.setProperty("pms.pool.maxSize", "4");
+        settings.putAll(extra);
+        DatabaseConnection.configure(new AppConfig(settings));
+        new SchemaMigrator().migrate();
+    }
+
+    /**
+     * Closes the connection pool and drops the database.
+     *
+     * @throws SQLException if the database cannot be closed
+     */
+    static void stop() throws SQLException {
+        DatabaseConnection.shutdown();
+        keepAlive.close();
+    }
+
+    /**
+     * Builds an open project for the seeded customer, architect and contractor.
+     *
+     * @param name the project name
+     * @return the project, not yet inserted
+     */
+    static Project newProject(String name) {
+        return new Project(0, name, "House", "1 Main Road", "ERF1", 250_000, 10_000, "2030-01-01", false, null, 1, 1, 1);
+    }
+
+    /**
+     * Stands in for MySQL's {@code GET_LOCK}; the test database has one user.
+     *
+     * @param name the lock name
+     * @param timeoutSeconds how long MySQL would wait
+     * @return 1, meaning the lock was obtained
+     */
+    public static int getLock(String name, int timeoutSeconds) {
+        return 1;
+    }
+
+    /**
+     * Stands in for MySQL's {@code RELEASE_LOCK}.
+     *
+     * @param name the lock name
+     * @return 1, meaning the lock was released
+     */
+    public static int releaseLock(String name) {
+        return 1;
+    }
+
+    /**
+     * Finds {@code PMS.sql} next to the {@code PMS1} directory the tests run in.
+     */
+    private static Path schemaFile() throws IOException {
+        for (String candidate : new String[] { "../PMS.sql", "PMS/PMS.sql", "PMS.sql" }) {
+            Path path = Paths.get(candidate);
+            if (Files.isRegularFile(path)) {
+                return path;
+            }
+        }
+        throw new IOException("Cannot find PMS.sql; run the tests from the PMS1 directory");
+    }
+}
@@ -0,0 +1,145 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that rolling back to a savepoint undoes both the database writes and the
+ * change events made after it, and keeps those made before it.
+ */
+class UnitOfWorkTest {
+    private static int databases;
+
+    private final ProjectDAO projectDAO = new ProjectDAO();
+    private final List<String> events = new ArrayList<>();
+    private int first;
+    private int second;
+
+    @BeforeEach
+    void seed() throws SQLException, IOException {
+        TestDatabase.start("unitofwork" + databases++);
+        Project a = TestDatabase.newProject("House Tyson");
+        Project b = TestDatabase.newProject("Barn Smith");
+        projectDAO.addProject(a);
+        projectDAO.addProject(b);
+        first = a.getProjectNo();
+        second = b.getProjectNo();
+        projectDAO.addChangeListener(new ProjectChangeListener() {
+            @Override
+            public void projectAdded(Project project) {
+                events.add("added " + project.getName());
+            }
+
+            @Override
+            public void projectUpdated(Project project) {
+                events.add("updated " + project.getProjectNo() + " " + project.getName());
+            }
+
+            @Override
+            public void projectFinalized(int projectNo, String completionDate) {
+                events.add("finalized " + projectNo);
+            }
+
+            @Override
+            public void projectDeleted(int projectNo) {
+                events.add("deleted " + projectNo);
+            }
+        });
+    }
+
+    @AfterEach
+    void stopDatabase() throws SQLException {
+        TestDatabase.stop();
+    }
+
+    @Test
+    void rollbackToSavepointKeepsEarlierWork() throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            rename(first, "House Tyson II");
+            Savepoint savepoint = work.savepoint("before_delete");
+            assertTrue(projectDAO.deleteProject(second));
+            projectDAO.addProject(TestDatabase.newProject("Office Park"));
+            assertEquals(3, work.getPendingChanges());
+
+            work.rollbackTo(savepoint);
+            assertEquals(1, work.getPendingChanges());
+            assertNotNull(projectDAO.findProjectByNumber(second));
+            assertTrue(events.isEmpty());
+
+            work.commit();
+        }
+        assertEquals(List.of("updated " + first + " House Tyson II"), events);
+        assertEquals("House Tyson II", projectDAO.findProjectByNumber(first).getName());
+        assertEquals("Barn Smith", projectDAO.findProjectByNumber(second).getName());
+        assertNull(projectDAO.findProjectByName("Office Park"));
+    }
+
+    @Test
+    void rollbackToEarlierSavepointDiscardsLaterOnes() throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            Savepoint outer = work.savepoint("outer");
+            rename(first, "Renamed once");
+            Savepoint inner = work.savepoint("inner");
+            assertTrue(projectDAO.finalizeProject(second, "2026-10-01"));
+
+            work.rollbackTo(outer);
+            assertEquals(0, work.getPendingChanges());
+            assertThrows(SQLException.class, () -> work.rollbackTo(inner));
+
+            // Work after the rollback is kept, and the outer savepoint can be used again
+            rename(second, "Barn Smith II");
+            work.rollbackTo(outer);
+            rename(second, "Barn Smith III");
+            work.commit();
+        }
+        assertEquals(List.of("updated " + second + " Barn Smith III"), events);
+        assertEquals("House Tyson", projectDAO.findProjectByNumber(first).getName());
+        Project b = projectDAO.findProjectByNumber(second);
+        assertEquals("Barn Smith III", b.getName());
+        assertEquals(false, b.isFinalised());
+    }
+
+    @Test
+    void releasedSavepointCannotBeRolledBackTo() throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            Savepoint savepoint = work.savepoint("released");
+            rename(first, "Kept");
+            work.releaseSavepoint(savepoint);
+            assertThrows(SQLException.class, () -> work.rollbackTo(savepoint));
+            work.commit();
+        }
+        assertEquals("Kept", projectDAO.findProjectByNumber(first).getName());
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    void closingWithoutCommitUndoesEverything() throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            rename(first, "Never committed");
+            work.savepoint("unused");
+            assertTrue(projectDAO.deleteProject(second));
+        }
+        assertTrue(events.isEmpty());
+        assertEquals("House Tyson", projectDAO.findProjectByNumber(first).getName());
+        assertNotNull(projectDAO.findProjectByNumber(second));
+    }
+
+    private void rename(int projectNo, String name) throws SQLException {
+        Project project = projectDAO.findProjectByNumber(projectNo);
+        project.setName(name);
+        assertTrue(projectDAO.updateProject(project));
+    }
+}
@@ -0,0 +1,133 @@
+package pms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the results of the versioned writes when another user changed or deleted
+ * the row first, and that a retry keeps both users' changes.
+ */
+class VersionedWriteTest {
+    private static int databases;
+
+    private final ProjectDAO projectDAO = new ProjectDAO();
+    private int projectNo;
+
+    @BeforeEach
+    void seed() throws SQLException, IOException {
+        TestDatabase.start("versioned" + databases++);
+        Project project = TestDatabase.newProject("House Tyson");
+        projectDAO.addProject(project);
+        projectNo = project.getProjectNo();
+    }
+
+    @AfterEach
+    void stopDatabase() throws SQLException {
+        TestDatabase.stop();
+    }
+
+    @Test
+    void staleUpdateConflictsAndReturnsCurrentRow() throws SQLException {
+        Project mine = projectDAO.findProjectByNumber(projectNo);
+        Project theirs = projectDAO.findProjectByNumber(projectNo);
+        theirs.setName("Renamed by them");
+        assertEquals(WriteResult.Status.APPLIED, projectDAO.updateProjectIfCurrent(theirs).getStatus());
+
+        mine.setAmountPaid(20_000);
+        WriteResult result = projectDAO.updateProjectIfCurrent(mine);
+
+        assertEquals(WriteResult.Status.CONFLICT, result.getStatus());
+        assertEquals("Renamed by them", result.getCurrent().getName());
+        assertEquals(theirs.getVersion(), result.getCurrent().getVersion());
+        assertEquals(10_000, projectDAO.findProjectByNumber(projectNo).getAmountPaid());
+    }
+
+    @Test
+    void writesToDeletedRowAreNotFound() throws SQLException {
+        Project mine = projectDAO.findProjectByNumber(projectNo);
+        assertTrue(projectDAO.deleteProject(projectNo));
+
+        mine.setName("Too late");
+        assertEquals(WriteResult.Status.NOT_FOUND, projectDAO.updateProjectIfCurrent(mine).getStatus());
+        assertEquals(WriteResult.Status.NOT_FOUND,
+                     projectDAO.finalizeProjectIfCurrent(projectNo, mine.getVersion(), "2026-10-01").getStatus());
+        WriteResult deleted = projectDAO.deleteProjectIfCurrent(projectNo, mine.getVersion());
+        assertEquals(WriteResult.Status.NOT_FOUND, deleted.getStatus());
+        assertNull(deleted.getCurrent());
+    }
+
+    @Test
+    void updateWithoutChangesIsUnchanged() throws SQLException {
+        Project project = projectDAO.findProjectByNumber(projectNo);
+        int version = project.getVersion();
+
+        WriteResult result = projectDAO.updateProjectIfCurrent(project);
+
+        assertEquals(WriteResult.Status.UNCHANGED, result.getStatus());
+        assertSame(project, result.getCurrent());
+        assertEquals(version, projectDAO.findProjectByNumber(projectNo).getVersion());
+    }
+
+    @Test
+    void staleFinalizeAndDeleteConflict() throws SQLException {
+        Project mine = projectDAO.findProjectByNumber(projectNo);
+        Project theirs = projectDAO.findProjectByNumber(projectNo);
+        theirs.setDeadline("2031-06-30");
+        projectDAO.updateProject(theirs);
+
+        WriteResult finalized = projectDAO.finalizeProjectIfCurrent(projectNo, mine.getVersion(), "2026-10-01");
+        assertEquals(WriteResult.Status.CONFLICT, finalized.getStatus());
+        assertEquals("2031-06-30", finalized.getCurrent().getDeadline());
+        assertEquals(WriteResult.Status.CONFLICT, projectDAO.deleteProjectIfCurrent(projectNo, mine.getVersion()).getStatus());
+        assertEquals(false, projectDAO.findProjectByNumber(projectNo).isFinalised());
+    }
+
+    @Test
+    void retryMergesChangesOntoCurrentRow() throws SQLException {
+        Project mine = projectDAO.findProjectByNumber(projectNo);
+        Project theirs = projectDAO.findProjectByNumber(projectNo);
+        theirs.setName("Renamed by them");
+        theirs.setAmountPaid(15_000);
+        projectDAO.updateProject(theirs);
+
+        mine.setAmountPaid(20_000);
+        mine.setDeadline("2031-01-31");
+        WriteResult result = projectDAO.updateProjectWithRetry(mine, 3);
+
+        assertEquals(WriteResult.Status.APPLIED, result.getStatus());
+        Project stored = projectDAO.findProjectByNumber(projectNo);
+        assertEquals("Renamed by them", stored.getName());
+        assertEquals(20_000, stored.getAmountPaid());
+        assertEquals("2031-01-31", stored.getDeadline());
+        assertEquals(theirs.getVersion() + 1, stored.getVersion());
+    }
+
+    @Test
+    void mergeOntoShownRowWritesAtItsVersion() throws SQLException {
+        Project mine = projectDAO.findProjectByNumber(projectNo);
+        Project theirs = projectDAO.findProjectByNumber(projectNo);
+        theirs.setType("Barn");
+        projectDAO.updateProject(theirs);
+
+        mine.setName("Renamed by me");
+        WriteResult shown = projectDAO.updateProjectIfCurrent(mine);
+        assertEquals(WriteResult.Status.CONFLICT, shown.getStatus());
+
+        Project merged = ProjectFields.merge(mine, shown.getCurrent());
+        assertEquals(shown.getCurrent().getVersion(), merged.getVersion());
+        assertEquals(WriteResult.Status.APPLIED, projectDAO.updateProjectIfCurrent(merged).getStatus());
+
+        Project stored = projectDAO.findProjectByNumber(projectNo);
+        assertEquals("Renamed by me", stored.getName());
+        assertEquals("Barn", stored.getType());
+    }
+}